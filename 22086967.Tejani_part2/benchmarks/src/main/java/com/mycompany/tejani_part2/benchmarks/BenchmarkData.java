@@ -0,0 +1,76 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.utilities.DatasetGenerator;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Data files for the benchmarks, written by DatasetGenerator with a fixed
+ * seed so every fork and every run sees the same data
+ */
+final class BenchmarkData {
+    private static final long SEED = 42;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * A new temporary directory holding every data file for a dataset of the given patient count
+     */
+    static Path writeAll(int patients) {
+        Path dir = tempDirectory();
+        try {
+            new DatasetGenerator(patients, SEED).writeAll(dir, THREADS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    /**
+     * A new temporary directory holding one data file of exactly rows rows
+     */
+    static Path writeOne(EntitySchema<?> schema, int rows) {
+        Path dir = tempDirectory();
+        try {
+            new DatasetGenerator(Math.max(rows, 1), SEED)
+                .writeFile(schema, rows, dir.resolve(schema.getName() + ".csv"), THREADS);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dir;
+    }
+
+    /**
+     * Drop System.out (the loaders' progress lines) until the returned stream is put back
+     */
+    static PrintStream silenceStdout() {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return stdout;
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path tempDirectory() {
+        try {
+            return Files.createTempDirectory("healthcare-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.models.Patient;
+import com.mycompany.tejani_part2.utilities.CSVReader;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * CSV parsing of a patients file: the record parser alone over text in
+ * memory, readCSV from disk, and readEntities from disk through to Patient
+ * objects. (CSVReader.parseCSVLine, the old line parser, was replaced by
+ * CSVReader.Parser; "bench-csv" in the CLI still compares the two.)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private String file;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = BenchmarkData.writeOne(EntitySchema.PATIENTS, rows);
+        file = dir.resolve("patients.csv").toString();
+        text = new String(Files.readAllBytes(Path.of(file)), Charset.defaultCharset());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public int parseInMemory(Blackhole blackhole) throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader(text));
+        int records = 0;
+        String[] record;
+        while ((record = parser.next()) != null) {
+            blackhole.consume(record);
+            records++;
+        }
+        return records;
+    }
+
+    @Benchmark
+    public List<String[]> readCSV() {
+        return CSVReader.readCSV(file, true, EntitySchema.PATIENTS.getColumnCount(), new ArrayList<>());
+    }
+
+    @Benchmark
+    public List<Patient> readEntities() throws IOException {
+        return CSVReader.readEntities(file, EntitySchema.PATIENTS, new ArrayList<>());
+    }
+}
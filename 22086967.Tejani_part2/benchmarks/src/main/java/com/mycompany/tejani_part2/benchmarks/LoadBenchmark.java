@@ -0,0 +1,71 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.models.ReferralManager;
+import com.mycompany.tejani_part2.utilities.DataManager;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Each DataManager.load* method over a file of the given number of rows,
+ * including the index rebuilds a load does
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+    @Param({"patients", "clinicians", "facilities", "appointments", "prescriptions", "referrals", "staff"})
+    public String entity;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private String file;
+    private DataManager data;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EntitySchema<?> schema = EntitySchema.forName(entity);
+        dir = BenchmarkData.writeOne(schema, rows);
+        file = dir.resolve(entity + ".csv").toString();
+        data = new DataManager();
+        stdout = BenchmarkData.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        data.detachReferrals();
+        ReferralManager.getInstance().clearAll();
+        BenchmarkData.deleteRecursively(dir);
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public boolean load() {
+        switch (entity) {
+            case "patients":
+                return data.loadPatients(file);
+            case "clinicians":
+                return data.loadClinicians(file);
+            case "facilities":
+                return data.loadFacilities(file);
+            case "appointments":
+                return data.loadAppointments(file);
+            case "prescriptions":
+                return data.loadPrescriptions(file);
+            case "referrals":
+                // loadReferrals adds to what is there, so start from empty like the others
+                ReferralManager.getInstance().clearAll();
+                return data.loadReferrals(file);
+            default:
+                return data.loadStaff(file);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A controller with a whole generated dataset loaded, shared by the threads
+ * of a benchmark. Loader progress lines are dropped so they do not end up in
+ * the results.
+ */
+@State(Scope.Benchmark)
+public class LoadedDataset {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    HealthcareController controller;
+    private Path dir;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stdout = BenchmarkData.silenceStdout();
+        dir = BenchmarkData.writeAll(rows);
+        ReferralManager.getInstance().clearAll();
+        controller = new HealthcareController();
+        controller.loadPatients(file("patients"));
+        controller.loadClinicians(file("clinicians"));
+        controller.loadFacilities(file("facilities"));
+        controller.loadAppointments(file("appointments"));
+        controller.loadPrescriptions(file("prescriptions"));
+        controller.loadReferrals(file("referrals"));
+        controller.loadStaff(file("staff"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ReferralManager.getInstance().clearAll();
+        BenchmarkData.deleteRecursively(dir);
+        System.setOut(stdout);
+    }
+
+    private String file(String entity) {
+        return dir.resolve(entity + ".csv").toString();
+    }
+}
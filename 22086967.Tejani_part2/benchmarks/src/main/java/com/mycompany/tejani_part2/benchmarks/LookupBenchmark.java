@@ -0,0 +1,100 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.models.*;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Primary-key and secondary-index lookups, text search and next-ID
+ * generation against a loaded dataset. Keys are drawn at random from rows
+ * that exist, so the lookups do not all hit the same cache lines.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int KEYS = 1024;
+
+    private final String[] patientIds = new String[KEYS];
+    private final String[] clinicianIds = new String[KEYS];
+    private final String[] appointmentIds = new String[KEYS];
+    private final String[] staffIds = new String[KEYS];
+    private final String[] facilityIds = new String[KEYS];
+    private final String[] surnames = new String[KEYS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(LoadedDataset dataset) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Patient> patients = dataset.controller.getAllPatients();
+        List<Clinician> clinicians = dataset.controller.getAllClinicians();
+        List<Appointment> appointments = dataset.controller.getAllAppointments();
+        List<Staff> staff = dataset.controller.getAllStaff();
+        List<Facility> facilities = dataset.controller.getAllFacilities();
+        for (int i = 0; i < KEYS; i++) {
+            Patient patient = patients.get(random.nextInt(patients.size()));
+            patientIds[i] = patient.getPatientId();
+            surnames[i] = patient.getLastName();
+            clinicianIds[i] = clinicians.get(random.nextInt(clinicians.size())).getClinicianId();
+            appointmentIds[i] = appointments.get(random.nextInt(appointments.size())).getAppointmentId();
+            staffIds[i] = staff.get(random.nextInt(staff.size())).getStaffId();
+            facilityIds[i] = facilities.get(random.nextInt(facilities.size())).getFacilityId();
+        }
+    }
+
+    private int key() {
+        next = (next + 1) & (KEYS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Patient getPatientById(LoadedDataset dataset) {
+        return dataset.controller.getPatientById(patientIds[key()]);
+    }
+
+    @Benchmark
+    public Clinician getClinicianById(LoadedDataset dataset) {
+        return dataset.controller.getClinicianById(clinicianIds[key()]);
+    }
+
+    @Benchmark
+    public Appointment getAppointmentById(LoadedDataset dataset) {
+        return dataset.controller.getAppointmentById(appointmentIds[key()]);
+    }
+
+    @Benchmark
+    public Staff getStaffById(LoadedDataset dataset) {
+        return dataset.controller.getStaffById(staffIds[key()]);
+    }
+
+    @Benchmark
+    public Set<String> findAppointmentsByClinician(LoadedDataset dataset) {
+        return dataset.controller.findAppointmentIds(clinicianIds[key()], "Scheduled", null, null);
+    }
+
+    @Benchmark
+    public List<Staff> findStaffByFacilityAndRole(LoadedDataset dataset) {
+        return dataset.controller.findStaff(facilityIds[key()], "Nurse");
+    }
+
+    @Benchmark
+    public List<Patient> searchPatients(LoadedDataset dataset) {
+        return dataset.controller.searchPatients(surnames[key()], 20);
+    }
+
+    @Benchmark
+    public String generateNextPatientId(LoadedDataset dataset) {
+        return dataset.controller.generateNextPatientId();
+    }
+
+    @Benchmark
+    public String generateNextAppointmentId(LoadedDataset dataset) {
+        return dataset.controller.generateNextAppointmentId();
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.tejani_part2.benchmarks;
+
+import com.mycompany.tejani_part2.models.Clinician;
+import com.mycompany.tejani_part2.models.Patient;
+import com.mycompany.tejani_part2.models.Referral;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The referral queue, and createReferral end to end: validation, the
+ * transaction, the letter file, the email and the audit trail. createReferral
+ * writes files to the working directory, and the email log and audit trail it
+ * rewrites grow with every call, so its cost rises over a run.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferralBenchmark {
+    private int sequence;
+    private List<Patient> patients;
+    private List<Clinician> clinicians;
+
+    @Setup(Level.Trial)
+    public void setUp(LoadedDataset dataset) {
+        patients = dataset.controller.getAllPatients();
+        clinicians = dataset.controller.getAllClinicians();
+    }
+
+    @Benchmark
+    public Referral addAndProcessReferral() {
+        ReferralManager manager = ReferralManager.getInstance();
+        String id = "RB" + (sequence++);
+        manager.addReferral(new Referral(id, "P1", "C1", "C2", "S1", "S2", "2024-06-01", "Routine",
+            "Specialist opinion", "Benchmark referral", "", "New", "", "", "2024-06-01", "2024-06-01"));
+        return manager.processNextReferral();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean createReferral(LoadedDataset dataset) {
+        int i = sequence++;
+        Clinician from = clinicians.get(i % clinicians.size());
+        Clinician to = clinicians.get((i + 1) % clinicians.size());
+        return dataset.controller.createReferral(patients.get(i % patients.size()).getPatientId(),
+            from.getClinicianId(), to.getClinicianId(), from.getWorkplaceId(), to.getWorkplaceId(),
+            "Routine", "Specialist opinion", "Benchmark referral", "Blood test", "");
+    }
+}
@@ -1,5 +1,15 @@
 package com.mycompany.tejani_part2;
 
+import com.mycompany.tejani_part2.cli.HealthcareCLI;
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.server.HealthcareServer;
+import com.mycompany.tejani_part2.utilities.FeedFollower;
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.SwingConstants;
@@ -9,15 +19,46 @@ import javax.swing.SwingConstants;
  * This version will compile even if other classes have issues
  */
 public class App {
-    
+
+    private static final int DEFAULT_PORT = 8080;
+
     public static void main(String[] args) {
+        // Batch commands run headless and keep stdout for their JSON result
+        if (args.length > 0 && HealthcareCLI.isCommand(args[0])) {
+            System.exit(HealthcareCLI.run(args));
+        }
+
         System.out.println("╔════════════════════════════════════════════════════╗");
         System.out.println("║   Healthcare Management System v1.0               ║");
         System.out.println("║   Student: 22086967.Tejani                         ║");
         System.out.println("╚════════════════════════════════════════════════════╝");
         System.out.println();
         System.out.println("Application starting...");
-        
+
+        // Headless API mode: --server [port] [--watch] [--follow[=millis]]
+        if (args.length > 0 && args[0].equals("--server")) {
+            List<String> options = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+            boolean watch = options.remove("--watch");
+            long followMillis = 0;
+            for (Iterator<String> it = options.iterator(); it.hasNext(); ) {
+                String option = it.next();
+                if (option.equals("--follow") || option.startsWith("--follow=")) {
+                    followMillis = option.indexOf('=') < 0 ? FeedFollower.DEFAULT_LATENCY_MILLIS
+                        : Long.parseLong(option.substring(option.indexOf('=') + 1));
+                    it.remove();
+                }
+            }
+            startServer(options.isEmpty() ? DEFAULT_PORT : Integer.parseInt(options.get(0)), watch, followMillis);
+            return;
+        }
+
+        // No display: say how to run the batch commands instead of opening a window
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println("⚠ No display available. Headless commands: "
+                + String.join(", ", HealthcareCLI.COMMANDS) + ", --server [port] [--watch] [--follow[=millis]]");
+            System.exit(2);
+        }
+
         // Try to launch full GUI
         try {
             Class<?> guiClass = Class.forName("com.mycompany.tejani_part2.views.HealthcareGUI");
@@ -54,4 +95,35 @@ public class App {
             System.out.println("3. Clean and Build project again");
         }
     }
+
+    /**
+     * Load the data files and serve the JSON API until the process is stopped;
+     * with watch, later changes to the data files are applied as they happen,
+     * and with followMillis > 0 records appended to the appointment and
+     * prescription files are ingested in batches that far apart
+     */
+    private static void startServer(int port, boolean watch, long followMillis) {
+        HealthcareController controller = new HealthcareController();
+        if (!controller.loadAllData()) {
+            System.err.println("⚠ Some data files could not be loaded");
+        }
+        try {
+            HealthcareServer server = new HealthcareServer(controller, port);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+            System.out.println("✓ API listening on http://localhost:" + server.getPort() + "/api/");
+            System.out.println("  Requests run on a " + server.getExecutorDescription());
+            if (watch) {
+                controller.startWatchingDataFiles(server.getWriteExecutor());
+                System.out.println("  Watching the data files for changes");
+            }
+            if (followMillis > 0) {
+                controller.startFollowingFeeds(followMillis, server.getWriteExecutor());
+                System.out.println("  Following the appointment and prescription feeds every " + followMillis + " ms");
+            }
+        } catch (IOException e) {
+            System.err.println("⚠ Could not start server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,611 @@
+package com.mycompany.tejani_part2.cli;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.models.Referral;
+import com.mycompany.tejani_part2.utilities.CSVReader;
+import com.mycompany.tejani_part2.utilities.Compression;
+import com.mycompany.tejani_part2.utilities.DatasetGenerator;
+import com.mycompany.tejani_part2.utilities.DuplicatePatientDetector;
+import com.mycompany.tejani_part2.utilities.IntegrityReport;
+import com.mycompany.tejani_part2.utilities.Json;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Headless batch entry point for nightly jobs (no Swing classes are touched)
+ *
+ *   import            [--data dir]                      load every CSV file and report row counts
+ *   validate          [--data dir]                      load and check every reference and primary key
+ *   export            [--data dir] entity file [name=value ...]
+ *   referral-letters  [--data dir] [--out dir] [--status s]   write letters in parallel
+ *   stats             [--data dir]                      counts by entity and status
+ *   duplicates        [--data dir] [--threshold t] [--out file]   candidate duplicate patient groups
+ *   bench-csv         file [--iterations n]             time the CSV parser against the old line parser
+ *   generate          --out dir [--patients n] [--seed s] [--threads t]   synthetic data files for scale testing
+ *
+ * The loaders touch separate tables, so they run in parallel. Loader
+ * chatter goes to stderr; stdout gets a single JSON object with the result
+ * and per-step timings in milliseconds. Exit code 0 on success, 1 on failure,
+ * 2 on bad usage.
+ */
+public class HealthcareCLI {
+    public static final List<String> COMMANDS =
+        Arrays.asList("import", "validate", "export", "referral-letters", "stats", "duplicates", "bench-csv",
+            "generate");
+
+    private static final int MAX_LISTED = 100;
+    private static final int BENCH_WARMUP = 5;
+    private static final int DEFAULT_GENERATED_PATIENTS = 100_000;
+
+    private static final String[] ENTITIES =
+        {"patients", "clinicians", "facilities", "appointments", "prescriptions", "referrals", "staff"};
+
+    private final PrintStream out;
+    private final HealthcareController controller = new HealthcareController();
+    private final Map<String, Object> result = new LinkedHashMap<>();
+    private final Map<String, Object> timings = new LinkedHashMap<>();
+    private String dataDir = ".";
+
+    private HealthcareCLI(PrintStream out) {
+        this.out = out;
+    }
+
+    public static boolean isCommand(String arg) {
+        return COMMANDS.contains(arg);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Run one command and return the process exit code
+     */
+    public static int run(String[] args) {
+        PrintStream stdout = System.out;
+        // Keep stdout for the JSON result; the loaders print progress with System.out
+        System.setOut(System.err);
+        try {
+            return new HealthcareCLI(stdout).execute(args);
+        } finally {
+            System.setOut(stdout);
+        }
+    }
+
+    private int execute(String[] args) {
+        if (args.length == 0 || !isCommand(args[0])) {
+            System.err.println("Usage: <" + String.join("|", COMMANDS) + "> [--data dir] [options]");
+            return 2;
+        }
+        String command = args[0];
+        List<String> rest = new ArrayList<>();
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Missing value for " + args[i]);
+                    return 2;
+                }
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        dataDir = options.getOrDefault("data", ".");
+
+        result.put("command", command);
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            switch (command) {
+                case "import":
+                    ok = importData();
+                    break;
+                case "validate":
+                    ok = validate();
+                    break;
+                case "export":
+                    ok = export(rest);
+                    break;
+                case "referral-letters":
+                    ok = referralLetters(options);
+                    break;
+                case "duplicates":
+                    ok = duplicates(options);
+                    break;
+                case "bench-csv":
+                    ok = benchCsv(rest, options);
+                    break;
+                case "generate":
+                    ok = generate(options);
+                    break;
+                default:
+                    ok = stats();
+            }
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        } catch (RuntimeException e) {
+            result.put("error", String.valueOf(e.getMessage()));
+            ok = false;
+        }
+        timings.put("total", millisSince(start));
+        result.put("ok", ok);
+        result.put("timings_ms", timings);
+        out.println(Json.write(result));
+        out.flush();
+        return ok ? 0 : 1;
+    }
+
+    // ==================== COMMANDS ====================
+
+    private boolean importData() {
+        Map<String, Boolean> loaded = loadAll();
+        result.put("rows", rowCounts());
+        result.put("rejected_rows", rejectedCounts());
+        IntegrityReport report = checkIntegrity();
+        result.put("orphans", report.getOrphanCount());
+        result.put("duplicates", report.getDuplicateCount());
+        return reportNotLoaded(loaded);
+    }
+
+    /**
+     * Load, then check every reference and primary key; fails on any problem
+     */
+    private boolean validate() {
+        Map<String, Boolean> loaded = loadAll();
+        List<String> problems = new ArrayList<>();
+        for (String entity : notLoaded(loaded)) {
+            problems.add(entity + ": file is missing or could not be read");
+        }
+        for (Map.Entry<String, List<CSVReader.RowError>> entry : controller.getLoadErrors().entrySet()) {
+            for (CSVReader.RowError error : entry.getValue()) {
+                if (problems.size() < MAX_LISTED) {
+                    problems.add(entry.getKey() + " " + error);
+                }
+            }
+        }
+        result.put("rows", rowCounts());
+        result.put("rejected_rows", rejectedCounts());
+        result.put("problems", problems);
+        IntegrityReport report = checkIntegrity();
+        result.put("integrity", report.toMap());
+        return problems.isEmpty() && report.isClean();
+    }
+
+    private IntegrityReport checkIntegrity() {
+        IntegrityReport report = controller.validateIntegrity();
+        timings.put("integrity", report.getElapsedMillis());
+        return report;
+    }
+
+    private boolean export(List<String> args) {
+        if (args.size() < 2) {
+            throw new UsageException("Usage: export [--data dir] <entity> <file> [name=value ...]");
+        }
+        Map<String, String> filters = new LinkedHashMap<>();
+        for (String arg : args.subList(2, args.size())) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new UsageException("Filters must look like name=value: " + arg);
+            }
+            filters.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        if (!loadAll().containsValue(true)) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            long rows = controller.exportToFile(args.get(0), filters, Paths.get(args.get(1)));
+            result.put("entity", args.get(0));
+            result.put("file", args.get(1));
+            result.put("rows", rows);
+            return true;
+        } catch (IllegalArgumentException | IOException e) {
+            result.put("error", e.getMessage());
+            return false;
+        } finally {
+            timings.put("export", millisSince(start));
+        }
+    }
+
+    /**
+     * Letters are independent files, so they are written from a parallel stream
+     */
+    private boolean referralLetters(Map<String, String> options) {
+        Map<String, Boolean> loaded = loadAll();
+        if (!loaded.get("referrals")) {
+            return false;
+        }
+        File outDir = new File(options.getOrDefault("out", "."));
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            result.put("error", "Cannot create " + outDir);
+            return false;
+        }
+        String status = options.get("status");
+        Predicate<Referral> wanted = status == null ? r -> true : r -> status.equalsIgnoreCase(r.getStatus());
+
+        long start = System.nanoTime();
+        AtomicInteger written = new AtomicInteger();
+        List<String> failed = controller.getAllReferrals().parallelStream()
+            .filter(wanted)
+            .map(Referral::getReferralId)
+            .filter(id -> {
+                boolean ok = controller.generateReferralLetter(id, outDir);
+                if (ok) {
+                    written.incrementAndGet();
+                }
+                return !ok;
+            })
+            .sorted()
+            .collect(Collectors.toList());
+        controller.saveReferralAuditTrail();
+        timings.put("letters", millisSince(start));
+
+        result.put("directory", outDir.getPath());
+        result.put("written", written.get());
+        result.put("failed", failed);
+        return failed.isEmpty();
+    }
+
+    private boolean stats() {
+        Map<String, Boolean> loaded = loadAll();
+        long start = System.nanoTime();
+        result.put("rows", rowCounts());
+
+        Map<String, Integer> appointmentStatuses = new TreeMap<>();
+        for (String status : controller.getAppointmentStatuses()) {
+            appointmentStatuses.put(status, controller.findAppointmentIds(null, status, null, null).size());
+        }
+        Map<String, Integer> prescriptionStatuses = new TreeMap<>();
+        for (String status : controller.getPrescriptionStatuses()) {
+            prescriptionStatuses.put(status, controller.findPrescriptionIds(status).size());
+        }
+        Map<String, Long> referralStatuses = controller.getAllReferrals().stream()
+            .collect(Collectors.groupingBy(Referral::getStatus, TreeMap::new, Collectors.counting()));
+        Map<String, Long> referralUrgency = controller.getAllReferrals().stream()
+            .collect(Collectors.groupingBy(Referral::getUrgencyLevel, TreeMap::new, Collectors.counting()));
+
+        result.put("appointments_by_status", appointmentStatuses);
+        result.put("prescriptions_by_status", prescriptionStatuses);
+        result.put("referrals_by_status", referralStatuses);
+        result.put("referrals_by_urgency", referralUrgency);
+        result.put("pending_referrals", controller.getPendingReferralsCount());
+        timings.put("stats", millisSince(start));
+        return reportNotLoaded(loaded);
+    }
+
+    /**
+     * Groups go to --out as one JSON object per line; without --out the
+     * first MAX_LISTED groups are included in the result
+     */
+    private boolean duplicates(Map<String, String> options) {
+        double threshold = parseThreshold(options.get("threshold"));
+        Map<String, Boolean> loaded = loadAll();
+        if (!loaded.get("patients")) {
+            return false;
+        }
+        DuplicatePatientDetector.Result found = controller.findDuplicatePatients(threshold);
+        timings.put("duplicates", found.getElapsedMillis());
+
+        List<DuplicatePatientDetector.Group> groups = found.getGroups();
+        result.put("threshold", threshold);
+        result.put("groups", groups.size());
+        result.put("patients_in_groups", groups.stream().mapToInt(g -> g.getPatientIds().size()).sum());
+        result.put("blocks", found.getBlocks());
+        result.put("oversized_blocks", found.getOversizedBlocks());
+        result.put("comparisons", found.getComparisons());
+
+        String outFile = options.get("out");
+        if (outFile == null) {
+            result.put("merge_groups", groups.stream().limit(MAX_LISTED)
+                .map(DuplicatePatientDetector.Group::toMap).collect(Collectors.toList()));
+            return true;
+        }
+        try (Writer writer = Files.newBufferedWriter(Paths.get(outFile), StandardCharsets.UTF_8)) {
+            for (DuplicatePatientDetector.Group group : groups) {
+                Json.write(writer, group.toMap());
+                writer.write('\n');
+            }
+            result.put("file", outFile);
+            return true;
+        } catch (IOException e) {
+            result.put("error", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parse the same file with the RFC 4180 parser and with the line-at-a-time
+     * parser it replaced. The file is read into memory first so only parsing
+     * is timed; both get BENCH_WARMUP untimed passes, then they alternate.
+     */
+    private boolean benchCsv(List<String> args, Map<String, String> options) {
+        if (args.isEmpty()) {
+            throw new UsageException("Usage: bench-csv <file> [--iterations n]");
+        }
+        int iterations = parseIterations(options.get("iterations"));
+        String text;
+        try (InputStream in = Compression.open(Compression.resolve(Paths.get(args.get(0))))) {
+            text = new String(in.readAllBytes(), CSVReader.CHARSET);
+        } catch (IOException e) {
+            result.put("error", e.getMessage());
+            return false;
+        }
+
+        long legacyNanos = 0;
+        long parserNanos = 0;
+        int legacyRows = 0;
+        int parserRows = 0;
+        try {
+            for (int i = 0; i < BENCH_WARMUP + iterations; i++) {
+                long t = System.nanoTime();
+                legacyRows = legacyParse(text);
+                long legacy = System.nanoTime() - t;
+                t = System.nanoTime();
+                parserRows = rfc4180Parse(text);
+                long parser = System.nanoTime() - t;
+                if (i >= BENCH_WARMUP) {
+                    legacyNanos += legacy;
+                    parserNanos += parser;
+                }
+            }
+        } catch (IOException e) {
+            result.put("error", e.getMessage());
+            return false;
+        }
+
+        result.put("file", args.get(0));
+        result.put("chars", text.length());
+        result.put("iterations", iterations);
+        Map<String, Object> rows = new LinkedHashMap<>();
+        rows.put("legacy", legacyRows);
+        rows.put("rfc4180", parserRows);
+        result.put("rows", rows);
+        Map<String, Object> rowsPerSecond = new LinkedHashMap<>();
+        rowsPerSecond.put("legacy", Math.round(legacyRows * iterations / (legacyNanos / 1e9)));
+        rowsPerSecond.put("rfc4180", Math.round(parserRows * iterations / (parserNanos / 1e9)));
+        result.put("rows_per_second", rowsPerSecond);
+        result.put("speedup", Math.round(100.0 * legacyNanos / parserNanos) / 100.0);
+        timings.put("legacy", legacyNanos / 1_000_000);
+        timings.put("rfc4180", parserNanos / 1_000_000);
+        return true;
+    }
+
+    private static int parseIterations(String value) {
+        return parsePositive("iterations", value, 20);
+    }
+
+    private static int parsePositive(String option, String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new UsageException("--" + option + " must be a positive whole number");
+    }
+
+    private static int rfc4180Parse(String text) throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader(text));
+        int rows = 0;
+        while (parser.next() != null) {
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * The parser CSVReader used before the RFC 4180 one, kept as the baseline:
+     * one String per line, a quote toggles quoting, values are trimmed
+     */
+    private static int legacyParse(String text) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(text));
+        int rows = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            List<String> values = new ArrayList<>();
+            boolean inQuotes = false;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == ',' && !inQuotes) {
+                    values.add(sb.toString().trim());
+                    sb = new StringBuilder();
+                } else {
+                    sb.append(c);
+                }
+            }
+            values.add(sb.toString().trim());
+            values.toArray(new String[0]);
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Write a full synthetic dataset; the same seed and patient count always give the same files
+     */
+    private boolean generate(Map<String, String> options) {
+        String out = options.get("out");
+        if (out == null) {
+            throw new UsageException("Usage: generate --out <dir> [--patients n] [--seed s] [--threads t]");
+        }
+        int patients = parsePositive("patients", options.get("patients"), DEFAULT_GENERATED_PATIENTS);
+        int threads = parsePositive("threads", options.get("threads"), Runtime.getRuntime().availableProcessors());
+        long seed;
+        try {
+            seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        } catch (NumberFormatException e) {
+            throw new UsageException("--seed must be a whole number");
+        }
+
+        long start = System.nanoTime();
+        Map<String, Long> rows;
+        try {
+            rows = new DatasetGenerator(patients, seed).writeAll(Paths.get(out), threads);
+        } catch (IOException e) {
+            result.put("error", e.getMessage());
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+        long total = rows.values().stream().mapToLong(Long::longValue).sum();
+        result.put("directory", out);
+        result.put("seed", seed);
+        result.put("rows", rows);
+        result.put("rows_per_second", Math.round(total / (elapsed / 1e9)));
+        timings.put("generate", elapsed / 1_000_000);
+        return true;
+    }
+
+    private static double parseThreshold(String value) {
+        if (value == null) {
+            return DuplicatePatientDetector.DEFAULT_THRESHOLD;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("--threshold must be a number between 0 and 1");
+        }
+    }
+
+    // ==================== LOADING ====================
+
+    /**
+     * Run the loaders in parallel; each fills its own table and indexes
+     * (the shared text index is synchronized). Returns success per entity.
+     */
+    private Map<String, Boolean> loadAll() {
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.min(ENTITIES.length, Runtime.getRuntime().availableProcessors()));
+        Map<String, Future<Boolean>> futures = new LinkedHashMap<>();
+        Map<String, Object> loadTimings = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        try {
+            for (String entity : ENTITIES) {
+                String file = new File(dataDir, entity + ".csv").getPath();
+                Supplier<Boolean> loader = loaderFor(entity, file);
+                futures.put(entity, pool.submit(() -> {
+                    long t = System.nanoTime();
+                    try {
+                        return loader.get();
+                    } finally {
+                        loadTimings.put(entity, millisSince(t));
+                    }
+                }));
+            }
+            Map<String, Boolean> loaded = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Boolean>> entry : futures.entrySet()) {
+                loaded.put(entry.getKey(), await(entry.getValue()));
+            }
+            Map<String, Object> ordered = new LinkedHashMap<>();
+            for (String entity : ENTITIES) {
+                ordered.put(entity, loadTimings.get(entity));
+            }
+            ordered.put("wall", millisSince(start));
+            timings.put("load", ordered);
+            return loaded;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Supplier<Boolean> loaderFor(String entity, String file) {
+        switch (entity) {
+            case "patients": return () -> controller.loadPatients(file);
+            case "clinicians": return () -> controller.loadClinicians(file);
+            case "facilities": return () -> controller.loadFacilities(file);
+            case "appointments": return () -> controller.loadAppointments(file);
+            case "prescriptions": return () -> controller.loadPrescriptions(file);
+            case "staff": return () -> controller.loadStaff(file);
+            default: return () -> controller.loadReferrals(file);
+        }
+    }
+
+    private static boolean await(Future<Boolean> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("Loader failed: " + e.getCause());
+            return false;
+        }
+    }
+
+    private static List<String> notLoaded(Map<String, Boolean> loaded) {
+        List<String> entities = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : loaded.entrySet()) {
+            if (!entry.getValue()) {
+                entities.add(entry.getKey());
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * List the files that could not be loaded (a missing file is not an
+     * empty table); returns whether every file loaded
+     */
+    private boolean reportNotLoaded(Map<String, Boolean> loaded) {
+        List<String> entities = notLoaded(loaded);
+        if (!entities.isEmpty()) {
+            result.put("not_loaded", entities);
+        }
+        return entities.isEmpty();
+    }
+
+    private Map<String, Integer> rowCounts() {
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        rows.put("patients", controller.getAllPatients().size());
+        rows.put("clinicians", controller.getAllClinicians().size());
+        rows.put("facilities", controller.getAllFacilities().size());
+        rows.put("appointments", controller.getAllAppointments().size());
+        rows.put("prescriptions", controller.getAllPrescriptions().size());
+        rows.put("referrals", controller.getAllReferrals().size());
+        rows.put("staff", controller.getAllStaff().size());
+        return rows;
+    }
+
+    private Map<String, Integer> rejectedCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, List<CSVReader.RowError>> entry : controller.getLoadErrors().entrySet()) {
+            counts.put(entry.getKey(), (int) entry.getValue().stream().filter(CSVReader.RowError::isSkipped).count());
+        }
+        return counts;
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private static class UsageException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,9 +1,22 @@
 package com.mycompany.tejani_part2.controllers;
 import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.utilities.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Controller class - handles business logic and coordinates between Model and View (MVC)
@@ -11,25 +24,99 @@ import java.util.List;
 public class HealthcareController {
     private DataManager dataManager;
     private ReferralManager referralManager;
+    private CsvFileWatcher fileWatcher;
+    private FeedFollower feedFollower;
+    // Directory of the last loadAllData(), which the watcher and feeds use
+    // (null for the working directory)
+    private volatile File dataDir;
+    
+    // Every committed transaction is recorded here, next to the referral logs
+    public static final String COMMIT_LOG_FILE = "transactions.log";
     
     public HealthcareController() {
         this.dataManager = new DataManager();
         this.referralManager = ReferralManager.getInstance();
+        dataManager.setCommitLog(Paths.get(COMMIT_LOG_FILE));
     }
     
     // ==================== DATA LOADING ====================
     
     public boolean loadAllData() {
+        return loadAllData(null);
+    }
+    
+    /**
+     * Load the data files from dataDir (null for the working directory),
+     * e.g. a dataset written by DatasetGenerator
+     */
+    public boolean loadAllData(File dataDir) {
+        this.dataDir = dataDir;
         boolean success = true;
-        success &= dataManager.loadPatients("patients.csv");
-        success &= dataManager.loadClinicians("clinicians.csv");
-        success &= dataManager.loadFacilities("facilities.csv");
-        success &= dataManager.loadAppointments("appointments.csv");
-        success &= dataManager.loadPrescriptions("prescriptions.csv");
-        success &= dataManager.loadReferrals("referrals.csv");
+        success &= dataManager.loadPatients(new File(dataDir, "patients.csv").getPath());
+        success &= dataManager.loadClinicians(new File(dataDir, "clinicians.csv").getPath());
+        success &= dataManager.loadFacilities(new File(dataDir, "facilities.csv").getPath());
+        success &= dataManager.loadAppointments(new File(dataDir, "appointments.csv").getPath());
+        success &= dataManager.loadPrescriptions(new File(dataDir, "prescriptions.csv").getPath());
+        success &= dataManager.loadReferrals(new File(dataDir, "referrals.csv").getPath());
+        success &= dataManager.loadStaff(new File(dataDir, "staff.csv").getPath());
         return success;
     }
     
+    /**
+     * Start applying changes that other systems make to the data files in the
+     * directory they were loaded from, row by row, on the given executor; see
+     * CsvFileWatcher
+     */
+    public synchronized void startWatchingDataFiles(Executor applyOn) throws IOException {
+        if (fileWatcher != null) {
+            return;
+        }
+        CsvFileWatcher watcher = new CsvFileWatcher(dataManager, dataDirectory(), applyOn);
+        for (EntitySchema<?> schema : EntitySchema.ALL) {
+            watcher.watch(schema);
+        }
+        watcher.start();
+        fileWatcher = watcher;
+    }
+    
+    public synchronized void stopWatchingDataFiles() {
+        if (fileWatcher != null) {
+            fileWatcher.close();
+            fileWatcher = null;
+        }
+    }
+    
+    public synchronized boolean isWatchingDataFiles() {
+        return fileWatcher != null;
+    }
+    
+    /**
+     * Ingest records appended to appointments.csv and prescriptions.csv in
+     * the data directory from now on, in batches at most latencyMillis apart;
+     * see FeedFollower
+     */
+    public synchronized void startFollowingFeeds(long latencyMillis, Executor applyOn) throws IOException {
+        if (feedFollower != null) {
+            return;
+        }
+        FeedFollower follower = new FeedFollower(dataManager, applyOn, latencyMillis);
+        follower.follow(EntitySchema.APPOINTMENTS, dataDirectory().resolve("appointments.csv"));
+        follower.follow(EntitySchema.PRESCRIPTIONS, dataDirectory().resolve("prescriptions.csv"));
+        follower.start();
+        feedFollower = follower;
+    }
+    
+    public synchronized void stopFollowingFeeds() {
+        if (feedFollower != null) {
+            feedFollower.close();
+            feedFollower = null;
+        }
+    }
+    
+    private Path dataDirectory() {
+        return dataDir == null ? Paths.get(".") : dataDir.toPath();
+    }
+    
     public boolean loadPatients(String filename) {
         return dataManager.loadPatients(filename);
     }
@@ -54,26 +141,64 @@ public class HealthcareController {
         return dataManager.loadReferrals(filename);
     }
     
+    public boolean loadStaff(String filename) {
+        return dataManager.loadStaff(filename);
+    }
+    
+    /**
+     * Rows the loaders left out (malformed or missing columns), by entity
+     */
+    public Map<String, List<CSVReader.RowError>> getLoadErrors() {
+        return dataManager.getLoadErrors();
+    }
+    
+    // ==================== VERSIONS ====================
+    
+    /**
+     * Version of a row for optimistic updates (0 when missing). Pass it to the
+     * update method that takes an expectedVersion; that throws
+     * UpdateConflictException if the row changed in the meantime.
+     */
+    public long getVersion(EntitySchema<?> schema, String id) {
+        return dataManager.getVersion(schema, id);
+    }
+    
     // ==================== PATIENT OPERATIONS ====================
     
     public List<Patient> getAllPatients() {
         return dataManager.getPatients();
     }
     
+    public Patient getPatientById(String id) {
+        return dataManager.getPatientById(id);
+    }
+    
     public void addPatient(Patient patient) {
         dataManager.addPatient(patient);
     }
     
-    public void updatePatient(int index, Patient patient) {
-        dataManager.updatePatient(index, patient);
+    public void updatePatient(String id, Patient patient) {
+        dataManager.updatePatient(id, patient);
+    }
+    
+    public void updatePatient(String id, Patient patient, long expectedVersion) {
+        dataManager.updatePatient(id, patient, expectedVersion);
+    }
+    
+    public void deletePatient(String id) {
+        dataManager.deletePatient(id);
     }
     
-    public void deletePatient(int index) {
-        dataManager.deletePatient(index);
+    /**
+     * Type-ahead patient search for pickers (name prefix, fuzzy name, NHS number, postcode)
+     */
+    public List<Patient> searchPatients(String query, int limit) {
+        return dataManager.searchPatients(query, limit);
     }
     
     public String generateNextPatientId() {
-        return dataManager.generateNextId("P", dataManager.getPatients().size());
+        return dataManager.generateNextId("P", dataManager.getPatients().size(),
+            id -> dataManager.getPatientById(id) != null);
     }
     
     // ==================== CLINICIAN OPERATIONS ====================
@@ -82,20 +207,29 @@ public class HealthcareController {
         return dataManager.getClinicians();
     }
     
+    public Clinician getClinicianById(String id) {
+        return dataManager.getClinicianById(id);
+    }
+    
     public void addClinician(Clinician clinician) {
         dataManager.addClinician(clinician);
     }
     
-    public void updateClinician(int index, Clinician clinician) {
-        dataManager.updateClinician(index, clinician);
+    public void updateClinician(String id, Clinician clinician) {
+        dataManager.updateClinician(id, clinician);
     }
     
-    public void deleteClinician(int index) {
-        dataManager.deleteClinician(index);
+    public void updateClinician(String id, Clinician clinician, long expectedVersion) {
+        dataManager.updateClinician(id, clinician, expectedVersion);
+    }
+    
+    public void deleteClinician(String id) {
+        dataManager.deleteClinician(id);
     }
     
     public String generateNextClinicianId() {
-        return dataManager.generateNextId("C", dataManager.getClinicians().size());
+        return dataManager.generateNextId("C", dataManager.getClinicians().size(),
+            id -> dataManager.getClinicianById(id) != null);
     }
     
     // ==================== APPOINTMENT OPERATIONS ====================
@@ -104,20 +238,52 @@ public class HealthcareController {
         return dataManager.getAppointments();
     }
     
+    public Appointment getAppointmentById(String id) {
+        return dataManager.getAppointmentById(id);
+    }
+    
     public void addAppointment(Appointment appointment) {
         dataManager.addAppointment(appointment);
     }
     
-    public void updateAppointment(int index, Appointment appointment) {
-        dataManager.updateAppointment(index, appointment);
+    public void updateAppointment(String id, Appointment appointment) {
+        dataManager.updateAppointment(id, appointment);
+    }
+    
+    public void updateAppointment(String id, Appointment appointment, long expectedVersion) {
+        dataManager.updateAppointment(id, appointment, expectedVersion);
     }
     
-    public void deleteAppointment(int index) {
-        dataManager.deleteAppointment(index);
+    public void deleteAppointment(String id) {
+        dataManager.deleteAppointment(id);
+    }
+    
+    /**
+     * IDs of appointments matching the given clinician, status and ISO date range
+     * (blank criteria are ignored), answered from the secondary indexes
+     */
+    public Set<String> findAppointmentIds(String clinicianId, String status, String fromDate, String toDate) {
+        return dataManager.findAppointmentIds(clinicianId, status, fromDate, toDate);
+    }
+    
+    /**
+     * The criteria of findAppointmentIds as a check on one appointment, for keeping a filtered view current
+     */
+    public Predicate<Appointment> appointmentMatcher(String clinicianId, String status, String fromDate, String toDate) {
+        return dataManager.appointmentMatcher(clinicianId, status, fromDate, toDate);
+    }
+    
+    public Set<String> getAppointmentStatuses() {
+        return dataManager.getAppointmentStatuses();
+    }
+    
+    public Set<String> getAppointmentClinicianIds() {
+        return dataManager.getAppointmentClinicianIds();
     }
     
     public String generateNextAppointmentId() {
-        return dataManager.generateNextId("A", dataManager.getAppointments().size());
+        return dataManager.generateNextId("A", dataManager.getAppointments().size(),
+            id -> dataManager.getAppointmentById(id) != null);
     }
     
     // ==================== PRESCRIPTION OPERATIONS ====================
@@ -126,34 +292,166 @@ public class HealthcareController {
         return dataManager.getPrescriptions();
     }
     
+    public Prescription getPrescriptionById(String id) {
+        return dataManager.getPrescriptionById(id);
+    }
+    
+    /**
+     * Add an appointment together with the prescription issued at it; both
+     * are stored or, if the commit fails, neither is
+     */
+    public boolean addAppointmentWithPrescription(Appointment appointment, Prescription prescription) {
+        try (Transaction tx = dataManager.beginTransaction()) {
+            tx.add(EntitySchema.APPOINTMENTS, appointment);
+            tx.add(EntitySchema.PRESCRIPTIONS, prescription);
+            tx.commit();
+            return true;
+        } catch (IOException | UpdateConflictException e) {
+            System.err.println("Appointment " + appointment.getAppointmentId() + " was not added: " + e.getMessage());
+            return false;
+        }
+    }
+    
     public void addPrescription(Prescription prescription) {
         dataManager.addPrescription(prescription);
     }
     
-    public void updatePrescription(int index, Prescription prescription) {
-        dataManager.updatePrescription(index, prescription);
+    public void updatePrescription(String id, Prescription prescription) {
+        dataManager.updatePrescription(id, prescription);
+    }
+    
+    public void updatePrescription(String id, Prescription prescription, long expectedVersion) {
+        dataManager.updatePrescription(id, prescription, expectedVersion);
+    }
+    
+    public void deletePrescription(String id) {
+        dataManager.deletePrescription(id);
+    }
+    
+    /**
+     * IDs of prescriptions with the given status (all when blank)
+     */
+    public Set<String> findPrescriptionIds(String status) {
+        return dataManager.findPrescriptionIds(status);
+    }
+    
+    /**
+     * The criteria of findPrescriptionIds as a check on one prescription
+     */
+    public Predicate<Prescription> prescriptionMatcher(String status) {
+        return dataManager.prescriptionMatcher(status);
     }
     
-    public void deletePrescription(int index) {
-        dataManager.deletePrescription(index);
+    public Set<String> getPrescriptionStatuses() {
+        return dataManager.getPrescriptionStatuses();
     }
     
     public String generateNextPrescriptionId() {
-        return dataManager.generateNextId("RX", dataManager.getPrescriptions().size());
+        return dataManager.generateNextId("RX", dataManager.getPrescriptions().size(),
+            id -> dataManager.getPrescriptionById(id) != null);
     }
     
     public boolean savePrescriptions(String filename) {
         return dataManager.savePrescriptions(filename);
     }
     
+    // ==================== STAFF OPERATIONS ====================
+    
+    public List<Staff> getAllStaff() {
+        return dataManager.getStaff();
+    }
+    
+    public Staff getStaffById(String id) {
+        return dataManager.getStaffById(id);
+    }
+    
+    public void addStaff(Staff member) {
+        dataManager.addStaff(member);
+    }
+    
+    public void updateStaff(String id, Staff member) {
+        dataManager.updateStaff(id, member);
+    }
+    
+    public void updateStaff(String id, Staff member, long expectedVersion) {
+        dataManager.updateStaff(id, member, expectedVersion);
+    }
+    
+    public void deleteStaff(String id) {
+        dataManager.deleteStaff(id);
+    }
+    
+    /**
+     * Staff at a facility with a role, e.g. ("S001", "Receptionist"); either may be blank
+     */
+    public List<Staff> findStaff(String facilityId, String role) {
+        return dataManager.findStaff(facilityId, role);
+    }
+    
+    public List<Staff> getStaffByDepartment(String department) {
+        return dataManager.getStaffBy("department", department);
+    }
+    
+    public List<Staff> getStaffByAccessLevel(String accessLevel) {
+        return dataManager.getStaffBy("accessLevel", accessLevel);
+    }
+    
+    public StaffHierarchy.Person getLineManager(String staffId) {
+        return dataManager.getStaffHierarchy().getManager(staffId);
+    }
+    
+    /**
+     * Staff reporting directly to a staff member or clinician
+     */
+    public List<Staff> getDirectReports(String managerId) {
+        List<Staff> reports = new ArrayList<>();
+        for (String id : dataManager.getStaffHierarchy().getDirectReports(managerId)) {
+            reports.add(dataManager.getStaffById(id));
+        }
+        return reports;
+    }
+    
+    /**
+     * Who to escalate to from a staff member, nearest manager first
+     */
+    public List<StaffHierarchy.Person> getEscalationChain(String staffId) {
+        return dataManager.getStaffHierarchy().getEscalationChain(staffId);
+    }
+    
+    public String generateNextStaffId() {
+        return dataManager.generateNextId("ST", dataManager.getStaff().size(),
+            id -> dataManager.getStaffById(id) != null);
+    }
+    
+    public boolean saveStaff(String filename) {
+        return dataManager.saveStaff(filename);
+    }
+    
     // ==================== REFERRAL OPERATIONS ====================
     
     public List<Referral> getAllReferrals() {
         return referralManager.getAllReferrals();
     }
     
+    public Referral getReferralById(String id) {
+        return referralManager.getReferralById(id);
+    }
+    
+    public void updateReferralStatus(String id, String status) {
+        referralManager.updateReferralStatus(id, status);
+    }
+    
+    public void updateReferralStatus(String id, String status, long expectedVersion) {
+        referralManager.updateReferralStatus(id, status, expectedVersion);
+    }
+    
+    /**
+     * The ID the next referral would get if created now; createReferral picks
+     * its own inside the transaction, so this is only a preview
+     */
     public String generateNextReferralId() {
-        return dataManager.generateNextId("R", referralManager.getAllReferrals().size());
+        return dataManager.generateNextId("R", referralManager.getAllReferrals().size(),
+            id -> referralManager.getReferralById(id) != null);
     }
     
     /**
@@ -164,6 +462,18 @@ public class HealthcareController {
                                   String referredToFacilityId, String urgencyLevel,
                                   String referralReason, String clinicalSummary,
                                   String requestedInvestigations, String notes) {
+        return submitReferral(patientId, referringClinicianId, referredToClinicianId, referringFacilityId,
+            referredToFacilityId, urgencyLevel, referralReason, clinicalSummary, requestedInvestigations, notes) != null;
+    }
+    
+    /**
+     * As createReferral, but returns the stored referral (null when it was not created)
+     */
+    public Referral submitReferral(String patientId, String referringClinicianId,
+                                   String referredToClinicianId, String referringFacilityId,
+                                   String referredToFacilityId, String urgencyLevel,
+                                   String referralReason, String clinicalSummary,
+                                   String requestedInvestigations, String notes) {
         
         // Get entities
         Patient patient = dataManager.getPatientById(patientId);
@@ -175,53 +485,80 @@ public class HealthcareController {
         if (patient == null || referringClinician == null || receivingClinician == null ||
             referringFacility == null || receivingFacility == null) {
             System.err.println("Invalid referral data - missing entities");
-            return false;
+            return null;
         }
         
-        // Create referral
-        String referralId = generateNextReferralId();
         String currentDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        String referralId = null;
         
-        Referral referral = new Referral(
-            referralId,
-            patientId,
-            referringClinicianId,
-            referredToClinicianId,
-            referringFacilityId,
-            referredToFacilityId,
-            currentDate,
-            urgencyLevel,
-            referralReason,
-            clinicalSummary,
-            requestedInvestigations,
-            "New",
-            "",
-            notes,
-            currentDate,
-            currentDate
-        );
-        
-        // Add to system
-        referralManager.addReferral(referral);
-        
-        // Generate documents
-        boolean docGenerated = referralManager.generateReferralDocument(
-            referral, patient, referringClinician, receivingClinician,
-            referringFacility, receivingFacility
-        );
-        
-        // Generate email notification
-        referralManager.generateReferralEmail(
-            referral, patient, referringClinician, receivingClinician
-        );
-        
-        // Save email log
-        referralManager.saveEmailLog();
-        
-        // Save audit trail
+        // The referral and its letter are stored together; the email and logs
+        // follow once the referral is committed. The ID is taken inside the
+        // transaction so two referrals created at once never get the same one.
+        try (Transaction tx = dataManager.beginTransaction()) {
+            referralId = tx.newId(EntitySchema.REFERRALS, "R");
+            Referral referral = new Referral(
+                referralId,
+                patientId,
+                referringClinicianId,
+                referredToClinicianId,
+                referringFacilityId,
+                referredToFacilityId,
+                currentDate,
+                urgencyLevel,
+                referralReason,
+                clinicalSummary,
+                requestedInvestigations,
+                "New",
+                "",
+                notes,
+                currentDate,
+                currentDate
+            );
+            tx.add(EntitySchema.REFERRALS, referral);
+            
+            tx.onRollback(referralManager.referralDocumentUndo(referral, null));
+            if (!referralManager.generateReferralDocument(referral, patient, referringClinician,
+                    receivingClinician, referringFacility, receivingFacility)) {
+                return null;
+            }
+            
+            tx.afterCommit(() -> {
+                referralManager.generateReferralEmail(referral, patient, referringClinician, receivingClinician);
+                referralManager.saveEmailLog();
+                referralManager.saveAuditTrail();
+            });
+            tx.commit();
+            return referral;
+        } catch (IOException | UpdateConflictException e) {
+            System.err.println("Referral " + referralId + " was not created: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Write the letter for an existing referral into directory (working directory when null).
+     * Returns false when the referral or a record it points to is missing.
+     */
+    public boolean generateReferralLetter(String referralId, File directory) {
+        Referral referral = referralManager.getReferralById(referralId);
+        if (referral == null) {
+            return false;
+        }
+        Patient patient = dataManager.getPatientById(referral.getPatientId());
+        Clinician referringClinician = dataManager.getClinicianById(referral.getReferringClinicianId());
+        Clinician receivingClinician = dataManager.getClinicianById(referral.getReferredToClinicianId());
+        Facility referringFacility = dataManager.getFacilityById(referral.getReferringFacilityId());
+        Facility receivingFacility = dataManager.getFacilityById(referral.getReferredToFacilityId());
+        if (patient == null || referringClinician == null || receivingClinician == null ||
+            referringFacility == null || receivingFacility == null) {
+            return false;
+        }
+        return referralManager.generateReferralDocument(referral, patient, referringClinician,
+            receivingClinician, referringFacility, receivingFacility, directory);
+    }
+    
+    public void saveReferralAuditTrail() {
         referralManager.saveAuditTrail();
-        
-        return docGenerated;
     }
     
     public int getPendingReferralsCount() {
@@ -234,6 +571,164 @@ public class HealthcareController {
         return dataManager.getFacilities();
     }
     
+    public Facility getFacilityById(String id) {
+        return dataManager.getFacilityById(id);
+    }
+    
+    // ==================== QUERIES ====================
+    // Filtered, ordered, keyset-paginated access to each table. page() returns
+    // at most query.limit rows plus a cursor for the next page; stream() walks
+    // every match one page at a time. See EntityQuery for the field names.
+    
+    public Page<Patient> queryPatients(EntityQuery<Patient> query) {
+        return dataManager.queryPatients(query);
+    }
+    
+    public Stream<Patient> streamPatients(EntityQuery<Patient> query) {
+        return dataManager.streamPatients(query);
+    }
+    
+    public Page<Clinician> queryClinicians(EntityQuery<Clinician> query) {
+        return dataManager.queryClinicians(query);
+    }
+    
+    public Stream<Clinician> streamClinicians(EntityQuery<Clinician> query) {
+        return dataManager.streamClinicians(query);
+    }
+    
+    public Page<Facility> queryFacilities(EntityQuery<Facility> query) {
+        return dataManager.queryFacilities(query);
+    }
+    
+    public Stream<Facility> streamFacilities(EntityQuery<Facility> query) {
+        return dataManager.streamFacilities(query);
+    }
+    
+    public Page<Appointment> queryAppointments(EntityQuery<Appointment> query) {
+        return dataManager.queryAppointments(query);
+    }
+    
+    public Stream<Appointment> streamAppointments(EntityQuery<Appointment> query) {
+        return dataManager.streamAppointments(query);
+    }
+    
+    public Page<Prescription> queryPrescriptions(EntityQuery<Prescription> query) {
+        return dataManager.queryPrescriptions(query);
+    }
+    
+    public Stream<Prescription> streamPrescriptions(EntityQuery<Prescription> query) {
+        return dataManager.streamPrescriptions(query);
+    }
+    
+    public Page<Referral> queryReferrals(EntityQuery<Referral> query) {
+        return dataManager.queryReferrals(query);
+    }
+    
+    public Stream<Referral> streamReferrals(EntityQuery<Referral> query) {
+        return dataManager.streamReferrals(query);
+    }
+    
+    public Page<Staff> queryStaff(EntityQuery<Staff> query) {
+        return dataManager.queryStaff(query);
+    }
+    
+    public Stream<Staff> streamStaff(EntityQuery<Staff> query) {
+        return dataManager.streamStaff(query);
+    }
+    
+    // ==================== SNAPSHOTS ====================
+    
+    /**
+     * Immutable point-in-time copies of every table, for reports that must not
+     * block or be blocked by edits
+     */
+    public DataSnapshot snapshot() {
+        return dataManager.snapshot();
+    }
+    
+    // ==================== CHANGE EVENTS ====================
+    
+    /**
+     * Receive batches of changes to the named entities ("patients", ...; null for all)
+     * on the given executor, e.g. ChangeEventBus.EDT for Swing models
+     */
+    public ChangeEventBus.Subscription subscribe(Collection<String> entities, Executor executor,
+                                                 Consumer<List<ChangeEvent<?>>> listener) {
+        return dataManager.getChangeEvents().subscribe(entities, executor, listener);
+    }
+    
+    // ==================== SEARCH ====================
+    
+    /**
+     * Full-text search over referral, appointment and prescription notes
+     */
+    public List<SearchHit> search(String query, int limit) {
+        return dataManager.search(query, limit);
+    }
+    
+    // ==================== INTEGRITY ====================
+    
+    /**
+     * Check every cross-entity reference and primary key; run after bulk loads
+     */
+    public IntegrityReport validateIntegrity() {
+        return new IntegrityValidator(dataManager).validate();
+    }
+    
+    /**
+     * Candidate duplicate patient groups scoring at or above threshold (0..1)
+     */
+    public DuplicatePatientDetector.Result findDuplicatePatients(double threshold) {
+        return new DuplicatePatientDetector(threshold, Runtime.getRuntime().availableProcessors())
+            .detect(dataManager.snapshot(EntitySchema.PATIENTS));
+    }
+    
+    // ==================== EXPORT ====================
+    
+    /**
+     * Stream the rows of one entity ("patients", "appointments", ...) to out.
+     * Filters use EntitySchema.toQuery names, e.g. facility_id=S001, from/to on
+     * the entity's date column. Bad filters throw IllegalArgumentException
+     * before anything is written. Returns the number of rows.
+     *
+     * Rows come in storage order, one at a time; order_by, desc or after
+     * sort the matching rows in memory before the first is written.
+     */
+    public long exportEntities(String entity, Map<String, String> filters,
+                               EntityExporter.Format format, OutputStream out) throws IOException {
+        return export(schemaFor(entity), filters, format, out);
+    }
+    
+    /**
+     * Export to a file; the format comes from the extension and ".gz" compresses.
+     * The file is only replaced once the export has finished.
+     */
+    public long exportToFile(String entity, Map<String, String> filters, Path file) throws IOException {
+        return exportToFile(schemaFor(entity), filters, file);
+    }
+    
+    private <T> long exportToFile(EntitySchema<T> schema, Map<String, String> filters, Path file) throws IOException {
+        return EntityExporter.writeFile(schema, exportRows(schema, filters), file);
+    }
+    
+    private <T> long export(EntitySchema<T> schema, Map<String, String> filters,
+                            EntityExporter.Format format, OutputStream out) throws IOException {
+        return EntityExporter.write(schema, exportRows(schema, filters), format, out);
+    }
+    
+    private <T> Stream<T> exportRows(EntitySchema<T> schema, Map<String, String> filters) {
+        // Reads a snapshot, so edits made during a long export neither wait for it nor show up in it
+        return dataManager.scanSnapshot(schema, schema.toQuery(filters));
+    }
+    
+    private static EntitySchema<?> schemaFor(String entity) {
+        EntitySchema<?> schema = EntitySchema.forName(entity);
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown entity: " + entity);
+        }
+        return schema;
+    }
+    
     // ==================== HELPER METHODS ====================
     
     public DataManager getDataManager() {
@@ -1,7 +1,13 @@
 package com.mycompany.tejani_part2.models;
+import com.mycompany.tejani_part2.utilities.ChangeEvent;
+import com.mycompany.tejani_part2.utilities.ChangeEventBus;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.EntityTable;
+import com.mycompany.tejani_part2.utilities.TextSearchIndex;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Singleton class for managing referrals in the Healthcare Management System
@@ -14,8 +20,8 @@ public class ReferralManager {
     // Referral queue for managing pending referrals
     private Queue<Referral> referralQueue;
     
-    // List to store all referrals
-    private List<Referral> allReferrals;
+    // All referrals, with a primary-key index
+    private EntityTable<Referral> allReferrals;
     
     // Audit trail for referral operations
     private List<String> auditTrail;
@@ -23,11 +29,18 @@ public class ReferralManager {
     // Email log for simulated email communications
     private List<String> emailLog;
     
+    // Full-text indexes kept in step with allReferrals, one per attached DataManager
+    private final List<TextSearchIndex> searchIndexes = new CopyOnWriteArrayList<>();
+    
+    // Where referral changes are published, one bus per attached DataManager
+    private final List<ChangeEventBus> changeBuses = new CopyOnWriteArrayList<>();
+    
     // Private constructor to prevent instantiation
     private ReferralManager() {
         this.referralQueue = new LinkedList<>();
-        this.allReferrals = new ArrayList<>();
-        this.auditTrail = new ArrayList<>();
+        this.allReferrals = new EntityTable<>(Referral::getReferralId);
+        // Letters may be generated from several threads by the batch CLI
+        this.auditTrail = Collections.synchronizedList(new ArrayList<>());
         this.emailLog = new ArrayList<>();
         
         // Add initialization to audit trail
@@ -45,28 +58,152 @@ public class ReferralManager {
         return instance;
     }
     
+    /**
+     * Keep a DataManager's search index and change bus up to date with the
+     * referrals. This manager is shared by the whole process, so every
+     * DataManager attaches its own pair; the referrals already held are
+     * indexed into the new index straight away. Either may be null.
+     * Throws IllegalStateException if the index or bus is already attached.
+     */
+    public void attach(TextSearchIndex searchIndex, ChangeEventBus changeEvents) {
+        synchronized (allReferrals) {
+            if (searchIndexes.contains(searchIndex) || changeBuses.contains(changeEvents)) {
+                throw new IllegalStateException("Search index or change bus is already attached");
+            }
+            if (searchIndex != null) {
+                for (Referral referral : allReferrals.snapshot()) {
+                    indexReferral(searchIndex, referral);
+                }
+                searchIndexes.add(searchIndex);
+            }
+            if (changeEvents != null) {
+                changeBuses.add(changeEvents);
+            }
+        }
+    }
+    
+    /**
+     * Stop updating a search index and bus given to attach(), e.g. when
+     * their DataManager is discarded; the index keeps its entries
+     */
+    public void detach(TextSearchIndex searchIndex, ChangeEventBus changeEvents) {
+        synchronized (allReferrals) {
+            searchIndexes.remove(searchIndex);
+            changeBuses.remove(changeEvents);
+        }
+    }
+    
+    private void publish(ChangeEvent<Referral> event) {
+        for (ChangeEventBus changeEvents : changeBuses) {
+            changeEvents.publish(event);
+        }
+    }
+    
+    /**
+     * Tell listeners the referral list was replaced, e.g. after a file load
+     */
+    public void publishReload() {
+        publish(ChangeEvent.reloaded(EntitySchema.REFERRALS));
+    }
+    
+    private void indexReferral(Referral referral) {
+        for (TextSearchIndex searchIndex : searchIndexes) {
+            indexReferral(searchIndex, referral);
+        }
+    }
+    
+    private static void indexReferral(TextSearchIndex searchIndex, Referral referral) {
+        searchIndex.index(TextSearchIndex.REFERRAL, referral.getReferralId(),
+            referral.getReferralReason(), referral.getClinicalSummary(), referral.getNotes());
+    }
+    
+    private void unindexReferrals() {
+        for (TextSearchIndex searchIndex : searchIndexes) {
+            searchIndex.removeAll(TextSearchIndex.REFERRAL);
+        }
+    }
+    
     /**
      * Add a new referral to the system
      */
     public void addReferral(Referral referral) {
-        allReferrals.add(referral);
-        
-        // Add to queue if status is "New" or "Pending"
-        if ("New".equalsIgnoreCase(referral.getStatus()) || 
-            "Pending".equalsIgnoreCase(referral.getStatus())) {
-            referralQueue.offer(referral);
+        // The table's lock keeps the row, its search entry and the queue in step
+        synchronized (allReferrals) {
+            allReferrals.add(referral);
+            indexReferral(referral);
+            
+            // Add to queue if status is "New" or "Pending"
+            if ("New".equalsIgnoreCase(referral.getStatus()) || 
+                "Pending".equalsIgnoreCase(referral.getStatus())) {
+                referralQueue.offer(referral);
+            }
+            publish(ChangeEvent.added(EntitySchema.REFERRALS, referral.getReferralId(), referral));
         }
-        
         addToAuditTrail("Referral added: " + referral.getReferralId());
     }
     
+    /**
+     * Replace every referral with the given ones, e.g. when the referrals file
+     * is loaded again. A repeated ID replaces the earlier referral, so the
+     * table never holds two rows with one ID.
+     */
+    public void replaceAll(Collection<Referral> referrals) {
+        synchronized (allReferrals) {
+            referralQueue.clear();
+            allReferrals.clear();
+            unindexReferrals();
+            for (Referral referral : referrals) {
+                String id = referral.getReferralId();
+                if (allReferrals.updateById(id, referral) != null) {
+                    referralQueue.removeIf(r -> r.getReferralId().equals(id));
+                } else {
+                    allReferrals.add(referral);
+                }
+                indexReferral(referral);
+                if ("New".equalsIgnoreCase(referral.getStatus()) || 
+                    "Pending".equalsIgnoreCase(referral.getStatus())) {
+                    referralQueue.offer(referral);
+                }
+            }
+            publishReload();
+        }
+        addToAuditTrail("Referrals loaded: " + allReferrals.size());
+    }
+    
+    /**
+     * Remove a referral, e.g. when a transaction that added it is undone;
+     * returns the removed referral, or null if there was none
+     */
+    public Referral removeReferral(String referralId) {
+        Referral removed;
+        synchronized (allReferrals) {
+            removed = allReferrals.removeById(referralId);
+            if (removed == null) {
+                return null;
+            }
+            referralQueue.removeIf(r -> r.getReferralId().equals(referralId));
+            for (TextSearchIndex searchIndex : searchIndexes) {
+                searchIndex.remove(TextSearchIndex.REFERRAL, referralId);
+            }
+            publish(ChangeEvent.deleted(EntitySchema.REFERRALS, referralId, removed));
+        }
+        addToAuditTrail("Referral removed: " + referralId);
+        return removed;
+    }
+    
     /**
      * Process the next referral in the queue
      */
     public Referral processNextReferral() {
-        Referral referral = referralQueue.poll();
+        Referral referral;
+        synchronized (allReferrals) {
+            referral = referralQueue.poll();
+        }
         if (referral != null) {
             addToAuditTrail("Referral processed: " + referral.getReferralId());
+            // Status changes replace the stored row, so hand out the current one
+            Referral current = allReferrals.getById(referral.getReferralId());
+            return current != null ? current : referral;
         }
         return referral;
     }
@@ -79,8 +216,21 @@ public class ReferralManager {
                                            Clinician receivingClinician,
                                            Facility referringFacility,
                                            Facility receivingFacility) {
+        return generateReferralDocument(referral, patient, referringClinician, receivingClinician,
+                                        referringFacility, receivingFacility, null);
+    }
+    
+    /**
+     * Generate referral document into the given directory (the working directory when null)
+     */
+    public boolean generateReferralDocument(Referral referral, Patient patient, 
+                                           Clinician referringClinician, 
+                                           Clinician receivingClinician,
+                                           Facility referringFacility,
+                                           Facility receivingFacility,
+                                           File directory) {
         try {
-            String fileName = "referral_" + referral.getReferralId() + ".txt";
+            String fileName = new File(directory, "referral_" + referral.getReferralId() + ".txt").getPath();
             FileWriter writer = new FileWriter(fileName, true);
             PrintWriter pw = new PrintWriter(writer);
             
@@ -160,6 +310,28 @@ public class ReferralManager {
         }
     }
     
+    /**
+     * An action that puts the letter file for a referral back as it is now
+     * (deleting it if it does not exist yet), for undoing a letter written
+     * inside a transaction that is then rolled back
+     */
+    public Runnable referralDocumentUndo(Referral referral, File directory) {
+        File file = new File(directory, "referral_" + referral.getReferralId() + ".txt");
+        boolean existed = file.exists();
+        long length = file.length();
+        return () -> {
+            if (!existed) {
+                file.delete();
+                return;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(length);
+            } catch (IOException e) {
+                addToAuditTrail("Error restoring referral document: " + e.getMessage());
+            }
+        };
+    }
+    
     /**
      * Generate email notification for referral (simulated)
      */
@@ -212,27 +384,70 @@ public class ReferralManager {
      * Update referral status
      */
     public void updateReferralStatus(String referralId, String newStatus) {
-        for (Referral referral : allReferrals) {
-            if (referral.getReferralId().equals(referralId)) {
-                referral.setStatus(newStatus);
-                addToAuditTrail("Referral " + referralId + " status updated to: " + newStatus);
-                break;
+        updateReferralStatus(referralId, newStatus, -1);
+    }
+    
+    /**
+     * Update referral status only if the referral is still at expectedVersion
+     * (-1 skips the check); throws UpdateConflictException otherwise
+     */
+    public void updateReferralStatus(String referralId, String newStatus, long expectedVersion) {
+        Referral before = allReferrals.getById(referralId);
+        if (before == null) {
+            return;
+        }
+        // Replace the row with a changed copy so snapshots taken earlier keep the old status
+        Map<String, Object> changes = Collections.singletonMap("status", newStatus);
+        if (updateReferral(referralId, EntitySchema.REFERRALS.merge(before, changes), expectedVersion) != null) {
+            addToAuditTrail("Referral " + referralId + " status updated to: " + newStatus);
+        }
+    }
+    
+    /**
+     * Replace a referral, checking its version as updateReferralStatus does;
+     * returns the old referral, or null if there was none
+     */
+    public Referral updateReferral(String referralId, Referral referral, long expectedVersion) {
+        synchronized (allReferrals) {
+            Referral before = expectedVersion == -1
+                ? allReferrals.updateById(referralId, referral)
+                : allReferrals.compareAndUpdate(referralId, expectedVersion, referral);
+            if (before != null) {
+                indexReferral(referral);
+                publish(ChangeEvent.updated(EntitySchema.REFERRALS, referralId, before, referral));
             }
+            return before;
         }
     }
     
     /**
-     * Get all referrals
+     * Get a referral by ID
+     */
+    public Referral getReferralById(String referralId) {
+        return allReferrals.getById(referralId);
+    }
+    
+    /**
+     * Get all referrals, as an immutable snapshot that later changes do not touch
      */
     public List<Referral> getAllReferrals() {
-        return new ArrayList<>(allReferrals);
+        return allReferrals.snapshot();
+    }
+    
+    /**
+     * The referral table itself, for paged queries
+     */
+    public EntityTable<Referral> getReferralTable() {
+        return allReferrals;
     }
     
     /**
      * Get pending referrals count
      */
     public int getPendingReferralsCount() {
-        return referralQueue.size();
+        synchronized (allReferrals) {
+            return referralQueue.size();
+        }
     }
     
     /**
@@ -247,7 +462,9 @@ public class ReferralManager {
      * Get audit trail
      */
     public List<String> getAuditTrail() {
-        return new ArrayList<>(auditTrail);
+        synchronized (auditTrail) {
+            return new ArrayList<>(auditTrail);
+        }
     }
     
     /**
@@ -263,7 +480,7 @@ public class ReferralManager {
             pw.println("═══════════════════════════════════════════════════════");
             pw.println();
             
-            for (String entry : auditTrail) {
+            for (String entry : getAuditTrail()) {
                 pw.println(entry);
             }
             
@@ -277,8 +494,12 @@ public class ReferralManager {
      * Clear all data (for testing purposes)
      */
     public void clearAll() {
-        referralQueue.clear();
-        allReferrals.clear();
+        synchronized (allReferrals) {
+            referralQueue.clear();
+            allReferrals.clear();
+            unindexReferrals();
+            publishReload();
+        }
         emailLog.clear();
         addToAuditTrail("All referral data cleared");
     }
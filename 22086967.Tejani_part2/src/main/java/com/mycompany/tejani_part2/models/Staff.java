@@ -0,0 +1,147 @@
+package com.mycompany.tejani_part2.models;
+/**
+ * Model class representing a non-clinical staff member (receptionist, practice
+ * manager, porter, ...) in the Healthcare Management System
+ */
+public class Staff {
+    private String staffId;
+    private String firstName;
+    private String lastName;
+    private String role;
+    private String department;
+    private String facilityId;
+    private String phoneNumber;
+    private String email;
+    private String employmentStatus;
+    private String startDate;
+    private String lineManager;
+    private String accessLevel;
+
+    // Constructor
+    public Staff(String staffId, String firstName, String lastName, String role,
+                 String department, String facilityId, String phoneNumber, String email,
+                 String employmentStatus, String startDate, String lineManager, String accessLevel) {
+        this.staffId = staffId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.role = role;
+        this.department = department;
+        this.facilityId = facilityId;
+        this.phoneNumber = phoneNumber;
+        this.email = email;
+        this.employmentStatus = employmentStatus;
+        this.startDate = startDate;
+        this.lineManager = lineManager;
+        this.accessLevel = accessLevel;
+    }
+
+    // Default constructor
+    public Staff() {
+    }
+
+    // Getters and Setters
+    public String getStaffId() {
+        return staffId;
+    }
+
+    public void setStaffId(String staffId) {
+        this.staffId = staffId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public String getFacilityId() {
+        return facilityId;
+    }
+
+    public void setFacilityId(String facilityId) {
+        this.facilityId = facilityId;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getEmploymentStatus() {
+        return employmentStatus;
+    }
+
+    public void setEmploymentStatus(String employmentStatus) {
+        this.employmentStatus = employmentStatus;
+    }
+
+    public String getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    public String getLineManager() {
+        return lineManager;
+    }
+
+    public void setLineManager(String lineManager) {
+        this.lineManager = lineManager;
+    }
+
+    public String getAccessLevel() {
+        return accessLevel;
+    }
+
+    public void setAccessLevel(String accessLevel) {
+        this.accessLevel = accessLevel;
+    }
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+
+    @Override
+    public String toString() {
+        return staffId + " - " + getFullName() + " (" + role + ")";
+    }
+}
\ No newline at end of file
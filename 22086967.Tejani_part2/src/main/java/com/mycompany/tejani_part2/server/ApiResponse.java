@@ -0,0 +1,33 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.utilities.Json;
+import java.util.Collections;
+
+/**
+ * Status code plus JSON body (null for no body) returned by the API router
+ */
+class ApiResponse {
+    final int status;
+    final String body;
+
+    ApiResponse(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    static ApiResponse ok(Object value) {
+        return new ApiResponse(200, Json.write(value));
+    }
+
+    static ApiResponse created(Object value) {
+        return new ApiResponse(201, Json.write(value));
+    }
+
+    static ApiResponse noContent() {
+        return new ApiResponse(204, null);
+    }
+
+    static ApiResponse error(int status, String message) {
+        return new ApiResponse(status, Json.write(Collections.singletonMap("error", message)));
+    }
+}
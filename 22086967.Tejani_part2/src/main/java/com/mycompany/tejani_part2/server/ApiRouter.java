@@ -0,0 +1,259 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.models.*;
+import com.mycompany.tejani_part2.utilities.EntityExporter;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.Json;
+import com.mycompany.tejani_part2.utilities.SearchHit;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Maps API requests onto the HealthcareController
+ *
+ *   GET    /api/{entity}?filters     page of results ({"items": [...], "next_cursor": ...})
+ *   GET    /api/{entity}/{id}        one entity
+ *   POST   /api/{entity}             create (id generated when omitted)
+ *   PUT    /api/{entity}/{id}        update the given fields (409 if "version" is sent and stale)
+ *   DELETE /api/{entity}/{id}        delete
+ *   GET    /api/search?q=...         full-text search over clinical notes
+ *   POST   /api/batch                run a JSON array of {method, path, body} requests in one round trip
+ *   GET    /api/health               liveness and table sizes
+ *   GET    /api/export/{entity}      every matching row streamed as NDJSON, or CSV with format=csv
+ *
+ * The controller is not thread-safe, so reads share a read lock and writes
+ * take the write lock.
+ */
+class ApiRouter {
+    static final int MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
+    private final HealthcareController controller;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, EntityResource<?>> resources = new LinkedHashMap<>();
+
+    ApiRouter(HealthcareController controller) {
+        this.controller = controller;
+
+        register(new EntityResource<>(EntitySchema.PATIENTS, controller::getPatientById, versionOf(EntitySchema.PATIENTS),
+            controller::queryPatients, controller::generateNextPatientId,
+            p -> { controller.addPatient(p); return p; }, controller::updatePatient, controller::deletePatient));
+        register(new EntityResource<>(EntitySchema.CLINICIANS, controller::getClinicianById,
+            versionOf(EntitySchema.CLINICIANS), controller::queryClinicians, null, null, null, null));
+        register(new EntityResource<>(EntitySchema.FACILITIES, controller::getFacilityById,
+            versionOf(EntitySchema.FACILITIES), controller::queryFacilities, null, null, null, null));
+        register(new EntityResource<>(EntitySchema.APPOINTMENTS, controller::getAppointmentById,
+            versionOf(EntitySchema.APPOINTMENTS), controller::queryAppointments, controller::generateNextAppointmentId,
+            a -> { controller.addAppointment(a); return a; }, controller::updateAppointment,
+            controller::deleteAppointment));
+        register(new EntityResource<>(EntitySchema.PRESCRIPTIONS, controller::getPrescriptionById,
+            versionOf(EntitySchema.PRESCRIPTIONS), controller::queryPrescriptions, controller::generateNextPrescriptionId,
+            p -> { controller.addPrescription(p); return p; }, controller::updatePrescription,
+            controller::deletePrescription));
+        // Referrals go through the full referral workflow; only their status can change afterwards
+        register(new EntityResource<>(EntitySchema.REFERRALS, controller::getReferralById,
+            versionOf(EntitySchema.REFERRALS), controller::queryReferrals, controller::generateNextReferralId,
+            this::createReferral, (id, r, version) -> controller.updateReferralStatus(id, r.getStatus(), version), null));
+    }
+
+    private ToLongFunction<String> versionOf(EntitySchema<?> schema) {
+        return id -> controller.getVersion(schema, id);
+    }
+
+    private void register(EntityResource<?> resource) {
+        resources.put(resource.getSchema().getName(), resource);
+    }
+
+    private Referral createReferral(Referral r) {
+        return controller.submitReferral(r.getPatientId(), r.getReferringClinicianId(), r.getReferredToClinicianId(),
+            r.getReferringFacilityId(), r.getReferredToFacilityId(), r.getUrgencyLevel(), r.getReferralReason(),
+            r.getClinicalSummary(), r.getRequestedInvestigations(), r.getNotes());
+    }
+
+    /**
+     * Run a change made outside a request (e.g. a data file reload) under the
+     * write lock, so requests never see it half done
+     */
+    void runExclusive(Runnable action) {
+        Lock held = lock.writeLock();
+        held.lock();
+        try {
+            action.run();
+        } finally {
+            held.unlock();
+        }
+    }
+
+    // ==================== DISPATCH ====================
+
+    /**
+     * Handle one request; path is the raw (still encoded) path and query may be null
+     */
+    ApiResponse handle(String method, String path, String query, String body) {
+        try {
+            if (path.equals("/api/batch")) {
+                return "POST".equals(method) ? batch(body) : ApiResponse.error(405, "Use POST for batches");
+            }
+            Lock held = "GET".equals(method) ? lock.readLock() : lock.writeLock();
+            held.lock();
+            try {
+                return dispatch(method, path, parseQuery(query), body);
+            } finally {
+                held.unlock();
+            }
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + method + " " + path + ": " + e);
+            return ApiResponse.error(500, "Internal error");
+        }
+    }
+
+    private ApiResponse dispatch(String method, String path, Map<String, String> params, String body) {
+        String[] segments = path.split("/");
+        if (segments.length < 3 || !segments[1].equals("api") || segments.length > 4) {
+            return ApiResponse.error(404, "Not found");
+        }
+        String name = segments[2];
+        String id = segments.length == 4 ? decode(segments[3]) : null;
+
+        if (name.equals("health") && id == null) {
+            return health();
+        }
+        if (name.equals("search") && id == null) {
+            return search(params);
+        }
+        EntityResource<?> resource = resources.get(name);
+        if (resource == null) {
+            return ApiResponse.error(404, "Unknown resource: " + name);
+        }
+        switch (method) {
+            case "GET":
+                return id == null ? resource.list(params) : resource.get(id);
+            case "POST":
+                return id == null ? resource.create(Json.parseObject(body)) : ApiResponse.error(405, "POST to the collection");
+            case "PUT":
+                return id != null ? resource.update(id, Json.parseObject(body)) : ApiResponse.error(405, "PUT needs an id");
+            case "DELETE":
+                return id != null ? resource.delete(id) : ApiResponse.error(405, "DELETE needs an id");
+            default:
+                return ApiResponse.error(405, "Unsupported method " + method);
+        }
+    }
+
+    private ApiResponse health() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", "ok");
+        body.put("patients", controller.getAllPatients().size());
+        body.put("appointments", controller.getAllAppointments().size());
+        body.put("prescriptions", controller.getAllPrescriptions().size());
+        body.put("referrals", controller.getAllReferrals().size());
+        return ApiResponse.ok(body);
+    }
+
+    private ApiResponse search(Map<String, String> params) {
+        String q = params.get("q");
+        if (q == null || q.trim().isEmpty()) {
+            throw new IllegalArgumentException("q is required");
+        }
+        int limit = params.containsKey("limit")
+            ? Math.min(Integer.parseInt(params.get("limit")), EntityResource.MAX_PAGE_SIZE) : DEFAULT_SEARCH_LIMIT;
+        List<Map<String, Object>> hits = new ArrayList<>();
+        for (SearchHit hit : controller.search(q, limit)) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("type", hit.getEntityType());
+            item.put("id", hit.getEntityId());
+            item.put("score", hit.getScore());
+            hits.add(item);
+        }
+        return ApiResponse.ok(Collections.singletonMap("hits", hits));
+    }
+
+    /**
+     * Run each request of a JSON array in order and answer with a JSON array
+     * of {status, body}. Each sub-request takes its own lock, so a batch of
+     * reads never waits behind itself.
+     */
+    private ApiResponse batch(String body) {
+        Object parsed = Json.parse(body);
+        if (!(parsed instanceof List)) {
+            throw new IllegalArgumentException("Batch body must be a JSON array");
+        }
+        List<?> requests = (List<?>) parsed;
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " requests per batch");
+        }
+        StringBuilder out = new StringBuilder(requests.size() * 256).append('[');
+        for (int i = 0; i < requests.size(); i++) {
+            if (!(requests.get(i) instanceof Map)) {
+                throw new IllegalArgumentException("Batch entry " + i + " must be an object");
+            }
+            Map<?, ?> request = (Map<?, ?>) requests.get(i);
+            String method = String.valueOf(request.get("method") == null ? "GET" : request.get("method"));
+            String target = String.valueOf(request.get("path"));
+            int question = target.indexOf('?');
+            String subPath = question < 0 ? target : target.substring(0, question);
+            String subQuery = question < 0 ? null : target.substring(question + 1);
+            Object subBody = request.get("body");
+
+            ApiResponse response = subPath.equals("/api/batch")
+                ? ApiResponse.error(400, "Batches cannot be nested")
+                : handle(method.toUpperCase(Locale.ROOT), subPath, subQuery, subBody == null ? "" : Json.write(subBody));
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"status\":").append(response.status)
+               .append(",\"body\":").append(response.body == null ? "null" : response.body).append('}');
+        }
+        return new ApiResponse(200, out.append(']').toString());
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Stream an export to out. The query string takes the same filters as a
+     * list request plus format=csv|ndjson. Throws IllegalArgumentException
+     * before writing anything when the request is bad. Exports read a table
+     * snapshot, so they take no lock and writes carry on while they stream.
+     */
+    long export(String entity, String query, OutputStream out) throws IOException {
+        Map<String, String> params = parseQuery(query);
+        EntityExporter.Format format = EntityExporter.Format.fromName(params.remove("format"));
+        return controller.exportEntities(entity, params, format, out);
+    }
+
+    static EntityExporter.Format exportFormat(String query) {
+        return EntityExporter.Format.fromName(parseQuery(query).get("format"));
+    }
+
+    // ==================== HELPERS ====================
+
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String key = decode(equals < 0 ? pair : pair.substring(0, equals));
+            String value = equals < 0 ? "" : decode(pair.substring(equals + 1));
+            params.put(key, value);
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.utilities.EntityQuery;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.Json;
+import com.mycompany.tejani_part2.utilities.Page;
+import com.mycompany.tejani_part2.utilities.UpdateConflictException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * JSON CRUD and query operations for one entity type
+ *
+ * Property names are the CSV column names from the entity's schema. Query
+ * string parameters other than limit, after, order_by, desc, from and to are
+ * equality filters on the column of that name; from/to filter the schema's
+ * date column. Operations passed as null answer 405.
+ *
+ * Each entity read carries a "version" property. A PUT that sends it back is
+ * applied only if the row is still at that version and answers 409 with the
+ * current version otherwise; a PUT without it overwrites as before.
+ */
+class EntityResource<T> {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final String VERSION = "version";
+
+    /**
+     * Replaces a row; expectedVersion is -1 when the client sent no version
+     */
+    interface Updater<T> {
+        void update(String id, T item, long expectedVersion);
+    }
+
+    private final EntitySchema<T> schema;
+    private final Function<String, T> getById;
+    private final ToLongFunction<String> version;
+    private final Function<EntityQuery<T>, Page<T>> query;
+    private final Supplier<String> nextId;
+    private final Function<T, T> create;
+    private final Updater<T> update;
+    private final Consumer<String> delete;
+
+    EntityResource(EntitySchema<T> schema, Function<String, T> getById, ToLongFunction<String> version,
+                   Function<EntityQuery<T>, Page<T>> query, Supplier<String> nextId,
+                   Function<T, T> create, Updater<T> update, Consumer<String> delete) {
+        this.schema = schema;
+        this.getById = getById;
+        this.version = version;
+        this.query = query;
+        this.nextId = nextId;
+        this.create = create;
+        this.update = update;
+        this.delete = delete;
+    }
+
+    EntitySchema<T> getSchema() {
+        return schema;
+    }
+
+    // ==================== READS ====================
+
+    ApiResponse get(String id) {
+        T item = getById.apply(id);
+        if (item == null) {
+            return ApiResponse.error(404, "No " + schema.getName() + " with id " + id);
+        }
+        return ApiResponse.ok(toMap(item));
+    }
+
+    ApiResponse list(Map<String, String> params) {
+        Page<T> page = query.apply(toQuery(params));
+        List<Map<String, Object>> items = new ArrayList<>(page.getItems().size());
+        for (T item : page.getItems()) {
+            items.add(toMap(item));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("items", items);
+        body.put("next_cursor", page.getNextCursor());
+        return ApiResponse.ok(body);
+    }
+
+    /**
+     * Translate query string parameters into an EntityQuery, capping the page size
+     */
+    EntityQuery<T> toQuery(Map<String, String> params) {
+        EntityQuery<T> q = schema.toQuery(params);
+        return q.getLimit() > MAX_PAGE_SIZE ? q.limit(MAX_PAGE_SIZE) : q;
+    }
+
+    private Map<String, Object> toMap(T item) {
+        Map<String, Object> map = schema.toMap(item);
+        map.put(VERSION, version.applyAsLong(String.valueOf(map.get(schema.getIdColumn()))));
+        return map;
+    }
+
+    // ==================== WRITES ====================
+
+    ApiResponse create(Map<String, Object> body) {
+        if (create == null) {
+            return ApiResponse.error(405, schema.getName() + " are read-only");
+        }
+        Map<String, Object> values = new LinkedHashMap<>(body);
+        Object id = values.get(schema.getIdColumn());
+        if (id == null || id.toString().trim().isEmpty()) {
+            values.put(schema.getIdColumn(), nextId.get());
+        } else if (getById.apply(id.toString()) != null) {
+            return ApiResponse.error(409, schema.getName() + " id " + id + " already exists");
+        }
+        T stored = create.apply(schema.fromMap(values));
+        if (stored == null) {
+            return ApiResponse.error(400, "Could not create " + schema.getName()
+                + " (check that referenced patients, clinicians and facilities exist)");
+        }
+        return ApiResponse.created(toMap(stored));
+    }
+
+    /**
+     * Fields present in the body replace the stored values; the rest are kept
+     */
+    ApiResponse update(String id, Map<String, Object> body) {
+        if (update == null) {
+            return ApiResponse.error(405, schema.getName() + " cannot be updated");
+        }
+        T existing = getById.apply(id);
+        if (existing == null) {
+            return ApiResponse.error(404, "No " + schema.getName() + " with id " + id);
+        }
+        Object bodyId = body.get(schema.getIdColumn());
+        if (bodyId != null && !id.equals(bodyId.toString())) {
+            return ApiResponse.error(400, "The id in the body does not match the URL");
+        }
+        try {
+            update.update(id, schema.merge(existing, body), expectedVersion(body));
+        } catch (UpdateConflictException e) {
+            Map<String, Object> conflict = new LinkedHashMap<>();
+            conflict.put("error", e.getMessage());
+            conflict.put(VERSION, e.getCurrentVersion());
+            return new ApiResponse(409, Json.write(conflict));
+        }
+        return ApiResponse.ok(toMap(getById.apply(id)));
+    }
+
+    private static long expectedVersion(Map<String, Object> body) {
+        Object value = body.get(VERSION);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("version must be a number");
+        }
+    }
+
+    ApiResponse delete(String id) {
+        if (delete == null) {
+            return ApiResponse.error(405, schema.getName() + " cannot be deleted");
+        }
+        if (getById.apply(id) == null) {
+            return ApiResponse.error(404, "No " + schema.getName() + " with id " + id);
+        }
+        delete.accept(id);
+        return ApiResponse.noContent();
+    }
+}
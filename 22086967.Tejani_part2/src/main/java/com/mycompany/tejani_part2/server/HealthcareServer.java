@@ -0,0 +1,228 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.utilities.EntityExporter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Headless JSON API over the HealthcareController (see ApiRouter for the routes)
+ *
+ * Built on the JDK's com.sun.net.httpserver. Connections are kept alive
+ * between requests: every request body is read to the end and every response
+ * carries a Content-Length. Requests run on a virtual thread each when the
+ * JVM provides them (Java 21+); on older JVMs a fixed pool is used instead.
+ */
+public class HealthcareServer {
+    private static final int BACKLOG = 1024;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ApiRouter router;
+    private final String executorDescription;
+
+    public HealthcareServer(HealthcareController controller, int port) throws IOException {
+        this.router = new ApiRouter(controller);
+        // Small JSON responses otherwise sit in Nagle's buffer waiting for a delayed ACK.
+        // The JDK reads this once, so it must be set before the first server is created.
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        if (virtualThreads != null) {
+            this.executor = virtualThreads;
+            this.executorDescription = "virtual thread per request";
+        } else {
+            int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+            this.executor = Executors.newFixedThreadPool(threads, workerThreadFactory());
+            this.executorDescription = "pool of " + threads + " threads (virtual threads need Java 21+)";
+        }
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.createContext("/api/export/", this::handleExport);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, wait up to delaySeconds for running ones, then stop the workers
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getExecutorDescription() {
+        return executorDescription;
+    }
+
+    /**
+     * Runs tasks under the API's write lock, for changes made outside a
+     * request such as data file reloads
+     */
+    public Executor getWriteExecutor() {
+        return router::runExclusive;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // Drain the body even when unused so the connection can be reused
+            byte[] requestBody = exchange.getRequestBody().readAllBytes();
+            ApiResponse response = router.handle(exchange.getRequestMethod(),
+                exchange.getRequestURI().getRawPath(), exchange.getRequestURI().getRawQuery(),
+                new String(requestBody, StandardCharsets.UTF_8));
+
+            if (response.body == null) {
+                exchange.sendResponseHeaders(response.status, -1);
+                return;
+            }
+            send(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Exports are streamed with chunked encoding (gzip when the client accepts
+     * it), so the response is never held in memory. Headers are only sent with
+     * the first byte, which lets a bad filter still be answered with a 400.
+     */
+    private void handleExport(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        String entity = path.substring("/api/export/".length());
+        ResponseStream out = null;
+        try {
+            exchange.getRequestBody().readAllBytes();
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, ApiResponse.error(405, "Use GET for exports"));
+                return;
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            out = new ResponseStream(exchange, ApiRouter.exportFormat(query).getContentType(),
+                accept != null && accept.contains("gzip"));
+            router.export(entity, query, out);
+            out.close();
+        } catch (IllegalArgumentException e) {
+            if (out == null || !out.isCommitted()) {
+                send(exchange, ApiResponse.error(400, e.getMessage()));
+            } else {
+                System.err.println("Export of " + entity + " failed: " + e.getMessage());
+            }
+        } catch (IOException | RuntimeException e) {
+            // Usually the client went away mid-download
+            System.err.println("Export of " + entity + " aborted: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, ApiResponse response) throws IOException {
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Response body that sends the 200 headers on first use
+     */
+    private static class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final String contentType;
+        private final boolean gzip;
+        private OutputStream target;
+
+        ResponseStream(HttpExchange exchange, String contentType, boolean gzip) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+            this.gzip = gzip;
+        }
+
+        boolean isCommitted() {
+            return target != null;
+        }
+
+        private OutputStream target() throws IOException {
+            if (target == null) {
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                if (gzip) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream body = exchange.getResponseBody();
+                target = gzip ? new GZIPOutputStream(body, EntityExporter.BUFFER_SIZE) : body;
+            }
+            return target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target().close();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+, otherwise null.
+     * Looked up reflectively because the project compiles for Java 17.
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "api-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
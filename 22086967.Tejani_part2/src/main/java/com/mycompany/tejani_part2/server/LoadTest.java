@@ -0,0 +1,139 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simple load generator for the API server
+ *
+ *   LoadTest [--url http://host:port] [--data dir] [--requests N] [--concurrency C] [--batch B]
+ *
+ * Without --url an embedded server is started on a free port with the data
+ * files in --data (default: the working directory); the CLI's generate
+ * command writes a dataset of any size for it. Requests cycle through list, get and search calls; with
+ * --batch each HTTP request is a /api/batch call carrying B of them.
+ */
+public class LoadTest {
+    private static final int WARMUP_REQUESTS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        File dataDir = null;
+        int requests = 20000;
+        int concurrency = 64;
+        int batch = 1;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--url": url = args[i + 1]; break;
+                case "--data": dataDir = new File(args[i + 1]); break;
+                case "--requests": requests = Integer.parseInt(args[i + 1]); break;
+                case "--concurrency": concurrency = Integer.parseInt(args[i + 1]); break;
+                case "--batch": batch = Integer.parseInt(args[i + 1]); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HealthcareServer embedded = null;
+        if (url == null) {
+            HealthcareController controller = new HealthcareController();
+            controller.loadAllData(dataDir);
+            embedded = new HealthcareServer(controller, 0);
+            embedded.start();
+            url = "http://localhost:" + embedded.getPort();
+            System.out.println("Embedded server: " + url + " (" + embedded.getExecutorDescription() + ")");
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        try {
+            run(client, url, Math.min(WARMUP_REQUESTS, requests), concurrency, batch, false);
+            run(client, url, requests, concurrency, batch, true);
+        } finally {
+            if (embedded != null) {
+                embedded.stop(0);
+            }
+        }
+    }
+
+    private static void run(HttpClient client, String url, int requests, int concurrency, int batch,
+                            boolean report) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[requests];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            long sent = System.nanoTime();
+            futures[i] = client.sendAsync(request(url, i, batch), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, failure) -> {
+                    latencies[index] = System.nanoTime() - sent;
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+        }
+        CompletableFuture.allOf(futures).exceptionally(e -> null).join();
+        long elapsed = System.nanoTime() - start;
+
+        if (report) {
+            Arrays.sort(latencies);
+            double seconds = elapsed / 1e9;
+            System.out.printf("%d HTTP requests (%d API calls) in %.2fs with concurrency %d%n",
+                requests, (long) requests * batch, seconds, concurrency);
+            System.out.printf("  %.0f req/s, %.0f calls/s%n", requests / seconds, requests * batch / seconds);
+            System.out.printf("  p50 %.2fms, p99 %.2fms, max %.2fms%n", percentile(latencies, 0.50),
+                percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+            System.out.println("  errors: " + errors.get());
+        }
+    }
+
+    private static HttpRequest request(String url, int i, int batch) {
+        if (batch <= 1) {
+            return HttpRequest.newBuilder(URI.create(url + path(i))).GET().build();
+        }
+        StringBuilder body = new StringBuilder("[");
+        for (int j = 0; j < batch; j++) {
+            if (j > 0) {
+                body.append(',');
+            }
+            body.append("{\"method\":\"GET\",\"path\":\"").append(path(i * batch + j)).append("\"}");
+        }
+        return HttpRequest.newBuilder(URI.create(url + "/api/batch"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+            .build();
+    }
+
+    private static final List<String> PATHS = Arrays.asList(
+        "/api/appointments?limit=20&status=Scheduled",
+        "/api/patients/P001",
+        "/api/prescriptions?limit=50",
+        "/api/appointments/A001",
+        "/api/search?q=pain&limit=10",
+        "/api/health");
+
+    private static String path(int i) {
+        return PATHS.get(i % PATHS.size());
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
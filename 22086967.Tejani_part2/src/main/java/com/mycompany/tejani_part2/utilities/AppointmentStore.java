@@ -0,0 +1,236 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Appointment;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar in-memory store for appointments
+ * Dates, times and durations are primitive int columns and the ID, type and
+ * status columns are dictionary encoded. get() builds an Appointment on demand,
+ * so the store can stand in for the List returned by DataManager.getAppointments().
+ */
+public class AppointmentStore extends ColumnStore<Appointment> {
+    private static final int COL_DATE = 0;
+    private static final int COL_TIME = 1;
+    private static final int COL_CREATED = 2;
+    private static final int COL_MODIFIED = 3;
+
+    private final StringDictionary idDictionary = new StringDictionary();
+    private final StringDictionary typeDictionary = new StringDictionary();
+    private final StringDictionary statusDictionary = new StringDictionary();
+
+    private String[] appointmentIds;
+    private int[] patientCodes;
+    private int[] clinicianCodes;
+    private int[] facilityCodes;
+    private int[] dates;
+    private int[] times;
+    private int[] durations;
+    private int[] typeCodes;
+    private int[] statusCodes;
+    private String[] reasons;
+    private String[] notes;
+    private int[] createdDates;
+    private int[] modifiedDates;
+
+    public AppointmentStore() {
+        this(1024);
+    }
+
+    public AppointmentStore(int initialCapacity) {
+        super(initialCapacity);
+        resize(capacity);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+        appointmentIds = appointmentIds == null ? new String[newCapacity] : Arrays.copyOf(appointmentIds, newCapacity);
+        patientCodes = grow(patientCodes, newCapacity);
+        clinicianCodes = grow(clinicianCodes, newCapacity);
+        facilityCodes = grow(facilityCodes, newCapacity);
+        dates = grow(dates, newCapacity);
+        times = grow(times, newCapacity);
+        durations = grow(durations, newCapacity);
+        typeCodes = grow(typeCodes, newCapacity);
+        statusCodes = grow(statusCodes, newCapacity);
+        reasons = reasons == null ? new String[newCapacity] : Arrays.copyOf(reasons, newCapacity);
+        notes = notes == null ? new String[newCapacity] : Arrays.copyOf(notes, newCapacity);
+        createdDates = grow(createdDates, newCapacity);
+        modifiedDates = grow(modifiedDates, newCapacity);
+    }
+
+    private static int[] grow(int[] column, int newCapacity) {
+        return column == null ? new int[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    @Override
+    protected void writeRow(int row, Appointment a) {
+        appointmentIds[row] = a.getAppointmentId();
+        patientCodes[row] = idDictionary.encode(a.getPatientId());
+        clinicianCodes[row] = idDictionary.encode(a.getClinicianId());
+        facilityCodes[row] = idDictionary.encode(a.getFacilityId());
+        dates[row] = encodeDate(row, COL_DATE, a.getAppointmentDate());
+        times[row] = encodeTime(row, COL_TIME, a.getAppointmentTime());
+        durations[row] = a.getDurationMinutes();
+        typeCodes[row] = typeDictionary.encode(a.getAppointmentType());
+        statusCodes[row] = statusDictionary.encode(a.getStatus());
+        reasons[row] = a.getReasonForVisit();
+        notes[row] = a.getNotes();
+        createdDates[row] = encodeDate(row, COL_CREATED, a.getCreatedDate());
+        modifiedDates[row] = encodeDate(row, COL_MODIFIED, a.getLastModified());
+    }
+
+    @Override
+    protected Appointment readRow(int row) {
+        return new Appointment(
+            appointmentIds[row],
+            idDictionary.decode(patientCodes[row]),
+            idDictionary.decode(clinicianCodes[row]),
+            idDictionary.decode(facilityCodes[row]),
+            decodeDate(row, COL_DATE, dates[row]),
+            decodeTime(row, COL_TIME, times[row]),
+            durations[row],
+            typeDictionary.decode(typeCodes[row]),
+            statusDictionary.decode(statusCodes[row]),
+            reasons[row],
+            notes[row],
+            decodeDate(row, COL_CREATED, createdDates[row]),
+            decodeDate(row, COL_MODIFIED, modifiedDates[row])
+        );
+    }
+
+    @Override
+    protected void moveRows(int from, int to, int count) {
+        System.arraycopy(appointmentIds, from, appointmentIds, to, count);
+        System.arraycopy(patientCodes, from, patientCodes, to, count);
+        System.arraycopy(clinicianCodes, from, clinicianCodes, to, count);
+        System.arraycopy(facilityCodes, from, facilityCodes, to, count);
+        System.arraycopy(dates, from, dates, to, count);
+        System.arraycopy(times, from, times, to, count);
+        System.arraycopy(durations, from, durations, to, count);
+        System.arraycopy(typeCodes, from, typeCodes, to, count);
+        System.arraycopy(statusCodes, from, statusCodes, to, count);
+        System.arraycopy(reasons, from, reasons, to, count);
+        System.arraycopy(notes, from, notes, to, count);
+        System.arraycopy(createdDates, from, createdDates, to, count);
+        System.arraycopy(modifiedDates, from, modifiedDates, to, count);
+    }
+
+    @Override
+    protected void releaseRow(int row) {
+        appointmentIds[row] = null;
+        reasons[row] = null;
+        notes[row] = null;
+    }
+
+    // ==================== COLUMN SCANS ====================
+
+    /**
+     * Row positions of appointments dated between from and to (inclusive)
+     */
+    public int[] rowsBetween(LocalDate from, LocalDate to) {
+        int lo = (int) from.toEpochDay();
+        int hi = (int) to.toEpochDay();
+        int[] d = dates;
+        return IntStream.range(0, size)
+                .parallel()
+                .filter(i -> d[i] >= lo && d[i] <= hi)
+                .toArray();
+    }
+
+    /**
+     * Row positions of appointments with the given status
+     */
+    public int[] rowsWithStatus(String status) {
+        int code = statusDictionary.lookup(status);
+        if (code == StringDictionary.ABSENT_CODE) {
+            return new int[0];
+        }
+        int[] s = statusCodes;
+        return IntStream.range(0, size).parallel().filter(i -> s[i] == code).toArray();
+    }
+
+    /**
+     * Row positions of appointments for the given clinician
+     */
+    public int[] rowsForClinician(String clinicianId) {
+        int code = idDictionary.lookup(clinicianId);
+        if (code == StringDictionary.ABSENT_CODE) {
+            return new int[0];
+        }
+        int[] c = clinicianCodes;
+        return IntStream.range(0, size).parallel().filter(i -> c[i] == code).toArray();
+    }
+
+    /**
+     * Number of appointments per status
+     */
+    public Map<String, Integer> countByStatus() {
+        int[] counts = countCodes(statusCodes, statusDictionary.size());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(statusDictionary.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Total booked minutes per clinician
+     */
+    public Map<String, Long> minutesPerClinician() {
+        int n = idDictionary.size();
+        int[] c = clinicianCodes;
+        int[] d = durations;
+        long[] totals = IntStream.range(0, size).parallel().collect(
+            () -> new long[n],
+            (acc, i) -> { if (c[i] >= 0) acc[c[i]] += d[i]; },
+            (a, b) -> { for (int k = 0; k < n; k++) a[k] += b[k]; }
+        );
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int code = 0; code < n; code++) {
+            if (totals[code] > 0) {
+                result.put(idDictionary.decode(code), totals[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Appointments per clinician per week, keyed by clinician ID and the Monday
+     * that starts each week
+     */
+    public Map<String, Map<LocalDate, Integer>> appointmentsPerClinicianPerWeek() {
+        // Pack (clinician code, week number) into a long so the loop stays on primitives
+        Map<Long, int[]> counts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            int day = dates[i];
+            int clinician = clinicianCodes[i];
+            if (!isDate(day) || clinician < 0) {
+                continue;
+            }
+            // Epoch day 0 was a Thursday, so shift by 3 to make weeks start on Monday
+            long week = Math.floorDiv(day + 3, 7);
+            long key = ((long) clinician << 32) | (week & 0xFFFFFFFFL);
+            int[] counter = counts.get(key);
+            if (counter == null) {
+                counts.put(key, new int[] {1});
+            } else {
+                counter[0]++;
+            }
+        }
+
+        Map<String, Map<LocalDate, Integer>> result = new TreeMap<>();
+        for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+            int clinician = (int) (entry.getKey() >>> 32);
+            int week = (int) entry.getKey().longValue();
+            LocalDate weekStart = LocalDate.ofEpochDay(week * 7L - 3);
+            result.computeIfAbsent(idDictionary.decode(clinician), k -> new TreeMap<>())
+                  .put(weekStart, entry.getValue()[0]);
+        }
+        return result;
+    }
+}
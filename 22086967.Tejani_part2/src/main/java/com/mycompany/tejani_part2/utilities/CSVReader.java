@@ -1,78 +1,577 @@
 package com.mycompany.tejani_part2.utilities;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Utility class for reading CSV files
  */
 public class CSVReader {
+    // Rows a reader reports to System.err when it is not given an error list
+    private static final int MAX_REPORTED_ERRORS = 5;
+    
+    /** Encoding of every data file; EntityExporter and DatasetGenerator write UTF-8 */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
     
     /**
-     * Read CSV file and return as list of string arrays
+     * Read CSV file and return as list of string arrays.
+     * gzip and deflate files are decompressed as they are read (see Compression),
+     * and a missing "x.csv" is read from "x.csv.gz" or "x.csv.zz" when one exists.
      */
     public static List<String[]> readCSV(String filename, boolean skipHeader) {
+        return readCSV(filename, skipHeader, 0, null);
+    }
+    
+    /**
+     * Read CSV file, leaving out rows that cannot be parsed or have fewer than
+     * minColumns values. Each row left out is added to errors, or reported to
+     * System.err when errors is null.
+     */
+    public static List<String[]> readCSV(String filename, boolean skipHeader, int minColumns, List<RowError> errors) {
         List<String[]> data = new ArrayList<>();
-        BufferedReader br = null;
+        List<RowError> rejected = errors != null ? errors : new ArrayList<>();
         
-        try {
-            br = new BufferedReader(new FileReader(filename));
-            String line;
+        Path file = Compression.resolve(Paths.get(filename));
+        try (Reader reader = new InputStreamReader(Compression.open(file), CHARSET)) {
+            Parser parser = new Parser(reader);
+            String[] values;
             boolean firstLine = true;
             
-            while ((line = br.readLine()) != null) {
+            while ((values = parser.next()) != null) {
                 if (firstLine && skipHeader) {
                     firstLine = false;
                     continue;
                 }
-                
-                String[] values = parseCSVLine(line);
-                data.add(values);
                 firstLine = false;
+                
+                String problem = parser.getError();
+                if (problem == null && values.length < minColumns) {
+                    problem = "expected " + minColumns + " values, found " + values.length;
+                }
+                if (problem != null) {
+                    rejected.add(new RowError(parser.getLine(), problem));
+                } else {
+                    data.add(values);
+                }
             }
             
-        } catch (FileNotFoundException e) {
+        } catch (FileNotFoundException | NoSuchFileException e) {
             System.err.println("File not found: " + filename);
         } catch (IOException e) {
             System.err.println("Error reading file: " + filename);
             e.printStackTrace();
-        } finally {
-            if (br != null) {
-                try {
-                    br.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
+        }
+        
+        if (errors == null) {
+            report(filename, rejected);
+        }
+        return data;
+    }
+    
+    /**
+     * Read a data file straight into entities, finding the schema's columns
+     * by their header names (see RowDecoder). Rows left out, columns the file
+     * lacks and values that could not be read are added to problems. A file
+     * that is missing or cannot be read throws, so callers do not mistake it
+     * for an empty one.
+     */
+    public static <T> List<T> readEntities(String filename, EntitySchema<T> schema, List<RowError> problems)
+            throws IOException {
+        List<T> items = new ArrayList<>();
+        
+        Path file = Compression.resolve(Paths.get(filename));
+        try (Reader reader = new InputStreamReader(Compression.open(file), CHARSET)) {
+            Parser parser = new Parser(reader);
+            if (!parser.nextRecord()) {
+                return items;
+            }
+            String[] header = new String[parser.getFieldCount()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = parser.getField(i);
+            }
+            RowDecoder<T> decoder = new RowDecoder<>(schema, header);
+            for (String column : decoder.getMissingColumns()) {
+                problems.add(new RowError(parser.getLine(), "no " + column + " column (left empty)", false));
+            }
+            
+            while (parser.nextRecord()) {
+                T item = decoder.decode(parser, problems);
+                if (item != null) {
+                    items.add(item);
                 }
             }
+            
+        } catch (IllegalArgumentException e) {
+            problems.add(new RowError(1, e.getMessage()));
+        }
+        return items;
+    }
+    
+    /**
+     * Print the first few row errors of a file to System.err
+     */
+    public static void report(String filename, List<RowError> errors) {
+        for (int i = 0; i < errors.size() && i < MAX_REPORTED_ERRORS; i++) {
+            System.err.println(filename + " " + errors.get(i));
+        }
+        if (errors.size() > MAX_REPORTED_ERRORS) {
+            System.err.println(filename + ": " + (errors.size() - MAX_REPORTED_ERRORS) + " more rows skipped");
+        }
+    }
+    
+    /**
+     * A problem with a row, with the line it starts on (the header is line 1):
+     * either the row was left out, or it was loaded with a value it could not read
+     */
+    public static class RowError {
+        private final int line;
+        private final String message;
+        private final boolean skipped;
+        
+        public RowError(int line, String message) {
+            this(line, message, true);
         }
         
-        return data;
+        public RowError(int line, String message, boolean skipped) {
+            this.line = line;
+            this.message = message;
+            this.skipped = skipped;
+        }
+        
+        public int getLine() {
+            return line;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * False when the row was loaded despite the problem
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+        
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
     }
     
     /**
-     * Parse a CSV line handling quoted values and commas within quotes
+     * RFC 4180 record parser working straight off a 64 KB char buffer
+     *
+     * Fields are separated by commas and records by CRLF, LF or CR. A quoted
+     * field may contain commas, line breaks and quotes written twice ("");
+     * a quote inside an unquoted field is kept as it is. Values are not
+     * trimmed. Blank lines are skipped. Unquoted fields and quoted fields
+     * without escapes become Strings directly from the buffer, so there is no
+     * per-line String and no copy through a StringBuilder in the usual case.
+     *
+     * A record with text after a closing quote, or a quote still open at the
+     * end of the input, is returned with getError() saying so; the reader
+     * carries on with the next record.
      */
-    private static String[] parseCSVLine(String line) {
-        List<String> result = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder sb = new StringBuilder();
+    public static class Parser {
+        private static final int BUFFER_SIZE = 1 << 16;
+        
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int QUOTED = 2;
+        private static final int AFTER_QUOTE = 3;
+        
+        private final Reader in;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private int length;
+        private int pos;
+        // Chars of input before buffer[0]
+        private long consumed;
+        
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int line = 1;
+        private int recordLine;
+        private String error;
+        private boolean terminated;
+        private long recordEnd;
         
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
+        public Parser(Reader in) {
+            this.in = in;
+        }
+        
+        /**
+         * The next record, or null at the end of the input
+         */
+        public String[] next() throws IOException {
+            return nextRecord() ? fields.toArray(new String[0]) : null;
+        }
+        
+        /**
+         * Read the next record, to be taken with getField(); false at the end of the input
+         */
+        public boolean nextRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            error = null;
+            terminated = false;
+            recordLine = line;
+            int state = FIELD_START;
+            // Start in buffer of the part of the current field not yet copied to field
+            int run = -1;
             
-            if (c == '"') {
-                inQuotes = !inQuotes;
-            } else if (c == ',' && !inQuotes) {
-                result.add(sb.toString().trim());
-                sb = new StringBuilder();
-            } else {
-                sb.append(c);
+            while (true) {
+                if (pos == length) {
+                    boolean inRun = run >= 0;
+                    if (inRun) {
+                        field.append(buffer, run, pos - run);
+                    }
+                    if (!fill()) {
+                        return endOfInput(state);
+                    }
+                    run = inRun ? 0 : -1;
+                }
+                char c = buffer[pos++];
+                switch (state) {
+                    case FIELD_START:
+                        if (c == ',') {
+                            fields.add("");
+                        } else if (c == '"') {
+                            state = QUOTED;
+                            run = pos;
+                        } else if (c == '\n' || c == '\r') {
+                            if (fields.isEmpty()) {
+                                // Blank line
+                                lineBreak(c);
+                                recordLine = line;
+                                continue;
+                            }
+                            fields.add("");
+                            return endRecord(c);
+                        } else {
+                            state = UNQUOTED;
+                            run = pos - 1;
+                            skipPlain();
+                        }
+                        break;
+                    case UNQUOTED:
+                        if (c == ',') {
+                            fields.add(takeField(run, pos - 1));
+                            run = -1;
+                            state = FIELD_START;
+                        } else if (c == '\n' || c == '\r') {
+                            fields.add(takeField(run, pos - 1));
+                            return endRecord(c);
+                        } else {
+                            skipPlain();
+                        }
+                        break;
+                    case QUOTED:
+                        if (c == '"') {
+                            field.append(buffer, run, pos - 1 - run);
+                            run = -1;
+                            state = AFTER_QUOTE;
+                        } else {
+                            if (c == '\n') {
+                                line++;
+                            }
+                            skipQuoted();
+                        }
+                        break;
+                    default:
+                        if (c == '"') {
+                            // Escaped quote: it starts the next run of the value
+                            state = QUOTED;
+                            run = pos - 1;
+                        } else if (c == ',') {
+                            fields.add(takeField(-1, 0));
+                            state = FIELD_START;
+                        } else if (c == '\n' || c == '\r') {
+                            fields.add(takeField(-1, 0));
+                            return endRecord(c);
+                        } else {
+                            if (error == null) {
+                                error = "unexpected '" + c + "' after closing quote";
+                            }
+                            state = UNQUOTED;
+                            run = pos - 1;
+                        }
+                }
             }
         }
         
-        result.add(sb.toString().trim());
+        public int getFieldCount() {
+            return fields.size();
+        }
+        
+        public String getField(int index) {
+            return fields.get(index);
+        }
+        
+        /**
+         * Line the last record starts on, counting from 1
+         */
+        public int getLine() {
+            return recordLine;
+        }
+        
+        /**
+         * What is wrong with the last record, or null if it is well formed
+         */
+        public String getError() {
+            return error;
+        }
+        
+        /**
+         * True when the last record ended with a line break rather than the end of the input
+         */
+        public boolean isTerminated() {
+            return terminated;
+        }
         
-        return result.toArray(new String[0]);
+        /**
+         * Chars read up to the end of the last record, including its line break
+         */
+        public long getRecordEnd() {
+            return recordEnd;
+        }
+        
+        private boolean fill() throws IOException {
+            consumed += length;
+            pos = 0;
+            length = Math.max(in.read(buffer), 0);
+            return length > 0;
+        }
+        
+        private void skipPlain() {
+            while (pos < length) {
+                char c = buffer[pos];
+                if (c == ',' || c == '\n' || c == '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+        
+        private void skipQuoted() {
+            while (pos < length) {
+                char c = buffer[pos];
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                pos++;
+            }
+        }
+        
+        private String takeField(int run, int end) {
+            if (run >= 0) {
+                if (field.length() == 0) {
+                    return new String(buffer, run, end - run);
+                }
+                field.append(buffer, run, end - run);
+            }
+            String value = field.toString();
+            field.setLength(0);
+            return value;
+        }
+        
+        /**
+         * Step over a line break whose first char was c, taking the LF of a CRLF
+         */
+        private void lineBreak(char c) throws IOException {
+            if (c == '\r' && (pos < length || fill()) && buffer[pos] == '\n') {
+                pos++;
+            }
+            line++;
+        }
+        
+        private boolean endRecord(char c) throws IOException {
+            lineBreak(c);
+            terminated = true;
+            recordEnd = consumed + pos;
+            return true;
+        }
+        
+        private boolean endOfInput(int state) {
+            if (state == FIELD_START && fields.isEmpty()) {
+                return false;
+            }
+            if (state == QUOTED && error == null) {
+                error = "quoted field not closed before the end of the file";
+            }
+            fields.add(takeField(-1, 0));
+            recordEnd = consumed;
+            return true;
+        }
+    }
+    
+    /**
+     * Follow mode for an append-only CSV file: each readNew() returns only the
+     * records appended since the previous call
+     *
+     * The byte offset of the first unread record is remembered, so a file is
+     * never read twice. A last record without its line break yet (which may
+     * be a quoted field still being written) is left for the next call, when
+     * the writer has finished it.
+     *
+     * A file that has been replaced is read again from the start. Each call
+     * checks the file is still the same one (its file key, i.e. inode) and
+     * that the bytes just before the offset are the ones last read there, so
+     * a rewrite is noticed even when the new file is as long as the old.
+     * ignoreOwnWrites() names rewrites this process made itself, which are not
+     * read again: the tail moves on to their end.
+     *
+     * Only plain files can be followed: a compressed stream cannot be picked
+     * up at a byte offset, so a ".gz" or ".zz" name is rejected, and unlike
+     * readCSV a missing file is not looked for under a compressed name.
+     */
+    public static class Tail {
+        // Most bytes read per call, so a large backlog arrives in several batches
+        public static final int MAX_READ_BYTES = 8 * 1024 * 1024;
+        // Bytes before the offset compared on each call to notice a rewrite
+        private static final int MARK_BYTES = 4096;
+        
+        private final Path file;
+        private final boolean skipHeader;
+        private long offset;
+        private Predicate<Path> ownWrite = path -> false;
+        // File key and the bytes before offset as of the last call; null until then
+        private Object fileKey;
+        private byte[] mark;
+        
+        /**
+         * Follow from the start of the file
+         */
+        public Tail(String filename, boolean skipHeader) {
+            this(filename, skipHeader, 0);
+        }
+        
+        /**
+         * Follow from a byte offset, e.g. the file size once it has been loaded;
+         * the header is only skipped when reading from offset 0
+         */
+        public Tail(String filename, boolean skipHeader, long offset) {
+            this.file = Paths.get(filename);
+            if (Compression.forFile(file) != Compression.NONE) {
+                throw new IllegalArgumentException("Cannot follow a compressed file: " + filename);
+            }
+            this.skipHeader = skipHeader;
+            this.offset = offset;
+        }
+        
+        public long getOffset() {
+            return offset;
+        }
+        
+        /**
+         * Rewrites for which ownWrite returns true (e.g. DataManager::isOwnWrite,
+         * a save by this application) are skipped rather than read again
+         */
+        public synchronized void ignoreOwnWrites(Predicate<Path> ownWrite) {
+            this.ownWrite = ownWrite;
+        }
+        
+        public synchronized List<String[]> readNew() throws IOException {
+            List<String[]> records = new ArrayList<>();
+            if (!Files.exists(file)) {
+                return records;
+            }
+            Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (offset > 0 && replaced(channel, size, key)) {
+                    offset = ownWrite.test(file) ? size : 0;
+                }
+                readRecords(channel, size, records);
+                fileKey = key;
+                mark = read(channel, Math.max(0, offset - MARK_BYTES), (int) Math.min(offset, MARK_BYTES));
+            }
+            return records;
+        }
+        
+        /**
+         * Whether the file is not the one read last time: shorter than the
+         * offset, a different file key, or other bytes just before the offset
+         */
+        private boolean replaced(FileChannel channel, long size, Object key) throws IOException {
+            if (size < offset) {
+                return true;
+            }
+            if (fileKey != null && key != null && !fileKey.equals(key)) {
+                return true;
+            }
+            return mark != null && !Arrays.equals(mark,
+                read(channel, Math.max(0, offset - MARK_BYTES), (int) Math.min(offset, MARK_BYTES)));
+        }
+        
+        private void readRecords(FileChannel channel, long size, List<String[]> records) throws IOException {
+            long available = size - offset;
+            if (available == 0) {
+                return;
+            }
+            byte[] bytes = read(channel, offset, (int) Math.min(available, MAX_READ_BYTES));
+            int end = lastNewline(bytes);
+            if (end < 0 && available > bytes.length) {
+                // One line longer than MAX_READ_BYTES: take the whole of it
+                bytes = read(channel, offset, (int) Math.min(available, Integer.MAX_VALUE - 8));
+                end = lastNewline(bytes);
+            }
+            if (end < 0) {
+                return;
+            }
+            
+            // Whole lines only, so no UTF-8 sequence is cut in two
+            String text = new String(bytes, 0, end + 1, CHARSET);
+            Parser parser = new Parser(new StringReader(text));
+            List<RowError> rejected = new ArrayList<>();
+            boolean header = offset == 0 && skipHeader;
+            long parsed = 0;
+            String[] values;
+            while ((values = parser.next()) != null && parser.isTerminated()) {
+                parsed = parser.getRecordEnd();
+                if (header) {
+                    header = false;
+                } else if (parser.getError() != null) {
+                    rejected.add(new RowError(parser.getLine(), parser.getError()));
+                } else {
+                    records.add(values);
+                }
+            }
+            // Line numbers here count from the offset, not the start of the file
+            report(file + " after byte " + offset, rejected);
+            offset += text.substring(0, (int) parsed).getBytes(CHARSET).length;
+        }
+        
+        private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                // keep reading
+            }
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+        
+        private static int lastNewline(byte[] bytes) {
+            for (int i = bytes.length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
     }
     
     /**
@@ -90,11 +589,7 @@ public class CSVReader {
      * Safe method to parse integer with default
      */
     public static int getIntValue(String[] array, int index, int defaultValue) {
-        String value = getValue(array, index, "");
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+        long value = EntitySchema.parseInteger(getValue(array, index, ""));
+        return value == EntitySchema.NOT_AN_INTEGER ? defaultValue : (int) value;
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.mycompany.tejani_part2.utilities;
+
+/**
+ * One change to an entity table, published on the ChangeEventBus
+ *
+ * ADD has only an after value, DELETE only a before value and UPDATE both.
+ * RELOAD means the whole table was replaced (a file load) and carries no ID;
+ * listeners re-read that table instead of applying row changes.
+ */
+public class ChangeEvent<T> {
+    public enum Operation { ADD, UPDATE, DELETE, RELOAD }
+
+    private final EntitySchema<T> schema;
+    private final Operation operation;
+    private final String id;
+    private final T before;
+    private final T after;
+
+    public ChangeEvent(EntitySchema<T> schema, Operation operation, String id, T before, T after) {
+        this.schema = schema;
+        this.operation = operation;
+        this.id = id;
+        this.before = before;
+        this.after = after;
+    }
+
+    public static <T> ChangeEvent<T> added(EntitySchema<T> schema, String id, T after) {
+        return new ChangeEvent<>(schema, Operation.ADD, id, null, after);
+    }
+
+    public static <T> ChangeEvent<T> updated(EntitySchema<T> schema, String id, T before, T after) {
+        return new ChangeEvent<>(schema, Operation.UPDATE, id, before, after);
+    }
+
+    public static <T> ChangeEvent<T> deleted(EntitySchema<T> schema, String id, T before) {
+        return new ChangeEvent<>(schema, Operation.DELETE, id, before, null);
+    }
+
+    public static <T> ChangeEvent<T> reloaded(EntitySchema<T> schema) {
+        return new ChangeEvent<>(schema, Operation.RELOAD, null, null, null);
+    }
+
+    public EntitySchema<T> getSchema() { return schema; }
+    /** Entity name as used by EntitySchema, e.g. "patients" */
+    public String getEntity() { return schema.getName(); }
+    public Operation getOperation() { return operation; }
+    public String getId() { return id; }
+    public T getBefore() { return before; }
+    public T getAfter() { return after; }
+
+    /**
+     * This event typed for the given schema, or null when it belongs to
+     * another entity; saves listeners an unchecked cast
+     */
+    @SuppressWarnings("unchecked")
+    public <U> ChangeEvent<U> as(EntitySchema<U> other) {
+        return schema == other ? (ChangeEvent<U>) this : null;
+    }
+
+    /**
+     * This event followed by a later one for the same row, as a single event;
+     * null when they cancel out (added then deleted)
+     */
+    ChangeEvent<T> then(ChangeEvent<T> next) {
+        if (operation == Operation.ADD) {
+            return next.operation == Operation.DELETE ? null : added(schema, id, next.after);
+        }
+        if (next.operation == Operation.DELETE) {
+            return deleted(schema, id, before);
+        }
+        // Update after update, or re-added after delete
+        return updated(schema, id, before, next.after);
+    }
+
+    @Override
+    public String toString() {
+        return operation == Operation.RELOAD ? getEntity() + " " + operation : getEntity() + " " + operation + " " + id;
+    }
+}
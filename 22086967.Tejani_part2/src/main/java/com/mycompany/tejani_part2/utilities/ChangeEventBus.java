@@ -0,0 +1,181 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Publishes DataManager changes to listeners in batches
+ *
+ * Events published within one tick are collected and coalesced per row (an
+ * add followed by updates becomes one add, an add followed by a delete
+ * disappears, a RELOAD drops the pending row events of its table), then
+ * delivered as one list per listener. Each listener runs on its own executor,
+ * e.g. EDT for Swing models or a pool for background work, and receives its
+ * batches one at a time and in publish order. Publishing never blocks on a
+ * listener.
+ */
+public class ChangeEventBus {
+    public static final long DEFAULT_TICK_MILLIS = 25;
+
+    /** Runs listeners on the Swing event dispatch thread */
+    public static final Executor EDT = SwingUtilities::invokeLater;
+
+    private final long tickMillis;
+    private final ScheduledExecutorService timer;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    // Pending events by entity and ID; RELOADs are keyed by entity alone
+    private final Map<String, ChangeEvent<?>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    public ChangeEventBus() {
+        this(DEFAULT_TICK_MILLIS);
+    }
+
+    public ChangeEventBus(long tickMillis) {
+        this.tickMillis = tickMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * A registered listener; close() stops further deliveries
+     */
+    public class Subscription implements AutoCloseable {
+        private final Set<String> entities;
+        private final Executor executor;
+        private final Consumer<List<ChangeEvent<?>>> listener;
+        private final Queue<List<ChangeEvent<?>>> queue = new ConcurrentLinkedQueue<>();
+        private final Object drainLock = new Object();
+        private boolean draining;
+
+        Subscription(Set<String> entities, Executor executor, Consumer<List<ChangeEvent<?>>> listener) {
+            this.entities = entities;
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void deliver(List<ChangeEvent<?>> batch) {
+            List<ChangeEvent<?>> mine = new ArrayList<>();
+            for (ChangeEvent<?> event : batch) {
+                if (entities == null || entities.contains(event.getEntity())) {
+                    mine.add(event);
+                }
+            }
+            if (mine.isEmpty()) {
+                return;
+            }
+            queue.add(Collections.unmodifiableList(mine));
+            synchronized (drainLock) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Run queued batches in order on the listener's executor
+         */
+        private void drain() {
+            while (true) {
+                List<ChangeEvent<?>> batch;
+                synchronized (drainLock) {
+                    batch = queue.poll();
+                    if (batch == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    listener.accept(batch);
+                } catch (RuntimeException e) {
+                    System.err.println("Change listener failed: " + e);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            queue.clear();
+        }
+    }
+
+    // ==================== SUBSCRIBING ====================
+
+    /**
+     * Listen to every entity
+     */
+    public Subscription subscribe(Executor executor, Consumer<List<ChangeEvent<?>>> listener) {
+        return subscribe(null, executor, listener);
+    }
+
+    /**
+     * Listen to the named entities ("patients", "appointments", ...); null means all
+     */
+    public Subscription subscribe(Collection<String> entities, Executor executor,
+                                  Consumer<List<ChangeEvent<?>>> listener) {
+        Subscription subscription = new Subscription(
+            entities == null ? null : new HashSet<>(entities), executor, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    // ==================== PUBLISHING ====================
+
+    public void publish(ChangeEvent<?> event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            if (event.getOperation() == ChangeEvent.Operation.RELOAD) {
+                String prefix = event.getEntity() + "/";
+                pending.keySet().removeIf(key -> key.startsWith(prefix));
+                pending.put(event.getEntity(), event);
+            } else {
+                String key = event.getEntity() + "/" + event.getId();
+                ChangeEvent<?> earlier = pending.get(key);
+                ChangeEvent<?> merged = earlier == null ? event : merge(earlier, event);
+                if (merged == null) {
+                    pending.remove(key);
+                } else {
+                    pending.put(key, merged);
+                }
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                timer.schedule(this::flush, tickMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Hand the pending events to the listeners now instead of at the end of the tick
+     */
+    public void flush() {
+        List<ChangeEvent<?>> batch;
+        synchronized (pending) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.deliver(batch);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ChangeEvent<T> merge(ChangeEvent<?> earlier, ChangeEvent<?> later) {
+        return ((ChangeEvent<T>) earlier).then((ChangeEvent<T>) later);
+    }
+}
@@ -0,0 +1,237 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Base class for column-oriented entity stores
+ * Rows live in parallel primitive arrays so that scans and aggregations touch
+ * only the columns they need. Subclasses declare the columns and convert
+ * between a row and a model object. The store is still a List so existing
+ * code that iterates or indexes into it keeps working.
+ */
+abstract class ColumnStore<T> extends AbstractList<T> implements RandomAccess {
+    // Sentinels for encoded date/time columns
+    static final int NULL_VALUE = Integer.MIN_VALUE;
+    static final int EMPTY_VALUE = Integer.MIN_VALUE + 1;
+    static final int RAW_VALUE = Integer.MIN_VALUE + 2;
+
+    protected int size;
+    protected int capacity;
+
+    // Values that could not be encoded (e.g. non ISO dates), keyed by row and column
+    private Map<Long, String> rawValues = new HashMap<>();
+
+    protected ColumnStore(int initialCapacity) {
+        this.capacity = Math.max(16, initialCapacity);
+    }
+
+    /** Reallocate every column array to the new capacity */
+    protected abstract void resize(int newCapacity);
+
+    /** Write a model object into the given row */
+    protected abstract void writeRow(int row, T item);
+
+    /** Build a model object from the given row */
+    protected abstract T readRow(int row);
+
+    /** Copy a block of rows within every column (System.arraycopy semantics) */
+    protected abstract void moveRows(int from, int to, int count);
+
+    /** Drop object references held by the given row so they can be collected */
+    protected abstract void releaseRow(int row);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index);
+        return readRow(index);
+    }
+
+    @Override
+    public T set(int index, T item) {
+        checkIndex(index);
+        T old = readRow(index);
+        clearRaw(index);
+        writeRow(index, item);
+        return old;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == capacity) {
+            capacity = capacity + (capacity >> 1);
+            resize(capacity);
+        }
+        if (index < size) {
+            moveRows(index, index + 1, size - index);
+            shiftRaw(index, 1);
+        }
+        size++;
+        writeRow(index, item);
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index) {
+        checkIndex(index);
+        T old = readRow(index);
+        clearRaw(index);
+        if (index < size - 1) {
+            moveRows(index + 1, index, size - index - 1);
+            shiftRaw(index + 1, -1);
+        }
+        size--;
+        releaseRow(size);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            releaseRow(i);
+        }
+        size = 0;
+        rawValues.clear();
+        modCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Count occurrences of each dictionary code in a column (parallel scan)
+     */
+    protected int[] countCodes(int[] column, int distinct) {
+        return IntStream.range(0, size).parallel().collect(
+            () -> new int[distinct],
+            (acc, i) -> { if (column[i] >= 0) acc[column[i]]++; },
+            (a, b) -> { for (int k = 0; k < distinct; k++) a[k] += b[k]; }
+        );
+    }
+
+    // ==================== DATE / TIME ENCODING ====================
+
+    /**
+     * Encode a yyyy-MM-dd string as an epoch day
+     * Anything else is kept verbatim so that get() returns exactly what was stored
+     */
+    protected int encodeDate(int row, int column, String value) {
+        if (value == null) return NULL_VALUE;
+        if (value.isEmpty()) return EMPTY_VALUE;
+        int epochDay = parseIsoDate(value);
+        if (epochDay == RAW_VALUE) {
+            rawValues.put(rawKey(row, column), value);
+        }
+        return epochDay;
+    }
+
+    protected String decodeDate(int row, int column, int code) {
+        if (code == NULL_VALUE) return null;
+        if (code == EMPTY_VALUE) return "";
+        if (code == RAW_VALUE) return rawValues.get(rawKey(row, column));
+        return LocalDate.ofEpochDay(code).toString();
+    }
+
+    /**
+     * Encode a HH:mm string as minutes since midnight
+     */
+    protected int encodeTime(int row, int column, String value) {
+        if (value == null) return NULL_VALUE;
+        if (value.isEmpty()) return EMPTY_VALUE;
+        if (value.length() == 5 && value.charAt(2) == ':') {
+            int h = twoDigits(value, 0);
+            int m = twoDigits(value, 3);
+            if (h >= 0 && h < 24 && m >= 0 && m < 60) {
+                return h * 60 + m;
+            }
+        }
+        rawValues.put(rawKey(row, column), value);
+        return RAW_VALUE;
+    }
+
+    protected String decodeTime(int row, int column, int code) {
+        if (code == NULL_VALUE) return null;
+        if (code == EMPTY_VALUE) return "";
+        if (code == RAW_VALUE) return rawValues.get(rawKey(row, column));
+        int h = code / 60;
+        int m = code % 60;
+        return (h < 10 ? "0" : "") + h + ":" + (m < 10 ? "0" : "") + m;
+    }
+
+    /**
+     * Parse yyyy-MM-dd into an epoch day without throwing
+     * Returns RAW_VALUE when the text is not a valid ISO date
+     */
+    static int parseIsoDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return RAW_VALUE;
+        }
+        int century = twoDigits(value, 0);
+        int yy = twoDigits(value, 2);
+        int month = twoDigits(value, 5);
+        int day = twoDigits(value, 8);
+        if (century < 0 || yy < 0 || month < 1 || month > 12 || day < 1) {
+            return RAW_VALUE;
+        }
+        int year = century * 100 + yy;
+        if (day > Month.of(month).length(Year.isLeap(year))) {
+            return RAW_VALUE;
+        }
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    private static int twoDigits(String value, int offset) {
+        int a = value.charAt(offset) - '0';
+        int b = value.charAt(offset + 1) - '0';
+        if (a < 0 || a > 9 || b < 0 || b > 9) {
+            return -1;
+        }
+        return a * 10 + b;
+    }
+
+    /**
+     * True if the code is an actual date (not null, empty or raw text)
+     */
+    static boolean isDate(int code) {
+        return code > RAW_VALUE;
+    }
+
+    private static long rawKey(int row, int column) {
+        return ((long) row << 6) | column;
+    }
+
+    private void clearRaw(int row) {
+        if (!rawValues.isEmpty()) {
+            rawValues.keySet().removeIf(key -> (key >>> 6) == row);
+        }
+    }
+
+    private void shiftRaw(int fromRow, int delta) {
+        if (rawValues.isEmpty()) {
+            return;
+        }
+        Map<Long, String> shifted = new HashMap<>();
+        for (Map.Entry<Long, String> entry : rawValues.entrySet()) {
+            long row = entry.getKey() >>> 6;
+            long column = entry.getKey() & 0x3F;
+            long newRow = row >= fromRow ? row + delta : row;
+            shifted.put((newRow << 6) | column, entry.getValue());
+        }
+        rawValues = shifted;
+    }
+}
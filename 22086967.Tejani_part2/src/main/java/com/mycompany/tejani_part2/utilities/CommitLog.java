@@ -0,0 +1,49 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Append-only record of committed transactions, one JSON line per commit:
+ *
+ *   {"committed":"2024-01-15 09:00:00","writes":[{"op":"add","entity":"referrals","id":"R004","row":{...}}]}
+ *
+ * Each line is written with a single append and forced to disk before
+ * Transaction.commit() returns; a commit whose line cannot be written is
+ * rolled back, so every line is a commit that took effect.
+ */
+public class CommitLog {
+    private final Path file;
+
+    public CommitLog(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Append one commit; each write is a map of op, entity, id and (for add
+     * and update) row
+     */
+    public synchronized void append(List<Map<String, Object>> writes) throws IOException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("committed", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        record.put("writes", writes);
+        ByteBuffer buffer = ByteBuffer.wrap((Json.write(record) + "\n").getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
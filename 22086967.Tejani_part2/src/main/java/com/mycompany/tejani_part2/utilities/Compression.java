@@ -0,0 +1,237 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of data files: gzip (".gz") and zlib deflate (".zz")
+ *
+ * Output is chosen by file extension. Input is recognised by its first bytes,
+ * whatever the file is called, and decompressed on a separate thread a few
+ * 64 KB chunks ahead of the reader, so inflating and CSV parsing overlap.
+ * Zstandard files are recognised but not supported (the JDK has no decoder),
+ * and fail with a message saying so rather than as garbage rows.
+ */
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    DEFLATE(".zz");
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int CHUNKS_AHEAD = 4;
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Compression for a file name: ".gz" is gzip, ".zz" is deflate, anything else none
+     */
+    public static Compression forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (Compression compression : new Compression[] {GZIP, DEFLATE}) {
+            if (name.endsWith(compression.extension)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * File name without its compression extension ("patients.csv.gz" -> "patients.csv")
+     */
+    public static String stripExtension(String name) {
+        Compression compression = forFile(Paths.get(name));
+        return name.substring(0, name.length() - compression.extension.length());
+    }
+
+    /**
+     * The file if it exists, otherwise a compressed copy of it ("patients.csv.gz"
+     * for "patients.csv") if there is one, otherwise the file
+     */
+    public static Path resolve(Path file) {
+        if (Files.exists(file)) {
+            return file;
+        }
+        for (Compression compression : new Compression[] {GZIP, DEFLATE}) {
+            Path compressed = file.resolveSibling(file.getFileName() + compression.extension);
+            if (Files.exists(compressed)) {
+                return compressed;
+            }
+        }
+        return file;
+    }
+
+    // ==================== OUTPUT ====================
+
+    /**
+     * Buffered output stream that compresses into out
+     */
+    public OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, CHUNK_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(out, new Deflater(), CHUNK_SIZE, false);
+            default:
+                return new BufferedOutputStream(out, CHUNK_SIZE);
+        }
+    }
+
+    // ==================== INPUT ====================
+
+    /**
+     * Open a file for reading, decompressing it on a background thread if
+     * its first bytes say it is compressed
+     */
+    public static InputStream open(Path file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), CHUNK_SIZE);
+        try {
+            Compression compression = detect(in);
+            if (compression == NONE) {
+                return in;
+            }
+            InputStream inflating = compression == GZIP
+                ? new GZIPInputStream(in, CHUNK_SIZE) : new InflaterInputStream(in, new Inflater(), CHUNK_SIZE);
+            return new Pipeline(inflating, "inflate-" + file.getFileName());
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Compression from the magic bytes at the start of in, which is left unread
+     */
+    static Compression detect(BufferedInputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+        int b0 = magic.length > 0 ? magic[0] & 0xff : -1;
+        int b1 = magic.length > 1 ? magic[1] & 0xff : -1;
+        if (b0 == 0x1f && b1 == 0x8b) {
+            return GZIP;
+        }
+        // zlib header with the usual 32 KB window and no preset dictionary; the
+        // two bytes form a multiple of 31, which plain text starting with 'x' rarely does
+        if (b0 == 0x78 && b1 >= 0 && (b1 & 0x20) == 0 && ((b0 << 8) | b1) % 31 == 0) {
+            return DEFLATE;
+        }
+        if (magic.length == 4 && b0 == 0x28 && b1 == 0xb5 && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            throw new IOException("Zstandard-compressed files are not supported; recompress with gzip");
+        }
+        return NONE;
+    }
+
+    /**
+     * Reads its source on a daemon thread into a small queue of chunks, so
+     * the source's work (decompression) runs alongside the consumer's
+     */
+    private static class Pipeline extends InputStream {
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+        private final Thread thread;
+        private volatile IOException failure;
+        private byte[] chunk = new byte[0];
+        private int position;
+        private boolean ended;
+
+        Pipeline(InputStream source, String name) {
+            thread = new Thread(() -> pump(source), name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void pump(InputStream source) {
+            try (InputStream in = source) {
+                while (true) {
+                    byte[] buffer = in.readNBytes(CHUNK_SIZE);
+                    if (buffer.length == 0) {
+                        break;
+                    }
+                    chunks.put(buffer);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                chunks.put(END);
+            } catch (InterruptedException e) {
+                // closed by the reader
+            }
+        }
+
+        /**
+         * False at the end of the data
+         */
+        private boolean fill() throws IOException {
+            while (position == chunk.length) {
+                if (ended) {
+                    return false;
+                }
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                position = 0;
+                if (chunk == END) {
+                    ended = true;
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? chunk[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(length, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, offset, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            ended = true;
+            chunk = END;
+            position = 0;
+            thread.interrupt();
+            chunks.clear();
+        }
+    }
+}
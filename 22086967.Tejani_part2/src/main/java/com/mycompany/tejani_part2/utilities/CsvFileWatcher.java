@@ -0,0 +1,258 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps DataManager in step with data files that other systems overwrite
+ *
+ * A daemon thread waits on a WatchService for the data directory. When a
+ * watched file ("patients.csv", "appointments.csv", ...) changes, it is read
+ * once writes to it have been quiet for QUIET_MILLIS and compared with its
+ * previous version row by row: rows are matched by primary key and compared
+ * by a 64-bit hash of their values. Only the rows added, changed or removed
+ * in the file are applied to DataManager, through the same paths as single
+ * edits, so indexes stay current and each change is published as a row event
+ * instead of a RELOAD. Edits made in the application to rows the file did not
+ * change are kept.
+ *
+ * The previous version of each file is the one seen when watching started,
+ * so load the data first. A file the application saved itself (see
+ * DataManager.isOwnWrite) becomes the new previous version without being
+ * applied, since its rows came from DataManager in the first place. Deltas are applied on the given executor (EDT for
+ * the GUI, the write lock for the API) and hold the commit lock, so a
+ * DataManager.snapshot() sees all of a delta or none of it.
+ */
+public class CsvFileWatcher implements AutoCloseable {
+    public static final long QUIET_MILLIS = 200;
+
+    /**
+     * Rows one reload added, changed and removed
+     */
+    public static class Delta {
+        private final String file;
+        private final int inserted;
+        private final int updated;
+        private final int deleted;
+
+        Delta(String file, int inserted, int updated, int deleted) {
+            this.file = file;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+        }
+
+        public String getFile() { return file; }
+        public int getInserted() { return inserted; }
+        public int getUpdated() { return updated; }
+        public int getDeleted() { return deleted; }
+
+        public boolean isEmpty() {
+            return inserted == 0 && updated == 0 && deleted == 0;
+        }
+
+        @Override
+        public String toString() {
+            return file + ": " + inserted + " added, " + updated + " changed, " + deleted + " removed";
+        }
+    }
+
+    private final DataManager data;
+    private final Path directory;
+    private final Executor applyOn;
+    private final Map<String, EntitySchema<?>> schemasByFile = new LinkedHashMap<>();
+    // Primary key -> row hash, per file, as of the last version applied
+    private final Map<String, Map<String, Long>> hashesByFile = new HashMap<>();
+    private WatchService watchService;
+    private Thread thread;
+
+    public CsvFileWatcher(DataManager data, Path directory, Executor applyOn) {
+        this.data = data;
+        this.directory = directory;
+        this.applyOn = applyOn;
+    }
+
+    /**
+     * Watch the file for an entity, named after it (e.g. "staff.csv");
+     * its current contents become the version later changes are compared with
+     */
+    public synchronized void watch(EntitySchema<?> schema) throws IOException {
+        String file = schema.getName() + ".csv";
+        schemasByFile.put(file, schema);
+        hashesByFile.put(file, hashes(read(schema, directory.resolve(file))));
+    }
+
+    /**
+     * Start the watching thread
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "csv-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file watcher: " + e.getMessage());
+        }
+        thread = null;
+    }
+
+    // ==================== RELOADING ====================
+
+    /**
+     * Compare a watched file with its previous version and apply the
+     * difference; returns null when the file is not watched or is missing or
+     * empty (probably half-way through being replaced), and an empty delta
+     * for one of the application's own saves
+     */
+    public synchronized Delta reload(String file) throws IOException {
+        EntitySchema<?> schema = schemasByFile.get(file);
+        Path path = directory.resolve(file);
+        if (schema == null || !Files.exists(path) || Files.size(path) == 0) {
+            return null;
+        }
+        return reload(schema, file, path);
+    }
+
+    private <T> Delta reload(EntitySchema<T> schema, String file, Path path) throws IOException {
+        Map<String, String[]> rows = read(schema, path);
+        Map<String, Long> previous = hashesByFile.get(file);
+        Map<String, Long> current = hashes(rows);
+        if (data.isOwnWrite(path)) {
+            hashesByFile.put(file, current);
+            return new Delta(file, 0, 0, 0);
+        }
+
+        List<T> upserts = new ArrayList<>();
+        int inserted = 0;
+        for (Map.Entry<String, Long> entry : current.entrySet()) {
+            Long before = previous.get(entry.getKey());
+            if (before == null) {
+                inserted++;
+            } else if (before.longValue() == entry.getValue()) {
+                continue;
+            }
+            upserts.add(schema.fromRow(rows.get(entry.getKey())));
+        }
+        List<String> deletes = new ArrayList<>();
+        for (String id : previous.keySet()) {
+            if (!current.containsKey(id)) {
+                deletes.add(id);
+            }
+        }
+        hashesByFile.put(file, current);
+
+        Delta delta = new Delta(file, inserted, upserts.size() - inserted, deletes.size());
+        if (!delta.isEmpty()) {
+            applyOn.execute(() -> apply(schema, upserts, deletes));
+        }
+        return delta;
+    }
+
+    private <T> void apply(EntitySchema<T> schema, List<T> upserts, List<String> deletes) {
+        synchronized (data.commitLock()) {
+            // Matched on what is held now, which app edits may have changed since the file was read
+            for (T item : upserts) {
+                data.upsertRow(schema, item);
+            }
+            for (String id : deletes) {
+                data.removeRow(schema, id);
+            }
+        }
+    }
+
+    // ==================== WATCHING ====================
+
+    private void run() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                Set<String> changed = new LinkedHashSet<>();
+                collect(service.take(), changed);
+                // Upstream writers touch a file several times; wait until they are done
+                WatchKey key;
+                while ((key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (String file : changed) {
+                    try {
+                        reload(file);
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("Error reloading " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close() was called
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(schemasByFile.keySet());
+            } else {
+                String file = ((Path) event.context()).getFileName().toString();
+                if (schemasByFile.containsKey(file)) {
+                    changed.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    // ==================== ROW HASHING ====================
+
+    /**
+     * Data rows of a file by primary key, skipping rows the loaders would skip
+     */
+    private static Map<String, String[]> read(EntitySchema<?> schema, Path path) {
+        int idColumn = schema.indexOf(schema.getIdColumn());
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        for (String[] row : CSVReader.readCSV(path.toString(), true, schema.getColumnCount(), null)) {
+            if (!row[idColumn].isEmpty()) {
+                rows.put(row[idColumn], row);
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, Long> hashes(Map<String, String[]> rows) {
+        Map<String, Long> hashes = new HashMap<>(rows.size() * 2);
+        for (Map.Entry<String, String[]> entry : rows.entrySet()) {
+            hashes.put(entry.getKey(), hash(entry.getValue()));
+        }
+        return hashes;
+    }
+
+    /**
+     * 64-bit FNV-1a over the values, with a separator so ("ab","c") and ("a","bc") differ
+     */
+    static long hash(String[] values) {
+        long hash = 0xcbf29ce484222325L;
+        for (String value : values) {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0x1f) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
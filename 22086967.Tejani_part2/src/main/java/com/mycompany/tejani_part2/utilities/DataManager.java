@@ -2,70 +2,189 @@ package com.mycompany.tejani_part2.utilities;
 
 import com.mycompany.tejani_part2.models.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
 
 /**
  * Data Manager class - handles all data operations (Model in MVC)
  */
 public class DataManager {
-    private List<Patient> patients;
-    private List<Clinician> clinicians;
-    private List<Facility> facilities;
-    private List<Appointment> appointments;
-    private List<Prescription> prescriptions;
+    // Each table is a row list plus a primary-key index for O(1) ID lookups
+    private EntityTable<Patient> patients;
+    private EntityTable<Clinician> clinicians;
+    private EntityTable<Facility> facilities;
+    private EntityTable<Appointment> appointments;
+    private EntityTable<Prescription> prescriptions;
+    private EntityTable<Staff> staff;
     private ReferralManager referralManager;
+    private TextSearchIndex searchIndex;
+    private PatientLookupIndex patientLookup;
+    
+    // Every add, update, delete and file load is published here
+    private final ChangeEventBus changeEvents = new ChangeEventBus();
+    
+    // Held while a transaction commits; see Transaction
+    private final Object commitLock = new Object();
+    // IDs handed to open transactions by allocateId(), as "entity/id" (guarded by commitLock)
+    private final Set<String> allocatedIds = new HashSet<>();
+    private volatile CommitLog commitLog;
+    
+    // Rows left out of the last load of each file (loaders may run in parallel)
+    private final Map<String, List<CSVReader.RowError>> loadErrors = new ConcurrentHashMap<>();
+    
+    // Content hash of each file as the last save wrote it, and files being saved now
+    private final Map<Path, Long> savedHashes = new ConcurrentHashMap<>();
+    private final Set<Path> saving = ConcurrentHashMap.newKeySet();
+    
+    // Secondary indexes by field name, used by filters and queries instead of scanning
+    private Map<String, SecondaryIndex<Appointment>> appointmentIndexes;
+    private Map<String, SecondaryIndex<Prescription>> prescriptionIndexes;
+    private Map<String, SecondaryIndex<Staff>> staffIndexes;
+    
+    // Built on first use after staff or clinicians change
+    private volatile StaffHierarchy staffHierarchy;
+    
+    // Paged queries over each table
+    private TableQuery<Patient> patientQuery;
+    private TableQuery<Clinician> clinicianQuery;
+    private TableQuery<Facility> facilityQuery;
+    private TableQuery<Appointment> appointmentQuery;
+    private TableQuery<Prescription> prescriptionQuery;
+    private TableQuery<Referral> referralQuery;
+    private TableQuery<Staff> staffQuery;
+    
+    // Composite staff index on facility and role
+    private static final String STAFF_FACILITY_ROLE = "facilityRole";
     
     public DataManager() {
-        this.patients = new ArrayList<>();
-        this.clinicians = new ArrayList<>();
-        this.facilities = new ArrayList<>();
-        this.appointments = new ArrayList<>();
-        this.prescriptions = new ArrayList<>();
+        this.patients = new EntityTable<>(Patient::getPatientId);
+        this.clinicians = new EntityTable<>(Clinician::getClinicianId);
+        this.facilities = new EntityTable<>(Facility::getFacilityId);
+        this.appointments = new EntityTable<>(Appointment::getAppointmentId);
+        this.prescriptions = new EntityTable<>(Prescription::getPrescriptionId);
+        this.staff = new EntityTable<>(Staff::getStaffId);
         this.referralManager = ReferralManager.getInstance();
+        this.searchIndex = new TextSearchIndex();
+        this.patientLookup = new PatientLookupIndex();
+        this.appointmentIndexes = new LinkedHashMap<>();
+        appointmentIndexes.put("patientId", new SecondaryIndex<>(Appointment::getPatientId, Appointment::getAppointmentId));
+        appointmentIndexes.put("clinicianId", new SecondaryIndex<>(Appointment::getClinicianId, Appointment::getAppointmentId));
+        appointmentIndexes.put("status", new SecondaryIndex<>(Appointment::getStatus, Appointment::getAppointmentId));
+        appointmentIndexes.put("appointmentDate", new SecondaryIndex<>(Appointment::getAppointmentDate, Appointment::getAppointmentId));
+        this.prescriptionIndexes = new LinkedHashMap<>();
+        prescriptionIndexes.put("patientId", new SecondaryIndex<>(Prescription::getPatientId, Prescription::getPrescriptionId));
+        prescriptionIndexes.put("status", new SecondaryIndex<>(Prescription::getStatus, Prescription::getPrescriptionId));
+        this.staffIndexes = new LinkedHashMap<>();
+        staffIndexes.put("facilityId", new SecondaryIndex<>(Staff::getFacilityId, Staff::getStaffId));
+        staffIndexes.put("role", new SecondaryIndex<>(Staff::getRole, Staff::getStaffId));
+        staffIndexes.put("department", new SecondaryIndex<>(Staff::getDepartment, Staff::getStaffId));
+        staffIndexes.put("lineManager", new SecondaryIndex<>(Staff::getLineManager, Staff::getStaffId));
+        staffIndexes.put("accessLevel", new SecondaryIndex<>(Staff::getAccessLevel, Staff::getStaffId));
+        staffIndexes.put(STAFF_FACILITY_ROLE, new SecondaryIndex<>(
+            s -> facilityRoleKey(s.getFacilityId(), s.getRole()), Staff::getStaffId));
+        createQueries();
+        // Referrals live in the process-wide ReferralManager, which keeps the
+        // search index and change bus of every DataManager up to date
+        this.referralManager.attach(searchIndex, changeEvents);
+        
+        // Optional column-oriented storage for reporting scans (-Dhealthcare.columnar=true)
+        if (Boolean.getBoolean("healthcare.columnar")) {
+            setColumnarStorage(true);
+        }
+        // Optional off-heap patient register (-Dhealthcare.offheap=true)
+        if (Boolean.getBoolean("healthcare.offheap")) {
+            setOffHeapPatientStorage(true);
+        }
+    }
+    
+    // ==================== STORAGE MODE ====================
+    
+    /**
+     * Switch appointments and prescriptions between plain lists and the
+     * columnar stores. Existing rows are copied across.
+     */
+    public void setColumnarStorage(boolean enabled) {
+        if (enabled == isColumnarStorage()) {
+            return;
+        }
+        if (enabled) {
+            AppointmentStore appointmentStore = new AppointmentStore(appointments.size());
+            appointmentStore.addAll(appointments.rows());
+            appointments.replaceRows(appointmentStore);
+            
+            PrescriptionStore prescriptionStore = new PrescriptionStore(prescriptions.size());
+            prescriptionStore.addAll(prescriptions.rows());
+            prescriptions.replaceRows(prescriptionStore);
+        } else {
+            appointments.replaceRows(new ArrayList<>(appointments.rows()));
+            prescriptions.replaceRows(new ArrayList<>(prescriptions.rows()));
+        }
+    }
+    
+    public boolean isColumnarStorage() {
+        return appointments.rows() instanceof AppointmentStore;
+    }
+    
+    /**
+     * Move the patient register between the heap and off-heap record storage.
+     * Existing rows are copied across.
+     */
+    public void setOffHeapPatientStorage(boolean enabled) {
+        if (enabled == isOffHeapPatientStorage()) {
+            return;
+        }
+        if (enabled) {
+            PatientOffHeapStore store = new PatientOffHeapStore();
+            store.addAll(patients.rows());
+            patients.replaceRows(store);
+        } else {
+            // The store hands out detached heap copies
+            patients.replaceRows(new ArrayList<>(patients.rows()));
+        }
+    }
+    
+    public boolean isOffHeapPatientStorage() {
+        return patients.rows() instanceof PatientOffHeapStore;
+    }
+    
+    /**
+     * Columnar appointment store, or null when columnar storage is off
+     */
+    public AppointmentStore getAppointmentStore() {
+        return isColumnarStorage() ? (AppointmentStore) appointments.rows() : null;
+    }
+    
+    /**
+     * Columnar prescription store, or null when columnar storage is off
+     */
+    public PrescriptionStore getPrescriptionStore() {
+        return isColumnarStorage() ? (PrescriptionStore) prescriptions.rows() : null;
     }
     
     // ==================== LOADING DATA ====================
     
     public boolean loadPatients(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
-            patients.clear();
-            
-            int loadedCount = 0;
-            int skippedCount = 0;
-            
-            for (String[] row : data) {
-                // Skip empty rows
-                if (row.length == 0 || (row.length == 1 && row[0].trim().isEmpty())) {
-                    skippedCount++;
-                    continue;
-                }
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Patient> data = CSVReader.readEntities(filename, EntitySchema.PATIENTS, problems);
+            synchronized (patients) {
+                patients.clear();
+                patientLookup.clear();
                 
-                if (row.length >= 14) {
-                    Patient patient = new Patient(
-                        CSVReader.getValue(row, 0, ""),
-                        CSVReader.getValue(row, 1, ""),
-                        CSVReader.getValue(row, 2, ""),
-                        CSVReader.getValue(row, 3, ""),
-                        CSVReader.getValue(row, 4, ""),
-                        CSVReader.getValue(row, 5, ""),
-                        CSVReader.getValue(row, 6, ""),
-                        CSVReader.getValue(row, 7, ""),
-                        CSVReader.getValue(row, 8, ""),
-                        CSVReader.getValue(row, 9, ""),
-                        CSVReader.getValue(row, 10, ""),
-                        CSVReader.getValue(row, 11, ""),
-                        CSVReader.getValue(row, 12, ""),
-                        CSVReader.getValue(row, 13, "")
-                    );
+                for (Patient patient : data) {
                     patients.add(patient);
-                    loadedCount++;
-                } else {
-                    System.err.println("Skipping row with insufficient columns: " + row.length);
-                    skippedCount++;
+                    patientLookup.add(patient);
                 }
             }
-            System.out.println("Loaded " + loadedCount + " patients (skipped " + skippedCount + " rows)");
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.PATIENTS));
+            reportLoaded(EntitySchema.PATIENTS, patients.size(), filename, problems);
             return true;
         } catch (Exception e) {
             System.err.println("Error loading patients: " + e.getMessage());
@@ -76,29 +195,16 @@ public class DataManager {
     
     public boolean loadClinicians(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Clinician> data = CSVReader.readEntities(filename, EntitySchema.CLINICIANS, problems);
             clinicians.clear();
             
-            for (String[] row : data) {
-                if (row.length >= 12) {
-                    Clinician clinician = new Clinician(
-                        CSVReader.getValue(row, 0, ""),
-                        CSVReader.getValue(row, 1, ""),
-                        CSVReader.getValue(row, 2, ""),
-                        CSVReader.getValue(row, 3, ""),
-                        CSVReader.getValue(row, 4, ""),
-                        CSVReader.getValue(row, 5, ""),
-                        CSVReader.getValue(row, 6, ""),
-                        CSVReader.getValue(row, 7, ""),
-                        CSVReader.getValue(row, 8, ""),
-                        CSVReader.getValue(row, 9, ""),
-                        CSVReader.getValue(row, 10, ""),
-                        CSVReader.getValue(row, 11, "")
-                    );
-                    clinicians.add(clinician);
-                }
+            for (Clinician clinician : data) {
+                clinicians.add(clinician);
             }
-            System.out.println("Loaded " + clinicians.size() + " clinicians");
+            staffHierarchy = null;
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.CLINICIANS));
+            reportLoaded(EntitySchema.CLINICIANS, clinicians.size(), filename, problems);
             return true;
         } catch (Exception e) {
             System.err.println("Error loading clinicians: " + e.getMessage());
@@ -108,49 +214,15 @@ public class DataManager {
     
     public boolean loadFacilities(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Facility> data = CSVReader.readEntities(filename, EntitySchema.FACILITIES, problems);
             facilities.clear();
             
-            int loadedCount = 0;
-            int skippedCount = 0;
-            
-            for (String[] row : data) {
-                // Skip empty rows
-                if (row.length == 0 || (row.length == 1 && row[0].trim().isEmpty())) {
-                    skippedCount++;
-                    continue;
-                }
-                
-                if (row.length >= 11) {
-                    try {
-                        Facility facility = new Facility(
-                            CSVReader.getValue(row, 0, ""),
-                            CSVReader.getValue(row, 1, ""),
-                            CSVReader.getValue(row, 2, ""),
-                            CSVReader.getValue(row, 3, ""),
-                            CSVReader.getValue(row, 4, ""),
-                            CSVReader.getValue(row, 5, ""),
-                            CSVReader.getValue(row, 6, ""),
-                            CSVReader.getValue(row, 7, ""),
-                            CSVReader.getValue(row, 8, ""),
-                            CSVReader.getIntValue(row, 9, 0),
-                            CSVReader.getValue(row, 10, "")
-                        );
-                        facilities.add(facility);
-                        loadedCount++;
-                    } catch (Exception e) {
-                        System.err.println("Error parsing facility row: " + e.getMessage());
-                        skippedCount++;
-                    }
-                } else {
-                    System.err.println("Skipping facility row with insufficient columns: " + row.length);
-                    for (int i = 0; i < row.length; i++) {
-                        System.err.println("  Column " + i + ": " + row[i]);
-                    }
-                    skippedCount++;
-                }
+            for (Facility facility : data) {
+                facilities.add(facility);
             }
-            System.out.println("Loaded " + loadedCount + " facilities (skipped " + skippedCount + " rows)");
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.FACILITIES));
+            reportLoaded(EntitySchema.FACILITIES, facilities.size(), filename, problems);
             return true;
         } catch (Exception e) {
             System.err.println("Error loading facilities: " + e.getMessage());
@@ -161,30 +233,20 @@ public class DataManager {
     
     public boolean loadAppointments(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
-            appointments.clear();
-            
-            for (String[] row : data) {
-                if (row.length >= 13) {
-                    Appointment appointment = new Appointment(
-                        CSVReader.getValue(row, 0, ""),
-                        CSVReader.getValue(row, 1, ""),
-                        CSVReader.getValue(row, 2, ""),
-                        CSVReader.getValue(row, 3, ""),
-                        CSVReader.getValue(row, 4, ""),
-                        CSVReader.getValue(row, 5, ""),
-                        CSVReader.getIntValue(row, 6, 15),
-                        CSVReader.getValue(row, 7, ""),
-                        CSVReader.getValue(row, 8, ""),
-                        CSVReader.getValue(row, 9, ""),
-                        CSVReader.getValue(row, 10, ""),
-                        CSVReader.getValue(row, 11, ""),
-                        CSVReader.getValue(row, 12, "")
-                    );
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Appointment> data = CSVReader.readEntities(filename, EntitySchema.APPOINTMENTS, problems);
+            synchronized (appointments) {
+                appointments.clear();
+                searchIndex.removeAll(TextSearchIndex.APPOINTMENT);
+                appointmentIndexes.values().forEach(SecondaryIndex::clear);
+                
+                for (Appointment appointment : data) {
                     appointments.add(appointment);
+                    indexAppointment(appointment);
                 }
             }
-            System.out.println("Loaded " + appointments.size() + " appointments");
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.APPOINTMENTS));
+            reportLoaded(EntitySchema.APPOINTMENTS, appointments.size(), filename, problems);
             return true;
         } catch (Exception e) {
             System.err.println("Error loading appointments: " + e.getMessage());
@@ -194,32 +256,20 @@ public class DataManager {
     
     public boolean loadPrescriptions(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
-            prescriptions.clear();
-            
-            for (String[] row : data) {
-                if (row.length >= 15) {
-                    Prescription prescription = new Prescription(
-                        CSVReader.getValue(row, 0, ""),
-                        CSVReader.getValue(row, 1, ""),
-                        CSVReader.getValue(row, 2, ""),
-                        CSVReader.getValue(row, 3, ""),
-                        CSVReader.getValue(row, 4, ""),
-                        CSVReader.getValue(row, 5, ""),
-                        CSVReader.getValue(row, 6, ""),
-                        CSVReader.getValue(row, 7, ""),
-                        CSVReader.getIntValue(row, 8, 7),
-                        CSVReader.getValue(row, 9, ""),
-                        CSVReader.getValue(row, 10, ""),
-                        CSVReader.getValue(row, 11, ""),
-                        CSVReader.getValue(row, 12, ""),
-                        CSVReader.getValue(row, 13, ""),
-                        CSVReader.getValue(row, 14, "")
-                    );
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Prescription> data = CSVReader.readEntities(filename, EntitySchema.PRESCRIPTIONS, problems);
+            synchronized (prescriptions) {
+                prescriptions.clear();
+                searchIndex.removeAll(TextSearchIndex.PRESCRIPTION);
+                prescriptionIndexes.values().forEach(SecondaryIndex::clear);
+                
+                for (Prescription prescription : data) {
                     prescriptions.add(prescription);
+                    indexPrescription(prescription);
                 }
             }
-            System.out.println("Loaded " + prescriptions.size() + " prescriptions");
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.PRESCRIPTIONS));
+            reportLoaded(EntitySchema.PRESCRIPTIONS, prescriptions.size(), filename, problems);
             return true;
         } catch (Exception e) {
             System.err.println("Error loading prescriptions: " + e.getMessage());
@@ -229,119 +279,794 @@ public class DataManager {
     
     public boolean loadReferrals(String filename) {
         try {
-            List<String[]> data = CSVReader.readCSV(filename, true);
-            
-            for (String[] row : data) {
-                if (row.length >= 16) {
-                    Referral referral = new Referral(
-                        CSVReader.getValue(row, 0, ""),
-                        CSVReader.getValue(row, 1, ""),
-                        CSVReader.getValue(row, 2, ""),
-                        CSVReader.getValue(row, 3, ""),
-                        CSVReader.getValue(row, 4, ""),
-                        CSVReader.getValue(row, 5, ""),
-                        CSVReader.getValue(row, 6, ""),
-                        CSVReader.getValue(row, 7, ""),
-                        CSVReader.getValue(row, 8, ""),
-                        CSVReader.getValue(row, 9, ""),
-                        CSVReader.getValue(row, 10, ""),
-                        CSVReader.getValue(row, 11, ""),
-                        CSVReader.getValue(row, 12, ""),
-                        CSVReader.getValue(row, 13, ""),
-                        CSVReader.getValue(row, 14, ""),
-                        CSVReader.getValue(row, 15, "")
-                    );
-                    referralManager.addReferral(referral);
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Referral> data = CSVReader.readEntities(filename, EntitySchema.REFERRALS, problems);
+            referralManager.replaceAll(data);
+            reportLoaded(EntitySchema.REFERRALS, referralManager.getAllReferrals().size(), filename, problems);
+            return true;
+        } catch (Exception e) {
+            System.err.println("Error loading referrals: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    public boolean loadStaff(String filename) {
+        try {
+            List<CSVReader.RowError> problems = new ArrayList<>();
+            List<Staff> data = CSVReader.readEntities(filename, EntitySchema.STAFF, problems);
+            synchronized (staff) {
+                staff.clear();
+                staffIndexes.values().forEach(SecondaryIndex::clear);
+                
+                for (Staff member : data) {
+                    staff.add(member);
+                    indexStaff(member);
                 }
             }
-            System.out.println("Loaded " + referralManager.getAllReferrals().size() + " referrals");
+            staffHierarchy = null;
+            changeEvents.publish(ChangeEvent.reloaded(EntitySchema.STAFF));
+            reportLoaded(EntitySchema.STAFF, staff.size(), filename, problems);
             return true;
         } catch (Exception e) {
-            System.err.println("Error loading referrals: " + e.getMessage());
+            System.err.println("Error loading staff: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Problems each loader found on its last run, by entity name: rows left
+     * out, and values that could not be read in rows that were loaded
+     */
+    public Map<String, List<CSVReader.RowError>> getLoadErrors() {
+        return Collections.unmodifiableMap(new TreeMap<>(loadErrors));
+    }
+    
+    private void reportLoaded(EntitySchema<?> schema, int count, String filename, List<CSVReader.RowError> problems) {
+        loadErrors.put(schema.getName(), Collections.unmodifiableList(problems));
+        long skipped = problems.stream().filter(CSVReader.RowError::isSkipped).count();
+        System.out.println("Loaded " + count + " " + schema.getName() + " (skipped " + skipped + " rows)");
+        CSVReader.report(filename, problems);
+    }
+    
     // ==================== CRUD OPERATIONS ====================
     
-    public void addPatient(Patient patient) { patients.add(patient); }
-    public void updatePatient(int index, Patient patient) {
-        if (index >= 0 && index < patients.size()) patients.set(index, patient);
+    /**
+     * The update methods that take an expectedVersion (from getVersion) throw
+     * UpdateConflictException when the row has changed since; ANY_VERSION
+     * skips the check and the last writer wins
+     */
+    public static final long ANY_VERSION = -1;
+    
+    /**
+     * Replace a row, checking its version first unless expectedVersion is ANY_VERSION
+     */
+    private static <T> T replace(EntityTable<T> table, String id, T item, long expectedVersion) {
+        return expectedVersion == ANY_VERSION
+            ? table.updateById(id, item) : table.compareAndUpdate(id, expectedVersion, item);
     }
-    public void deletePatient(int index) {
-        if (index >= 0 && index < patients.size()) patients.remove(index);
+    
+    // Each write changes its table and that table's indexes while holding the
+    // table's lock, so no other writer sees one without the other
+    
+    public void addPatient(Patient patient) {
+        synchronized (patients) {
+            patients.add(patient);
+            patientLookup.add(patient);
+            changeEvents.publish(ChangeEvent.added(EntitySchema.PATIENTS, patient.getPatientId(), patient));
+        }
+    }
+    public void updatePatient(String id, Patient patient) {
+        updatePatient(id, patient, ANY_VERSION);
     }
-    public List<Patient> getPatients() { return patients; }
-    public Patient getPatientById(String id) {
-        for (Patient p : patients) {
-            if (p.getPatientId().equals(id)) return p;
+    public void updatePatient(String id, Patient patient, long expectedVersion) {
+        synchronized (patients) {
+            Patient old = replace(patients, id, patient, expectedVersion);
+            if (old != null) {
+                patientLookup.remove(id);
+                patientLookup.add(patient);
+                changeEvents.publish(ChangeEvent.updated(EntitySchema.PATIENTS, id, old, patient));
+            }
+        }
+    }
+    public void deletePatient(String id) {
+        synchronized (patients) {
+            Patient old = patients.removeById(id);
+            if (old != null) {
+                patientLookup.remove(id);
+                changeEvents.publish(ChangeEvent.deleted(EntitySchema.PATIENTS, id, old));
+            }
         }
-        return null;
     }
+    public List<Patient> getPatients() { return patients.snapshot(); }
+    public Patient getPatientById(String id) { return patients.getById(id); }
     
-    public void addClinician(Clinician clinician) { clinicians.add(clinician); }
-    public void updateClinician(int index, Clinician clinician) {
-        if (index >= 0 && index < clinicians.size()) clinicians.set(index, clinician);
+    public void addClinician(Clinician clinician) {
+        clinicians.add(clinician);
+        staffHierarchy = null;
+        changeEvents.publish(ChangeEvent.added(EntitySchema.CLINICIANS, clinician.getClinicianId(), clinician));
     }
-    public void deleteClinician(int index) {
-        if (index >= 0 && index < clinicians.size()) clinicians.remove(index);
+    public void updateClinician(String id, Clinician clinician) {
+        updateClinician(id, clinician, ANY_VERSION);
     }
-    public List<Clinician> getClinicians() { return clinicians; }
-    public Clinician getClinicianById(String id) {
-        for (Clinician c : clinicians) {
-            if (c.getClinicianId().equals(id)) return c;
+    public void updateClinician(String id, Clinician clinician, long expectedVersion) {
+        Clinician old = replace(clinicians, id, clinician, expectedVersion);
+        if (old != null) {
+            staffHierarchy = null;
+            changeEvents.publish(ChangeEvent.updated(EntitySchema.CLINICIANS, id, old, clinician));
         }
-        return null;
     }
+    public void deleteClinician(String id) {
+        Clinician old = clinicians.removeById(id);
+        if (old != null) {
+            staffHierarchy = null;
+            changeEvents.publish(ChangeEvent.deleted(EntitySchema.CLINICIANS, id, old));
+        }
+    }
+    public List<Clinician> getClinicians() { return clinicians.snapshot(); }
+    public Clinician getClinicianById(String id) { return clinicians.getById(id); }
     
-    public void addAppointment(Appointment appointment) { appointments.add(appointment); }
-    public void updateAppointment(int index, Appointment appointment) {
-        if (index >= 0 && index < appointments.size()) appointments.set(index, appointment);
+    public void addAppointment(Appointment appointment) {
+        synchronized (appointments) {
+            appointments.add(appointment);
+            indexAppointment(appointment);
+            changeEvents.publish(ChangeEvent.added(EntitySchema.APPOINTMENTS, appointment.getAppointmentId(), appointment));
+        }
+    }
+    public void updateAppointment(String id, Appointment appointment) {
+        updateAppointment(id, appointment, ANY_VERSION);
     }
-    public void deleteAppointment(int index) {
-        if (index >= 0 && index < appointments.size()) appointments.remove(index);
+    public void updateAppointment(String id, Appointment appointment, long expectedVersion) {
+        synchronized (appointments) {
+            Appointment old = replace(appointments, id, appointment, expectedVersion);
+            if (old != null) {
+                unindexAppointment(old);
+                indexAppointment(appointment);
+                changeEvents.publish(ChangeEvent.updated(EntitySchema.APPOINTMENTS, id, old, appointment));
+            }
+        }
+    }
+    public void deleteAppointment(String id) {
+        synchronized (appointments) {
+            Appointment old = appointments.removeById(id);
+            if (old != null) {
+                unindexAppointment(old);
+                changeEvents.publish(ChangeEvent.deleted(EntitySchema.APPOINTMENTS, id, old));
+            }
+        }
     }
-    public List<Appointment> getAppointments() { return appointments; }
+    public List<Appointment> getAppointments() { return appointments.snapshot(); }
+    public Appointment getAppointmentById(String id) { return appointments.getById(id); }
     
-    public void addPrescription(Prescription prescription) { prescriptions.add(prescription); }
-    public void updatePrescription(int index, Prescription prescription) {
-        if (index >= 0 && index < prescriptions.size()) prescriptions.set(index, prescription);
+    public void addPrescription(Prescription prescription) {
+        synchronized (prescriptions) {
+            prescriptions.add(prescription);
+            indexPrescription(prescription);
+            changeEvents.publish(ChangeEvent.added(EntitySchema.PRESCRIPTIONS, prescription.getPrescriptionId(), prescription));
+        }
+    }
+    public void updatePrescription(String id, Prescription prescription) {
+        updatePrescription(id, prescription, ANY_VERSION);
+    }
+    public void updatePrescription(String id, Prescription prescription, long expectedVersion) {
+        synchronized (prescriptions) {
+            Prescription old = replace(prescriptions, id, prescription, expectedVersion);
+            if (old != null) {
+                unindexPrescription(old);
+                indexPrescription(prescription);
+                changeEvents.publish(ChangeEvent.updated(EntitySchema.PRESCRIPTIONS, id, old, prescription));
+            }
+        }
     }
-    public void deletePrescription(int index) {
-        if (index >= 0 && index < prescriptions.size()) prescriptions.remove(index);
+    public void deletePrescription(String id) {
+        synchronized (prescriptions) {
+            Prescription old = prescriptions.removeById(id);
+            if (old != null) {
+                unindexPrescription(old);
+                changeEvents.publish(ChangeEvent.deleted(EntitySchema.PRESCRIPTIONS, id, old));
+            }
+        }
     }
-    public List<Prescription> getPrescriptions() { return prescriptions; }
+    public List<Prescription> getPrescriptions() { return prescriptions.snapshot(); }
+    public Prescription getPrescriptionById(String id) { return prescriptions.getById(id); }
     
-    public List<Facility> getFacilities() { return facilities; }
-    public Facility getFacilityById(String id) {
-        for (Facility f : facilities) {
-            if (f.getFacilityId().equals(id)) return f;
+    public List<Facility> getFacilities() { return facilities.snapshot(); }
+    public Facility getFacilityById(String id) { return facilities.getById(id); }
+    
+    public void addStaff(Staff member) {
+        synchronized (staff) {
+            staff.add(member);
+            indexStaff(member);
+            staffHierarchy = null;
+            changeEvents.publish(ChangeEvent.added(EntitySchema.STAFF, member.getStaffId(), member));
+        }
+    }
+    public void updateStaff(String id, Staff member) {
+        updateStaff(id, member, ANY_VERSION);
+    }
+    public void updateStaff(String id, Staff member, long expectedVersion) {
+        synchronized (staff) {
+            Staff old = replace(staff, id, member, expectedVersion);
+            if (old != null) {
+                unindexStaff(old);
+                indexStaff(member);
+                staffHierarchy = null;
+                changeEvents.publish(ChangeEvent.updated(EntitySchema.STAFF, id, old, member));
+            }
+        }
+    }
+    public void deleteStaff(String id) {
+        synchronized (staff) {
+            Staff old = staff.removeById(id);
+            if (old != null) {
+                unindexStaff(old);
+                staffHierarchy = null;
+                changeEvents.publish(ChangeEvent.deleted(EntitySchema.STAFF, id, old));
+            }
         }
-        return null;
     }
+    public List<Staff> getStaff() { return staff.snapshot(); }
+    public Staff getStaffById(String id) { return staff.getById(id); }
     
     public ReferralManager getReferralManager() { return referralManager; }
     
+    /**
+     * Version of a row for optimistic updates, or 0 when there is no such row.
+     * Read it with the row and pass it back to the versioned update.
+     */
+    public long getVersion(EntitySchema<?> schema, String id) {
+        return tableFor(schema).getVersion(id);
+    }
+    
+    @SuppressWarnings("unchecked")
+    <T> EntityTable<T> tableFor(EntitySchema<T> schema) {
+        if (schema == EntitySchema.PATIENTS) {
+            return (EntityTable<T>) patients;
+        } else if (schema == EntitySchema.CLINICIANS) {
+            return (EntityTable<T>) clinicians;
+        } else if (schema == EntitySchema.FACILITIES) {
+            return (EntityTable<T>) facilities;
+        } else if (schema == EntitySchema.APPOINTMENTS) {
+            return (EntityTable<T>) appointments;
+        } else if (schema == EntitySchema.PRESCRIPTIONS) {
+            return (EntityTable<T>) prescriptions;
+        } else if (schema == EntitySchema.STAFF) {
+            return (EntityTable<T>) staff;
+        }
+        return (EntityTable<T>) referralManager.getReferralTable();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> TableQuery<T> queryFor(EntitySchema<T> schema) {
+        if (schema == EntitySchema.PATIENTS) {
+            return (TableQuery<T>) patientQuery;
+        } else if (schema == EntitySchema.CLINICIANS) {
+            return (TableQuery<T>) clinicianQuery;
+        } else if (schema == EntitySchema.FACILITIES) {
+            return (TableQuery<T>) facilityQuery;
+        } else if (schema == EntitySchema.APPOINTMENTS) {
+            return (TableQuery<T>) appointmentQuery;
+        } else if (schema == EntitySchema.PRESCRIPTIONS) {
+            return (TableQuery<T>) prescriptionQuery;
+        } else if (schema == EntitySchema.STAFF) {
+            return (TableQuery<T>) staffQuery;
+        }
+        return (TableQuery<T>) referralQuery;
+    }
+    
+    // ==================== SNAPSHOTS ====================
+    
+    /**
+     * Immutable point-in-time copy of one table's rows; iterate it freely
+     * while edits continue (see EntityTable.snapshot)
+     */
+    public <T> List<T> snapshot(EntitySchema<T> schema) {
+        return tableFor(schema).snapshot();
+    }
+    
+    /**
+     * Snapshots of every table, for reports that read several of them
+     */
+    public DataSnapshot snapshot() {
+        // Not in the middle of a transaction commit, so it holds all of one or none of it
+        synchronized (commitLock) {
+            return new DataSnapshot(patients.snapshot(), clinicians.snapshot(), facilities.snapshot(),
+                appointments.snapshot(), prescriptions.snapshot(), referralManager.getReferralTable().snapshot(),
+                staff.snapshot());
+        }
+    }
+    
+    /**
+     * Rows of a table snapshot matching the query; the limit is ignored and
+     * the live table is not read again, so edits made while the stream is
+     * consumed neither wait for it nor show up in it. Without an explicit
+     * order or cursor the rows stream in storage order in constant memory;
+     * with one they are sorted first (see TableQuery.scan).
+     */
+    public <T> Stream<T> scanSnapshot(EntitySchema<T> schema, EntityQuery<T> query) {
+        return queryFor(schema).scan(tableFor(schema).snapshot(), query);
+    }
+    
+    // ==================== TRANSACTIONS ====================
+    
+    /**
+     * Start a transaction for changes that must be stored together; see Transaction
+     */
+    public Transaction beginTransaction() {
+        return new Transaction(this);
+    }
+    
+    /**
+     * Record every committed transaction in the given file (null stops recording)
+     */
+    public void setCommitLog(Path file) {
+        commitLog = file == null ? null : new CommitLog(file);
+    }
+    
+    public CommitLog getCommitLog() { return commitLog; }
+    
+    Object commitLock() { return commitLock; }
+    
+    /**
+     * Next ID that is neither stored nor held by another open transaction;
+     * the caller holds it until releaseId()
+     */
+    String allocateId(EntitySchema<?> schema, String prefix) {
+        EntityTable<?> table = tableFor(schema);
+        synchronized (commitLock) {
+            String id = generateNextId(prefix, table.size(),
+                candidate -> table.containsId(candidate) || allocatedIds.contains(schema.getName() + "/" + candidate));
+            allocatedIds.add(schema.getName() + "/" + id);
+            return id;
+        }
+    }
+    
+    void releaseId(EntitySchema<?> schema, String id) {
+        synchronized (commitLock) {
+            allocatedIds.remove(schema.getName() + "/" + id);
+        }
+    }
+    
+    <T> String idOf(EntitySchema<T> schema, T item) {
+        return tableFor(schema).keyOf(item);
+    }
+    
+    void checkWritable(EntitySchema<?> schema) {
+        if (schema == EntitySchema.FACILITIES) {
+            throw new IllegalArgumentException("facilities are read-only");
+        }
+    }
+    
+    // Row changes applied by Transaction, CsvFileWatcher and FeedFollower, through the
+    // same methods as single edits. Facilities only change here, from their file.
+    
+    /**
+     * Add a row; throws UpdateConflictException if a row with its ID exists
+     */
+    <T> void insertRow(EntitySchema<T> schema, T item) {
+        EntityTable<T> table = tableFor(schema);
+        synchronized (table) {
+            String id = table.keyOf(item);
+            long current = table.getVersion(id);
+            if (current != 0) {
+                throw new UpdateConflictException(id, 0, current);
+            }
+            addRow(schema, item);
+        }
+    }
+    
+    private <T> void addRow(EntitySchema<T> schema, T item) {
+        if (schema == EntitySchema.PATIENTS) {
+            addPatient((Patient) item);
+        } else if (schema == EntitySchema.CLINICIANS) {
+            addClinician((Clinician) item);
+        } else if (schema == EntitySchema.APPOINTMENTS) {
+            addAppointment((Appointment) item);
+        } else if (schema == EntitySchema.PRESCRIPTIONS) {
+            addPrescription((Prescription) item);
+        } else if (schema == EntitySchema.STAFF) {
+            addStaff((Staff) item);
+        } else if (schema == EntitySchema.REFERRALS) {
+            referralManager.addReferral((Referral) item);
+        } else {
+            Facility facility = (Facility) item;
+            facilities.add(facility);
+            changeEvents.publish(ChangeEvent.added(EntitySchema.FACILITIES, facility.getFacilityId(), facility));
+        }
+    }
+    
+    <T> void replaceRow(EntitySchema<T> schema, String id, T item, long expectedVersion) {
+        if (schema == EntitySchema.PATIENTS) {
+            updatePatient(id, (Patient) item, expectedVersion);
+        } else if (schema == EntitySchema.CLINICIANS) {
+            updateClinician(id, (Clinician) item, expectedVersion);
+        } else if (schema == EntitySchema.APPOINTMENTS) {
+            updateAppointment(id, (Appointment) item, expectedVersion);
+        } else if (schema == EntitySchema.PRESCRIPTIONS) {
+            updatePrescription(id, (Prescription) item, expectedVersion);
+        } else if (schema == EntitySchema.STAFF) {
+            updateStaff(id, (Staff) item, expectedVersion);
+        } else if (schema == EntitySchema.REFERRALS) {
+            referralManager.updateReferral(id, (Referral) item, expectedVersion);
+        } else {
+            Facility old = replace(facilities, id, (Facility) item, expectedVersion);
+            if (old != null) {
+                changeEvents.publish(ChangeEvent.updated(EntitySchema.FACILITIES, id, old, (Facility) item));
+            }
+        }
+    }
+    
+    /**
+     * Replace the row with the item's ID, or add the item if there is none
+     */
+    <T> void upsertRow(EntitySchema<T> schema, T item) {
+        EntityTable<T> table = tableFor(schema);
+        synchronized (table) {
+            String id = table.keyOf(item);
+            if (table.containsId(id)) {
+                replaceRow(schema, id, item, ANY_VERSION);
+            } else {
+                addRow(schema, item);
+            }
+        }
+    }
+    
+    /**
+     * Remove a row only if it is still at expectedVersion; throws
+     * UpdateConflictException if it has changed or gone
+     */
+    <T> void removeRow(EntitySchema<T> schema, String id, long expectedVersion) {
+        EntityTable<T> table = tableFor(schema);
+        synchronized (table) {
+            long current = table.getVersion(id);
+            if (current != expectedVersion) {
+                throw new UpdateConflictException(id, expectedVersion, current);
+            }
+            removeRow(schema, id);
+        }
+    }
+    
+    <T> void removeRow(EntitySchema<T> schema, String id) {
+        if (schema == EntitySchema.PATIENTS) {
+            deletePatient(id);
+        } else if (schema == EntitySchema.CLINICIANS) {
+            deleteClinician(id);
+        } else if (schema == EntitySchema.APPOINTMENTS) {
+            deleteAppointment(id);
+        } else if (schema == EntitySchema.PRESCRIPTIONS) {
+            deletePrescription(id);
+        } else if (schema == EntitySchema.STAFF) {
+            deleteStaff(id);
+        } else if (schema == EntitySchema.REFERRALS) {
+            referralManager.removeReferral(id);
+        } else {
+            Facility old = facilities.removeById(id);
+            if (old != null) {
+                changeEvents.publish(ChangeEvent.deleted(EntitySchema.FACILITIES, id, old));
+            }
+        }
+    }
+    
+    // ==================== CHANGE EVENTS ====================
+    
+    /**
+     * Changes to every table, in batches; see ChangeEventBus
+     */
+    public ChangeEventBus getChangeEvents() { return changeEvents; }
+    
+    /**
+     * Stop receiving referral search entries and change events from the
+     * shared ReferralManager, once this DataManager is no longer used
+     */
+    public void detachReferrals() {
+        referralManager.detach(searchIndex, changeEvents);
+    }
+    
+    // Table and index access for IntegrityValidator
+    EntityTable<Patient> patientTable() { return patients; }
+    EntityTable<Clinician> clinicianTable() { return clinicians; }
+    EntityTable<Facility> facilityTable() { return facilities; }
+    EntityTable<Appointment> appointmentTable() { return appointments; }
+    EntityTable<Prescription> prescriptionTable() { return prescriptions; }
+    EntityTable<Staff> staffTable() { return staff; }
+    SecondaryIndex<Appointment> appointmentIndex(String field) { return appointmentIndexes.get(field); }
+    SecondaryIndex<Prescription> prescriptionIndex(String field) { return prescriptionIndexes.get(field); }
+    
+    // ==================== PATIENT LOOKUP ====================
+    
+    public PatientLookupIndex getPatientLookup() { return patientLookup; }
+    
+    /**
+     * Ranked type-ahead patient search by name prefix, fuzzy name, NHS number or postcode
+     */
+    public List<Patient> searchPatients(String query, int limit) {
+        List<Patient> result = new ArrayList<>();
+        for (SearchHit hit : patientLookup.search(query, limit)) {
+            Patient patient = getPatientById(hit.getEntityId());
+            if (patient != null) {
+                result.add(patient);
+            }
+        }
+        return result;
+    }
+    
+    // ==================== FILTERING ====================
+    
+    /**
+     * IDs of appointments matching every given criterion; null or empty criteria are ignored.
+     * Dates are ISO (yyyy-MM-dd) and inclusive.
+     */
+    public Set<String> findAppointmentIds(String clinicianId, String status, String fromDate, String toDate) {
+        return appointmentQuery.matchingIds(appointmentFilter(clinicianId, status, fromDate, toDate));
+    }
+    
+    /**
+     * The same criteria as findAppointmentIds, as a check on one appointment
+     */
+    public Predicate<Appointment> appointmentMatcher(String clinicianId, String status, String fromDate, String toDate) {
+        return appointmentQuery.matcher(appointmentFilter(clinicianId, status, fromDate, toDate));
+    }
+    
+    /**
+     * IDs of prescriptions with the given status, or all prescriptions when status is blank
+     */
+    public Set<String> findPrescriptionIds(String status) {
+        return prescriptionQuery.matchingIds(prescriptionFilter(status));
+    }
+    
+    /**
+     * The same criteria as findPrescriptionIds, as a check on one prescription
+     */
+    public Predicate<Prescription> prescriptionMatcher(String status) {
+        return prescriptionQuery.matcher(prescriptionFilter(status));
+    }
+    
+    private static EntityQuery<Appointment> appointmentFilter(String clinicianId, String status, String fromDate, String toDate) {
+        return new EntityQuery<Appointment>()
+            .where("clinicianId", clinicianId)
+            .where("status", status)
+            .between("appointmentDate", fromDate, toDate);
+    }
+    
+    private static EntityQuery<Prescription> prescriptionFilter(String status) {
+        return new EntityQuery<Prescription>().where("status", status);
+    }
+    
+    public Set<String> getAppointmentStatuses() { return appointmentIndexes.get("status").keys(); }
+    public Set<String> getAppointmentClinicianIds() { return appointmentIndexes.get("clinicianId").keys(); }
+    public Set<String> getPrescriptionStatuses() { return prescriptionIndexes.get("status").keys(); }
+    
+    // ==================== STAFF DIRECTORY ====================
+    
+    /**
+     * IDs of staff at a facility with a role; either may be blank to match on the other alone
+     */
+    public Set<String> findStaffIds(String facilityId, String role) {
+        boolean anyFacility = facilityId == null || facilityId.trim().isEmpty();
+        boolean anyRole = role == null || role.trim().isEmpty();
+        if (anyFacility && anyRole) {
+            return staff.ids();
+        } else if (anyRole) {
+            return staffIndexes.get("facilityId").get(facilityId);
+        } else if (anyFacility) {
+            return staffIndexes.get("role").get(role);
+        }
+        return staffIndexes.get(STAFF_FACILITY_ROLE).get(facilityRoleKey(facilityId, role));
+    }
+    
+    /**
+     * Staff with the given value of an indexed field (facilityId, role,
+     * department, lineManager or accessLevel), in ID order
+     */
+    public List<Staff> getStaffBy(String field, String value) {
+        SecondaryIndex<Staff> index = staffIndexes.get(field);
+        if (index == null || STAFF_FACILITY_ROLE.equals(field)) {
+            throw new IllegalArgumentException("Staff are not indexed by " + field);
+        }
+        return staffByIds(index.get(value));
+    }
+    
+    public List<Staff> findStaff(String facilityId, String role) {
+        return staffByIds(findStaffIds(facilityId, role));
+    }
+    
+    /**
+     * Distinct values of an indexed staff field, in sorted order
+     */
+    public Set<String> getStaffValues(String field) {
+        SecondaryIndex<Staff> index = staffIndexes.get(field);
+        return index == null ? Collections.emptySet() : index.keys();
+    }
+    
+    public StaffHierarchy getStaffHierarchy() {
+        StaffHierarchy hierarchy = staffHierarchy;
+        if (hierarchy == null) {
+            synchronized (this) {
+                hierarchy = staffHierarchy;
+                if (hierarchy == null) {
+                    hierarchy = new StaffHierarchy(staff.snapshot(), clinicians.snapshot());
+                    staffHierarchy = hierarchy;
+                }
+            }
+        }
+        return hierarchy;
+    }
+    
+    private List<Staff> staffByIds(Set<String> ids) {
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(EntityTable.ID_ORDER);
+        List<Staff> result = new ArrayList<>(sorted.size());
+        for (String id : sorted) {
+            Staff member = staff.getById(id);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+    
+    private void indexStaff(Staff s) {
+        for (SecondaryIndex<Staff> index : staffIndexes.values()) {
+            index.add(s);
+        }
+    }
+    
+    private void unindexStaff(Staff s) {
+        for (SecondaryIndex<Staff> index : staffIndexes.values()) {
+            index.remove(s);
+        }
+    }
+    
+    private static String facilityRoleKey(String facilityId, String role) {
+        return (facilityId == null ? "" : facilityId) + "|" + (role == null ? "" : role);
+    }
+    
+    // ==================== QUERIES ====================
+    
+    public Page<Patient> queryPatients(EntityQuery<Patient> query) { return patientQuery.page(query); }
+    public Stream<Patient> streamPatients(EntityQuery<Patient> query) { return patientQuery.stream(query); }
+    
+    public Page<Clinician> queryClinicians(EntityQuery<Clinician> query) { return clinicianQuery.page(query); }
+    public Stream<Clinician> streamClinicians(EntityQuery<Clinician> query) { return clinicianQuery.stream(query); }
+    
+    public Page<Facility> queryFacilities(EntityQuery<Facility> query) { return facilityQuery.page(query); }
+    public Stream<Facility> streamFacilities(EntityQuery<Facility> query) { return facilityQuery.stream(query); }
+    
+    public Page<Appointment> queryAppointments(EntityQuery<Appointment> query) { return appointmentQuery.page(query); }
+    public Stream<Appointment> streamAppointments(EntityQuery<Appointment> query) { return appointmentQuery.stream(query); }
+    
+    public Page<Prescription> queryPrescriptions(EntityQuery<Prescription> query) { return prescriptionQuery.page(query); }
+    public Stream<Prescription> streamPrescriptions(EntityQuery<Prescription> query) { return prescriptionQuery.stream(query); }
+    
+    public Page<Referral> queryReferrals(EntityQuery<Referral> query) { return referralQuery.page(query); }
+    public Stream<Referral> streamReferrals(EntityQuery<Referral> query) { return referralQuery.stream(query); }
+    
+    public Page<Staff> queryStaff(EntityQuery<Staff> query) { return staffQuery.page(query); }
+    public Stream<Staff> streamStaff(EntityQuery<Staff> query) { return staffQuery.stream(query); }
+    
+    /**
+     * Queryable fields of each entity, named after the model getters
+     */
+    private void createQueries() {
+        Map<String, Function<Patient, String>> patientFields = new LinkedHashMap<>();
+        patientFields.put("patientId", Patient::getPatientId);
+        patientFields.put("firstName", Patient::getFirstName);
+        patientFields.put("lastName", Patient::getLastName);
+        patientFields.put("dateOfBirth", Patient::getDateOfBirth);
+        patientFields.put("nhsNumber", Patient::getNhsNumber);
+        patientFields.put("gender", Patient::getGender);
+        patientFields.put("postcode", Patient::getPostcode);
+        patientFields.put("registrationDate", Patient::getRegistrationDate);
+        patientFields.put("gpSurgeryId", Patient::getGpSurgeryId);
+        patientQuery = new TableQuery<>(patients, "patientId", patientFields, Collections.emptyMap());
+        
+        Map<String, Function<Clinician, String>> clinicianFields = new LinkedHashMap<>();
+        clinicianFields.put("clinicianId", Clinician::getClinicianId);
+        clinicianFields.put("title", Clinician::getTitle);
+        clinicianFields.put("lastName", Clinician::getLastName);
+        clinicianFields.put("speciality", Clinician::getSpeciality);
+        clinicianFields.put("workplaceId", Clinician::getWorkplaceId);
+        clinicianFields.put("workplaceType", Clinician::getWorkplaceType);
+        clinicianFields.put("employmentStatus", Clinician::getEmploymentStatus);
+        clinicianFields.put("startDate", Clinician::getStartDate);
+        clinicianQuery = new TableQuery<>(clinicians, "clinicianId", clinicianFields, Collections.emptyMap());
+        
+        Map<String, Function<Facility, String>> facilityFields = new LinkedHashMap<>();
+        facilityFields.put("facilityId", Facility::getFacilityId);
+        facilityFields.put("facilityName", Facility::getFacilityName);
+        facilityFields.put("facilityType", Facility::getFacilityType);
+        facilityFields.put("postcode", Facility::getPostcode);
+        facilityQuery = new TableQuery<>(facilities, "facilityId", facilityFields, Collections.emptyMap());
+        
+        Map<String, Function<Appointment, String>> appointmentFields = new LinkedHashMap<>();
+        appointmentFields.put("appointmentId", Appointment::getAppointmentId);
+        appointmentFields.put("patientId", Appointment::getPatientId);
+        appointmentFields.put("clinicianId", Appointment::getClinicianId);
+        appointmentFields.put("facilityId", Appointment::getFacilityId);
+        appointmentFields.put("appointmentDate", Appointment::getAppointmentDate);
+        appointmentFields.put("appointmentTime", Appointment::getAppointmentTime);
+        appointmentFields.put("appointmentType", Appointment::getAppointmentType);
+        appointmentFields.put("status", Appointment::getStatus);
+        appointmentQuery = new TableQuery<>(appointments, "appointmentId", appointmentFields, appointmentIndexes);
+        
+        Map<String, Function<Prescription, String>> prescriptionFields = new LinkedHashMap<>();
+        prescriptionFields.put("prescriptionId", Prescription::getPrescriptionId);
+        prescriptionFields.put("patientId", Prescription::getPatientId);
+        prescriptionFields.put("clinicianId", Prescription::getClinicianId);
+        prescriptionFields.put("appointmentId", Prescription::getAppointmentId);
+        prescriptionFields.put("prescriptionDate", Prescription::getPrescriptionDate);
+        prescriptionFields.put("medicationName", Prescription::getMedicationName);
+        prescriptionFields.put("pharmacyName", Prescription::getPharmacyName);
+        prescriptionFields.put("status", Prescription::getStatus);
+        prescriptionQuery = new TableQuery<>(prescriptions, "prescriptionId", prescriptionFields, prescriptionIndexes);
+        
+        Map<String, Function<Referral, String>> referralFields = new LinkedHashMap<>();
+        referralFields.put("referralId", Referral::getReferralId);
+        referralFields.put("patientId", Referral::getPatientId);
+        referralFields.put("referringClinicianId", Referral::getReferringClinicianId);
+        referralFields.put("referredToClinicianId", Referral::getReferredToClinicianId);
+        referralFields.put("referralDate", Referral::getReferralDate);
+        referralFields.put("urgencyLevel", Referral::getUrgencyLevel);
+        referralFields.put("status", Referral::getStatus);
+        referralQuery = new TableQuery<>(referralManager.getReferralTable(), "referralId", referralFields,
+            Collections.emptyMap());
+        
+        Map<String, Function<Staff, String>> staffFields = new LinkedHashMap<>();
+        staffFields.put("staffId", Staff::getStaffId);
+        staffFields.put("firstName", Staff::getFirstName);
+        staffFields.put("lastName", Staff::getLastName);
+        staffFields.put("role", Staff::getRole);
+        staffFields.put("department", Staff::getDepartment);
+        staffFields.put("facilityId", Staff::getFacilityId);
+        staffFields.put("employmentStatus", Staff::getEmploymentStatus);
+        staffFields.put("startDate", Staff::getStartDate);
+        staffFields.put("lineManager", Staff::getLineManager);
+        staffFields.put("accessLevel", Staff::getAccessLevel);
+        staffQuery = new TableQuery<>(staff, "staffId", staffFields, staffIndexes);
+    }
+    
+    // ==================== FULL-TEXT SEARCH ====================
+    
+    public TextSearchIndex getSearchIndex() { return searchIndex; }
+    
+    public List<SearchHit> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+    
+    private void indexAppointment(Appointment a) {
+        searchIndex.index(TextSearchIndex.APPOINTMENT, a.getAppointmentId(),
+            a.getReasonForVisit(), a.getNotes());
+        for (SecondaryIndex<Appointment> index : appointmentIndexes.values()) {
+            index.add(a);
+        }
+    }
+    
+    private void unindexAppointment(Appointment a) {
+        searchIndex.remove(TextSearchIndex.APPOINTMENT, a.getAppointmentId());
+        for (SecondaryIndex<Appointment> index : appointmentIndexes.values()) {
+            index.remove(a);
+        }
+    }
+    
+    private void indexPrescription(Prescription p) {
+        searchIndex.index(TextSearchIndex.PRESCRIPTION, p.getPrescriptionId(),
+            p.getInstructions());
+        for (SecondaryIndex<Prescription> index : prescriptionIndexes.values()) {
+            index.add(p);
+        }
+    }
+    
+    private void unindexPrescription(Prescription p) {
+        searchIndex.remove(TextSearchIndex.PRESCRIPTION, p.getPrescriptionId());
+        for (SecondaryIndex<Prescription> index : prescriptionIndexes.values()) {
+            index.remove(p);
+        }
+    }
+    
     // ==================== SAVE OPERATIONS ====================
     
     public boolean savePrescriptions(String filename) {
         try {
-            FileWriter writer = new FileWriter(filename, false);
-            PrintWriter pw = new PrintWriter(writer);
-            
-            pw.println("prescription_id,patient_id,clinician_id,appointment_id,prescription_date,medication_name,dosage,frequency,duration_days,quantity,instructions,pharmacy_name,status,issue_date,collection_date");
-            
-            for (Prescription p : prescriptions) {
-                pw.printf("%s,%s,%s,%s,%s,%s,%s,%s,%d,%s,%s,%s,%s,%s,%s%n",
-                    p.getPrescriptionId(), p.getPatientId(), p.getClinicianId(),
-                    p.getAppointmentId(), p.getPrescriptionDate(), p.getMedicationName(),
-                    p.getDosage(), p.getFrequency(), p.getDurationDays(), p.getQuantity(),
-                    p.getInstructions(), p.getPharmacyName(), p.getStatus(),
-                    p.getIssueDate(), p.getCollectionDate()
-                );
-            }
-            
-            pw.close();
+            save(EntitySchema.PRESCRIPTIONS, prescriptions, Paths.get(filename));
             System.out.println("Prescriptions saved to " + filename);
             return true;
         } catch (IOException e) {
@@ -350,7 +1075,76 @@ public class DataManager {
         }
     }
     
+    public boolean saveStaff(String filename) {
+        try {
+            save(EntitySchema.STAFF, staff, Paths.get(filename));
+            System.out.println("Staff saved to " + filename);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving staff: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Write the table to file and remember what was written, so that
+     * followers and watchers of the file can tell it from an outside change
+     */
+    private <T> void save(EntitySchema<T> schema, EntityTable<T> table, Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        saving.add(key);
+        try {
+            EntityExporter.writeFile(schema, table.snapshot().stream(), EntityExporter.Format.CSV, file);
+            savedHashes.put(key, contentHash(file));
+        } finally {
+            saving.remove(key);
+        }
+    }
+    
+    /**
+     * Whether file holds what this DataManager last saved to it, or is being
+     * saved by it right now; FeedFollower and CsvFileWatcher use this to leave
+     * out the application's own saves
+     */
+    public boolean isOwnWrite(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        if (saving.contains(key)) {
+            return true;
+        }
+        Long saved = savedHashes.get(key);
+        try {
+            return saved != null && saved == contentHash(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    private static long contentHash(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+    
     public String generateNextId(String prefix, int currentCount) {
         return String.format("%s%03d", prefix, currentCount + 1);
     }
+    
+    /**
+     * Next ID after currentCount that is not already taken
+     * (deletes mean the row count alone can point at an existing ID)
+     */
+    public String generateNextId(String prefix, int currentCount, Predicate<String> taken) {
+        String id = generateNextId(prefix, currentCount);
+        while (taken.test(id)) {
+            currentCount++;
+            id = generateNextId(prefix, currentCount);
+        }
+        return id;
+    }
 }
\ No newline at end of file
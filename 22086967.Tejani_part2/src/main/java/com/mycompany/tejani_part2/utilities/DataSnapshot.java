@@ -0,0 +1,43 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.*;
+import java.util.List;
+
+/**
+ * Immutable copies of every table, taken by DataManager.snapshot()
+ *
+ * Each list is a point-in-time copy of its table that never changes, so
+ * reports can iterate and cross-reference them without locks while edits
+ * continue. The tables are copied one after another without pausing writers,
+ * so an edit made during snapshot() may show up in a later table and not an
+ * earlier one.
+ */
+public class DataSnapshot {
+    private final List<Patient> patients;
+    private final List<Clinician> clinicians;
+    private final List<Facility> facilities;
+    private final List<Appointment> appointments;
+    private final List<Prescription> prescriptions;
+    private final List<Referral> referrals;
+    private final List<Staff> staff;
+
+    DataSnapshot(List<Patient> patients, List<Clinician> clinicians, List<Facility> facilities,
+                 List<Appointment> appointments, List<Prescription> prescriptions,
+                 List<Referral> referrals, List<Staff> staff) {
+        this.patients = patients;
+        this.clinicians = clinicians;
+        this.facilities = facilities;
+        this.appointments = appointments;
+        this.prescriptions = prescriptions;
+        this.referrals = referrals;
+        this.staff = staff;
+    }
+
+    public List<Patient> getPatients() { return patients; }
+    public List<Clinician> getClinicians() { return clinicians; }
+    public List<Facility> getFacilities() { return facilities; }
+    public List<Appointment> getAppointments() { return appointments; }
+    public List<Prescription> getPrescriptions() { return prescriptions; }
+    public List<Referral> getReferrals() { return referrals; }
+    public List<Staff> getStaff() { return staff; }
+}
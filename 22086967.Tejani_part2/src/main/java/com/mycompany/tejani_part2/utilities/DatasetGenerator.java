@@ -0,0 +1,563 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.*;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Synthetic data files of any size, in the layout DataManager loads
+ *
+ * Everything is sized from the patient count: one GP surgery per ~8,000
+ * patients and a hospital per eight surgeries, one GP per 1,500 patients and a
+ * specialist per 2,500, two appointments per patient, a prescription for 60%
+ * of appointments, a referral for 5% and a member of staff per 400 patients.
+ *
+ * Row i of each file depends only on the seed and i (it draws from its own
+ * SplittableRandom), so the output is the same for a given seed however many
+ * threads write it, and a row's foreign keys are found by re-deriving the
+ * rows they point at rather than by keeping anything in memory. Every key
+ * resolves: patients are registered at a surgery, appointments are with a GP
+ * at that surgery or a specialist at a hospital, prescriptions and referrals
+ * hang off an appointment and share its patient and clinician.
+ *
+ * Use is skewed the way real lists are: a tenth of patients are frequent
+ * attenders, and surgery sizes, clinician workload, medications and surnames
+ * follow a power law; and about 0.2% of patients are re-registrations of an earlier patient
+ * for the duplicate detector to find.
+ */
+public final class DatasetGenerator {
+    /** Rows rendered by one task; files are written chunk by chunk in order */
+    private static final int CHUNK_ROWS = 20_000;
+    private static final double DUPLICATE_RATE = 0.002;
+    // Percentage of appointments taken by the tenth of patients who attend most
+    private static final int FREQUENT_ATTENDER_VISITS = 40;
+    // Appointments before this day have happened, later ones are still scheduled
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 30);
+    private static final long FIRST_APPOINTMENT_DAY = LocalDate.of(2024, 1, 1).toEpochDay();
+    private static final int APPOINTMENT_DAYS = 730;
+
+    private static final String[] FIRST_NAMES_M = {"Oliver", "George", "Harry", "Jack", "Noah", "Charlie",
+        "Mohammed", "Thomas", "Oscar", "William", "James", "Leo", "David", "Michael", "Daniel", "Joseph",
+        "Samuel", "Adam", "Ali", "Ryan", "Liam", "Arjun", "Kwame", "Tomasz"};
+    private static final String[] FIRST_NAMES_F = {"Olivia", "Amelia", "Isla", "Ava", "Emily", "Sophia",
+        "Grace", "Mia", "Poppy", "Ella", "Emma", "Sarah", "Helen", "Fatima", "Aisha", "Priya", "Chloe",
+        "Hannah", "Lucy", "Jessica", "Zara", "Maria", "Niamh", "Anna"};
+    private static final String[] LAST_NAMES = {"Smith", "Jones", "Williams", "Taylor", "Brown", "Davies",
+        "Evans", "Wilson", "Thomas", "Johnson", "Roberts", "Robinson", "Thompson", "Wright", "Walker", "White",
+        "Edwards", "Hughes", "Green", "Hall", "Lewis", "Harris", "Clarke", "Patel", "Jackson", "Wood",
+        "Turner", "Martin", "Cooper", "Hill", "Ward", "Morris", "Moore", "Clark", "Lee", "King", "Baker",
+        "Harrison", "Morgan", "Allen", "Khan", "Ahmed", "Singh", "Begum", "Hussain", "Kaur", "Nowak",
+        "O'Brien", "Murphy", "Campbell"};
+    private static final String[] STREETS = {"High Street", "Station Road", "Church Lane", "Park Road",
+        "Victoria Road", "Green Lane", "Manor Road", "Oak Avenue", "Mill Lane", "Queens Road", "New Road",
+        "Stratford Road", "Hagley Road", "Bristol Road", "Coventry Road"};
+    private static final String[] TOWNS = {"Birmingham", "Solihull", "Sutton Coldfield", "Wolverhampton",
+        "Dudley", "Walsall", "West Bromwich", "Coventry"};
+    private static final String[] HOSPITAL_KINDS = {"General", "City", "Royal", "Community"};
+    private static final String[] SURGERY_KINDS = {"Surgery", "Medical Centre", "Family Practice", "Health Centre"};
+    private static final String[] POSTCODE_AREAS = {"B", "B", "B", "WV", "DY", "WS", "B", "CV"};
+    private static final String[] HOSPITAL_SPECIALITIES = {"Cardiology", "Orthopaedics", "Neurology",
+        "Dermatology", "Gastroenterology", "Respiratory Medicine", "Ophthalmology", "ENT"};
+    private static final String[] APPOINTMENT_TYPES = {"Routine Consultation", "Routine Consultation",
+        "Follow-up", "Follow-up", "Telephone Consultation", "Vaccination", "Blood Test", "Urgent Consultation"};
+    private static final String[] REASONS = {"Annual health check", "Back pain", "Chest pain", "Persistent cough",
+        "Headaches", "Blood pressure review", "Diabetes review", "Asthma review", "Skin rash", "Joint pain",
+        "Flu vaccination", "Medication review", "Abdominal pain", "Anxiety", "Ear infection", "Fatigue"};
+    private static final int[] DURATIONS = {10, 15, 15, 15, 20, 30};
+    private static final String[] MEDICATIONS = {"Atorvastatin", "Amlodipine", "Omeprazole", "Levothyroxine",
+        "Metformin", "Ramipril", "Salbutamol", "Paracetamol", "Simvastatin", "Lansoprazole", "Sertraline",
+        "Amoxicillin", "Bisoprolol", "Co-codamol", "Naproxen", "Citalopram", "Ibuprofen", "Doxycycline"};
+    private static final String[] DOSAGES = {"5mg", "10mg", "20mg", "40mg", "100mg", "500mg"};
+    private static final String[] FREQUENCIES = {"Once daily", "Once daily", "Twice daily", "Three times daily",
+        "As required"};
+    private static final int[] COURSES = {7, 14, 28, 28, 28, 56};
+    private static final String[] INSTRUCTIONS = {"Take with food", "Take in the morning",
+        "Take with evening meal", "Do not exceed the stated dose", "Complete the full course"};
+    private static final String[] PHARMACIES = {"Boots Pharmacy", "Lloyds Pharmacy", "Superdrug Pharmacy",
+        "Well Pharmacy", "Rowlands Pharmacy"};
+    private static final String[] REFERRAL_REASONS = {"Suspected heart murmur", "Chronic knee pain",
+        "Recurrent migraines", "Suspicious mole", "Persistent reflux", "Shortness of breath", "Blurred vision",
+        "Recurrent tonsillitis"};
+    private static final String[] INVESTIGATIONS = {"ECG|Echocardiogram", "X-ray|MRI Knee", "MRI Brain",
+        "Dermoscopy", "Endoscopy", "Spirometry|Chest X-ray", "Eye examination", "Hearing test"};
+    private static final String[] STAFF_ROLES = {"Receptionist", "Receptionist", "Receptionist", "Nurse",
+        "Nurse", "Healthcare Assistant", "Administrator", "Pharmacist"};
+
+    private final long seed;
+    private final int patients;
+    private final int surgeries;
+    private final int hospitals;
+    private final int gps;
+    private final int specialists;
+    private final int appointments;
+    private final int prescriptions;
+    private final int referrals;
+    private final int staff;
+    private final int facilities;
+
+    /**
+     * Throws IllegalArgumentException when patients is not positive
+     */
+    public DatasetGenerator(int patients, long seed) {
+        if (patients <= 0) {
+            throw new IllegalArgumentException("patients must be positive: " + patients);
+        }
+        this.seed = seed;
+        this.patients = patients;
+        this.surgeries = Math.max(3, patients / 8_000);
+        this.hospitals = Math.max(2, surgeries / 8);
+        this.facilities = surgeries + hospitals;
+        this.gps = Math.max(surgeries, patients / 1_500);
+        this.specialists = Math.max(hospitals, patients / 2_500);
+        this.appointments = checkedRows(2L * patients);
+        this.prescriptions = Math.max(1, (int) (appointments * 0.6));
+        this.referrals = Math.max(1, appointments / 20);
+        this.staff = Math.max(2 * facilities, patients / 400);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Rows the full dataset has for an entity
+     */
+    public int getRowCount(EntitySchema<?> schema) {
+        switch (schema.getName()) {
+            case "patients": return patients;
+            case "clinicians": return gps + specialists;
+            case "facilities": return facilities;
+            case "appointments": return appointments;
+            case "prescriptions": return prescriptions;
+            case "referrals": return referrals;
+            case "staff": return staff;
+            default: throw new IllegalArgumentException("Unknown entity: " + schema.getName());
+        }
+    }
+
+    /**
+     * Row index of an entity; indexes past the row count still give a valid row
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T row(EntitySchema<T> schema, int index) {
+        switch (schema.getName()) {
+            case "patients": return (T) patient(index);
+            case "clinicians": return (T) clinician(index);
+            case "facilities": return (T) facility(index);
+            case "appointments": return (T) appointment(index);
+            case "prescriptions": return (T) prescription(index);
+            case "referrals": return (T) referral(index);
+            case "staff": return (T) staff(index);
+            default: throw new IllegalArgumentException("Unknown entity: " + schema.getName());
+        }
+    }
+
+    // ==================== WRITING ====================
+
+    /**
+     * Write every data file into dir; returns the rows written per entity
+     */
+    public Map<String, Long> writeAll(Path dir, int threads) throws IOException {
+        Files.createDirectories(dir);
+        Map<String, Long> written = new LinkedHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (EntitySchema<?> schema : EntitySchema.ALL) {
+                Path file = dir.resolve(schema.getName() + ".csv");
+                written.put(schema.getName(), write(schema, getRowCount(schema), file, pool, threads));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return written;
+    }
+
+    /**
+     * Write the first rows rows of one entity to file (compressed for .gz or .zz)
+     */
+    public <T> long writeFile(EntitySchema<T> schema, int rows, Path file, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            return write(schema, rows, file, pool, threads);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Chunks are rendered on the pool and written by the calling thread in
+     * order; at most two per thread are held at once, so memory stays flat
+     */
+    private <T> long write(EntitySchema<T> schema, int rows, Path file, ExecutorService pool, int threads)
+            throws IOException {
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        try {
+            return EntityExporter.writeAtomically(file, out -> {
+                out.write(header(schema));
+                int next = 0;
+                while (next < rows || !pending.isEmpty()) {
+                    while (next < rows && pending.size() < 2 * threads) {
+                        int from = next;
+                        int to = (int) Math.min(rows, (long) next + CHUNK_ROWS);
+                        pending.add(pool.submit(() -> render(schema, from, to)));
+                        next = to;
+                    }
+                    out.write(await(pending.poll()));
+                }
+                return rows;
+            });
+        } finally {
+            for (Future<byte[]> chunk : pending) {
+                chunk.cancel(true);
+            }
+        }
+    }
+
+    private static byte[] header(EntitySchema<?> schema) throws IOException {
+        CharArrayWriter text = new CharArrayWriter();
+        EntityExporter.writeCsvRow(text, schema.getColumns());
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * CSV bytes for rows [from, to)
+     */
+    private <T> byte[] render(EntitySchema<T> schema, int from, int to) throws IOException {
+        CharArrayWriter text = new CharArrayWriter((to - from) * 160);
+        for (int i = from; i < to; i++) {
+            EntityExporter.writeCsvRow(text, schema.toRow(row(schema, i)));
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] await(Future<byte[]> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // ==================== FACILITIES AND PEOPLE ====================
+
+    private Facility facility(int i) {
+        SplittableRandom r = random(EntityKind.FACILITY, i);
+        int town = r.nextInt(TOWNS.length);
+        String manager = pick(r.nextBoolean() ? FIRST_NAMES_F : FIRST_NAMES_M, r) + " " + pick(LAST_NAMES, r);
+        if (i >= surgeries) {
+            String name = TOWNS[town] + " " + pick(HOSPITAL_KINDS, r) + " Hospital";
+            return new Facility(facilityId(i), name, "Hospital", address(r, town), postcode(r, town),
+                phone(r, "0121"), "enquiries@" + domain(name), "24 hours", manager, 400 + r.nextInt(1200),
+                String.join("|", HOSPITAL_SPECIALITIES[i % HOSPITAL_SPECIALITIES.length], "Emergency Care",
+                    "Outpatients"));
+        }
+        String name = TOWNS[town] + " " + pick(LAST_NAMES, r) + " " + pick(SURGERY_KINDS, r);
+        return new Facility(facilityId(i), name, "GP Surgery", address(r, town), postcode(r, town),
+            phone(r, "0121"), "contact@" + domain(name), "Mon-Fri: 8:00-18:30", "Dr. " + manager,
+            4_000 + r.nextInt(12_000), "General Practice|Vaccinations|Minor Surgery");
+    }
+
+    /**
+     * GPs come first, spread round-robin over the surgeries; then specialists over the hospitals
+     */
+    private Clinician clinician(int i) {
+        SplittableRandom r = random(EntityKind.CLINICIAN, i);
+        boolean female = r.nextBoolean();
+        String first = pick(female ? FIRST_NAMES_F : FIRST_NAMES_M, r);
+        String last = pick(LAST_NAMES, r);
+        boolean gp = i < gps;
+        int facility = clinicianFacility(i);
+        String speciality = gp ? "General Practice"
+            : HOSPITAL_SPECIALITIES[(i - gps) / hospitals % HOSPITAL_SPECIALITIES.length];
+        return new Clinician(clinicianId(i), first, last, "Dr.", speciality,
+            String.valueOf(6_000_000 + r.nextInt(4_000_000)), phone(r, "0121"), email(first, last, "nhs.uk"),
+            facilityId(facility), gp ? "GP Surgery" : "Hospital",
+            r.nextInt(4) == 0 ? "Part-time" : "Full-time", day(r, 1995, 2024));
+    }
+
+    private int clinicianFacility(int clinician) {
+        return clinician < gps ? clinician % surgeries : surgeries + (clinician - gps) % hospitals;
+    }
+
+    /**
+     * Patients are registered at surgeries in power-law proportions; a few
+     * copy the name, birth date and NHS number of an earlier patient
+     */
+    private Patient patient(int i) {
+        SplittableRandom r = random(EntityKind.PATIENT, i);
+        int identity = identity(r, i);
+        int surgery = skewedIndex(r, surgeries, 1.6);
+        int town = surgery % TOWNS.length;
+
+        SplittableRandom who = random(EntityKind.IDENTITY, identity);
+        boolean female = who.nextBoolean();
+        String first = pick(female ? FIRST_NAMES_F : FIRST_NAMES_M, who);
+        String last = skewed(LAST_NAMES, who);
+        long born = between(who, LocalDate.of(1930, 1, 1).toEpochDay(), TODAY.toEpochDay());
+        // 37 shares no factor with 5e9, so distinct identities get distinct numbers
+        String nhs = String.valueOf(4_000_000_000L + identity * 37L % 5_000_000_000L);
+        long registered = between(r, Math.max(born, LocalDate.of(2005, 1, 1).toEpochDay()), TODAY.toEpochDay());
+        return new Patient(patientId(i), first, last, LocalDate.ofEpochDay(born).toString(), nhs,
+            female ? "F" : "M", phone(r, "07"), email(first, last, "example.com"), address(r, town),
+            postcode(r, town), pick(female ? FIRST_NAMES_M : FIRST_NAMES_F, r) + " " + last, phone(r, "07"),
+            LocalDate.ofEpochDay(registered).toString(), facilityId(surgery));
+    }
+
+    /**
+     * Each facility's first member of staff is its practice manager, who the others report to
+     */
+    private Staff staff(int i) {
+        SplittableRandom r = random(EntityKind.STAFF, i);
+        int facility = i % facilities;
+        String first = pick(r.nextBoolean() ? FIRST_NAMES_F : FIRST_NAMES_M, r);
+        String last = pick(LAST_NAMES, r);
+        boolean manager = i < facilities;
+        String role = manager ? "Practice Manager" : pick(STAFF_ROLES, r);
+        String lineManager = "";
+        if (!manager) {
+            SplittableRandom m = random(EntityKind.STAFF, facility);
+            String managerFirst = pick(m.nextBoolean() ? FIRST_NAMES_F : FIRST_NAMES_M, m);
+            lineManager = managerFirst + " " + pick(LAST_NAMES, m);
+        }
+        String department = manager || role.equals("Administrator") ? "Administration"
+            : role.equals("Receptionist") ? "Front Desk" : "Clinical";
+        return new Staff(staffId(i), first, last, role, department, facilityId(facility), phone(r, "07"),
+            email(first, last, "nhs.uk"), r.nextInt(3) == 0 ? "Part-time" : "Full-time", day(r, 2005, 2025),
+            lineManager, manager ? "Manager" : role.equals("Receptionist") ? "Basic" : "Standard");
+    }
+
+    // ==================== CLINICAL RECORDS ====================
+
+    /**
+     * Foreign keys and date of an appointment; the first draws of its random stream
+     */
+    private static final class Visit {
+        final int patient;
+        final int clinician;
+        final int facility;
+        final long day;
+
+        Visit(int patient, int clinician, int facility, long day) {
+            this.patient = patient;
+            this.clinician = clinician;
+            this.facility = facility;
+            this.day = day;
+        }
+    }
+
+    /**
+     * A tenth of patients take 40% of appointments; most visits are with a
+     * GP at their own surgery (busier GPs more often), one in ten with a
+     * hospital specialist
+     */
+    private Visit visit(SplittableRandom r) {
+        int patient = r.nextInt(100) < FREQUENT_ATTENDER_VISITS
+            ? scatter(r.nextInt(Math.max(1, patients / 10)), patients) : r.nextInt(patients);
+        long day = FIRST_APPOINTMENT_DAY + r.nextInt(APPOINTMENT_DAYS);
+        int clinician;
+        if (r.nextInt(10) == 0) {
+            clinician = gps + skewedIndex(r, specialists, 1.5);
+        } else {
+            int surgery = patientSurgery(patient);
+            int atSurgery = (gps - surgery + surgeries - 1) / surgeries;
+            clinician = surgery + surgeries * skewedIndex(r, atSurgery, 1.5);
+        }
+        return new Visit(patient, clinician, clinicianFacility(clinician), day);
+    }
+
+    /**
+     * Replays the first draws of patient(), which settle the surgery
+     */
+    private int patientSurgery(int patient) {
+        SplittableRandom r = random(EntityKind.PATIENT, patient);
+        identity(r, patient);
+        return skewedIndex(r, surgeries, 1.6);
+    }
+
+    /**
+     * The patient whose name, birth date and NHS number patient i carries; usually i itself
+     */
+    private static int identity(SplittableRandom r, int i) {
+        boolean duplicate = r.nextDouble() < DUPLICATE_RATE;
+        return duplicate && i > 0 ? r.nextInt(i) : i;
+    }
+
+    private Visit visit(int appointment) {
+        return visit(random(EntityKind.APPOINTMENT, appointment));
+    }
+
+    private Appointment appointment(int i) {
+        SplittableRandom r = random(EntityKind.APPOINTMENT, i);
+        Visit v = visit(r);
+        String date = LocalDate.ofEpochDay(v.day).toString();
+        String status;
+        if (v.day >= TODAY.toEpochDay()) {
+            status = "Scheduled";
+        } else {
+            int outcome = r.nextInt(100);
+            status = outcome < 85 ? "Completed" : outcome < 93 ? "Cancelled" : "No Show";
+        }
+        String booked = LocalDate.ofEpochDay(v.day - 1 - r.nextInt(28)).toString();
+        String time = twoDigits(8 + r.nextInt(10)) + ":" + twoDigits(15 * r.nextInt(4));
+        String type = v.clinician >= gps ? "Specialist Consultation" : pick(APPOINTMENT_TYPES, r);
+        String reason = pick(REASONS, r);
+        return new Appointment(appointmentId(i), patientId(v.patient), clinicianId(v.clinician),
+            facilityId(v.facility), date, time, DURATIONS[r.nextInt(DURATIONS.length)], type, status, reason,
+            "", booked, status.equals("Scheduled") ? booked : date);
+    }
+
+    private Prescription prescription(int i) {
+        SplittableRandom r = random(EntityKind.PRESCRIPTION, i);
+        int appointment = r.nextInt(appointments);
+        Visit v = visit(appointment);
+        String date = LocalDate.ofEpochDay(v.day).toString();
+        int course = COURSES[r.nextInt(COURSES.length)];
+        boolean collected = v.day + 3 < TODAY.toEpochDay() && r.nextInt(10) < 8;
+        return new Prescription(prescriptionId(i), patientId(v.patient), clinicianId(v.clinician),
+            appointmentId(appointment), date, skewed(MEDICATIONS, r), pick(DOSAGES, r), pick(FREQUENCIES, r),
+            course, course + " tablets", pick(INSTRUCTIONS, r),
+            pick(PHARMACIES, r) + " " + TOWNS[r.nextInt(TOWNS.length)], collected ? "Collected" : "Issued",
+            date, collected ? LocalDate.ofEpochDay(v.day + 1 + r.nextInt(3)).toString() : "");
+    }
+
+    /**
+     * Raised by the GP at a GP appointment, to a specialist at a hospital
+     */
+    private Referral referral(int i) {
+        SplittableRandom r = random(EntityKind.REFERRAL, i);
+        int appointment = r.nextInt(appointments);
+        Visit v = visit(appointment);
+        // After a hospital visit the referral comes from the patient's surgery; GP number s works at surgery s
+        int referringClinician = v.clinician < gps ? v.clinician : patientSurgery(v.patient);
+        int specialist = gps + skewedIndex(r, specialists, 1.5);
+        int reason = r.nextInt(REFERRAL_REASONS.length);
+        int urgency = r.nextInt(100);
+        long daysAgo = TODAY.toEpochDay() - v.day;
+        String status = daysAgo < 0 ? "New" : daysAgo < 14 ? "Pending" : r.nextInt(4) == 0 ? "Pending" : "Completed";
+        String date = LocalDate.ofEpochDay(v.day).toString();
+        String updated = status.equals("Completed")
+            ? LocalDate.ofEpochDay(v.day + 7 + r.nextInt(60)).toString() : date;
+        return new Referral(referralId(i), patientId(v.patient), clinicianId(referringClinician),
+            clinicianId(specialist), facilityId(clinicianFacility(referringClinician)),
+            facilityId(clinicianFacility(specialist)), date,
+            urgency < 70 ? "Routine" : urgency < 95 ? "Urgent" : "Emergency", REFERRAL_REASONS[reason],
+            "Seen in surgery with " + REFERRAL_REASONS[reason].toLowerCase(Locale.ROOT), INVESTIGATIONS[reason],
+            status, appointmentId(appointment), "", date, updated);
+    }
+
+    // ==================== IDS ====================
+
+    /** Same zero-padding as DataManager.generateNextId, so new IDs continue the sequence */
+    private static String id(String prefix, int index) {
+        String number = String.valueOf(index + 1);
+        return number.length() >= 3 ? prefix + number : prefix + "00".substring(number.length() - 1) + number;
+    }
+
+    private static String patientId(int i) { return id("P", i); }
+    private static String clinicianId(int i) { return id("C", i); }
+    private static String appointmentId(int i) { return id("A", i); }
+    private static String prescriptionId(int i) { return id("RX", i); }
+    private static String referralId(int i) { return id("R", i); }
+    private static String staffId(int i) { return id("ST", i); }
+
+    private String facilityId(int i) {
+        return i < surgeries ? id("S", i) : id("H", i - surgeries);
+    }
+
+    // ==================== RANDOMNESS ====================
+
+    private enum EntityKind { FACILITY, CLINICIAN, PATIENT, IDENTITY, STAFF, APPOINTMENT, PRESCRIPTION, REFERRAL }
+
+    /**
+     * The random stream for one row: the seed, entity and index mixed with the SplitMix64 finaliser
+     */
+    private SplittableRandom random(EntityKind kind, int index) {
+        long z = seed + (kind.ordinal() + 1) * 0x9E3779B97F4A7C15L + index * 0xC2B2AE3D27D4EB4FL;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(z ^ (z >>> 31));
+    }
+
+    /**
+     * Index below n, low indexes favoured more the larger the exponent (1 is uniform)
+     */
+    private static int skewedIndex(SplittableRandom r, int n, double exponent) {
+        return Math.min(n - 1, (int) (n * Math.pow(r.nextDouble(), exponent)));
+    }
+
+    /**
+     * Spread an index below n over the whole range, so the busiest rows are not all the oldest ones
+     */
+    private static int scatter(int index, int n) {
+        return (int) ((index * 0x9E3779B1L) % n);
+    }
+
+    private static String pick(String[] values, SplittableRandom r) {
+        return values[r.nextInt(values.length)];
+    }
+
+    private static String skewed(String[] values, SplittableRandom r) {
+        return values[skewedIndex(r, values.length, 2.0)];
+    }
+
+    // ==================== FIELD VALUES ====================
+
+    /**
+     * A day in the given years, but not after TODAY
+     */
+    private static String day(SplittableRandom r, int fromYear, int toYear) {
+        long to = Math.min(LocalDate.of(toYear, 12, 31).toEpochDay(), TODAY.toEpochDay());
+        return LocalDate.ofEpochDay(between(r, LocalDate.of(fromYear, 1, 1).toEpochDay(), to)).toString();
+    }
+
+    /**
+     * Epoch day from..to inclusive
+     */
+    private static long between(SplittableRandom r, long from, long to) {
+        return from + r.nextLong(to - from + 1);
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    private static String phone(SplittableRandom r, String prefix) {
+        return prefix + (prefix.length() == 2 ? 100_000_000 + r.nextInt(900_000_000) : 1_000_000 + r.nextInt(9_000_000));
+    }
+
+    private static String email(String first, String last, String domain) {
+        return (first.charAt(0) + "." + last).toLowerCase(Locale.ROOT).replace("'", "") + "@" + domain;
+    }
+
+    private static String domain(String name) {
+        return name.toLowerCase(Locale.ROOT).replace(" ", "") + ".nhs.uk";
+    }
+
+    private static String address(SplittableRandom r, int town) {
+        return (1 + r.nextInt(300)) + " " + pick(STREETS, r) + " " + TOWNS[town];
+    }
+
+    private static String postcode(SplittableRandom r, int town) {
+        return POSTCODE_AREAS[town] + (1 + r.nextInt(99)) + " " + r.nextInt(10)
+            + (char) ('A' + r.nextInt(26)) + (char) ('A' + r.nextInt(26));
+    }
+
+    private static int checkedRows(long rows) {
+        if (rows > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many rows: " + rows);
+        }
+        return (int) rows;
+    }
+}
@@ -0,0 +1,418 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Patient;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds patient records that probably describe the same person
+ *
+ * Comparing every pair is O(n^2), so records are first grouped into blocks
+ * that share a blocking key, and only pairs within a block are scored:
+ *
+ *   N  NHS number
+ *   D  date of birth + outward postcode (e.g. "1985-03-15|B1")
+ *   S  Soundex of the surname + year of birth (e.g. "S530|1985")
+ *
+ * A pair is scored from NHS number, name, date of birth and postcode
+ * similarity (see score()), and pairs at or above the threshold are joined
+ * into merge groups with union-find. Blocks larger than MAX_BLOCK_SIZE (e.g.
+ * a placeholder date of birth shared by thousands) are skipped and counted.
+ * All stages run as parallel streams on a dedicated fork-join pool.
+ */
+public class DuplicatePatientDetector {
+    public static final double DEFAULT_THRESHOLD = 0.8;
+    public static final int MAX_BLOCK_SIZE = 500;
+
+    private static final int KEY_TYPES = 3;
+    private static final double NHS_WEIGHT = 0.35;
+    private static final double NAME_WEIGHT = 0.25;
+    private static final double DOB_WEIGHT = 0.25;
+    private static final double POSTCODE_WEIGHT = 0.15;
+
+    /**
+     * Two records scored against each other
+     */
+    public static class Match {
+        private final String firstId;
+        private final String secondId;
+        private final double score;
+
+        Match(String firstId, String secondId, double score) {
+            this.firstId = firstId;
+            this.secondId = secondId;
+            this.score = score;
+        }
+
+        public String getFirstId() { return firstId; }
+        public String getSecondId() { return secondId; }
+        public double getScore() { return score; }
+    }
+
+    /**
+     * Records that should be reviewed for merging, linked by one or more matches
+     */
+    public static class Group {
+        private final List<String> patientIds;
+        private final List<Match> matches;
+
+        Group(List<String> patientIds, List<Match> matches) {
+            this.patientIds = patientIds;
+            this.matches = matches;
+        }
+
+        public List<String> getPatientIds() { return patientIds; }
+        public List<Match> getMatches() { return matches; }
+
+        public double getMaxScore() {
+            return matches.stream().mapToDouble(Match::getScore).max().orElse(0);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("patient_ids", patientIds);
+            map.put("max_score", round(getMaxScore()));
+            List<Map<String, Object>> pairs = new ArrayList<>();
+            for (Match match : matches) {
+                Map<String, Object> pair = new LinkedHashMap<>();
+                pair.put("a", match.getFirstId());
+                pair.put("b", match.getSecondId());
+                pair.put("score", round(match.getScore()));
+                pairs.add(pair);
+            }
+            map.put("matches", pairs);
+            return map;
+        }
+    }
+
+    /**
+     * Merge groups (largest score first) plus counters describing the run
+     */
+    public static class Result {
+        private final List<Group> groups;
+        private final long blocks;
+        private final long oversizedBlocks;
+        private final long comparisons;
+        private final long elapsedMillis;
+
+        Result(List<Group> groups, long blocks, long oversizedBlocks, long comparisons, long elapsedMillis) {
+            this.groups = groups;
+            this.blocks = blocks;
+            this.oversizedBlocks = oversizedBlocks;
+            this.comparisons = comparisons;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public List<Group> getGroups() { return groups; }
+        public long getBlocks() { return blocks; }
+        public long getOversizedBlocks() { return oversizedBlocks; }
+        public long getComparisons() { return comparisons; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    private final double threshold;
+    private final int parallelism;
+
+    public DuplicatePatientDetector() {
+        this(DEFAULT_THRESHOLD, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DuplicatePatientDetector(double threshold, int parallelism) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be in (0, 1]: " + threshold);
+        }
+        this.threshold = threshold;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // ==================== DETECTION ====================
+
+    public Result detect(List<Patient> patients) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(() -> run(patients)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Duplicate detection interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result run(List<Patient> patients) {
+        long start = System.nanoTime();
+        int n = patients.size();
+
+        // Normalise once; rows are read by position so any row store splits well
+        Record[] records = new Record[n];
+        IntStream.range(0, n).parallel().forEach(i -> records[i] = new Record(patients.get(i)));
+
+        LongAdder comparisons = new LongAdder();
+        LongAdder oversized = new LongAdder();
+        List<int[]> matchedPairs = Collections.synchronizedList(new ArrayList<>());
+        Map<Long, Double> scores = new ConcurrentHashMap<>();
+        long blockCount = 0;
+        List<Set<String>> skippedKeys = new ArrayList<>();
+
+        for (int t = 0; t < KEY_TYPES; t++) {
+            int keyType = t;
+            // Blocking: key -> row numbers, one key type at a time to bound memory
+            ConcurrentMap<String, List<Integer>> blocks = IntStream.range(0, n).parallel()
+                .filter(i -> records[i].keys[keyType] != null).boxed()
+                .collect(Collectors.groupingByConcurrent(i -> records[i].keys[keyType]));
+            blockCount += blocks.size();
+            Set<String> skipped = ConcurrentHashMap.newKeySet();
+            skippedKeys.add(skipped);
+
+            blocks.entrySet().parallelStream().forEach(block -> {
+                List<Integer> rows = block.getValue();
+                if (rows.size() < 2) {
+                    return;
+                }
+                if (rows.size() > MAX_BLOCK_SIZE) {
+                    oversized.increment();
+                    skipped.add(block.getKey());
+                    return;
+                }
+                for (int x = 0; x < rows.size(); x++) {
+                    for (int y = x + 1; y < rows.size(); y++) {
+                        int a = Math.min(rows.get(x), rows.get(y));
+                        int b = Math.max(rows.get(x), rows.get(y));
+                        // A pair sharing several keys is only scored in the first block that compared it
+                        if (sharesEarlierKey(records[a], records[b], keyType, skippedKeys)) {
+                            continue;
+                        }
+                        comparisons.increment();
+                        double score = score(records[a], records[b]);
+                        if (score >= threshold) {
+                            matchedPairs.add(new int[] {a, b});
+                            scores.put(((long) a << 32) | b, score);
+                        }
+                    }
+                }
+            });
+        }
+
+        List<Group> groups = group(records, matchedPairs, scores);
+        return new Result(groups, blockCount, oversized.sum(), comparisons.sum(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Join matched pairs into groups with union-find (path halving)
+     */
+    private static List<Group> group(Record[] records, List<int[]> pairs, Map<Long, Double> scores) {
+        Map<Integer, Integer> parent = new HashMap<>();
+        for (int[] pair : pairs) {
+            int rootA = find(parent, pair[0]);
+            int rootB = find(parent, pair[1]);
+            if (rootA != rootB) {
+                parent.put(Math.max(rootA, rootB), Math.min(rootA, rootB));
+            }
+        }
+        Map<Integer, List<int[]>> pairsByRoot = new HashMap<>();
+        for (int[] pair : pairs) {
+            pairsByRoot.computeIfAbsent(find(parent, pair[0]), r -> new ArrayList<>()).add(pair);
+        }
+
+        List<Group> groups = new ArrayList<>(pairsByRoot.size());
+        for (List<int[]> groupPairs : pairsByRoot.values()) {
+            TreeSet<String> ids = new TreeSet<>(EntityTable.ID_ORDER);
+            List<Match> matches = new ArrayList<>(groupPairs.size());
+            for (int[] pair : groupPairs) {
+                ids.add(records[pair[0]].id);
+                ids.add(records[pair[1]].id);
+                matches.add(new Match(records[pair[0]].id, records[pair[1]].id,
+                    scores.get(((long) pair[0] << 32) | pair[1])));
+            }
+            matches.sort(Comparator.comparingDouble(Match::getScore).reversed());
+            groups.add(new Group(new ArrayList<>(ids), matches));
+        }
+        groups.sort(Comparator.comparingDouble(Group::getMaxScore).reversed()
+            .thenComparing(g -> g.getPatientIds().get(0), EntityTable.ID_ORDER));
+        return groups;
+    }
+
+    private static int find(Map<Integer, Integer> parent, int row) {
+        int current = row;
+        Integer next;
+        while ((next = parent.get(current)) != null) {
+            Integer grandparent = parent.get(next);
+            if (grandparent != null) {
+                parent.put(current, grandparent);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    // ==================== SCORING ====================
+
+    /**
+     * Weighted similarity in [0, 1] over the fields both records have:
+     * NHS number 0.35 (exact), name 0.25 (edit similarity, first/last swaps
+     * allowed), date of birth 0.25 (exact, or 0.8 for a one-character slip)
+     * and postcode 0.15 (exact, or 0.7 for the same outward code).
+     * Two different NHS numbers cap the score below any sensible threshold.
+     */
+    static double score(Record a, Record b) {
+        double total = 0;
+        double weight = 0;
+        if (!a.nhs.isEmpty() && !b.nhs.isEmpty()) {
+            if (!a.nhs.equals(b.nhs)) {
+                return 0.5 * partialScore(a, b);
+            }
+            total += NHS_WEIGHT;
+            weight += NHS_WEIGHT;
+        }
+        double partialWeight = weight(a, b);
+        total += partialScore(a, b) * partialWeight;
+        weight += partialWeight;
+        return weight == 0 ? 0 : total / weight;
+    }
+
+    private static double weight(Record a, Record b) {
+        double weight = NAME_WEIGHT;
+        if (!a.dob.isEmpty() && !b.dob.isEmpty()) {
+            weight += DOB_WEIGHT;
+        }
+        if (!a.postcode.isEmpty() && !b.postcode.isEmpty()) {
+            weight += POSTCODE_WEIGHT;
+        }
+        return weight;
+    }
+
+    /**
+     * Name, date of birth and postcode similarity, weighted over the fields present
+     */
+    private static double partialScore(Record a, Record b) {
+        double total = NAME_WEIGHT * nameSimilarity(a, b);
+        double weight = NAME_WEIGHT;
+        if (!a.dob.isEmpty() && !b.dob.isEmpty()) {
+            double dob = a.dob.equals(b.dob) ? 1 : similarity(a.dob, b.dob) >= 0.8 ? 0.8 : 0;
+            total += DOB_WEIGHT * dob;
+            weight += DOB_WEIGHT;
+        }
+        if (!a.postcode.isEmpty() && !b.postcode.isEmpty()) {
+            double postcode = a.postcode.equals(b.postcode) ? 1 : a.outward.equals(b.outward) ? 0.7 : 0;
+            total += POSTCODE_WEIGHT * postcode;
+            weight += POSTCODE_WEIGHT;
+        }
+        return total / weight;
+    }
+
+    private static double nameSimilarity(Record a, Record b) {
+        double straight = (similarity(a.first, b.first) + similarity(a.last, b.last)) / 2;
+        double swapped = (similarity(a.first, b.last) + similarity(a.last, b.first)) / 2;
+        return Math.max(straight, swapped);
+    }
+
+    private static double similarity(String a, String b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.equals(b) ? 1 : 0;
+        }
+        return a.equals(b) ? 1 : PatientLookupIndex.editSimilarity(a, b);
+    }
+
+    // ==================== BLOCKING ====================
+
+    private static boolean sharesEarlierKey(Record a, Record b, int keyType, List<Set<String>> skippedKeys) {
+        for (int t = 0; t < keyType; t++) {
+            if (a.keys[t] != null && a.keys[t].equals(b.keys[t]) && !skippedKeys.get(t).contains(a.keys[t])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Normalised fields and blocking keys of one patient
+     */
+    static class Record {
+        final String id;
+        final String first;
+        final String last;
+        final String dob;
+        final String nhs;
+        final String postcode;
+        final String outward;
+        final String[] keys = new String[KEY_TYPES];
+
+        Record(Patient p) {
+            id = p.getPatientId();
+            first = letters(p.getFirstName());
+            last = letters(p.getLastName());
+            dob = p.getDateOfBirth() == null ? "" : p.getDateOfBirth().trim();
+            nhs = PatientLookupIndex.normaliseNhsNumber(p.getNhsNumber());
+            postcode = PatientLookupIndex.normalisePostcode(p.getPostcode());
+            // UK postcodes end in a three-character inward code
+            outward = postcode.length() > 3 ? postcode.substring(0, postcode.length() - 3) : postcode;
+
+            if (!nhs.isEmpty()) {
+                keys[0] = nhs;
+            }
+            if (!dob.isEmpty() && !outward.isEmpty()) {
+                keys[1] = dob + "|" + outward;
+            }
+            if (!last.isEmpty()) {
+                keys[2] = soundex(last) + "|" + (dob.length() >= 4 ? dob.substring(0, 4) : "");
+            }
+        }
+    }
+
+    private static String letters(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetter(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * American Soundex code of a lower-case word, e.g. "smith" and "smyth" give S530
+     */
+    static String soundex(String word) {
+        final String codes = "01230120022455012623010202";
+        StringBuilder sb = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < word.length() && sb.length() < 4; i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char code = codes.charAt(c - 'a');
+            if (sb.length() == 0) {
+                sb.append(Character.toUpperCase(c));
+            } else if (code != '0' && code != last) {
+                sb.append(code);
+            }
+            // h and w do not separate letters with the same code; vowels do
+            if (c != 'h' && c != 'w') {
+                last = code;
+            }
+        }
+        while (sb.length() < 4) {
+            sb.append('0');
+        }
+        return sb.toString();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,207 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Streams entities to CSV or newline-delimited JSON
+ *
+ * Rows are written as they are pulled from the stream, so the exporter's memory
+ * use does not grow with the number of rows; a sorted source stream (see
+ * DataManager.scanSnapshot) still holds every row while it sorts. CSV output
+ * follows RFC 4180: fields holding a comma, quote, line break or surrounding
+ * spaces are quoted and inner quotes doubled. Files whose name ends in ".gz"
+ * or ".zz" are compressed (see Compression).
+ */
+public final class EntityExporter {
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    public enum Format {
+        CSV("text/csv; charset=utf-8"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Format by name ("csv", "ndjson" or "jsonl"); null or blank means NDJSON
+         */
+        public static Format fromName(String name) {
+            if (name == null || name.trim().isEmpty()) {
+                return NDJSON;
+            }
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "csv":
+                    return CSV;
+                case "ndjson":
+                case "jsonl":
+                    return NDJSON;
+                default:
+                    throw new IllegalArgumentException("Unknown export format: " + name + " (expected csv or ndjson)");
+            }
+        }
+
+        /**
+         * Format from a file extension, ignoring a compression extension
+         */
+        public static Format forFile(Path file) {
+            String name = Compression.stripExtension(file.getFileName().toString());
+            int dot = name.lastIndexOf('.');
+            return fromName(dot < 0 ? "" : name.substring(dot + 1));
+        }
+    }
+
+    /**
+     * Writes the contents of a file to out; returns the row count
+     */
+    public interface Contents {
+        long writeTo(OutputStream out) throws IOException;
+    }
+
+    private EntityExporter() {
+    }
+
+    // ==================== EXPORT ====================
+
+    /**
+     * Write every row to out and flush; out is left open. Returns the row count.
+     */
+    public static <T> long write(EntitySchema<T> schema, Stream<T> rows, Format format, OutputStream out)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        String[] columns = schema.getColumns();
+        if (format == Format.CSV) {
+            writeCsvRow(writer, columns);
+        }
+        long count = 0;
+        Iterator<T> it = rows.iterator();
+        while (it.hasNext()) {
+            Object[] values = schema.toRow(it.next());
+            if (format == Format.CSV) {
+                writeCsvRow(writer, values);
+            } else {
+                writeJsonRow(writer, columns, values);
+            }
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Write every row to a file, replacing it only once the export is complete.
+     * The format is taken from the extension (.csv, .ndjson, .jsonl, each optionally .gz or .zz).
+     */
+    public static <T> long writeFile(EntitySchema<T> schema, Stream<T> rows, Path file) throws IOException {
+        return writeFile(schema, rows, Format.forFile(file), file);
+    }
+
+    public static <T> long writeFile(EntitySchema<T> schema, Stream<T> rows, Format format, Path file)
+            throws IOException {
+        return writeAtomically(file, out -> write(schema, rows, format, out));
+    }
+
+    /**
+     * Write a file (compressed for .gz or .zz) to a temporary file next to it
+     * and move that over file once complete, so readers never see half a
+     * file; the temporary file is removed if writing fails. Returns the row
+     * count from contents.
+     */
+    public static long writeAtomically(Path file, Contents contents) throws IOException {
+        Path temp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long count;
+            try (OutputStream out = Compression.forFile(file).wrap(Files.newOutputStream(temp))) {
+                count = contents.writeTo(out);
+            }
+            // Only once closed is a compressed file complete
+            replace(temp, file);
+            return count;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Move a finished temporary file over the target, atomically where supported
+     */
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ==================== ROW FORMATS ====================
+
+    static void writeCsvRow(Writer out, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            appendCsvField(out, values[i] == null ? "" : values[i].toString());
+        }
+        out.write("\r\n");
+    }
+
+    /**
+     * Append one CSV field, quoting it when needed
+     */
+    public static void appendCsvField(Appendable out, String value) throws IOException {
+        if (!needsQuotes(value)) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        // Many CSV tools trim unquoted leading/trailing spaces
+        if (value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ') {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeJsonRow(Writer out, String[] columns, Object[] values) throws IOException {
+        out.write('{');
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Json.writeString(out, columns[i]);
+            out.write(':');
+            Json.write(out, values[i]);
+        }
+        out.write("}\n");
+    }
+}
@@ -0,0 +1,102 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Query over one entity table: filters, ordering and a keyset page window
+ *
+ * Fields are named after the model getters (e.g. "status", "clinicianId",
+ * "appointmentDate"). Filters on indexed fields are answered from the
+ * DataManager secondary indexes; the rest are checked row by row. Results are
+ * ordered by ID unless orderBy() names a field, and after() takes the cursor
+ * of the previous page (for ID ordering the cursor is simply the last ID).
+ *
+ * Example: new EntityQuery&lt;Appointment&gt;().where("status", "Scheduled").after("A120").limit(50)
+ */
+public class EntityQuery<T> {
+    public static final int DEFAULT_LIMIT = 100;
+
+    private final Map<String, String> equalTo = new LinkedHashMap<>();
+    private String rangeField;
+    private String rangeFrom;
+    private String rangeTo;
+    private Predicate<T> predicate;
+    private String orderBy;
+    private boolean descending;
+    private String after;
+    private int limit = DEFAULT_LIMIT;
+
+    /**
+     * Keep rows whose field equals value; a null or blank value is ignored
+     */
+    public EntityQuery<T> where(String field, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            equalTo.put(field, value.trim());
+        }
+        return this;
+    }
+
+    /**
+     * Keep rows whose field is between from and to inclusive (ISO dates compare
+     * correctly as text); a null or blank bound is open
+     */
+    public EntityQuery<T> between(String field, String from, String to) {
+        this.rangeField = field;
+        this.rangeFrom = blankToNull(from);
+        this.rangeTo = blankToNull(to);
+        return this;
+    }
+
+    /**
+     * Extra row-level condition, checked after the indexed filters
+     */
+    public EntityQuery<T> matching(Predicate<T> condition) {
+        this.predicate = predicate == null ? condition : predicate.and(condition);
+        return this;
+    }
+
+    public EntityQuery<T> orderBy(String field) {
+        this.orderBy = field;
+        return this;
+    }
+
+    public EntityQuery<T> descending() {
+        this.descending = true;
+        return this;
+    }
+
+    /**
+     * Start after the row identified by a cursor from Page.getNextCursor()
+     */
+    public EntityQuery<T> after(String cursor) {
+        this.after = cursor;
+        return this;
+    }
+
+    /**
+     * Rows per page (also the batch size when streaming)
+     */
+    public EntityQuery<T> limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public Map<String, String> getEqualTo() { return Collections.unmodifiableMap(equalTo); }
+    public String getRangeField() { return rangeField; }
+    public String getRangeFrom() { return rangeFrom; }
+    public String getRangeTo() { return rangeTo; }
+    public boolean hasRange() { return rangeField != null && (rangeFrom != null || rangeTo != null); }
+    public Predicate<T> getPredicate() { return predicate; }
+    public String getOrderBy() { return orderBy; }
+    public boolean isDescending() { return descending; }
+    public String getAfter() { return after; }
+    public int getLimit() { return limit; }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
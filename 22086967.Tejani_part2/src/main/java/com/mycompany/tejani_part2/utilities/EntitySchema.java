@@ -0,0 +1,438 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Column layout of one entity type, shared by the JSON API and the exporters
+ *
+ * Column names and order match the CSV data files, so an exported file can be
+ * loaded back by DataManager and JSON objects use the same property names.
+ * Values are Strings except for the integer columns, which are Integers.
+ * Each column is declared with its type; DataManager loads files through a
+ * RowDecoder, which finds the columns by header name.
+ */
+public class EntitySchema<T> {
+    private final String name;
+    private final Column[] definitions;
+    private final String[] columns;
+    private final String dateColumn;
+    private final Function<T, Object[]> toRow;
+    private final Function<Values, T> fromValues;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+    public EntitySchema(String name, Column[] definitions, String dateColumn,
+                        Function<T, Object[]> toRow, Function<Values, T> fromValues) {
+        this.name = name;
+        this.definitions = definitions;
+        this.columns = new String[definitions.length];
+        this.dateColumn = dateColumn;
+        this.toRow = toRow;
+        this.fromValues = fromValues;
+        for (int i = 0; i < definitions.length; i++) {
+            columns[i] = definitions[i].name;
+            columnIndexes.put(columns[i], i);
+        }
+    }
+
+    // ==================== COLUMNS ====================
+
+    /**
+     * A column's name and how its text is read: integers fall back to a
+     * default when missing or malformed, dates are yyyy-MM-dd held as text
+     */
+    public static class Column {
+        public enum Type { TEXT, INTEGER, DATE }
+
+        private final String name;
+        private final Type type;
+        private final int defaultValue;
+
+        private Column(String name, Type type, int defaultValue) {
+            this.name = name;
+            this.type = type;
+            this.defaultValue = defaultValue;
+        }
+
+        public String getName() { return name; }
+        public Type getType() { return type; }
+        public int getDefaultValue() { return defaultValue; }
+    }
+
+    public static Column text(String name) {
+        return new Column(name, Column.Type.TEXT, 0);
+    }
+
+    public static Column integer(String name, int defaultValue) {
+        return new Column(name, Column.Type.INTEGER, defaultValue);
+    }
+
+    public static Column date(String name) {
+        return new Column(name, Column.Type.DATE, 0);
+    }
+
+    /**
+     * One row's values by column index, as handed to an entity's constructor;
+     * a missing value is ""
+     */
+    public abstract static class Values {
+        private final Column[] columns;
+
+        protected Values(Column[] columns) {
+            this.columns = columns;
+        }
+
+        public abstract String text(int column);
+
+        /**
+         * The value as an int, or the column default when it is not a whole number
+         */
+        public int integer(int column) {
+            long value = parseInteger(text(column));
+            return value == NOT_AN_INTEGER ? columns[column].defaultValue : (int) value;
+        }
+    }
+
+    /**
+     * Values held in an array in column order
+     */
+    private static class ArrayValues extends Values {
+        private final String[] row;
+
+        ArrayValues(Column[] columns, String[] row) {
+            super(columns);
+            this.row = row;
+        }
+
+        @Override
+        public String text(int column) {
+            return row[column];
+        }
+    }
+
+    // ==================== SCHEMAS ====================
+
+    public static final EntitySchema<Patient> PATIENTS = new EntitySchema<>("patients",
+        new Column[] {text("patient_id"), text("first_name"), text("last_name"), date("date_of_birth"),
+            text("nhs_number"), text("gender"), text("phone_number"), text("email"), text("address"),
+            text("postcode"), text("emergency_contact_name"), text("emergency_contact_phone"),
+            date("registration_date"), text("gp_surgery_id")},
+        "registration_date",
+        p -> new Object[] {p.getPatientId(), p.getFirstName(), p.getLastName(), p.getDateOfBirth(),
+            p.getNhsNumber(), p.getGender(), p.getPhoneNumber(), p.getEmail(), p.getAddress(),
+            p.getPostcode(), p.getEmergencyContactName(), p.getEmergencyContactPhone(),
+            p.getRegistrationDate(), p.getGpSurgeryId()},
+        v -> new Patient(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6),
+            v.text(7), v.text(8), v.text(9), v.text(10), v.text(11), v.text(12), v.text(13)));
+
+    public static final EntitySchema<Clinician> CLINICIANS = new EntitySchema<>("clinicians",
+        new Column[] {text("clinician_id"), text("first_name"), text("last_name"), text("title"),
+            text("speciality"), text("gmc_number"), text("phone_number"), text("email"), text("workplace_id"),
+            text("workplace_type"), text("employment_status"), date("start_date")},
+        "start_date",
+        c -> new Object[] {c.getClinicianId(), c.getFirstName(), c.getLastName(), c.getTitle(),
+            c.getSpeciality(), c.getGmcNumber(), c.getPhoneNumber(), c.getEmail(), c.getWorkplaceId(),
+            c.getWorkplaceType(), c.getEmploymentStatus(), c.getStartDate()},
+        v -> new Clinician(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6),
+            v.text(7), v.text(8), v.text(9), v.text(10), v.text(11)));
+
+    public static final EntitySchema<Facility> FACILITIES = new EntitySchema<>("facilities",
+        new Column[] {text("facility_id"), text("facility_name"), text("facility_type"), text("address"),
+            text("postcode"), text("phone_number"), text("email"), text("opening_hours"), text("manager_name"),
+            integer("capacity", 0), text("specialities_offered")},
+        null,
+        f -> new Object[] {f.getFacilityId(), f.getFacilityName(), f.getFacilityType(), f.getAddress(),
+            f.getPostcode(), f.getPhoneNumber(), f.getEmail(), f.getOpeningHours(), f.getManagerName(),
+            f.getCapacity(), f.getSpecialitiesOffered()},
+        v -> new Facility(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6),
+            v.text(7), v.text(8), v.integer(9), v.text(10)));
+
+    public static final EntitySchema<Appointment> APPOINTMENTS = new EntitySchema<>("appointments",
+        new Column[] {text("appointment_id"), text("patient_id"), text("clinician_id"), text("facility_id"),
+            date("appointment_date"), text("appointment_time"), integer("duration_minutes", 15),
+            text("appointment_type"), text("status"), text("reason_for_visit"), text("notes"),
+            date("created_date"), date("last_modified")},
+        "appointment_date",
+        a -> new Object[] {a.getAppointmentId(), a.getPatientId(), a.getClinicianId(), a.getFacilityId(),
+            a.getAppointmentDate(), a.getAppointmentTime(), a.getDurationMinutes(), a.getAppointmentType(),
+            a.getStatus(), a.getReasonForVisit(), a.getNotes(), a.getCreatedDate(), a.getLastModified()},
+        v -> new Appointment(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.integer(6),
+            v.text(7), v.text(8), v.text(9), v.text(10), v.text(11), v.text(12)));
+
+    public static final EntitySchema<Prescription> PRESCRIPTIONS = new EntitySchema<>("prescriptions",
+        new Column[] {text("prescription_id"), text("patient_id"), text("clinician_id"), text("appointment_id"),
+            date("prescription_date"), text("medication_name"), text("dosage"), text("frequency"),
+            integer("duration_days", 7), text("quantity"), text("instructions"), text("pharmacy_name"),
+            text("status"), date("issue_date"), date("collection_date")},
+        "prescription_date",
+        p -> new Object[] {p.getPrescriptionId(), p.getPatientId(), p.getClinicianId(), p.getAppointmentId(),
+            p.getPrescriptionDate(), p.getMedicationName(), p.getDosage(), p.getFrequency(),
+            p.getDurationDays(), p.getQuantity(), p.getInstructions(), p.getPharmacyName(), p.getStatus(),
+            p.getIssueDate(), p.getCollectionDate()},
+        v -> new Prescription(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6),
+            v.text(7), v.integer(8), v.text(9), v.text(10), v.text(11), v.text(12), v.text(13), v.text(14)));
+
+    public static final EntitySchema<Referral> REFERRALS = new EntitySchema<>("referrals",
+        new Column[] {text("referral_id"), text("patient_id"), text("referring_clinician_id"),
+            text("referred_to_clinician_id"), text("referring_facility_id"), text("referred_to_facility_id"),
+            date("referral_date"), text("urgency_level"), text("referral_reason"), text("clinical_summary"),
+            text("requested_investigations"), text("status"), text("appointment_id"), text("notes"),
+            date("created_date"), date("last_updated")},
+        "referral_date",
+        r -> new Object[] {r.getReferralId(), r.getPatientId(), r.getReferringClinicianId(),
+            r.getReferredToClinicianId(), r.getReferringFacilityId(), r.getReferredToFacilityId(),
+            r.getReferralDate(), r.getUrgencyLevel(), r.getReferralReason(), r.getClinicalSummary(),
+            r.getRequestedInvestigations(), r.getStatus(), r.getAppointmentId(), r.getNotes(),
+            r.getCreatedDate(), r.getLastUpdated()},
+        v -> new Referral(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6),
+            v.text(7), v.text(8), v.text(9), v.text(10), v.text(11), v.text(12), v.text(13), v.text(14),
+            v.text(15)));
+
+    public static final EntitySchema<Staff> STAFF = new EntitySchema<>("staff",
+        new Column[] {text("staff_id"), text("first_name"), text("last_name"), text("role"), text("department"),
+            text("facility_id"), text("phone_number"), text("email"), text("employment_status"),
+            date("start_date"), text("line_manager"), text("access_level")},
+        "start_date",
+        s -> new Object[] {s.getStaffId(), s.getFirstName(), s.getLastName(), s.getRole(), s.getDepartment(),
+            s.getFacilityId(), s.getPhoneNumber(), s.getEmail(), s.getEmploymentStatus(), s.getStartDate(),
+            s.getLineManager(), s.getAccessLevel()},
+        v -> new Staff(v.text(0), v.text(1), v.text(2), v.text(3), v.text(4), v.text(5), v.text(6), v.text(7),
+            v.text(8), v.text(9), v.text(10), v.text(11)));
+
+    /** Every entity, in data-file load order */
+    public static final List<EntitySchema<?>> ALL = Collections.unmodifiableList(Arrays.asList(
+        PATIENTS, CLINICIANS, FACILITIES, APPOINTMENTS, PRESCRIPTIONS, REFERRALS, STAFF));
+
+    // ==================== ACCESSORS ====================
+
+    /**
+     * Plural entity name, used in URLs and file names (e.g. "patients")
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getIdColumn() {
+        return columns[0];
+    }
+
+    /**
+     * The column used for date-range filters, or null if the entity has none
+     */
+    public String getDateColumn() {
+        return dateColumn;
+    }
+
+    /**
+     * Index of a column, or -1
+     */
+    public int indexOf(String column) {
+        Integer index = columnIndexes.get(column);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Schema with the given plural name, or null
+     */
+    public static EntitySchema<?> forName(String name) {
+        for (EntitySchema<?> schema : ALL) {
+            if (schema.name.equals(name)) {
+                return schema;
+            }
+        }
+        return null;
+    }
+
+    // ==================== QUERIES ====================
+
+    /**
+     * Build a query from name/value parameters such as a URL query string or
+     * command line arguments. limit, after, order_by, desc, from and to have
+     * their EntityQuery meaning (from/to filter the date column); any other
+     * name is an equality filter on the column of that name.
+     */
+    public EntityQuery<T> toQuery(Map<String, String> params) {
+        EntityQuery<T> q = new EntityQuery<>();
+        String from = null;
+        String to = null;
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String value = param.getValue();
+            switch (param.getKey()) {
+                case "limit":
+                    q.limit(parseLimit(value));
+                    break;
+                case "after":
+                    q.after(value);
+                    break;
+                case "order_by":
+                    q.orderBy(fieldName(value));
+                    break;
+                case "desc":
+                    if (Boolean.parseBoolean(value)) {
+                        q.descending();
+                    }
+                    break;
+                case "from":
+                    from = value;
+                    break;
+                case "to":
+                    to = value;
+                    break;
+                default:
+                    q.where(fieldName(param.getKey()), value);
+            }
+        }
+        if (from != null || to != null) {
+            if (dateColumn == null) {
+                throw new IllegalArgumentException(name + " cannot be filtered by date");
+            }
+            q.between(fieldName(dateColumn), from, to);
+        }
+        return q;
+    }
+
+    /**
+     * Column name to query field name, e.g. appointment_date -> appointmentDate
+     */
+    public static String fieldName(String column) {
+        StringBuilder sb = new StringBuilder(column.length());
+        boolean upper = false;
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (c == '_') {
+                upper = true;
+            } else {
+                sb.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseLimit(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit must be a number");
+        }
+    }
+
+    // ==================== CONVERSION ====================
+
+    /**
+     * Column values in column order
+     */
+    public Object[] toRow(T item) {
+        return toRow.apply(item);
+    }
+
+    public Map<String, Object> toMap(T item) {
+        Object[] values = toRow.apply(item);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            map.put(columns[i], values[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Build an entity from values in column order; missing values become ""
+     */
+    public T fromRow(String[] values) {
+        String[] padded = new String[columns.length];
+        for (int i = 0; i < padded.length; i++) {
+            padded[i] = i < values.length && values[i] != null ? values[i] : "";
+        }
+        return fromValues.apply(new ArrayValues(definitions, padded));
+    }
+
+    /**
+     * Build an entity from values read some other way, such as by a RowDecoder
+     */
+    T fromValues(Values values) {
+        return fromValues.apply(values);
+    }
+
+    /**
+     * Column declarations in column order
+     */
+    public List<Column> getColumnDefinitions() {
+        return Collections.unmodifiableList(Arrays.asList(definitions));
+    }
+
+    /**
+     * Build an entity from a map keyed by column name (e.g. a parsed JSON object)
+     */
+    public T fromMap(Map<String, ?> values) {
+        String[] row = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object value = values.get(columns[i]);
+            row[i] = value == null ? "" : stringOf(value);
+        }
+        return fromValues.apply(new ArrayValues(definitions, row));
+    }
+
+    /**
+     * Entity with the given map's values laid over an existing entity's values
+     */
+    public T merge(T existing, Map<String, ?> changes) {
+        Object[] current = toRow.apply(existing);
+        String[] row = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Object value = changes.containsKey(columns[i]) ? changes.get(columns[i]) : current[i];
+            row[i] = value == null ? "" : stringOf(value);
+        }
+        return fromValues.apply(new ArrayValues(definitions, row));
+    }
+
+    private static String stringOf(Object value) {
+        // JSON numbers arrive as Long/Double; keep whole numbers free of a ".0"
+        if (value instanceof Double && ((Double) value) == Math.rint((Double) value)) {
+            return Long.toString(((Double) value).longValue());
+        }
+        return value.toString();
+    }
+
+    static final long NOT_AN_INTEGER = Long.MIN_VALUE;
+
+    /**
+     * An optionally signed whole number in int range, surrounding spaces
+     * allowed, or NOT_AN_INTEGER; parsed by hand so bad cells cost no exception
+     */
+    static long parseInteger(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = start < end && value.charAt(start) == '-';
+        if (negative || (start < end && value.charAt(start) == '+')) {
+            start++;
+        }
+        if (start == end || end - start > 10) {
+            return NOT_AN_INTEGER;
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_AN_INTEGER;
+            }
+            result = result * 10 + digit;
+        }
+        result = negative ? -result : result;
+        return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? NOT_AN_INTEGER : result;
+    }
+}
@@ -0,0 +1,308 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rows of one entity type plus a primary-key index (ID -> row position)
+ * getById() is a hash lookup instead of a linear scan of the list. The row
+ * list itself can be a plain ArrayList or one of the columnar / off-heap stores.
+ *
+ * Updates and deletes address rows by ID. Deletes swap the last row into the
+ * freed slot, so they cost O(1) instead of shifting every later row; row
+ * order is therefore not preserved across deletes.
+ *
+ * A sorted set of IDs is kept alongside for keyset pagination (see TableQuery).
+ * sortedIds() hands out an immutable copy of it, made on first use after an
+ * ID is added or removed, so pages can walk it while writers carry on.
+ *
+ * Every row has a version for optimistic concurrency: callers read a row and
+ * its version, then compareAndUpdate() replaces the row only if the version is
+ * unchanged. Versions come from one counter per table, so a deleted and
+ * re-added ID never reuses an old version. Rows untouched since the last
+ * clear() share the load version, so bulk loads store no per-row versions.
+ *
+ * snapshot() gives readers an immutable point-in-time copy of the rows that
+ * they can iterate without locks while writers carry on. The copy is made on
+ * the first snapshot() after a write and shared until the next write, so
+ * repeated reads of an unchanged table cost nothing. A backing list that is a
+ * SnapshotStore makes the copy itself, so an off-heap table is not copied
+ * out to the heap. Writers synchronize on
+ * the table only long enough to change a row or take that copy.
+ *
+ * getById(), getVersion() and containsId() read the position index without
+ * the lock, so it is a ConcurrentHashMap. getById() only reads rows without
+ * the lock from the published snapshot, never from the backing list, whose
+ * columnar and off-heap stores write a row one field at a time; it checks the
+ * row it finds still has the ID (a swap-remove may have moved it) and
+ * otherwise reads under the lock.
+ */
+public class EntityTable<T> {
+    /**
+     * Order of IDs for paging: shorter IDs first, then by text, so that
+     * "A999" sorts before "A1000" for the prefix-and-number IDs used here
+     */
+    public static final Comparator<String> ID_ORDER =
+        Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private final Function<T, String> keyFunction;
+    private final Map<String, Integer> positions = new ConcurrentHashMap<>();
+    private final NavigableSet<String> sortedIds = new TreeSet<>(ID_ORDER);
+    private volatile List<T> rows;
+
+    // Versions of rows written since the last clear(), and of deleted IDs
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong versionCounter = new AtomicLong();
+    private volatile long loadVersion = versionCounter.incrementAndGet();
+
+    // Rows as of the last write; null until someone asks after a change
+    private volatile List<T> snapshot;
+    // Likewise sortedIds, as of the last write that added or removed an ID
+    private volatile NavigableSet<String> sortedIdsSnapshot;
+
+    public EntityTable(Function<T, String> keyFunction) {
+        this.keyFunction = keyFunction;
+        this.rows = new ArrayList<>();
+    }
+
+    public synchronized void add(T item) {
+        String id = keyFunction.apply(item);
+        positions.put(id, rows.size());
+        sortedIds.add(id);
+        sortedIdsSnapshot = null;
+        rows.add(item);
+        if (versions.containsKey(id)) {
+            versions.put(id, versionCounter.incrementAndGet());
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Primary key of a row, whether or not it is in the table
+     */
+    public String keyOf(T item) {
+        return keyFunction.apply(item);
+    }
+
+    /**
+     * Replace the row with the given ID; returns the old row, or null if there was none
+     */
+    public synchronized T updateById(String id, T item) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            return null;
+        }
+        T old = rows.set(position, item);
+        String newId = keyFunction.apply(item);
+        if (!Objects.equals(id, newId)) {
+            positions.remove(id);
+            positions.put(newId, position);
+            sortedIds.remove(id);
+            sortedIds.add(newId);
+            sortedIdsSnapshot = null;
+            versions.put(id, versionCounter.incrementAndGet());
+        }
+        versions.put(newId, versionCounter.incrementAndGet());
+        snapshot = null;
+        return old;
+    }
+
+    /**
+     * Replace the row only if its version is still expectedVersion.
+     * Returns the old row, or null if there is no row with the ID; throws
+     * UpdateConflictException if the row has changed since that version.
+     */
+    public synchronized T compareAndUpdate(String id, long expectedVersion, T item) {
+        long current = getVersion(id);
+        if (current == 0) {
+            return null;
+        }
+        if (current != expectedVersion) {
+            throw new UpdateConflictException(id, expectedVersion, current);
+        }
+        return updateById(id, item);
+    }
+
+    /**
+     * Current version of the row with the given ID, or 0 if there is none
+     */
+    public long getVersion(String id) {
+        if (!positions.containsKey(id)) {
+            return 0;
+        }
+        Long version = versions.get(id);
+        return version == null ? loadVersion : version;
+    }
+
+    /**
+     * Remove the row with the given ID by swapping the last row into its place
+     * Returns the removed row, or null if there was none
+     */
+    public synchronized T removeById(String id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return null;
+        }
+        sortedIds.remove(id);
+        sortedIdsSnapshot = null;
+        // Kept so a re-added row gets a fresh version
+        versions.put(id, versionCounter.incrementAndGet());
+        int last = rows.size() - 1;
+        T removed;
+        if (position != last) {
+            T moved = rows.get(last);
+            removed = rows.set(position, moved);
+            positions.put(keyFunction.apply(moved), position);
+        } else {
+            removed = rows.get(last);
+        }
+        rows.remove(last);
+        snapshot = null;
+        return removed;
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+        positions.clear();
+        sortedIds.clear();
+        sortedIdsSnapshot = null;
+        versions.clear();
+        loadVersion = versionCounter.incrementAndGet();
+        snapshot = null;
+    }
+
+    public T get(int index) {
+        return rows.get(index);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Row with the given ID, or null
+     */
+    public T getById(String id) {
+        List<T> published = snapshot;
+        if (published != null) {
+            Integer position = positions.get(id);
+            if (position == null) {
+                return null;
+            }
+            if (position < published.size()) {
+                T row = published.get(position);
+                if (id.equals(keyFunction.apply(row))) {
+                    return row;
+                }
+            }
+        }
+        synchronized (this) {
+            Integer position = positions.get(id);
+            return position == null ? null : rows.get(position);
+        }
+    }
+
+    /**
+     * Position of the row with the given ID, or -1
+     */
+    public int indexOf(String id) {
+        Integer position = positions.get(id);
+        return position == null ? -1 : position;
+    }
+
+    public boolean containsId(String id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * Live read-only view of every ID in the table
+     */
+    public Set<String> ids() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    /**
+     * IDs held by more than one row, in ID_ORDER. add() does not reject a
+     * repeated ID (the index points at the last such row), so bulk loads can
+     * leave duplicates behind. Only scans when the counts show there are some.
+     */
+    public NavigableSet<String> duplicateIds() {
+        if (positions.size() == rows.size()) {
+            return Collections.emptyNavigableSet();
+        }
+        return IntStream.range(0, rows.size()).parallel()
+            .filter(i -> positions.get(keyFunction.apply(rows.get(i))) != i)
+            .mapToObj(i -> keyFunction.apply(rows.get(i)))
+            .collect(Collectors.toCollection(() -> new TreeSet<>(ID_ORDER)));
+    }
+
+    /**
+     * Every ID in ID_ORDER, as an immutable copy taken at the latest write
+     * that added or removed an ID
+     */
+    public NavigableSet<String> sortedIds() {
+        NavigableSet<String> current = sortedIdsSnapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (sortedIdsSnapshot == null) {
+                sortedIdsSnapshot = Collections.unmodifiableNavigableSet(new TreeSet<>(sortedIds));
+            }
+            return sortedIdsSnapshot;
+        }
+    }
+
+    /**
+     * The backing row list
+     */
+    public List<T> rows() {
+        return rows;
+    }
+
+    /**
+     * Immutable copy of the rows as of the latest write, safe to iterate
+     * while the table changes
+     */
+    public List<T> snapshot() {
+        List<T> current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(copyRows());
+            }
+            return snapshot;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> copyRows() {
+        return rows instanceof SnapshotStore ? ((SnapshotStore<T>) rows).snapshot() : new ArrayList<>(rows);
+    }
+
+    /**
+     * Swap in a different backing list (e.g. when changing storage mode)
+     */
+    public synchronized void replaceRows(List<T> newRows) {
+        this.rows = newRows;
+        rebuildPositions();
+        snapshot = null;
+    }
+
+    private void rebuildPositions() {
+        positions.clear();
+        sortedIds.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            String id = keyFunction.apply(rows.get(i));
+            positions.put(id, i);
+            sortedIds.add(id);
+        }
+        sortedIdsSnapshot = null;
+    }
+}
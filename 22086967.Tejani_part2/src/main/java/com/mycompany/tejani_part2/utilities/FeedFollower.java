@@ -0,0 +1,121 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Ingests append-only CSV feeds (e.g. appointments.csv written by a booking
+ * system) into DataManager as they grow
+ *
+ * Every latencyMillis a daemon thread reads the records appended to each
+ * followed file since the last read (see CSVReader.Tail) and applies them as
+ * one micro-batch: a record whose ID is new is added, one whose ID exists
+ * replaces the row, since a log carries the latest version of a row. Rows go
+ * through the same DataManager paths as single edits, so indexes and change
+ * events stay current. latencyMillis is the longest a record waits before it
+ * is visible; larger values mean fewer, bigger batches.
+ */
+public class FeedFollower implements AutoCloseable {
+    public static final long DEFAULT_LATENCY_MILLIS = 100;
+
+    /**
+     * One followed file and the entity its records belong to
+     */
+    private static class Feed<T> {
+        final EntitySchema<T> schema;
+        final CSVReader.Tail tail;
+
+        Feed(EntitySchema<T> schema, CSVReader.Tail tail) {
+            this.schema = schema;
+            this.tail = tail;
+        }
+    }
+
+    private final DataManager data;
+    private final Executor applyOn;
+    private final long latencyMillis;
+    private final List<Feed<?>> feeds = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService timer;
+
+    /**
+     * Batches are applied on applyOn (EDT for the GUI, the write lock for the API)
+     */
+    public FeedFollower(DataManager data, Executor applyOn, long latencyMillis) {
+        if (latencyMillis <= 0) {
+            throw new IllegalArgumentException("latencyMillis must be positive");
+        }
+        this.data = data;
+        this.applyOn = applyOn;
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Follow a file from its current end, for a file that has already been loaded
+     */
+    public <T> void follow(EntitySchema<T> schema, Path file) throws IOException {
+        long end = Files.exists(file) ? Files.size(file) : 0;
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true, end);
+        // Rows this application saved to the file are already in memory
+        tail.ignoreOwnWrites(data::isOwnWrite);
+        feeds.add(new Feed<>(schema, tail));
+    }
+
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "feed-follower");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::poll, latencyMillis, latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+            timer = null;
+        }
+    }
+
+    /**
+     * Read every feed once and hand the new records over; normally called by the timer
+     */
+    public void poll() {
+        for (Feed<?> feed : feeds) {
+            try {
+                poll(feed);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error following " + feed.schema.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private <T> void poll(Feed<T> feed) throws IOException {
+        List<String[]> records = feed.tail.readNew();
+        List<T> batch = new ArrayList<>(records.size());
+        int columns = feed.schema.getColumnCount();
+        for (String[] record : records) {
+            // Same rule as the loaders: rows with missing columns are skipped
+            if (record.length >= columns) {
+                batch.add(feed.schema.fromRow(record));
+            }
+        }
+        if (!batch.isEmpty()) {
+            applyOn.execute(() -> apply(feed.schema, batch));
+        }
+    }
+
+    private <T> void apply(EntitySchema<T> schema, List<T> batch) {
+        synchronized (data.commitLock()) {
+            for (T item : batch) {
+                data.upsertRow(schema, item);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+
+/**
+ * Result of an IntegrityValidator run: references to missing records
+ * (orphans) and IDs used by more than one row (duplicates), by entity
+ */
+public class IntegrityReport {
+    /** Most example orphans listed per entity and field in toMap() */
+    public static final int SAMPLE_SIZE = 100;
+
+    /**
+     * One reference that points at nothing, e.g. appointment A002's
+     * clinician_id C009 when there is no clinician C009
+     */
+    public static class Orphan {
+        private final String entity;
+        private final String id;
+        private final String field;
+        private final String missingId;
+
+        public Orphan(String entity, String id, String field, String missingId) {
+            this.entity = entity;
+            this.id = id;
+            this.field = field;
+            this.missingId = missingId;
+        }
+
+        public String getEntity() { return entity; }
+        public String getId() { return id; }
+        public String getField() { return field; }
+        public String getMissingId() { return missingId; }
+
+        @Override
+        public String toString() {
+            return entity + " " + id + ": " + field + " " + missingId + " does not exist";
+        }
+    }
+
+    private final Map<String, List<Orphan>> orphans;
+    private final Map<String, Set<String>> duplicates;
+    private final long elapsedMillis;
+
+    IntegrityReport(Map<String, List<Orphan>> orphans, Map<String, Set<String>> duplicates, long elapsedMillis) {
+        this.orphans = orphans;
+        this.duplicates = duplicates;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public boolean isClean() {
+        return getOrphanCount() == 0 && getDuplicateCount() == 0;
+    }
+
+    /**
+     * Orphans by referencing entity, each list ordered by ID then field
+     */
+    public Map<String, List<Orphan>> getOrphans() {
+        return Collections.unmodifiableMap(orphans);
+    }
+
+    /**
+     * Duplicated IDs by entity
+     */
+    public Map<String, Set<String>> getDuplicates() {
+        return Collections.unmodifiableMap(duplicates);
+    }
+
+    public int getOrphanCount() {
+        return orphans.values().stream().mapToInt(List::size).sum();
+    }
+
+    public int getDuplicateCount() {
+        return duplicates.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Summary for JSON output: counts per entity and field, with up to
+     * SAMPLE_SIZE example orphans each and every duplicated ID
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> orphanSummary = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Orphan>> entry : orphans.entrySet()) {
+            Map<String, Map<String, Object>> byField = new TreeMap<>();
+            for (Orphan orphan : entry.getValue()) {
+                Map<String, Object> field = byField.computeIfAbsent(orphan.getField(), f -> {
+                    Map<String, Object> m = new LinkedHashMap<>();
+                    m.put("count", 0);
+                    m.put("examples", new ArrayList<String>());
+                    return m;
+                });
+                field.put("count", (Integer) field.get("count") + 1);
+                @SuppressWarnings("unchecked")
+                List<String> examples = (List<String>) field.get("examples");
+                if (examples.size() < SAMPLE_SIZE) {
+                    examples.add(orphan.getId() + " -> " + orphan.getMissingId());
+                }
+            }
+            if (!byField.isEmpty()) {
+                orphanSummary.put(entry.getKey(), byField);
+            }
+        }
+        Map<String, Object> duplicateSummary = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : duplicates.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                duplicateSummary.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("clean", isClean());
+        map.put("orphan_count", getOrphanCount());
+        map.put("duplicate_count", getDuplicateCount());
+        map.put("orphans", orphanSummary);
+        map.put("duplicates", duplicateSummary);
+        map.put("elapsed_ms", elapsedMillis);
+        return map;
+    }
+}
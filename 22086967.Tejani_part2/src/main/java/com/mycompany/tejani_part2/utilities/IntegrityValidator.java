@@ -0,0 +1,162 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.*;
+import com.mycompany.tejani_part2.utilities.IntegrityReport.Orphan;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Checks every cross-entity reference against the primary-key indexes
+ *
+ *   patients       gp_surgery_id -> facilities (when set)
+ *   clinicians     workplace_id -> facilities (when set)
+ *   appointments   patient_id, clinician_id, facility_id
+ *   prescriptions  patient_id, clinician_id, appointment_id (when set)
+ *   referrals      patient_id, both clinicians, both facilities, appointment_id (when set)
+ *   staff          facility_id -> facilities (when set)
+ *
+ * Each entity is checked by its own task and each task scans its rows in
+ * parallel, so the run is one parallel pass with O(1) lookups. Where a
+ * secondary index exists (appointment and prescription patient_id, appointment
+ * clinician_id) only its distinct keys are checked instead of every row.
+ * Also lists IDs used by more than one row. Row scans read table snapshots,
+ * but the ID sets and indexes are live, so tables should not be modified
+ * while a run is in progress.
+ */
+public class IntegrityValidator {
+    private final DataManager data;
+
+    public IntegrityValidator(DataManager data) {
+        this.data = data;
+    }
+
+    /**
+     * One reference column: its name, how to read it, the IDs it must match,
+     * and whether a blank value is allowed
+     */
+    private static class Reference<T> {
+        final String field;
+        final Function<T, String> value;
+        final Set<String> targets;
+        final boolean optional;
+
+        Reference(String field, Function<T, String> value, Set<String> targets, boolean optional) {
+            this.field = field;
+            this.value = value;
+            this.targets = targets;
+            this.optional = optional;
+        }
+    }
+
+    public IntegrityReport validate() {
+        long start = System.nanoTime();
+        Set<String> patientIds = data.patientTable().ids();
+        Set<String> clinicianIds = data.clinicianTable().ids();
+        Set<String> facilityIds = data.facilityTable().ids();
+        Set<String> appointmentIds = data.appointmentTable().ids();
+        EntityTable<Referral> referrals = data.getReferralManager().getReferralTable();
+
+        CompletableFuture<List<Orphan>> patientOrphans = CompletableFuture.supplyAsync(() ->
+            scan("patients", data.snapshot(EntitySchema.PATIENTS), Patient::getPatientId, Arrays.asList(
+                new Reference<>("gp_surgery_id", Patient::getGpSurgeryId, facilityIds, true))));
+
+        CompletableFuture<List<Orphan>> clinicianOrphans = CompletableFuture.supplyAsync(() ->
+            scan("clinicians", data.snapshot(EntitySchema.CLINICIANS), Clinician::getClinicianId, Arrays.asList(
+                new Reference<>("workplace_id", Clinician::getWorkplaceId, facilityIds, true))));
+
+        CompletableFuture<List<Orphan>> appointmentOrphans = CompletableFuture.supplyAsync(() -> {
+            List<Orphan> found = new ArrayList<>();
+            found.addAll(checkIndex("appointments", "patient_id", data.appointmentIndex("patientId"), patientIds));
+            found.addAll(checkIndex("appointments", "clinician_id", data.appointmentIndex("clinicianId"), clinicianIds));
+            found.addAll(scan("appointments", data.snapshot(EntitySchema.APPOINTMENTS), Appointment::getAppointmentId, Arrays.asList(
+                new Reference<>("facility_id", Appointment::getFacilityId, facilityIds, false))));
+            return found;
+        });
+
+        CompletableFuture<List<Orphan>> prescriptionOrphans = CompletableFuture.supplyAsync(() -> {
+            List<Orphan> found = new ArrayList<>();
+            found.addAll(checkIndex("prescriptions", "patient_id", data.prescriptionIndex("patientId"), patientIds));
+            found.addAll(scan("prescriptions", data.snapshot(EntitySchema.PRESCRIPTIONS), Prescription::getPrescriptionId, Arrays.asList(
+                new Reference<>("clinician_id", Prescription::getClinicianId, clinicianIds, false),
+                new Reference<>("appointment_id", Prescription::getAppointmentId, appointmentIds, true))));
+            return found;
+        });
+
+        CompletableFuture<List<Orphan>> referralOrphans = CompletableFuture.supplyAsync(() ->
+            scan("referrals", referrals.snapshot(), Referral::getReferralId, Arrays.asList(
+                new Reference<>("patient_id", Referral::getPatientId, patientIds, false),
+                new Reference<>("referring_clinician_id", Referral::getReferringClinicianId, clinicianIds, false),
+                new Reference<>("referred_to_clinician_id", Referral::getReferredToClinicianId, clinicianIds, false),
+                new Reference<>("referring_facility_id", Referral::getReferringFacilityId, facilityIds, false),
+                new Reference<>("referred_to_facility_id", Referral::getReferredToFacilityId, facilityIds, false),
+                new Reference<>("appointment_id", Referral::getAppointmentId, appointmentIds, true))));
+
+        CompletableFuture<List<Orphan>> staffOrphans = CompletableFuture.supplyAsync(() ->
+            scan("staff", data.snapshot(EntitySchema.STAFF), Staff::getStaffId, Arrays.asList(
+                new Reference<>("facility_id", Staff::getFacilityId, facilityIds, true))));
+
+        Map<String, Set<String>> duplicates = new LinkedHashMap<>();
+        duplicates.put("patients", data.patientTable().duplicateIds());
+        duplicates.put("clinicians", data.clinicianTable().duplicateIds());
+        duplicates.put("facilities", data.facilityTable().duplicateIds());
+        duplicates.put("appointments", data.appointmentTable().duplicateIds());
+        duplicates.put("prescriptions", data.prescriptionTable().duplicateIds());
+        duplicates.put("referrals", referrals.duplicateIds());
+        duplicates.put("staff", data.staffTable().duplicateIds());
+
+        Map<String, List<Orphan>> orphans = new LinkedHashMap<>();
+        orphans.put("patients", sorted(patientOrphans.join()));
+        orphans.put("clinicians", sorted(clinicianOrphans.join()));
+        orphans.put("appointments", sorted(appointmentOrphans.join()));
+        orphans.put("prescriptions", sorted(prescriptionOrphans.join()));
+        orphans.put("referrals", sorted(referralOrphans.join()));
+        orphans.put("staff", sorted(staffOrphans.join()));
+
+        return new IntegrityReport(orphans, duplicates, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ==================== CHECKS ====================
+
+    /**
+     * Check each row's references in parallel; rows are read by position so
+     * the columnar and off-heap stores split as well as an ArrayList
+     */
+    private static <T> List<Orphan> scan(String entity, List<T> rows, Function<T, String> idOf,
+                                         List<Reference<T>> references) {
+        return IntStream.range(0, rows.size()).parallel().collect(ArrayList::new, (found, i) -> {
+            T row = rows.get(i);
+            for (Reference<T> reference : references) {
+                String target = reference.value.apply(row);
+                boolean blank = target == null || target.trim().isEmpty();
+                if (blank ? !reference.optional : !reference.targets.contains(target)) {
+                    found.add(new Orphan(entity, idOf.apply(row), reference.field, blank ? "" : target));
+                }
+            }
+        }, ArrayList::addAll);
+    }
+
+    /**
+     * Check only the distinct values held by a secondary index; every row
+     * filed under a missing value is an orphan
+     */
+    private static <T> List<Orphan> checkIndex(String entity, String field, SecondaryIndex<T> index,
+                                               Set<String> targets) {
+        List<Orphan> found = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : index.asMap().entrySet()) {
+            String target = entry.getKey();
+            if (target.isEmpty() || !targets.contains(target)) {
+                for (String id : entry.getValue()) {
+                    found.add(new Orphan(entity, id, field, target));
+                }
+            }
+        }
+        return found;
+    }
+
+    private static List<Orphan> sorted(List<Orphan> orphans) {
+        orphans.sort(Comparator.comparing(Orphan::getId, EntityTable.ID_ORDER).thenComparing(Orphan::getField));
+        return orphans;
+    }
+}
@@ -0,0 +1,311 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Minimal JSON reader/writer for the HTTP API and NDJSON export
+ *
+ * Writing handles maps, lists/arrays, strings, numbers, booleans and null.
+ * Parsing returns LinkedHashMap, ArrayList, String, Double (or Long for
+ * whole numbers), Boolean or null, and throws IllegalArgumentException with
+ * the offending position for malformed input.
+ */
+public final class Json {
+    private Json() {
+    }
+
+    // ==================== WRITING ====================
+
+    public static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(out, value);
+        return out.toString();
+    }
+
+    public static void write(Appendable out, Object value) {
+        try {
+            writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeValue(Appendable out, Object value) throws IOException {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof CharSequence) {
+            writeString(out, value.toString());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value.toString());
+        } else if (value instanceof Map) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(out, String.valueOf(entry.getKey()));
+                out.append(':');
+                writeValue(out, entry.getValue());
+            }
+            out.append('}');
+        } else if (value instanceof Iterable) {
+            out.append('[');
+            boolean first = true;
+            for (Object item : (Iterable<?>) value) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeValue(out, item);
+            }
+            out.append(']');
+        } else if (value instanceof Object[]) {
+            writeValue(out, Arrays.asList((Object[]) value));
+        } else {
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Write a quoted, escaped JSON string
+     */
+    public static void writeString(Appendable out, String value) throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = null;
+            switch (c) {
+                case '"': escape = "\\\""; break;
+                case '\\': escape = "\\\\"; break;
+                case '\n': escape = "\\n"; break;
+                case '\r': escape = "\\r"; break;
+                case '\t': escape = "\\t"; break;
+                default:
+                    if (c < 0x20) {
+                        escape = String.format("\\u%04x", (int) c);
+                    }
+            }
+            if (escape != null) {
+                out.append(value, start, i).append(escape);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+
+    // ==================== PARSING ====================
+
+    public static Object parse(String text) {
+        Parser parser = new Parser(text);
+        parser.skipWhitespace();
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected trailing content");
+        }
+        return value;
+    }
+
+    /**
+     * Parse text that must be a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            if (pos >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{': return readObject();
+                case '[': return readArray();
+                case '"': return readString();
+                case 't': return readLiteral("true", Boolean.TRUE);
+                case 'f': return readLiteral("false", Boolean.FALSE);
+                case 'n': return readLiteral("null", null);
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9')) {
+                        return readNumber();
+                    }
+                    throw error("Unexpected character '" + c + "'");
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a property name");
+                }
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                map.put(key, readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return map;
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                skipWhitespace();
+                list.add(readValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String readString() {
+            pos++;
+            StringBuilder sb = null;
+            int start = pos;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '"') {
+                    String result = sb == null ? text.substring(start, pos)
+                        : sb.append(text, start, pos).toString();
+                    pos++;
+                    return result;
+                }
+                if (c == '\\') {
+                    if (sb == null) {
+                        sb = new StringBuilder();
+                    }
+                    sb.append(text, start, pos);
+                    pos++;
+                    char e = pos < text.length() ? text.charAt(pos) : 0;
+                    switch (e) {
+                        case '"': sb.append('"'); break;
+                        case '\\': sb.append('\\'); break;
+                        case '/': sb.append('/'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'u':
+                            if (pos + 4 >= text.length()) {
+                                throw error("Bad unicode escape");
+                            }
+                            try {
+                                sb.append((char) Integer.parseInt(text.substring(pos + 1, pos + 5), 16));
+                            } catch (NumberFormatException ex) {
+                                throw error("Bad unicode escape");
+                            }
+                            pos += 4;
+                            break;
+                        default:
+                            throw error("Bad escape");
+                    }
+                    pos++;
+                    start = pos;
+                } else {
+                    pos++;
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Object readNumber() {
+            int start = pos;
+            if (peek() == '-') {
+                pos++;
+            }
+            boolean whole = true;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c >= '0' && c <= '9') {
+                    pos++;
+                } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                    whole = false;
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            String number = text.substring(start, pos);
+            try {
+                if (whole && number.length() < 19) {
+                    return Long.parseLong(number);
+                }
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw error("Bad number '" + number + "'");
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("Unexpected token");
+            }
+            pos += literal.length();
+            return value;
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
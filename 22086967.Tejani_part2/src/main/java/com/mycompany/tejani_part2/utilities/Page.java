@@ -0,0 +1,32 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of query results plus the cursor for the next page
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Pass to EntityQuery.after() for the next page; null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,310 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Patient;
+import java.util.*;
+
+/**
+ * Lookup index for picking patients by name, NHS number or postcode
+ *
+ * - prefix search over first/last name through a sorted term map
+ * - fuzzy matching for typos through a trigram index (Dice similarity)
+ * - exact hash lookups for NHS number and postcode
+ *
+ * Every query inspects at most MAX_CANDIDATES postings, so latency stays
+ * bounded however many patients share a common prefix or trigram.
+ */
+public class PatientLookupIndex {
+    public static final String PATIENT = "Patient";
+
+    private static final int MAX_CANDIDATES = 5000;
+    private static final double MIN_SIMILARITY = 0.6;
+
+    private static final double NHS_SCORE = 100;
+    private static final double POSTCODE_SCORE = 50;
+    private static final double EXACT_NAME_SCORE = 20;
+    private static final double PREFIX_SCORE = 12;
+    private static final double FUZZY_SCORE = 10;
+
+    private final Map<String, String[]> namesById = new HashMap<>();
+    private final TreeMap<String, Set<String>> nameTerms = new TreeMap<>();
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private final Map<String, Set<String>> byNhsNumber = new HashMap<>();
+    private final Map<String, Set<String>> byPostcode = new HashMap<>();
+    private final Map<String, String[]> keysById = new HashMap<>();
+
+    // ==================== MAINTENANCE ====================
+
+    /**
+     * Add or replace a patient's entry
+     */
+    public synchronized void add(Patient patient) {
+        String id = patient.getPatientId();
+        if (id == null) {
+            return;
+        }
+        remove(id);
+
+        List<String> names = new ArrayList<>();
+        names.addAll(TextSearchIndex.tokenize(nullToEmpty(patient.getFirstName())));
+        names.addAll(TextSearchIndex.tokenize(nullToEmpty(patient.getLastName())));
+        String[] nameArray = names.toArray(new String[0]);
+        namesById.put(id, nameArray);
+        for (String name : nameArray) {
+            nameTerms.computeIfAbsent(name, k -> new HashSet<>()).add(id);
+            for (String gram : trigramsOf(name)) {
+                trigrams.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        }
+
+        String nhs = normaliseNhsNumber(patient.getNhsNumber());
+        String postcode = normalisePostcode(patient.getPostcode());
+        if (!nhs.isEmpty()) {
+            byNhsNumber.computeIfAbsent(nhs, k -> new HashSet<>()).add(id);
+        }
+        if (!postcode.isEmpty()) {
+            byPostcode.computeIfAbsent(postcode, k -> new HashSet<>()).add(id);
+        }
+        keysById.put(id, new String[] {nhs, postcode});
+    }
+
+    /**
+     * Remove a patient's entry, if present
+     */
+    public synchronized void remove(String patientId) {
+        String[] names = namesById.remove(patientId);
+        if (names != null) {
+            for (String name : names) {
+                removeFrom(nameTerms, name, patientId);
+                for (String gram : trigramsOf(name)) {
+                    removeFrom(trigrams, gram, patientId);
+                }
+            }
+        }
+        String[] keys = keysById.remove(patientId);
+        if (keys != null) {
+            removeFrom(byNhsNumber, keys[0], patientId);
+            removeFrom(byPostcode, keys[1], patientId);
+        }
+    }
+
+    public synchronized void clear() {
+        namesById.clear();
+        nameTerms.clear();
+        trigrams.clear();
+        byNhsNumber.clear();
+        byPostcode.clear();
+        keysById.clear();
+    }
+
+    public synchronized int size() {
+        return namesById.size();
+    }
+
+    private static void removeFrom(Map<String, Set<String>> map, String key, String id) {
+        Set<String> ids = map.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    // ==================== LOOKUPS ====================
+
+    /**
+     * Patient IDs with exactly this NHS number (spaces ignored)
+     */
+    public synchronized Set<String> findByNhsNumber(String nhsNumber) {
+        return copy(byNhsNumber.get(normaliseNhsNumber(nhsNumber)));
+    }
+
+    /**
+     * Patient IDs with exactly this postcode (case and spaces ignored)
+     */
+    public synchronized Set<String> findByPostcode(String postcode) {
+        return copy(byPostcode.get(normalisePostcode(postcode)));
+    }
+
+    /**
+     * Ranked type-ahead search. Each word of the query is matched against
+     * first and last names by prefix, then by trigram similarity if it has no
+     * prefix matches; the query as a whole is also tried as an NHS number
+     * and a postcode. Returns at most limit hits, best first.
+     */
+    public synchronized List<SearchHit> search(String query, int limit) {
+        Map<String, Double> scores = new HashMap<>();
+        if (query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        for (String id : copy(byNhsNumber.get(normaliseNhsNumber(query)))) {
+            scores.merge(id, NHS_SCORE, Double::sum);
+        }
+        for (String id : copy(byPostcode.get(normalisePostcode(query)))) {
+            scores.merge(id, POSTCODE_SCORE, Double::sum);
+        }
+
+        List<String> words = TextSearchIndex.tokenize(query);
+        Map<String, Double> nameScores = null;
+        for (String word : words) {
+            Map<String, Double> wordScores = scoreWord(word);
+            if (nameScores == null) {
+                nameScores = wordScores;
+            } else {
+                // Every word must match some name of the patient
+                nameScores.keySet().retainAll(wordScores.keySet());
+                for (Map.Entry<String, Double> entry : nameScores.entrySet()) {
+                    entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+                }
+            }
+        }
+        if (nameScores != null) {
+            for (Map.Entry<String, Double> entry : nameScores.entrySet()) {
+                scores.merge(entry.getKey(), entry.getValue(), Double::sum);
+            }
+        }
+
+        PriorityQueue<Map.Entry<String, Double>> top = new PriorityQueue<>(
+            Map.Entry.<String, Double>comparingByValue()
+                .thenComparing(Map.Entry.<String, Double>comparingByKey().reversed()));
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<String, Double> entry = top.poll();
+            hits.add(new SearchHit(PATIENT, entry.getKey(), entry.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private Map<String, Double> scoreWord(String word) {
+        Map<String, Double> result = new HashMap<>();
+        int inspected = 0;
+
+        // Prefix matches: an exact name scores highest, longer completions less
+        for (Map.Entry<String, Set<String>> entry
+                : nameTerms.subMap(word, true, word + Character.MAX_VALUE, false).entrySet()) {
+            double score = entry.getKey().equals(word) ? EXACT_NAME_SCORE
+                : PREFIX_SCORE * word.length() / entry.getKey().length();
+            for (String id : entry.getValue()) {
+                result.merge(id, score, Math::max);
+                if (++inspected >= MAX_CANDIDATES) {
+                    return result;
+                }
+            }
+        }
+        if (!result.isEmpty() || word.length() < 3) {
+            return result;
+        }
+
+        // No prefix hits: names sharing a trigram are candidates for a typo match.
+        // Rare grams are visited first so the candidate cap keeps the best ones.
+        List<String> grams = new ArrayList<>(trigramsOf(word));
+        grams.sort(Comparator.comparingInt(g -> trigrams.getOrDefault(g, Collections.emptySet()).size()));
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            for (String id : trigrams.getOrDefault(gram, Collections.emptySet())) {
+                shared.merge(id, 1, Integer::sum);
+                if (++inspected >= MAX_CANDIDATES) {
+                    break;
+                }
+            }
+            if (inspected >= MAX_CANDIDATES) {
+                break;
+            }
+        }
+        Set<String> queryGrams = trigramsOf(word);
+        for (String id : shared.keySet()) {
+            double best = 0;
+            for (String name : namesById.get(id)) {
+                best = Math.max(best, Math.max(
+                    dice(queryGrams, trigramsOf(name)), editSimilarity(word, name)));
+            }
+            if (best >= MIN_SIMILARITY) {
+                result.put(id, FUZZY_SCORE * best);
+            }
+        }
+        return result;
+    }
+
+    // ==================== HELPERS ====================
+
+    private static double dice(Set<String> a, Set<String> b) {
+        int common = 0;
+        for (String gram : a) {
+            if (b.contains(gram)) {
+                common++;
+            }
+        }
+        return 2.0 * common / (a.size() + b.size());
+    }
+
+    /**
+     * 1 - (edit distance / longer length), counting an adjacent swap as one edit
+     * so that transpositions such as "jhon" for "john" still score well
+     */
+    static double editSimilarity(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int[][] d = new int[n + 1][m + 1];
+        for (int i = 0; i <= n; i++) d[i][0] = i;
+        for (int j = 0; j <= m; j++) d[0][j] = j;
+        for (int i = 1; i <= n; i++) {
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return 1.0 - (double) d[n][m] / Math.max(n, m);
+    }
+
+    /**
+     * Trigrams of a word padded with boundary markers, e.g. "ann" gives $$a $an ann nn$
+     */
+    private static Set<String> trigramsOf(String word) {
+        String padded = "$$" + word + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    static String normaliseNhsNumber(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != ' ' && c != '-') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    static String normalisePostcode(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static Set<String> copy(Set<String> ids) {
+        return ids == null ? new HashSet<>() : new HashSet<>(ids);
+    }
+}
@@ -0,0 +1,345 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Patient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Off-heap storage for very large patient registers
+ * Each patient is a fixed-size record in direct memory holding an
+ * (offset, length) pair per field; the field text itself lives in an
+ * append-only UTF-8 string arena, also in direct memory. get() decodes a
+ * record into a detached heap Patient, so a Patient someone holds on to never
+ * changes under them when rows are moved or rewritten.
+ *
+ * Only the Patient objects and their field Strings move out of the heap.
+ * Each patient still costs heap in its EntityTable (a position entry and a
+ * sorted-ID entry) and in PatientLookupIndex (name, trigram, NHS number and
+ * postcode entries), so the heap still grows with the register, just more
+ * slowly. get() is not free either: every call allocates a Patient and one
+ * String per field, which is short-lived garbage for a scan over the register.
+ *
+ * snapshot() is copy-on-write: it shares the record segments and the arena
+ * with the snapshot, and the store copies a record segment the first time it
+ * writes to it afterwards. Arena bytes are never overwritten while a snapshot
+ * may still read them, since clear() starts a fresh arena once one was taken.
+ */
+public class PatientOffHeapStore extends AbstractList<Patient> implements SnapshotStore<Patient>, RandomAccess {
+    private static final int FIELD_COUNT = 14;
+    // long arena offset + int byte length per field
+    private static final int FIELD_SLOT = 12;
+    private static final int RECORD_SIZE = FIELD_COUNT * FIELD_SLOT;
+    private static final int RECORDS_PER_SEGMENT = 1 << 16;
+    private static final int ARENA_SEGMENT_SIZE = 64 << 20;
+    private static final int ARENA_SHIFT = 26;
+    private static final int NULL_LENGTH = -1;
+
+    private static final int PATIENT_ID = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int DATE_OF_BIRTH = 3;
+    private static final int NHS_NUMBER = 4;
+    private static final int GENDER = 5;
+    private static final int PHONE_NUMBER = 6;
+    private static final int EMAIL = 7;
+    private static final int ADDRESS = 8;
+    private static final int POSTCODE = 9;
+    private static final int EMERGENCY_CONTACT_NAME = 10;
+    private static final int EMERGENCY_CONTACT_PHONE = 11;
+    private static final int REGISTRATION_DATE = 12;
+    private static final int GP_SURGERY_ID = 13;
+
+    private final List<ByteBuffer> recordSegments;
+    private final List<ByteBuffer> arenaSegments;
+    private int size;
+    private long arenaUsed;
+    private long arenaGarbage;
+
+    // Record segments a snapshot still reads; copied before the next write to them
+    private final BitSet sharedSegments = new BitSet();
+    private boolean arenaShared;
+    private final boolean frozen;
+
+    public PatientOffHeapStore() {
+        this.recordSegments = new ArrayList<>();
+        this.arenaSegments = new ArrayList<>();
+        this.frozen = false;
+    }
+
+    /**
+     * Read-only store over another store's buffers, made by snapshot()
+     */
+    private PatientOffHeapStore(List<ByteBuffer> recordSegments, List<ByteBuffer> arenaSegments, int size,
+                                long arenaUsed) {
+        this.recordSegments = recordSegments;
+        this.arenaSegments = arenaSegments;
+        this.size = size;
+        this.arenaUsed = arenaUsed;
+        this.frozen = true;
+    }
+
+    // ==================== LIST OPERATIONS ====================
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Patient get(int index) {
+        checkIndex(index);
+        return copyOf(index);
+    }
+
+    @Override
+    public Patient set(int index, Patient patient) {
+        checkWritable();
+        checkIndex(index);
+        Patient old = copyOf(index);
+        writeRecord(index, patient, true);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Patient patient) {
+        checkWritable();
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureRecordCapacity(size + 1);
+        byte[] scratch = new byte[RECORD_SIZE];
+        for (int i = size; i > index; i--) {
+            copyRecord(i - 1, i, scratch);
+        }
+        size++;
+        writeRecord(index, patient, false);
+        modCount++;
+    }
+
+    @Override
+    public Patient remove(int index) {
+        checkWritable();
+        checkIndex(index);
+        Patient old = copyOf(index);
+        arenaGarbage += recordBytes(index);
+        byte[] scratch = new byte[RECORD_SIZE];
+        for (int i = index; i < size - 1; i++) {
+            copyRecord(i + 1, i, scratch);
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        // Keep the first segment of each kind so a reload does not reallocate,
+        // unless a snapshot may still be reading it
+        while (recordSegments.size() > (sharedSegments.get(0) ? 0 : 1)) {
+            recordSegments.remove(recordSegments.size() - 1);
+        }
+        while (arenaSegments.size() > (arenaShared ? 0 : 1)) {
+            arenaSegments.remove(arenaSegments.size() - 1);
+        }
+        sharedSegments.clear();
+        arenaShared = false;
+        size = 0;
+        arenaUsed = 0;
+        arenaGarbage = 0;
+        modCount++;
+    }
+
+    /**
+     * Read-only copy of the store as it is now; costs a list of segment
+     * references, the record bytes are only copied when the store next writes
+     * to them. Rows read from it are detached heap Patients.
+     */
+    @Override
+    public List<Patient> snapshot() {
+        int segments = (size + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT;
+        if (!frozen) {
+            sharedSegments.set(0, segments);
+            arenaShared = true;
+        }
+        return new PatientOffHeapStore(new ArrayList<>(recordSegments.subList(0, segments)),
+            new ArrayList<>(arenaSegments), size, arenaUsed);
+    }
+
+    /**
+     * Bytes of direct memory in use by the string arena
+     */
+    public long getArenaBytes() {
+        return arenaUsed;
+    }
+
+    /**
+     * Arena bytes no longer referenced by any record (left behind by updates and deletes)
+     */
+    public long getArenaGarbageBytes() {
+        return arenaGarbage;
+    }
+
+    /**
+     * Rewrite the string arena without the bytes left behind by updates and deletes
+     */
+    public void compact() {
+        checkWritable();
+        List<Patient> live = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            live.add(copyOf(i));
+        }
+        int count = size;
+        clear();
+        for (int i = 0; i < count; i++) {
+            ensureRecordCapacity(size + 1);
+            size++;
+            writeRecord(i, live.get(i), false);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private void checkWritable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Snapshot of the patient store is read-only");
+        }
+    }
+
+    /**
+     * Heap copy of a record
+     */
+    private Patient copyOf(int row) {
+        return new Patient(
+            readField(row, PATIENT_ID), readField(row, FIRST_NAME), readField(row, LAST_NAME),
+            readField(row, DATE_OF_BIRTH), readField(row, NHS_NUMBER), readField(row, GENDER),
+            readField(row, PHONE_NUMBER), readField(row, EMAIL), readField(row, ADDRESS),
+            readField(row, POSTCODE), readField(row, EMERGENCY_CONTACT_NAME),
+            readField(row, EMERGENCY_CONTACT_PHONE), readField(row, REGISTRATION_DATE),
+            readField(row, GP_SURGERY_ID)
+        );
+    }
+
+    // ==================== RECORD LAYOUT ====================
+
+    private void ensureRecordCapacity(int records) {
+        while (recordSegments.size() * RECORDS_PER_SEGMENT < records) {
+            recordSegments.add(ByteBuffer.allocateDirect(RECORDS_PER_SEGMENT * RECORD_SIZE));
+        }
+    }
+
+    private ByteBuffer recordSegment(int row) {
+        return recordSegments.get(row / RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * Record segment about to be written, copied first if a snapshot shares it
+     */
+    private ByteBuffer writableSegment(int row) {
+        int index = row / RECORDS_PER_SEGMENT;
+        ByteBuffer segment = recordSegments.get(index);
+        if (sharedSegments.get(index)) {
+            ByteBuffer copy = ByteBuffer.allocateDirect(segment.capacity());
+            copy.put(0, segment, 0, segment.capacity());
+            recordSegments.set(index, copy);
+            sharedSegments.clear(index);
+            segment = copy;
+        }
+        return segment;
+    }
+
+    private int recordOffset(int row, int field) {
+        return (row % RECORDS_PER_SEGMENT) * RECORD_SIZE + field * FIELD_SLOT;
+    }
+
+    private void copyRecord(int fromRow, int toRow, byte[] scratch) {
+        recordSegment(fromRow).get(recordOffset(fromRow, 0), scratch);
+        writableSegment(toRow).put(recordOffset(toRow, 0), scratch);
+    }
+
+    private void writeRecord(int row, Patient p, boolean replacing) {
+        if (replacing) {
+            arenaGarbage += recordBytes(row);
+        }
+        writeField(row, PATIENT_ID, p.getPatientId());
+        writeField(row, FIRST_NAME, p.getFirstName());
+        writeField(row, LAST_NAME, p.getLastName());
+        writeField(row, DATE_OF_BIRTH, p.getDateOfBirth());
+        writeField(row, NHS_NUMBER, p.getNhsNumber());
+        writeField(row, GENDER, p.getGender());
+        writeField(row, PHONE_NUMBER, p.getPhoneNumber());
+        writeField(row, EMAIL, p.getEmail());
+        writeField(row, ADDRESS, p.getAddress());
+        writeField(row, POSTCODE, p.getPostcode());
+        writeField(row, EMERGENCY_CONTACT_NAME, p.getEmergencyContactName());
+        writeField(row, EMERGENCY_CONTACT_PHONE, p.getEmergencyContactPhone());
+        writeField(row, REGISTRATION_DATE, p.getRegistrationDate());
+        writeField(row, GP_SURGERY_ID, p.getGpSurgeryId());
+    }
+
+    private long recordBytes(int row) {
+        long total = 0;
+        ByteBuffer segment = recordSegment(row);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            total += Math.max(0, segment.getInt(recordOffset(row, field) + 8));
+        }
+        return total;
+    }
+
+    // ==================== STRING ARENA ====================
+
+    private void writeField(int row, int field, String value) {
+        ByteBuffer segment = writableSegment(row);
+        int slot = recordOffset(row, field);
+        if (value == null) {
+            segment.putLong(slot, 0L);
+            segment.putInt(slot + 8, NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        segment.putLong(slot, appendToArena(bytes));
+        segment.putInt(slot + 8, bytes.length);
+    }
+
+    private String readField(int row, int field) {
+        ByteBuffer segment = recordSegment(row);
+        int slot = recordOffset(row, field);
+        int length = segment.getInt(slot + 8);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length == 0) {
+            return "";
+        }
+        long offset = segment.getLong(slot);
+        byte[] bytes = new byte[length];
+        arenaSegments.get((int) (offset >>> ARENA_SHIFT)).get((int) (offset & (ARENA_SEGMENT_SIZE - 1)), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long appendToArena(byte[] bytes) {
+        if (bytes.length > ARENA_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Field too large for off-heap arena: " + bytes.length + " bytes");
+        }
+        int segmentIndex = (int) (arenaUsed >>> ARENA_SHIFT);
+        int position = (int) (arenaUsed & (ARENA_SEGMENT_SIZE - 1));
+        // Strings never straddle two segments
+        if (position + bytes.length > ARENA_SEGMENT_SIZE) {
+            segmentIndex++;
+            position = 0;
+            arenaUsed = (long) segmentIndex << ARENA_SHIFT;
+        }
+        while (arenaSegments.size() <= segmentIndex) {
+            arenaSegments.add(ByteBuffer.allocateDirect(ARENA_SEGMENT_SIZE));
+        }
+        arenaSegments.get(segmentIndex).put(position, bytes);
+        long offset = arenaUsed;
+        arenaUsed += bytes.length;
+        return offset;
+    }
+}
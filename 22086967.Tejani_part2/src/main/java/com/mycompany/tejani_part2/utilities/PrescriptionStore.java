@@ -0,0 +1,209 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Prescription;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar in-memory store for prescriptions
+ * Dates and durations are primitive int columns; IDs, medication, dosage,
+ * frequency, pharmacy and status are dictionary encoded.
+ */
+public class PrescriptionStore extends ColumnStore<Prescription> {
+    private static final int COL_PRESCRIBED = 0;
+    private static final int COL_ISSUED = 1;
+    private static final int COL_COLLECTED = 2;
+
+    private final StringDictionary idDictionary = new StringDictionary();
+    private final StringDictionary medicationDictionary = new StringDictionary();
+    private final StringDictionary textDictionary = new StringDictionary();
+    private final StringDictionary statusDictionary = new StringDictionary();
+
+    private String[] prescriptionIds;
+    private int[] patientCodes;
+    private int[] clinicianCodes;
+    private int[] appointmentCodes;
+    private int[] prescribedDates;
+    private int[] medicationCodes;
+    private int[] dosageCodes;
+    private int[] frequencyCodes;
+    private int[] durations;
+    private String[] quantities;
+    private String[] instructions;
+    private int[] pharmacyCodes;
+    private int[] statusCodes;
+    private int[] issueDates;
+    private int[] collectionDates;
+
+    public PrescriptionStore() {
+        this(1024);
+    }
+
+    public PrescriptionStore(int initialCapacity) {
+        super(initialCapacity);
+        resize(capacity);
+    }
+
+    @Override
+    protected void resize(int newCapacity) {
+        prescriptionIds = prescriptionIds == null ? new String[newCapacity] : Arrays.copyOf(prescriptionIds, newCapacity);
+        patientCodes = grow(patientCodes, newCapacity);
+        clinicianCodes = grow(clinicianCodes, newCapacity);
+        appointmentCodes = grow(appointmentCodes, newCapacity);
+        prescribedDates = grow(prescribedDates, newCapacity);
+        medicationCodes = grow(medicationCodes, newCapacity);
+        dosageCodes = grow(dosageCodes, newCapacity);
+        frequencyCodes = grow(frequencyCodes, newCapacity);
+        durations = grow(durations, newCapacity);
+        quantities = quantities == null ? new String[newCapacity] : Arrays.copyOf(quantities, newCapacity);
+        instructions = instructions == null ? new String[newCapacity] : Arrays.copyOf(instructions, newCapacity);
+        pharmacyCodes = grow(pharmacyCodes, newCapacity);
+        statusCodes = grow(statusCodes, newCapacity);
+        issueDates = grow(issueDates, newCapacity);
+        collectionDates = grow(collectionDates, newCapacity);
+    }
+
+    private static int[] grow(int[] column, int newCapacity) {
+        return column == null ? new int[newCapacity] : Arrays.copyOf(column, newCapacity);
+    }
+
+    @Override
+    protected void writeRow(int row, Prescription p) {
+        prescriptionIds[row] = p.getPrescriptionId();
+        patientCodes[row] = idDictionary.encode(p.getPatientId());
+        clinicianCodes[row] = idDictionary.encode(p.getClinicianId());
+        appointmentCodes[row] = idDictionary.encode(p.getAppointmentId());
+        prescribedDates[row] = encodeDate(row, COL_PRESCRIBED, p.getPrescriptionDate());
+        medicationCodes[row] = medicationDictionary.encode(p.getMedicationName());
+        dosageCodes[row] = textDictionary.encode(p.getDosage());
+        frequencyCodes[row] = textDictionary.encode(p.getFrequency());
+        durations[row] = p.getDurationDays();
+        quantities[row] = p.getQuantity();
+        instructions[row] = p.getInstructions();
+        pharmacyCodes[row] = textDictionary.encode(p.getPharmacyName());
+        statusCodes[row] = statusDictionary.encode(p.getStatus());
+        issueDates[row] = encodeDate(row, COL_ISSUED, p.getIssueDate());
+        collectionDates[row] = encodeDate(row, COL_COLLECTED, p.getCollectionDate());
+    }
+
+    @Override
+    protected Prescription readRow(int row) {
+        return new Prescription(
+            prescriptionIds[row],
+            idDictionary.decode(patientCodes[row]),
+            idDictionary.decode(clinicianCodes[row]),
+            idDictionary.decode(appointmentCodes[row]),
+            decodeDate(row, COL_PRESCRIBED, prescribedDates[row]),
+            medicationDictionary.decode(medicationCodes[row]),
+            textDictionary.decode(dosageCodes[row]),
+            textDictionary.decode(frequencyCodes[row]),
+            durations[row],
+            quantities[row],
+            instructions[row],
+            textDictionary.decode(pharmacyCodes[row]),
+            statusDictionary.decode(statusCodes[row]),
+            decodeDate(row, COL_ISSUED, issueDates[row]),
+            decodeDate(row, COL_COLLECTED, collectionDates[row])
+        );
+    }
+
+    @Override
+    protected void moveRows(int from, int to, int count) {
+        System.arraycopy(prescriptionIds, from, prescriptionIds, to, count);
+        System.arraycopy(patientCodes, from, patientCodes, to, count);
+        System.arraycopy(clinicianCodes, from, clinicianCodes, to, count);
+        System.arraycopy(appointmentCodes, from, appointmentCodes, to, count);
+        System.arraycopy(prescribedDates, from, prescribedDates, to, count);
+        System.arraycopy(medicationCodes, from, medicationCodes, to, count);
+        System.arraycopy(dosageCodes, from, dosageCodes, to, count);
+        System.arraycopy(frequencyCodes, from, frequencyCodes, to, count);
+        System.arraycopy(durations, from, durations, to, count);
+        System.arraycopy(quantities, from, quantities, to, count);
+        System.arraycopy(instructions, from, instructions, to, count);
+        System.arraycopy(pharmacyCodes, from, pharmacyCodes, to, count);
+        System.arraycopy(statusCodes, from, statusCodes, to, count);
+        System.arraycopy(issueDates, from, issueDates, to, count);
+        System.arraycopy(collectionDates, from, collectionDates, to, count);
+    }
+
+    @Override
+    protected void releaseRow(int row) {
+        prescriptionIds[row] = null;
+        quantities[row] = null;
+        instructions[row] = null;
+    }
+
+    // ==================== COLUMN SCANS ====================
+
+    /**
+     * Row positions of prescriptions written between from and to (inclusive)
+     */
+    public int[] rowsBetween(LocalDate from, LocalDate to) {
+        int lo = (int) from.toEpochDay();
+        int hi = (int) to.toEpochDay();
+        int[] d = prescribedDates;
+        return IntStream.range(0, size).parallel().filter(i -> d[i] >= lo && d[i] <= hi).toArray();
+    }
+
+    /**
+     * Row positions of prescriptions with the given status
+     */
+    public int[] rowsWithStatus(String status) {
+        int code = statusDictionary.lookup(status);
+        if (code == StringDictionary.ABSENT_CODE) {
+            return new int[0];
+        }
+        int[] s = statusCodes;
+        return IntStream.range(0, size).parallel().filter(i -> s[i] == code).toArray();
+    }
+
+    /**
+     * Number of prescriptions per status
+     */
+    public Map<String, Integer> countByStatus() {
+        int[] counts = countCodes(statusCodes, statusDictionary.size());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(statusDictionary.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Number of prescriptions per medication
+     */
+    public Map<String, Integer> countByMedication() {
+        int[] counts = countCodes(medicationCodes, medicationDictionary.size());
+        Map<String, Integer> result = new TreeMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(medicationDictionary.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Total days of treatment prescribed per medication
+     */
+    public Map<String, Long> daysSuppliedByMedication() {
+        int n = medicationDictionary.size();
+        int[] m = medicationCodes;
+        int[] d = durations;
+        long[] totals = IntStream.range(0, size).parallel().collect(
+            () -> new long[n],
+            (acc, i) -> { if (m[i] >= 0) acc[m[i]] += d[i]; },
+            (a, b) -> { for (int k = 0; k < n; k++) a[k] += b[k]; }
+        );
+        Map<String, Long> result = new TreeMap<>();
+        for (int code = 0; code < n; code++) {
+            if (totals[code] > 0) {
+                result.put(medicationDictionary.decode(code), totals[code]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+
+/**
+ * Builds entities straight from the fields of a CSVReader.Parser record
+ *
+ * Made once per file from its header row: each schema column is looked up by
+ * name, so a file with the columns in another order, or with extra columns,
+ * loads the same. A file whose header names none of the columns is read by
+ * position. Integer and date cells are checked by hand rather than by
+ * catching parse exceptions; a malformed number takes the column default and
+ * a date that is not yyyy-MM-dd is kept as written (the models hold dates as
+ * text). Either is reported as a problem, but the row is still loaded.
+ */
+class RowDecoder<T> {
+    private final EntitySchema<T> schema;
+    private final EntitySchema.Column[] columns;
+    // Field of the file holding each schema column, -1 when the file lacks it
+    private final int[] positions;
+    // Schema columns that are INTEGER or DATE, the only ones that need checking
+    private final int[] typed;
+    // Fields a record needs to reach every column the file has
+    private final int required;
+    private final List<String> missing = new ArrayList<>();
+    private final FieldValues values;
+
+    /**
+     * Throws IllegalArgumentException when the header has no ID column
+     */
+    RowDecoder(EntitySchema<T> schema, String[] header) {
+        this.schema = schema;
+        this.columns = schema.getColumnDefinitions().toArray(new EntitySchema.Column[0]);
+        this.positions = new int[columns.length];
+
+        Map<String, Integer> fields = new HashMap<>();
+        for (int i = header.length - 1; i >= 0; i--) {
+            fields.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        boolean named = false;
+        for (int i = 0; i < columns.length; i++) {
+            Integer field = fields.get(columns[i].getName());
+            positions[i] = field == null ? -1 : field;
+            named |= field != null;
+        }
+        if (!named) {
+            for (int i = 0; i < columns.length; i++) {
+                positions[i] = i;
+            }
+        }
+        if (positions[0] < 0) {
+            throw new IllegalArgumentException("no " + schema.getIdColumn() + " column");
+        }
+
+        int last = -1;
+        List<Integer> typedColumns = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            last = Math.max(last, positions[i]);
+            if (positions[i] < 0) {
+                missing.add(columns[i].getName());
+            } else if (columns[i].getType() != EntitySchema.Column.Type.TEXT) {
+                typedColumns.add(i);
+            }
+        }
+        this.required = last + 1;
+        this.typed = typedColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.values = new FieldValues(columns, positions);
+    }
+
+    /**
+     * Schema columns the file does not have; they are left empty or take their default
+     */
+    List<String> getMissingColumns() {
+        return Collections.unmodifiableList(missing);
+    }
+
+    /**
+     * Entity from the parser's current record, or null when the record has to
+     * be left out; either way anything wrong with it is added to problems
+     */
+    T decode(CSVReader.Parser parser, List<CSVReader.RowError> problems) {
+        if (parser.getError() != null) {
+            problems.add(new CSVReader.RowError(parser.getLine(), parser.getError()));
+            return null;
+        }
+        if (parser.getFieldCount() < required) {
+            problems.add(new CSVReader.RowError(parser.getLine(),
+                "expected " + required + " values, found " + parser.getFieldCount()));
+            return null;
+        }
+        values.parser = parser;
+        for (int column : typed) {
+            String problem = check(columns[column], values.text(column));
+            if (problem != null) {
+                problems.add(new CSVReader.RowError(parser.getLine(), problem, false));
+            }
+        }
+        return schema.fromValues(values);
+    }
+
+    private static String check(EntitySchema.Column column, String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        switch (column.getType()) {
+            case INTEGER:
+                if (EntitySchema.parseInteger(value) == EntitySchema.NOT_AN_INTEGER) {
+                    return column.getName() + " is not a whole number: '" + value
+                        + "' (using " + column.getDefaultValue() + ")";
+                }
+                return null;
+            case DATE:
+                if (!isIsoDate(value)) {
+                    return column.getName() + " is not a yyyy-MM-dd date: '" + value + "' (kept as written)";
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * True for a real calendar day written yyyy-MM-dd; plain arithmetic, as it runs for every date cell
+     */
+    static boolean isIsoDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        int days = month == 2 ? (leap ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+        return day <= days;
+    }
+
+    private static int digits(String value, int start, int end) {
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * The parser's current record seen through the column positions
+     */
+    private static class FieldValues extends EntitySchema.Values {
+        private final int[] positions;
+        private CSVReader.Parser parser;
+
+        FieldValues(EntitySchema.Column[] columns, int[] positions) {
+            super(columns);
+            this.positions = positions;
+        }
+
+        @Override
+        public String text(int column) {
+            int field = positions[column];
+            return field < 0 ? "" : parser.getField(field);
+        }
+    }
+}
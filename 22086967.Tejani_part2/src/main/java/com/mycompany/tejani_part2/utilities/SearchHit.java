@@ -0,0 +1,33 @@
+package com.mycompany.tejani_part2.utilities;
+
+/**
+ * A single ranked result from the full-text search index
+ */
+public class SearchHit {
+    private final String entityType;
+    private final String entityId;
+    private final double score;
+
+    public SearchHit(String entityType, String entityId, double score) {
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.score = score;
+    }
+
+    public String getEntityType() {
+        return entityType;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return entityType + " " + entityId + String.format(" (%.2f)", score);
+    }
+}
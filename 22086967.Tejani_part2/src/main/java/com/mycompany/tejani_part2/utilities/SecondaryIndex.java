@@ -0,0 +1,109 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Secondary index from one field of an entity to the IDs of the rows holding
+ * that value, e.g. appointment status -> appointment IDs.
+ *
+ * Keys are kept sorted so the same index answers exact lookups and ranges
+ * (ISO dates sort correctly as strings). Rows are added and removed one at a
+ * time by DataManager as the table changes, under the table's lock; queries
+ * read without it, so the maps are concurrent ones.
+ */
+public class SecondaryIndex<T> {
+    private final Function<T, String> keyFunction;
+    private final Function<T, String> idFunction;
+    private final ConcurrentNavigableMap<String, Set<String>> idsByKey = new ConcurrentSkipListMap<>();
+
+    public SecondaryIndex(Function<T, String> keyFunction, Function<T, String> idFunction) {
+        this.keyFunction = keyFunction;
+        this.idFunction = idFunction;
+    }
+
+    public void add(T item) {
+        idsByKey.computeIfAbsent(keyOf(item), k -> ConcurrentHashMap.newKeySet()).add(idFunction.apply(item));
+    }
+
+    public void remove(T item) {
+        String key = keyOf(item);
+        Set<String> ids = idsByKey.get(key);
+        if (ids != null) {
+            ids.remove(idFunction.apply(item));
+            if (ids.isEmpty()) {
+                idsByKey.remove(key);
+            }
+        }
+    }
+
+    public void clear() {
+        idsByKey.clear();
+    }
+
+    /**
+     * IDs of rows whose key equals the given value (never null)
+     */
+    public Set<String> get(String key) {
+        Set<String> ids = idsByKey.get(key == null ? "" : key);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * IDs of rows whose key is between from and to inclusive; a null bound is open
+     */
+    public Set<String> range(String from, String to) {
+        Set<String> result = new HashSet<>();
+        for (Set<String> ids : slice(from, to).values()) {
+            result.addAll(ids);
+        }
+        return result;
+    }
+
+    /**
+     * Number of rows whose key is between from and to inclusive, without building the ID set
+     */
+    public int countRange(String from, String to) {
+        int count = 0;
+        for (Set<String> ids : slice(from, to).values()) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    /**
+     * Distinct key values, in sorted order
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(idsByKey.keySet());
+    }
+
+    /**
+     * The whole index as a sorted key -> IDs map, for walking keys in order
+     */
+    NavigableMap<String, Set<String>> asMap() {
+        return Collections.unmodifiableNavigableMap(idsByKey);
+    }
+
+    private SortedMap<String, Set<String>> slice(String from, String to) {
+        // Appending the smallest char makes the upper bound inclusive
+        if (from == null && to == null) {
+            return idsByKey;
+        } else if (from == null) {
+            return idsByKey.headMap(to + Character.MIN_VALUE);
+        } else if (to == null) {
+            return idsByKey.tailMap(from);
+        } else if (from.compareTo(to) > 0) {
+            return Collections.emptySortedMap();
+        }
+        return idsByKey.subMap(from, to + Character.MIN_VALUE);
+    }
+
+    private String keyOf(T item) {
+        String key = keyFunction.apply(item);
+        return key == null ? "" : key;
+    }
+}
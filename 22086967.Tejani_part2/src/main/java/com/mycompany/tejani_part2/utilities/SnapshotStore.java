@@ -0,0 +1,15 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.List;
+
+/**
+ * Row storage that takes its own point-in-time copies, for stores where
+ * copying every row out to the heap would defeat the point of the store
+ * (see EntityTable.snapshot())
+ */
+public interface SnapshotStore<T> extends List<T> {
+    /**
+     * Immutable copy of the rows as they are now; later writes to the store do not show in it
+     */
+    List<T> snapshot();
+}
@@ -0,0 +1,216 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Clinician;
+import com.mycompany.tejani_part2.models.Staff;
+import java.util.*;
+
+/**
+ * Org chart built from the staff line_manager column
+ *
+ * line_manager holds a name, not an ID, so each one is resolved once when the
+ * chart is built:
+ * - a titled name ("Dr. Susan Clarke", "Sister Mary Kelly") is looked up
+ *   among the clinicians first, then among the staff
+ * - an untitled name is looked up among the staff first (preferring someone at
+ *   the same facility), then among the clinicians
+ * - anything else is kept as an external manager with no ID
+ * Clinicians sit at the top of the chart; they have no line manager here.
+ * The chart is immutable; DataManager builds a new one when staff or
+ * clinicians change.
+ */
+public class StaffHierarchy {
+    public static final String STAFF = "Staff";
+    public static final String CLINICIAN = "Clinician";
+    public static final String EXTERNAL = "External";
+
+    private static final Set<String> TITLES = new HashSet<>(Arrays.asList(
+        "dr", "mr", "mrs", "ms", "miss", "prof", "professor", "sister", "nurse", "consultant"));
+
+    /**
+     * One person in the chart: a staff member, a clinician, or a named
+     * manager who is on neither list
+     */
+    public static class Person {
+        private final String type;
+        private final String id;
+        private final String name;
+
+        Person(String type, String id, String name) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+        }
+
+        public String getType() { return type; }
+        /** Staff or clinician ID; empty for an external manager */
+        public String getId() { return id; }
+        public String getName() { return name; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("type", type);
+            map.put("id", id);
+            map.put("name", name);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return id.isEmpty() ? name + " (" + type + ")" : id + " - " + name + " (" + type + ")";
+        }
+    }
+
+    private final Map<String, Person> managerByStaffId = new HashMap<>();
+    private final Map<String, List<String>> reportsByManagerId = new HashMap<>();
+    private final Map<String, String> facilityByStaffId = new HashMap<>();
+
+    public StaffHierarchy(Collection<Staff> staff, Collection<Clinician> clinicians) {
+        Map<String, List<Staff>> staffByName = new HashMap<>();
+        for (Staff s : staff) {
+            staffByName.computeIfAbsent(normalise(s.getFirstName() + " " + s.getLastName()),
+                k -> new ArrayList<>()).add(s);
+            facilityByStaffId.put(s.getStaffId(), s.getFacilityId());
+        }
+        Map<String, List<Clinician>> cliniciansByName = new HashMap<>();
+        for (Clinician c : clinicians) {
+            cliniciansByName.computeIfAbsent(normalise(c.getFirstName() + " " + c.getLastName()),
+                k -> new ArrayList<>()).add(c);
+        }
+
+        for (Staff s : staff) {
+            String lineManager = s.getLineManager() == null ? "" : s.getLineManager().trim();
+            if (lineManager.isEmpty()) {
+                continue;
+            }
+            Person manager = resolve(s, lineManager, staffByName, cliniciansByName);
+            managerByStaffId.put(s.getStaffId(), manager);
+            if (!manager.getId().isEmpty()) {
+                reportsByManagerId.computeIfAbsent(manager.getId(), k -> new ArrayList<>()).add(s.getStaffId());
+            }
+        }
+        for (List<String> reports : reportsByManagerId.values()) {
+            reports.sort(EntityTable.ID_ORDER);
+        }
+    }
+
+    // ==================== LOOKUPS ====================
+
+    /**
+     * Line manager of a staff member, or null when none is recorded
+     */
+    public Person getManager(String staffId) {
+        return managerByStaffId.get(staffId);
+    }
+
+    /**
+     * IDs of the staff who report directly to a staff member or clinician
+     */
+    public List<String> getDirectReports(String managerId) {
+        List<String> reports = reportsByManagerId.get(managerId);
+        return reports == null ? Collections.emptyList() : Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Managers above a staff member, nearest first, ending at a clinician, an
+     * external manager or someone with no manager. Stops if the chain loops.
+     */
+    public List<Person> getEscalationChain(String staffId) {
+        List<Person> chain = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        seen.add(staffId);
+        Person manager = managerByStaffId.get(staffId);
+        while (manager != null) {
+            chain.add(manager);
+            if (!STAFF.equals(manager.getType()) || !seen.add(manager.getId())) {
+                break;
+            }
+            manager = managerByStaffId.get(manager.getId());
+        }
+        return chain;
+    }
+
+    /**
+     * Staff whose line manager could not be matched to a staff member or clinician
+     */
+    public List<String> getExternallyManaged() {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, Person> entry : managerByStaffId.entrySet()) {
+            if (EXTERNAL.equals(entry.getValue().getType())) {
+                ids.add(entry.getKey());
+            }
+        }
+        ids.sort(EntityTable.ID_ORDER);
+        return ids;
+    }
+
+    // ==================== NAME MATCHING ====================
+
+    private Person resolve(Staff member, String lineManager, Map<String, List<Staff>> staffByName,
+                           Map<String, List<Clinician>> cliniciansByName) {
+        String[] words = normalise(lineManager).split(" ");
+        boolean titled = words.length > 2 && TITLES.contains(words[0]);
+        String name = titled ? String.join(" ", Arrays.copyOfRange(words, 1, words.length)) : String.join(" ", words);
+
+        Person staffMatch = matchStaff(member, staffByName.get(name));
+        Person clinicianMatch = matchClinician(cliniciansByName.get(name), titled ? words[0] : null);
+        if (titled && clinicianMatch != null) {
+            return clinicianMatch;
+        }
+        if (staffMatch != null) {
+            return staffMatch;
+        }
+        if (clinicianMatch != null) {
+            return clinicianMatch;
+        }
+        return new Person(EXTERNAL, "", lineManager);
+    }
+
+    /**
+     * Staff member with the name, preferring one at the same facility; never the member themselves
+     */
+    private static Person matchStaff(Staff member, List<Staff> candidates) {
+        if (candidates == null) {
+            return null;
+        }
+        Staff best = null;
+        for (Staff candidate : candidates) {
+            if (candidate.getStaffId().equals(member.getStaffId())) {
+                continue;
+            }
+            if (Objects.equals(candidate.getFacilityId(), member.getFacilityId())) {
+                best = candidate;
+                break;
+            }
+            if (best == null) {
+                best = candidate;
+            }
+        }
+        return best == null ? null : new Person(STAFF, best.getStaffId(), best.getFullName());
+    }
+
+    /**
+     * Clinician with the name, preferring one whose title matches
+     */
+    private static Person matchClinician(List<Clinician> candidates, String title) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        Clinician best = candidates.get(0);
+        if (title != null) {
+            for (Clinician candidate : candidates) {
+                if (normalise(candidate.getTitle()).equals(title)) {
+                    best = candidate;
+                    break;
+                }
+            }
+        }
+        return new Person(CLINICIAN, best.getClinicianId(), best.getFullName());
+    }
+
+    /**
+     * Lower case, no full stops, single spaces
+     */
+    private static String normalise(String name) {
+        return name == null ? "" : name.replace(".", " ").trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
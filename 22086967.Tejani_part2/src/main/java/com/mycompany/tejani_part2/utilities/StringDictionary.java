@@ -0,0 +1,50 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+
+/**
+ * Dictionary encoding for low-cardinality string columns (IDs, status, type)
+ * Each distinct value is stored once and rows hold a small int code instead
+ */
+final class StringDictionary {
+    static final int NULL_CODE = -1;
+    static final int ABSENT_CODE = -2;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Return the code for a value, adding it to the dictionary if new
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            values.add(value);
+            codes.put(value, code);
+        }
+        return code;
+    }
+
+    /**
+     * Return the code for a value without adding it (ABSENT_CODE if unknown)
+     */
+    int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : ABSENT_CODE;
+    }
+
+    String decode(int code) {
+        return code < 0 ? null : values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,447 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs EntityQuery objects against one EntityTable
+ *
+ * Equality and range filters on indexed fields become ID sets, intersected
+ * smallest first; everything else is a row-level check. Rows are then walked
+ * in order from the cursor and the walk stops as soon as the page is full:
+ * - ID order walks the table's sorted ID set (or sorts the candidate IDs
+ *   when the indexes have already narrowed them to a small set)
+ * - order by an indexed field walks that index's sorted keys
+ * - order by any other field sorts the matching IDs
+ * The last two cases sort on every page(), so paging through them costs a
+ * sort per page; stream() sorts once and walks the result.
+ */
+class TableQuery<T> {
+    // Separates the sort value from the ID in a cursor
+    private static final char CURSOR_SEPARATOR = '\u001f';
+    // Candidate sets smaller than 1/SORT_DIVISOR of the table are sorted rather than probed
+    private static final int SORT_DIVISOR = 8;
+
+    private final EntityTable<T> table;
+    private final String idField;
+    private final Map<String, Function<T, String>> fields;
+    private final Map<String, SecondaryIndex<T>> indexes;
+
+    TableQuery(EntityTable<T> table, String idField, Map<String, Function<T, String>> fields,
+               Map<String, SecondaryIndex<T>> indexes) {
+        this.table = table;
+        this.idField = idField;
+        this.fields = fields;
+        this.indexes = indexes;
+    }
+
+    // ==================== ENTRY POINTS ====================
+
+    Page<T> page(EntityQuery<T> query) {
+        return page(query, query.getAfter());
+    }
+
+    /**
+     * Every row matching the query's filters, streamed one page at a time
+     * (the query's limit is the page size). When the order needs a sort the
+     * matching IDs are sorted once up front and walked instead.
+     */
+    Stream<T> stream(EntityQuery<T> query) {
+        validate(query);
+        Filter filter = filter(query);
+        String orderField = orderField(query);
+        if (sortsIds(filter, orderField)) {
+            return sortedStream(filter, ids(filter, orderField, query.getAfter(), query.isDescending()));
+        }
+        Iterator<T> iterator = new Iterator<T>() {
+            private Iterator<T> current = Collections.emptyIterator();
+            private String cursor = query.getAfter();
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !done) {
+                    Page<T> page = page(query, cursor);
+                    current = page.getItems().iterator();
+                    cursor = page.getNextCursor();
+                    done = cursor == null;
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Every row of a snapshot (see EntityTable.snapshot) matching the query's
+     * filters; the limit is ignored. Only the given rows are read, never the
+     * table or its indexes, so the table may change while the stream is
+     * consumed. Bad filters throw here rather than during the stream.
+     *
+     * A query with no orderBy(), descending() or after() streams the rows in
+     * snapshot order, holding one row at a time. Otherwise the matching rows
+     * are sorted into the query's order, which holds all of them at once.
+     */
+    Stream<T> scan(List<T> rows, EntityQuery<T> query) {
+        validate(query);
+        Predicate<T> condition = rowFilter(query);
+        if (query.getOrderBy() == null && !query.isDescending() && query.getAfter() == null) {
+            return rows.stream().filter(condition);
+        }
+        String orderField = orderField(query);
+        Function<T, String> idOf = fields.get(idField);
+        Comparator<String> idOrder = query.isDescending() ? EntityTable.ID_ORDER.reversed() : EntityTable.ID_ORDER;
+        Comparator<T> order;
+        if (orderField == null) {
+            order = Comparator.comparing(idOf, idOrder);
+        } else {
+            Comparator<T> byValue = Comparator.comparing(item -> valueOf(item, orderField));
+            order = (query.isDescending() ? byValue.reversed() : byValue).thenComparing(idOf, idOrder);
+        }
+
+        String after = query.getAfter();
+        if (after != null && orderField == null) {
+            condition = condition.and(item -> idOrder.compare(idOf.apply(item), after) > 0);
+        } else if (after != null) {
+            int split = after.lastIndexOf(CURSOR_SEPARATOR);
+            String afterValue = split < 0 ? after : after.substring(0, split);
+            String afterId = split < 0 ? "" : after.substring(split + 1);
+            condition = condition.and(item -> {
+                int byValue = valueOf(item, orderField).compareTo(afterValue);
+                if (query.isDescending()) {
+                    byValue = -byValue;
+                }
+                return byValue > 0 || (byValue == 0 && idOrder.compare(idOf.apply(item), afterId) > 0);
+            });
+        }
+        return rows.stream().filter(condition).sorted(order);
+    }
+
+    /**
+     * The query's filters as a check on one row, for keeping a matchingIds() result current
+     */
+    Predicate<T> matcher(EntityQuery<T> query) {
+        validate(query);
+        return rowFilter(query);
+    }
+
+    /**
+     * IDs of every row matching the query's filters (ordering and paging are ignored)
+     */
+    Set<String> matchingIds(EntityQuery<T> query) {
+        validate(query);
+        Filter filter = filter(query);
+        Set<String> source = filter.candidates != null ? filter.candidates : table.ids();
+        if (filter.residual == null) {
+            return new HashSet<>(source);
+        }
+        Set<String> result = new HashSet<>();
+        for (String id : source) {
+            T item = table.getById(id);
+            if (item != null && filter.residual.test(item)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // ==================== PAGING ====================
+
+    private Page<T> page(EntityQuery<T> query, String after) {
+        validate(query);
+        Filter filter = filter(query);
+        String orderField = orderField(query);
+        Iterator<String> ids = ids(filter, orderField, after, query.isDescending());
+
+        int limit = query.getLimit();
+        List<T> items = new ArrayList<>(Math.min(limit, 1024));
+        String lastCursor = null;
+        while (ids.hasNext()) {
+            String id = ids.next();
+            T item = matchingRow(filter, id);
+            if (item == null) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new Page<>(items, lastCursor);
+            }
+            items.add(item);
+            lastCursor = orderField == null ? id : valueOf(item, orderField) + CURSOR_SEPARATOR + id;
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Rows of an already sorted ID list that pass the filter, read as the stream is consumed
+     */
+    private Stream<T> sortedStream(Filter filter, Iterator<String> ids) {
+        Iterator<T> iterator = new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && ids.hasNext()) {
+                    next = matchingRow(filter, ids.next());
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T item = next;
+                next = null;
+                return item;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * The row with this ID if it passes the filter, otherwise null
+     */
+    private T matchingRow(Filter filter, String id) {
+        if (filter.candidates != null && !filter.candidates.contains(id)) {
+            return null;
+        }
+        T item = table.getById(id);
+        if (item == null || (filter.residual != null && !filter.residual.test(item))) {
+            return null;
+        }
+        return item;
+    }
+
+    /**
+     * The field to order by, or null for ID order
+     */
+    private String orderField(EntityQuery<T> query) {
+        return query.getOrderBy() == null || query.getOrderBy().equals(idField) ? null : query.getOrderBy();
+    }
+
+    private Iterator<String> ids(Filter filter, String orderField, String after, boolean descending) {
+        return orderField == null
+            ? idOrder(filter.candidates, after, descending)
+            : fieldOrder(orderField, filter.candidates, after, descending);
+    }
+
+    /**
+     * Whether ids() sorts rather than walking an already sorted set
+     */
+    private boolean sortsIds(Filter filter, String orderField) {
+        return isSmall(filter.candidates) || (orderField != null && !indexes.containsKey(orderField));
+    }
+
+    private boolean isSmall(Set<String> candidates) {
+        return candidates != null && candidates.size() < table.size() / SORT_DIVISOR;
+    }
+
+    private Iterator<String> idOrder(Set<String> candidates, String after, boolean descending) {
+        Comparator<String> order = descending ? EntityTable.ID_ORDER.reversed() : EntityTable.ID_ORDER;
+        if (isSmall(candidates)) {
+            List<String> sorted = new ArrayList<>(candidates.size());
+            for (String id : candidates) {
+                if (after == null || order.compare(id, after) > 0) {
+                    sorted.add(id);
+                }
+            }
+            sorted.sort(order);
+            return sorted.iterator();
+        }
+        NavigableSet<String> ids = descending ? table.sortedIds().descendingSet() : table.sortedIds();
+        return (after == null ? ids : ids.tailSet(after, false)).iterator();
+    }
+
+    private Iterator<String> fieldOrder(String field, Set<String> candidates, String after, boolean descending) {
+        String afterValue = null;
+        String afterId = null;
+        if (after != null) {
+            int split = after.lastIndexOf(CURSOR_SEPARATOR);
+            afterValue = split < 0 ? after : after.substring(0, split);
+            afterId = split < 0 ? null : after.substring(split + 1);
+        }
+        Comparator<String> idOrder = descending ? EntityTable.ID_ORDER.reversed() : EntityTable.ID_ORDER;
+
+        SecondaryIndex<T> index = indexes.get(field);
+        if (index != null && !isSmall(candidates)) {
+            // Walk the index's keys in order; only the IDs within each key need sorting
+            NavigableMap<String, Set<String>> keys = descending ? index.asMap().descendingMap() : index.asMap();
+            if (afterValue != null) {
+                keys = keys.tailMap(afterValue, true);
+            }
+            String firstValue = afterValue;
+            String firstId = afterId;
+            return keys.entrySet().stream().flatMap(entry -> {
+                List<String> ids = new ArrayList<>(entry.getValue());
+                if (firstId != null && entry.getKey().equals(firstValue)) {
+                    ids.removeIf(id -> idOrder.compare(id, firstId) <= 0);
+                }
+                ids.sort(idOrder);
+                return ids.stream();
+            }).iterator();
+        }
+
+        // Unindexed ordering: sort the matching IDs by (value, ID) once
+        Comparator<String> valueOrder = Comparator.comparing(id -> valueOf(table.getById(id), field));
+        Comparator<String> order = (descending ? valueOrder.reversed() : valueOrder).thenComparing(idOrder);
+        List<String> sorted = new ArrayList<>(candidates != null ? candidates : table.ids());
+        if (afterValue != null) {
+            String cursorValue = afterValue;
+            String cursorId = afterId == null ? "" : afterId;
+            sorted.removeIf(id -> {
+                int byValue = valueOf(table.getById(id), field).compareTo(cursorValue);
+                if (descending) {
+                    byValue = -byValue;
+                }
+                return byValue < 0 || (byValue == 0 && idOrder.compare(id, cursorId) <= 0);
+            });
+        }
+        sorted.sort(order);
+        return sorted.iterator();
+    }
+
+    // ==================== FILTERS ====================
+
+    /**
+     * Index-backed candidate IDs (null when no indexed filter applies) plus the row-level remainder
+     */
+    private class Filter {
+        Set<String> candidates;
+        Predicate<T> residual;
+
+        void addResidual(Predicate<T> condition) {
+            residual = residual == null ? condition : residual.and(condition);
+        }
+    }
+
+    private Filter filter(EntityQuery<T> query) {
+        Filter filter = new Filter();
+        List<Set<String>> sets = new ArrayList<>();
+        for (Map.Entry<String, String> entry : query.getEqualTo().entrySet()) {
+            String field = entry.getKey();
+            String value = entry.getValue();
+            SecondaryIndex<T> index = indexes.get(field);
+            if (index != null) {
+                sets.add(index.get(value));
+            } else if (field.equals(idField)) {
+                sets.add(table.containsId(value) ? Collections.singleton(value) : Collections.emptySet());
+            } else {
+                filter.addResidual(item -> value.equals(valueOf(item, field)));
+            }
+        }
+
+        if (query.hasRange()) {
+            String field = query.getRangeField();
+            String from = query.getRangeFrom();
+            String to = query.getRangeTo();
+            SecondaryIndex<T> index = indexes.get(field);
+            int smallest = Integer.MAX_VALUE;
+            for (Set<String> ids : sets) {
+                smallest = Math.min(smallest, ids.size());
+            }
+            // Only materialise the range if no equality filter is narrower
+            if (index != null && index.countRange(from, to) < smallest) {
+                sets.add(index.range(from, to));
+            } else {
+                filter.addResidual(item -> inRange(valueOf(item, field), from, to));
+            }
+        }
+
+        if (query.getPredicate() != null) {
+            filter.addResidual(query.getPredicate());
+        }
+        if (!sets.isEmpty()) {
+            filter.candidates = intersect(sets);
+        }
+        return filter;
+    }
+
+    /**
+     * Every filter of the query as one row-level check, for rows that are not in the indexes
+     */
+    private Predicate<T> rowFilter(EntityQuery<T> query) {
+        Predicate<T> condition = item -> true;
+        for (Map.Entry<String, String> entry : query.getEqualTo().entrySet()) {
+            String field = entry.getKey();
+            String value = entry.getValue();
+            condition = condition.and(item -> value.equals(valueOf(item, field)));
+        }
+        if (query.hasRange()) {
+            String field = query.getRangeField();
+            String from = query.getRangeFrom();
+            String to = query.getRangeTo();
+            condition = condition.and(item -> inRange(valueOf(item, field), from, to));
+        }
+        if (query.getPredicate() != null) {
+            condition = condition.and(query.getPredicate());
+        }
+        return condition;
+    }
+
+    /**
+     * IDs of the smallest set that appear in every other set
+     */
+    private static Set<String> intersect(List<Set<String>> sets) {
+        Set<String> smallest = sets.get(0);
+        for (Set<String> ids : sets) {
+            if (ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        if (sets.size() == 1) {
+            return smallest;
+        }
+        Set<String> result = new HashSet<>();
+        outer:
+        for (String id : smallest) {
+            for (Set<String> ids : sets) {
+                if (ids != smallest && !ids.contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    private void validate(EntityQuery<T> query) {
+        for (String field : query.getEqualTo().keySet()) {
+            checkField(field);
+        }
+        if (query.hasRange()) {
+            checkField(query.getRangeField());
+        }
+        if (query.getOrderBy() != null) {
+            checkField(query.getOrderBy());
+        }
+    }
+
+    private void checkField(String field) {
+        if (!fields.containsKey(field)) {
+            throw new IllegalArgumentException("Unknown field: " + field + " (expected one of " + fields.keySet() + ")");
+        }
+    }
+
+    private String valueOf(T item, String field) {
+        String value = fields.get(field).apply(item);
+        return value == null ? "" : value;
+    }
+
+    private static boolean inRange(String value, String from, String to) {
+        return (from == null || value.compareTo(from) >= 0) && (to == null || value.compareTo(to) <= 0);
+    }
+}
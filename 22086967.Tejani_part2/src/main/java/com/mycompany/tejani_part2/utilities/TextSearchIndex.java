@@ -0,0 +1,361 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.util.*;
+
+/**
+ * In-process inverted index over clinical free text
+ * (referral summaries/reasons/notes, appointment reasons/notes and
+ * prescription instructions).
+ *
+ * Documents are keyed by entity type and ID and are maintained incrementally:
+ * index() replaces a document and remove() drops it. Each term keeps a
+ * postings list of documents with token positions so that phrase queries can
+ * be answered without re-reading the text. Results are ranked with BM25.
+ *
+ * Query syntax: words are ANDed, "quoted text" is a phrase, -word or
+ * -"phrase" excludes, and OR separates alternative groups of terms.
+ */
+public class TextSearchIndex {
+    public static final String APPOINTMENT = "Appointment";
+    public static final String PRESCRIPTION = "Prescription";
+    public static final String REFERRAL = "Referral";
+
+    // Gap between fields so that phrases never match across two fields
+    private static final int FIELD_GAP = 16;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Integer> docIdsByKey = new HashMap<>();
+    private final List<String> docKeys = new ArrayList<>();
+    private final List<String[]> docTerms = new ArrayList<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+    private int[] docLengths = new int[64];
+    private final Map<String, Map<Integer, int[]>> postings = new HashMap<>();
+    private long totalLength;
+
+    // ==================== MAINTENANCE ====================
+
+    /**
+     * Add or replace the document for an entity
+     */
+    public synchronized void index(String entityType, String entityId, String... fields) {
+        String key = entityType + ":" + entityId;
+        removeKey(key);
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        int position = 0;
+        for (String field : fields) {
+            if (field == null || field.isEmpty()) {
+                continue;
+            }
+            for (String token : tokenize(field)) {
+                positions.computeIfAbsent(token, t -> new ArrayList<>()).add(position++);
+            }
+            position += FIELD_GAP;
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        int docId = allocateDocId(key);
+        int length = 0;
+        String[] terms = positions.keySet().toArray(new String[0]);
+        for (String term : terms) {
+            List<Integer> list = positions.get(term);
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            length += array.length;
+            postings.computeIfAbsent(term, t -> new HashMap<>()).put(docId, array);
+        }
+        docTerms.set(docId, terms);
+        docLengths[docId] = length;
+        totalLength += length;
+    }
+
+    /**
+     * Remove the document for an entity, if indexed
+     */
+    public synchronized void remove(String entityType, String entityId) {
+        removeKey(entityType + ":" + entityId);
+    }
+
+    /**
+     * Remove every document of one entity type (used before a full reload)
+     */
+    public synchronized void removeAll(String entityType) {
+        String prefix = entityType + ":";
+        List<String> keys = new ArrayList<>();
+        for (String key : docIdsByKey.keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            removeKey(key);
+        }
+    }
+
+    public synchronized int size() {
+        return docIdsByKey.size();
+    }
+
+    private int allocateDocId(String key) {
+        int docId;
+        if (!freeDocIds.isEmpty()) {
+            docId = freeDocIds.pop();
+            docKeys.set(docId, key);
+        } else {
+            docId = docKeys.size();
+            docKeys.add(key);
+            docTerms.add(null);
+            if (docId >= docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, docLengths.length * 2);
+            }
+        }
+        docIdsByKey.put(key, docId);
+        return docId;
+    }
+
+    private void removeKey(String key) {
+        Integer docId = docIdsByKey.remove(key);
+        if (docId == null) {
+            return;
+        }
+        for (String term : docTerms.get(docId)) {
+            Map<Integer, int[]> list = postings.get(term);
+            if (list != null) {
+                list.remove(docId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= docLengths[docId];
+        docLengths[docId] = 0;
+        docTerms.set(docId, null);
+        docKeys.set(docId, null);
+        freeDocIds.push(docId);
+    }
+
+    // ==================== QUERYING ====================
+
+    /**
+     * Run a query and return up to limit hits, best first
+     */
+    public synchronized List<SearchHit> search(String query, int limit) {
+        Map<Integer, Double> scores = new HashMap<>();
+        for (List<Clause> group : parseQuery(query)) {
+            evaluateGroup(group, scores);
+        }
+
+        PriorityQueue<Map.Entry<Integer, Double>> top =
+            new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Map.Entry<Integer, Double> entry = top.poll();
+            String key = docKeys.get(entry.getKey());
+            int colon = key.indexOf(':');
+            hits.add(new SearchHit(key.substring(0, colon), key.substring(colon + 1), entry.getValue()));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private void evaluateGroup(List<Clause> group, Map<Integer, Double> scores) {
+        List<Clause> positive = new ArrayList<>();
+        List<Clause> negative = new ArrayList<>();
+        for (Clause clause : group) {
+            (clause.negated ? negative : positive).add(clause);
+        }
+        if (positive.isEmpty()) {
+            return;
+        }
+
+        // Intersect starting from the rarest clause so the candidate set stays small
+        positive.sort(Comparator.comparingInt(this::estimate));
+        Set<Integer> candidates = null;
+        for (Clause clause : positive) {
+            Set<Integer> matches = matchingDocs(clause, candidates);
+            candidates = matches;
+            if (candidates.isEmpty()) {
+                return;
+            }
+        }
+        for (Clause clause : negative) {
+            candidates.removeAll(matchingDocs(clause, candidates));
+        }
+
+        double averageLength = docIdsByKey.isEmpty() ? 1 : (double) totalLength / docIdsByKey.size();
+        for (int docId : candidates) {
+            double score = 0;
+            for (Clause clause : positive) {
+                for (String term : clause.terms) {
+                    score += bm25(term, docId, averageLength);
+                }
+            }
+            scores.merge(docId, score, Double::sum);
+        }
+    }
+
+    private int estimate(Clause clause) {
+        int smallest = Integer.MAX_VALUE;
+        for (String term : clause.terms) {
+            Map<Integer, int[]> list = postings.get(term);
+            smallest = Math.min(smallest, list == null ? 0 : list.size());
+        }
+        return smallest;
+    }
+
+    /**
+     * Documents matching a term or phrase, restricted to candidates when given
+     */
+    private Set<Integer> matchingDocs(Clause clause, Set<Integer> candidates) {
+        Map<Integer, int[]> first = postings.get(clause.terms[0]);
+        if (first == null) {
+            return new HashSet<>();
+        }
+        Set<Integer> result = new HashSet<>();
+        Collection<Integer> source = candidates != null && candidates.size() < first.size()
+            ? candidates : first.keySet();
+        for (int docId : source) {
+            int[] starts = first.get(docId);
+            if (starts == null || (candidates != null && !candidates.contains(docId))) {
+                continue;
+            }
+            if (clause.terms.length == 1 || containsPhrase(clause.terms, docId, starts)) {
+                result.add(docId);
+            }
+        }
+        return result;
+    }
+
+    private boolean containsPhrase(String[] terms, int docId, int[] starts) {
+        int[][] following = new int[terms.length][];
+        for (int i = 1; i < terms.length; i++) {
+            Map<Integer, int[]> list = postings.get(terms[i]);
+            following[i] = list == null ? null : list.get(docId);
+            if (following[i] == null) {
+                return false;
+            }
+        }
+        for (int start : starts) {
+            boolean match = true;
+            for (int i = 1; i < terms.length && match; i++) {
+                match = Arrays.binarySearch(following[i], start + i) >= 0;
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double bm25(String term, int docId, double averageLength) {
+        Map<Integer, int[]> list = postings.get(term);
+        if (list == null) {
+            return 0;
+        }
+        int[] positions = list.get(docId);
+        if (positions == null) {
+            return 0;
+        }
+        int documents = docIdsByKey.size();
+        double idf = Math.log(1 + (documents - list.size() + 0.5) / (list.size() + 0.5));
+        double tf = positions.length;
+        double norm = K1 * (1 - B + B * docLengths[docId] / averageLength);
+        return idf * (tf * (K1 + 1)) / (tf + norm);
+    }
+
+    // ==================== PARSING ====================
+
+    private static class Clause {
+        final String[] terms;
+        final boolean negated;
+
+        Clause(String[] terms, boolean negated) {
+            this.terms = terms;
+            this.negated = negated;
+        }
+    }
+
+    private static List<List<Clause>> parseQuery(String query) {
+        List<List<Clause>> groups = new ArrayList<>();
+        List<Clause> current = new ArrayList<>();
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            boolean negated = false;
+            if (c == '-' && i + 1 < n && !Character.isWhitespace(query.charAt(i + 1))) {
+                negated = true;
+                i++;
+                c = query.charAt(i);
+            }
+            String text;
+            if (c == '"') {
+                int close = query.indexOf('"', i + 1);
+                if (close < 0) {
+                    close = n;
+                }
+                text = query.substring(i + 1, close);
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < n && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                text = query.substring(i, end);
+                i = end;
+                if (!negated && text.equals("OR")) {
+                    if (!current.isEmpty()) {
+                        groups.add(current);
+                        current = new ArrayList<>();
+                    }
+                    continue;
+                }
+                if (!negated && text.equals("AND")) {
+                    continue;
+                }
+            }
+            List<String> terms = tokenize(text);
+            if (!terms.isEmpty()) {
+                current.add(new Clause(terms.toArray(new String[0]), negated));
+            }
+        }
+        if (!current.isEmpty()) {
+            groups.add(current);
+        }
+        return groups;
+    }
+
+    /**
+     * Split text into lower-case alphanumeric tokens
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
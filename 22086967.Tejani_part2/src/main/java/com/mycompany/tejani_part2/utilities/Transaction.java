@@ -0,0 +1,325 @@
+package com.mycompany.tejani_part2.utilities;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A group of row changes across tables that are stored together or not at all
+ *
+ * Changes are staged in the transaction and nobody else sees them until
+ * commit(). Rows read through get() keep the version they had when first
+ * read, so the transaction works on one consistent view of them. commit()
+ * checks that none of the rows it read or changed has been changed since
+ * (UpdateConflictException if one has), applies the changes, then writes the
+ * whole change set to the commit log in one append. It holds the lock of
+ * every table it touched from the check to the log write, and every other
+ * writer takes its table's lock, so no direct write lands in between; adds
+ * also fail if the ID has appeared and deletes if the row has changed. If
+ * applying or logging fails, the rows already applied are put back.
+ * DataManager.snapshot() waits for a commit in progress, so a snapshot holds
+ * all of a transaction or none of it.
+ *
+ * Open one with DataManager.beginTransaction() and use it from one thread;
+ * close() rolls back anything not committed, so try-with-resources works.
+ */
+public class Transaction implements AutoCloseable {
+    private enum State { OPEN, COMMITTED, ROLLED_BACK }
+
+    /**
+     * A row the transaction has touched: its version and value when first
+     * read, and the value it will have after commit (null means absent)
+     */
+    private static class Row<T> {
+        final EntitySchema<T> schema;
+        final String id;
+        final long version;
+        final T before;
+        T after;
+        boolean written;
+
+        Row(EntitySchema<T> schema, String id, long version, T before) {
+            this.schema = schema;
+            this.id = id;
+            this.version = version;
+            this.before = before;
+            this.after = before;
+        }
+    }
+
+    private final DataManager data;
+    private final Map<String, Row<?>> rows = new HashMap<>();
+    private final List<Row<?>> written = new ArrayList<>();
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private final List<Runnable> onRollback = new ArrayList<>();
+    // IDs from newId(), held until the transaction ends
+    private final List<Runnable> allocatedIds = new ArrayList<>();
+    private State state = State.OPEN;
+
+    Transaction(DataManager data) {
+        this.data = data;
+    }
+
+    // ==================== READS AND WRITES ====================
+
+    /**
+     * The row as this transaction sees it: its own change if it made one,
+     * otherwise the row as first read; null when there is no such row
+     */
+    public <T> T get(EntitySchema<T> schema, String id) {
+        return row(schema, id).after;
+    }
+
+    public <T> void add(EntitySchema<T> schema, T item) {
+        data.checkWritable(schema);
+        Row<T> row = row(schema, data.idOf(schema, item));
+        if (row.after != null) {
+            throw new IllegalArgumentException(schema.getName() + " " + row.id + " already exists");
+        }
+        write(row, item);
+    }
+
+    public <T> void update(EntitySchema<T> schema, String id, T item) {
+        data.checkWritable(schema);
+        Row<T> row = row(schema, id);
+        if (row.after == null) {
+            throw new IllegalArgumentException("No " + schema.getName() + " with ID " + id);
+        }
+        write(row, item);
+    }
+
+    /**
+     * Delete a row; returns false when there was none to delete
+     */
+    public <T> boolean delete(EntitySchema<T> schema, String id) {
+        data.checkWritable(schema);
+        Row<T> row = row(schema, id);
+        if (row.after == null) {
+            return false;
+        }
+        write(row, null);
+        return true;
+    }
+
+    /**
+     * A free ID for a new row of the schema (prefix plus number, e.g. "R042"),
+     * which no other caller is given until this transaction commits or rolls back
+     */
+    public String newId(EntitySchema<?> schema, String prefix) {
+        checkOpen();
+        String id = data.allocateId(schema, prefix);
+        allocatedIds.add(() -> data.releaseId(schema, id));
+        return id;
+    }
+
+    /**
+     * Run an action once the transaction has committed, e.g. sending a notification
+     */
+    public void afterCommit(Runnable action) {
+        checkOpen();
+        afterCommit.add(action);
+    }
+
+    /**
+     * Run an action if the transaction rolls back, to undo something done
+     * outside the tables such as writing a file
+     */
+    public void onRollback(Runnable action) {
+        checkOpen();
+        onRollback.add(action);
+    }
+
+    // ==================== COMMIT AND ROLLBACK ====================
+
+    /**
+     * Store every change, or none of them. Throws UpdateConflictException
+     * when a row this transaction read or changed has been changed by someone
+     * else, and IOException when the commit log cannot be written; either way
+     * the transaction is rolled back.
+     */
+    public void commit() throws IOException {
+        checkOpen();
+        try {
+            synchronized (data.commitLock()) {
+                try {
+                    store(touchedTables(), 0);
+                } finally {
+                    // Stored rows now hold their IDs; rolled-back ones give them up
+                    releaseIds();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            rollback();
+            throw e;
+        }
+        state = State.COMMITTED;
+        for (Runnable action : afterCommit) {
+            action.run();
+        }
+    }
+
+    /**
+     * Every table this transaction read or wrote, always in EntitySchema.ALL
+     * order so that two commits never take the locks the other way round
+     */
+    private List<EntityTable<?>> touchedTables() {
+        Set<EntitySchema<?>> touched = new HashSet<>();
+        for (Row<?> row : rows.values()) {
+            touched.add(row.schema);
+        }
+        List<EntityTable<?>> tables = new ArrayList<>();
+        for (EntitySchema<?> schema : EntitySchema.ALL) {
+            if (touched.contains(schema)) {
+                tables.add(data.tableFor(schema));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * store() while holding the lock of every table from index on
+     */
+    private void store(List<EntityTable<?>> tables, int index) throws IOException {
+        if (index == tables.size()) {
+            store();
+            return;
+        }
+        synchronized (tables.get(index)) {
+            store(tables, index + 1);
+        }
+    }
+
+    /**
+     * Check versions, apply the changes and log them; on failure put back the
+     * rows already applied before the commit lock is released
+     */
+    private void store() throws IOException {
+        Deque<Runnable> undo = new ArrayDeque<>();
+        try {
+            for (Row<?> row : rows.values()) {
+                long current = data.getVersion(row.schema, row.id);
+                if (current != row.version) {
+                    throw new UpdateConflictException(row.id, row.version, current);
+                }
+            }
+            for (Row<?> row : written) {
+                apply(row, undo);
+            }
+            CommitLog log = data.getCommitLog();
+            if (log != null && !undo.isEmpty()) {
+                log.append(describeWrites());
+            }
+        } catch (IOException | RuntimeException e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Discard every staged change; nothing happens if already committed or rolled back
+     */
+    public void rollback() {
+        if (state != State.OPEN) {
+            return;
+        }
+        state = State.ROLLED_BACK;
+        releaseIds();
+        for (int i = onRollback.size() - 1; i >= 0; i--) {
+            onRollback.get(i).run();
+        }
+    }
+
+    public boolean isCommitted() {
+        return state == State.COMMITTED;
+    }
+
+    @Override
+    public void close() {
+        rollback();
+    }
+
+    // ==================== HELPERS ====================
+
+    @SuppressWarnings("unchecked")
+    private <T> Row<T> row(EntitySchema<T> schema, String id) {
+        checkOpen();
+        String key = schema.getName() + "/" + id;
+        Row<T> row = (Row<T>) rows.get(key);
+        if (row == null) {
+            // Read the row and its version as one pair, retrying if a write lands in between
+            EntityTable<T> table = data.tableFor(schema);
+            long version;
+            T value;
+            do {
+                version = table.getVersion(id);
+                value = table.getById(id);
+            } while (version != table.getVersion(id));
+            row = new Row<>(schema, id, version, value);
+            rows.put(key, row);
+        }
+        return row;
+    }
+
+    private void releaseIds() {
+        for (Runnable release : allocatedIds) {
+            release.run();
+        }
+        allocatedIds.clear();
+    }
+
+    private <T> void write(Row<T> row, T after) {
+        if (!row.written) {
+            row.written = true;
+            written.add(row);
+        }
+        row.after = after;
+    }
+
+    private <T> void apply(Row<T> row, Deque<Runnable> undo) {
+        if (row.before == null && row.after == null) {
+            return;
+        }
+        if (row.before == null) {
+            data.insertRow(row.schema, row.after);
+            undo.push(() -> data.removeRow(row.schema, row.id));
+        } else if (row.after == null) {
+            data.removeRow(row.schema, row.id, row.version);
+            undo.push(() -> data.insertRow(row.schema, row.before));
+        } else {
+            data.replaceRow(row.schema, row.id, row.after, row.version);
+            undo.push(() -> data.replaceRow(row.schema, row.id, row.before, DataManager.ANY_VERSION));
+        }
+    }
+
+    private List<Map<String, Object>> describeWrites() {
+        List<Map<String, Object>> writes = new ArrayList<>();
+        for (Row<?> row : written) {
+            Map<String, Object> write = describe(row);
+            if (write != null) {
+                writes.add(write);
+            }
+        }
+        return writes;
+    }
+
+    private <T> Map<String, Object> describe(Row<T> row) {
+        if (row.before == null && row.after == null) {
+            return null;
+        }
+        Map<String, Object> write = new LinkedHashMap<>();
+        write.put("op", row.before == null ? "add" : row.after == null ? "delete" : "update");
+        write.put("entity", row.schema.getName());
+        write.put("id", row.id);
+        if (row.after != null) {
+            write.put("row", row.schema.toMap(row.after));
+        }
+        return write;
+    }
+
+    private void checkOpen() {
+        if (state != State.OPEN) {
+            throw new IllegalStateException("Transaction is already " + (isCommitted() ? "committed" : "rolled back"));
+        }
+    }
+}
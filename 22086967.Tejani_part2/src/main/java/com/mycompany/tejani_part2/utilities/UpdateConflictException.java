@@ -0,0 +1,26 @@
+package com.mycompany.tejani_part2.utilities;
+
+/**
+ * Thrown by a versioned update when the row has changed since the caller
+ * read it; the caller should re-read the row and apply its change again
+ */
+public class UpdateConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final long expectedVersion;
+    private final long currentVersion;
+
+    public UpdateConflictException(String id, long expectedVersion, long currentVersion) {
+        super(id + " was changed by someone else (version " + currentVersion
+            + ", expected " + expectedVersion + ")");
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public String getId() { return id; }
+    public long getExpectedVersion() { return expectedVersion; }
+    /** Version of the row now, or 0 when it has been deleted */
+    public long getCurrentVersion() { return currentVersion; }
+}
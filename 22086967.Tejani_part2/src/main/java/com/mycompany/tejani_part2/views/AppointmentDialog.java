@@ -1,6 +1,8 @@
 package com.mycompany.tejani_part2.views;
 import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.controllers.*;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.UpdateConflictException;
 import javax.swing.*;
 import java.awt.*;
 import java.text.SimpleDateFormat;
@@ -10,14 +12,17 @@ import java.util.Date;
  * Dialog for adding/editing appointments
  */
 public class AppointmentDialog extends JDialog {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     private Appointment existingAppointment;
-    private int editIndex;
+    // Version the dialog was opened at, checked when saving
+    private long existingVersion;
     
     private JTextField idField;
-    private JComboBox<String> patientBox;
-    private JComboBox<String> clinicianBox;
-    private JComboBox<String> facilityBox;
+    private EntityPicker<Patient> patientPicker;
+    private EntityPicker<Clinician> clinicianPicker;
+    private EntityPicker<Facility> facilityPicker;
     private JTextField dateField;
     private JTextField timeField;
     private JSpinner durationSpinner;
@@ -28,11 +33,11 @@ public class AppointmentDialog extends JDialog {
     private JTextField createdDateField;
     
     public AppointmentDialog(JFrame parent, HealthcareController controller, 
-                            Appointment appointment, int index) {
+                            Appointment appointment) {
         super(parent, appointment == null ? "Add Appointment" : "Edit Appointment", true);
         this.controller = controller;
         this.existingAppointment = appointment;
-        this.editIndex = index;
+        this.existingVersion = appointment == null ? 0 : controller.getVersion(EntitySchema.APPOINTMENTS, appointment.getAppointmentId());
         
         setSize(550, 600);
         setLocationRelativeTo(parent);
@@ -59,21 +64,13 @@ public class AppointmentDialog extends JDialog {
         idField = new JTextField(20);
         idField.setEditable(false);
         
-        // Populate combo boxes
-        patientBox = new JComboBox<>();
-        for (Patient p : controller.getAllPatients()) {
-            patientBox.addItem(p.toString());
-        }
-        
-        clinicianBox = new JComboBox<>();
-        for (Clinician c : controller.getAllClinicians()) {
-            clinicianBox.addItem(c.toString());
-        }
-        
-        facilityBox = new JComboBox<>();
-        for (Facility f : controller.getAllFacilities()) {
-            facilityBox.addItem(f.toString());
-        }
+        // Entity pickers read lazily from the controller's lists
+        patientPicker = new EntityPicker<>(controller::getAllPatients, Patient::getPatientId,
+            controller::getPatientById, query -> controller.searchPatients(query, 50));
+        clinicianPicker = new EntityPicker<>(controller::getAllClinicians, Clinician::getClinicianId,
+            controller::getClinicianById);
+        facilityPicker = new EntityPicker<>(controller::getAllFacilities, Facility::getFacilityId,
+            controller::getFacilityById);
         
         dateField = new JTextField(20);
         timeField = new JTextField(20);
@@ -101,9 +98,9 @@ public class AppointmentDialog extends JDialog {
         int row = 0;
         
         addField(mainPanel, gbc, "Appointment ID:", idField, row++);
-        addField(mainPanel, gbc, "Patient:", patientBox, row++);
-        addField(mainPanel, gbc, "Clinician:", clinicianBox, row++);
-        addField(mainPanel, gbc, "Facility:", facilityBox, row++);
+        addField(mainPanel, gbc, "Patient:", patientPicker, row++);
+        addField(mainPanel, gbc, "Clinician:", clinicianPicker, row++);
+        addField(mainPanel, gbc, "Facility:", facilityPicker, row++);
         addField(mainPanel, gbc, "Date (YYYY-MM-DD):", dateField, row++);
         addField(mainPanel, gbc, "Time (HH:MM):", timeField, row++);
         addField(mainPanel, gbc, "Duration (minutes):", durationSpinner, row++);
@@ -154,29 +151,9 @@ public class AppointmentDialog extends JDialog {
     private void populateFields(Appointment appointment) {
         idField.setText(appointment.getAppointmentId());
         
-        // Find and select patient
-        for (int i = 0; i < patientBox.getItemCount(); i++) {
-            if (patientBox.getItemAt(i).startsWith(appointment.getPatientId())) {
-                patientBox.setSelectedIndex(i);
-                break;
-            }
-        }
-        
-        // Find and select clinician
-        for (int i = 0; i < clinicianBox.getItemCount(); i++) {
-            if (clinicianBox.getItemAt(i).startsWith(appointment.getClinicianId())) {
-                clinicianBox.setSelectedIndex(i);
-                break;
-            }
-        }
-        
-        // Find and select facility
-        for (int i = 0; i < facilityBox.getItemCount(); i++) {
-            if (facilityBox.getItemAt(i).startsWith(appointment.getFacilityId())) {
-                facilityBox.setSelectedIndex(i);
-                break;
-            }
-        }
+        patientPicker.selectById(appointment.getPatientId());
+        clinicianPicker.selectById(appointment.getClinicianId());
+        facilityPicker.selectById(appointment.getFacilityId());
         
         dateField.setText(appointment.getAppointmentDate());
         timeField.setText(appointment.getAppointmentTime());
@@ -197,10 +174,15 @@ public class AppointmentDialog extends JDialog {
             return;
         }
         
-        // Extract IDs from combo box selections
-        String patientId = patientBox.getSelectedItem().toString().split(" - ")[0];
-        String clinicianId = clinicianBox.getSelectedItem().toString().split(" - ")[0];
-        String facilityId = facilityBox.getSelectedItem().toString().split(" - ")[0];
+        String patientId = patientPicker.getSelectedId();
+        String clinicianId = clinicianPicker.getSelectedId();
+        String facilityId = facilityPicker.getSelectedId();
+        if (patientId == null || clinicianId == null || facilityId == null) {
+            JOptionPane.showMessageDialog(this, 
+                "Patient, Clinician and Facility are required!", 
+                "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         // Create appointment object
         String currentDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
@@ -225,7 +207,15 @@ public class AppointmentDialog extends JDialog {
             controller.addAppointment(appointment);
             JOptionPane.showMessageDialog(this, "Appointment added successfully!");
         } else {
-            controller.updateAppointment(editIndex, appointment);
+            try {
+                controller.updateAppointment(existingAppointment.getAppointmentId(), appointment, existingVersion);
+            } catch (UpdateConflictException e) {
+                JOptionPane.showMessageDialog(this,
+                    "This appointment was changed by someone else while you were editing.\n" +
+                    "Close this dialog and open it again to see the latest details.",
+                    "Update Conflict", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Appointment updated successfully!");
         }
         
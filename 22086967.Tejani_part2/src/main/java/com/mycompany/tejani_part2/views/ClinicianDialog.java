@@ -1,6 +1,8 @@
 package com.mycompany.tejani_part2.views;
 import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.controllers.*;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.UpdateConflictException;
 import javax.swing.*;
 import java.awt.*;
 import java.text.SimpleDateFormat;
@@ -10,9 +12,12 @@ import java.util.Date;
  * Dialog for adding/editing clinicians
  */
 public class ClinicianDialog extends JDialog {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     private Clinician existingClinician;
-    private int editIndex;
+    // Version the dialog was opened at, checked when saving
+    private long existingVersion;
     
     private JTextField idField;
     private JTextField firstNameField;
@@ -28,11 +33,11 @@ public class ClinicianDialog extends JDialog {
     private JTextField startDateField;
     
     public ClinicianDialog(JFrame parent, HealthcareController controller, 
-                          Clinician clinician, int index) {
+                          Clinician clinician) {
         super(parent, clinician == null ? "Add Clinician" : "Edit Clinician", true);
         this.controller = controller;
         this.existingClinician = clinician;
-        this.editIndex = index;
+        this.existingVersion = clinician == null ? 0 : controller.getVersion(EntitySchema.CLINICIANS, clinician.getClinicianId());
         
         setSize(500, 550);
         setLocationRelativeTo(parent);
@@ -159,7 +164,15 @@ public class ClinicianDialog extends JDialog {
             controller.addClinician(clinician);
             JOptionPane.showMessageDialog(this, "Clinician added successfully!");
         } else {
-            controller.updateClinician(editIndex, clinician);
+            try {
+                controller.updateClinician(existingClinician.getClinicianId(), clinician, existingVersion);
+            } catch (UpdateConflictException e) {
+                JOptionPane.showMessageDialog(this,
+                    "This clinician was changed by someone else while you were editing.\n" +
+                    "Close this dialog and open it again to see the latest details.",
+                    "Update Conflict", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Clinician updated successfully!");
         }
         
@@ -0,0 +1,105 @@
+package com.mycompany.tejani_part2.views;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shared picker for choosing a patient, clinician or facility in the dialogs
+ *
+ * The drop-down reads lazily from the entity list (no per-entity work when the
+ * dialog opens), reselecting by ID goes through the controller's primary-key
+ * lookup, and an optional search box swaps the drop-down contents for ranked
+ * type-ahead results.
+ */
+public class EntityPicker<T> extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SEARCH_DELAY_MS = 150;
+    private static final int SEARCH_FIELD_COLUMNS = 8;
+
+    private final LazyEntityComboBoxModel<T> model;
+    private final JComboBox<T> comboBox;
+    private final Function<T, String> idFunction;
+    private final Function<String, T> lookup;
+
+    public EntityPicker(Supplier<List<T>> source, Function<T, String> idFunction,
+                        Function<String, T> lookup) {
+        this(source, idFunction, lookup, null);
+    }
+
+    public EntityPicker(Supplier<List<T>> source, Function<T, String> idFunction,
+                        Function<String, T> lookup, Function<String, List<T>> search) {
+        super(new BorderLayout(5, 0));
+        this.idFunction = idFunction;
+        this.lookup = lookup;
+
+        model = new LazyEntityComboBoxModel<>(source);
+        comboBox = new JComboBox<>(model);
+        if (model.getSize() > 0) {
+            // A prototype stops Swing measuring every item to size the box and popup list
+            T first = model.getElementAt(0);
+            comboBox.setPrototypeDisplayValue(first);
+            model.setSelectedItem(first);
+        }
+
+        if (search != null) {
+            JTextField searchField = new JTextField(SEARCH_FIELD_COLUMNS);
+            searchField.setToolTipText("Type to search");
+
+            Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch(searchField.getText(), search));
+            searchTimer.setRepeats(false);
+            searchField.getDocument().addDocumentListener(new DocumentListener() {
+                @Override public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+                @Override public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+                @Override public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+            });
+            add(searchField, BorderLayout.WEST);
+        }
+        add(comboBox, BorderLayout.CENTER);
+    }
+
+    private void runSearch(String text, Function<String, List<T>> search) {
+        if (text.trim().isEmpty()) {
+            model.reset();
+            return;
+        }
+        List<T> results = search.apply(text.trim());
+        model.setItems(results);
+        if (!results.isEmpty()) {
+            model.setSelectedItem(results.get(0));
+            if (comboBox.isShowing()) {
+                comboBox.showPopup();
+            }
+        }
+    }
+
+    /**
+     * Select the entity with the given ID; returns false if it does not exist
+     */
+    public boolean selectById(String id) {
+        T item = lookup.apply(id);
+        if (item == null) {
+            return false;
+        }
+        model.setSelectedItem(item);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getSelectedItem() {
+        return (T) model.getSelectedItem();
+    }
+
+    /**
+     * ID of the selected entity, or null if nothing is selected
+     */
+    public String getSelectedId() {
+        T item = getSelectedItem();
+        return item == null ? null : idFunction.apply(item);
+    }
+}
@@ -2,14 +2,33 @@ package com.mycompany.tejani_part2.views;
 
 import com.mycompany.tejani_part2.controllers.*;
 import com.mycompany.tejani_part2.models.*;
+import com.mycompany.tejani_part2.utilities.ChangeEvent;
+import com.mycompany.tejani_part2.utilities.ChangeEventBus;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.SearchHit;
+import com.mycompany.tejani_part2.utilities.TextSearchIndex;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Main GUI View - Healthcare Management System (View in MVC)
  */
 public class HealthcareGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     private JTabbedPane tabbedPane;
     
@@ -27,6 +46,23 @@ public class HealthcareGUI extends JFrame {
     private JTable prescriptionTable;
     private JTable referralTable;
     
+    // Sorters for the tables that can be filtered
+    private KeyedRowSorter<DefaultTableModel> appointmentSorter;
+    private KeyedRowSorter<DefaultTableModel> prescriptionSorter;
+    
+    // Active filters as row checks (null when off), so change events can update them row by row
+    private Predicate<Appointment> appointmentFilter;
+    private Predicate<Prescription> prescriptionFilter;
+    
+    // Appointment and prescription filter bars
+    private JTextField appointmentFromField;
+    private JTextField appointmentToField;
+    private JComboBox<String> appointmentClinicianFilter;
+    private JComboBox<String> appointmentStatusFilter;
+    private JLabel appointmentFilterLabel;
+    private JComboBox<String> prescriptionStatusFilter;
+    private JLabel prescriptionFilterLabel;
+    
     public HealthcareGUI() {
         controller = new HealthcareController();
         
@@ -37,6 +73,8 @@ public class HealthcareGUI extends JFrame {
         
         initializeComponents();
         createMenuBar();
+        // Tables follow the data through change events rather than re-reading whole lists
+        controller.subscribe(null, ChangeEventBus.EDT, this::applyChanges);
         
         setVisible(true);
     }
@@ -51,7 +89,8 @@ public class HealthcareGUI extends JFrame {
         tabbedPane.addTab("Prescriptions", createPrescriptionPanel());
         tabbedPane.addTab("Referrals", createReferralPanel());
         
-        add(tabbedPane);
+        add(createSearchPanel(), BorderLayout.NORTH);
+        add(tabbedPane, BorderLayout.CENTER);
     }
     
     private void createMenuBar() {
@@ -59,12 +98,15 @@ public class HealthcareGUI extends JFrame {
         
         JMenu fileMenu = new JMenu("File");
         JMenuItem loadDataItem = new JMenuItem("Load All Data");
+        JCheckBoxMenuItem watchItem = new JCheckBoxMenuItem("Watch Data Files");
         JMenuItem exitItem = new JMenuItem("Exit");
         
         loadDataItem.addActionListener(e -> loadAllData());
+        watchItem.addActionListener(e -> setWatchingDataFiles(watchItem));
         exitItem.addActionListener(e -> System.exit(0));
         
         fileMenu.add(loadDataItem);
+        fileMenu.add(watchItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         
@@ -102,6 +144,97 @@ public class HealthcareGUI extends JFrame {
         setJMenuBar(menuBar);
     }
     
+    // ==================== SEARCH PANEL ====================
+    
+    private JPanel createSearchPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        
+        JTextField searchField = new JTextField(40);
+        searchField.setToolTipText("Words are ANDed; use \"quotes\" for phrases, -word to exclude, OR for alternatives");
+        JButton searchBtn = new JButton("Search");
+        
+        searchField.addActionListener(e -> runSearch(searchField.getText()));
+        searchBtn.addActionListener(e -> runSearch(searchField.getText()));
+        
+        panel.add(new JLabel("Search clinical notes:"));
+        panel.add(searchField);
+        panel.add(searchBtn);
+        
+        return panel;
+    }
+    
+    private void runSearch(String query) {
+        if (query.trim().isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<SearchHit> hits = controller.search(query, 100);
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+        
+        if (hits.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No matches for: " + query);
+            return;
+        }
+        
+        JList<SearchHit> resultList = new JList<>(hits.toArray(new SearchHit[0]));
+        resultList.setSelectedIndex(0);
+        JScrollPane scrollPane = new JScrollPane(resultList);
+        scrollPane.setPreferredSize(new Dimension(400, 250));
+        
+        int choice = JOptionPane.showConfirmDialog(this, scrollPane,
+            hits.size() + " matches (" + elapsedMicros + " µs) - select one to open",
+            JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice == JOptionPane.OK_OPTION && resultList.getSelectedValue() != null) {
+            showSearchHit(resultList.getSelectedValue());
+        }
+    }
+    
+    private void showSearchHit(SearchHit hit) {
+        switch (hit.getEntityType()) {
+            case TextSearchIndex.APPOINTMENT:
+                tabbedPane.setSelectedIndex(3);
+                selectRowById(appointmentTable, hit.getEntityId());
+                break;
+            case TextSearchIndex.PRESCRIPTION:
+                tabbedPane.setSelectedIndex(4);
+                selectRowById(prescriptionTable, hit.getEntityId());
+                break;
+            case TextSearchIndex.REFERRAL:
+                tabbedPane.setSelectedIndex(5);
+                selectRowById(referralTable, hit.getEntityId());
+                break;
+        }
+    }
+    
+    /**
+     * ID of the selected row (column 0 of the model), or null if nothing is selected
+     * Going through the model keeps this correct when the view is sorted or filtered.
+     */
+    private String getSelectedId(JTable table) {
+        int viewRow = table.getSelectedRow();
+        if (viewRow == -1) {
+            return null;
+        }
+        Object id = table.getModel().getValueAt(table.convertRowIndexToModel(viewRow), 0);
+        return id == null ? null : id.toString();
+    }
+    
+    private void selectRowById(JTable table, String id) {
+        int row = modelIndexOf(table, id);
+        if (row == -1) {
+            return;
+        }
+        int viewRow = table.convertRowIndexToView(row);
+        if (viewRow != -1) {
+            table.setRowSelectionInterval(viewRow, viewRow);
+            table.scrollRectToVisible(table.getCellRect(viewRow, 0, true));
+        }
+    }
+    
+    private int modelIndexOf(JTable table, String id) {
+        return ((KeyedRowSorter<?>) table.getRowSorter()).modelIndexOf(id);
+    }
+    
     // ==================== PATIENT PANEL ====================
     
     private JPanel createPatientPanel() {
@@ -111,6 +244,7 @@ public class HealthcareGUI extends JFrame {
                            "Gender", "Phone", "Email", "Address"};
         patientTableModel = new DefaultTableModel(columns, 0);
         patientTable = new JTable(patientTableModel);
+        patientTable.setRowSorter(new KeyedRowSorter<>(patientTableModel, 0));
         JScrollPane scrollPane = new JScrollPane(patientTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -136,20 +270,25 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshPatientTable() {
-        patientTableModel.setRowCount(0);
+        List<Object[]> rows = new ArrayList<>();
         for (Patient p : controller.getAllPatients()) {
-            patientTableModel.addRow(new Object[] {
-                p.getPatientId(),
-                p.getFirstName(),
-                p.getLastName(),
-                p.getDateOfBirth(),
-                p.getNhsNumber(),
-                p.getGender(),
-                p.getPhoneNumber(),
-                p.getEmail(),
-                p.getAddress()
-            });
+            rows.add(patientRow(p));
         }
+        fillTable(patientTableModel, rows);
+    }
+    
+    private Object[] patientRow(Patient p) {
+        return new Object[] {
+            p.getPatientId(),
+            p.getFirstName(),
+            p.getLastName(),
+            p.getDateOfBirth(),
+            p.getNhsNumber(),
+            p.getGender(),
+            p.getPhoneNumber(),
+            p.getEmail(),
+            p.getAddress()
+        };
     }
     
     // ==================== CLINICIAN PANEL ====================
@@ -162,6 +301,7 @@ public class HealthcareGUI extends JFrame {
                            "Employment Status", "Start Date"};
         clinicianTableModel = new DefaultTableModel(columns, 0);
         clinicianTable = new JTable(clinicianTableModel);
+        clinicianTable.setRowSorter(new KeyedRowSorter<>(clinicianTableModel, 0));
         JScrollPane scrollPane = new JScrollPane(clinicianTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -187,23 +327,28 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshClinicianTable() {
-        clinicianTableModel.setRowCount(0);
+        List<Object[]> rows = new ArrayList<>();
         for (Clinician c : controller.getAllClinicians()) {
-            clinicianTableModel.addRow(new Object[] {
-                c.getClinicianId(),
-                c.getTitle(),
-                c.getFirstName(),
-                c.getLastName(),
-                c.getSpeciality(),
-                c.getGmcNumber(),
-                c.getPhoneNumber(),
-                c.getEmail(),
-                c.getWorkplaceId(),
-                c.getWorkplaceType(),
-                c.getEmploymentStatus(),
-                c.getStartDate()
-            });
+            rows.add(clinicianRow(c));
         }
+        fillTable(clinicianTableModel, rows);
+    }
+    
+    private Object[] clinicianRow(Clinician c) {
+        return new Object[] {
+            c.getClinicianId(),
+            c.getTitle(),
+            c.getFirstName(),
+            c.getLastName(),
+            c.getSpeciality(),
+            c.getGmcNumber(),
+            c.getPhoneNumber(),
+            c.getEmail(),
+            c.getWorkplaceId(),
+            c.getWorkplaceType(),
+            c.getEmploymentStatus(),
+            c.getStartDate()
+        };
     }
     
     // ==================== FACILITY PANEL ====================
@@ -215,6 +360,7 @@ public class HealthcareGUI extends JFrame {
                            "Phone", "Email", "Opening Hours", "Manager", "Capacity", "Specialities"};
         facilityTableModel = new DefaultTableModel(columns, 0);
         facilityTable = new JTable(facilityTableModel);
+        facilityTable.setRowSorter(new KeyedRowSorter<>(facilityTableModel, 0));
         JScrollPane scrollPane = new JScrollPane(facilityTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -234,22 +380,27 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshFacilityTable() {
-        facilityTableModel.setRowCount(0);
+        List<Object[]> rows = new ArrayList<>();
         for (Facility f : controller.getAllFacilities()) {
-            facilityTableModel.addRow(new Object[] {
-                f.getFacilityId(),
-                f.getFacilityName(),
-                f.getFacilityType(),
-                f.getAddress(),
-                f.getPostcode(),
-                f.getPhoneNumber(),
-                f.getEmail(),
-                f.getOpeningHours(),
-                f.getManagerName(),
-                f.getCapacity(),
-                f.getSpecialitiesOffered()
-            });
+            rows.add(facilityRow(f));
         }
+        fillTable(facilityTableModel, rows);
+    }
+    
+    private Object[] facilityRow(Facility f) {
+        return new Object[] {
+            f.getFacilityId(),
+            f.getFacilityName(),
+            f.getFacilityType(),
+            f.getAddress(),
+            f.getPostcode(),
+            f.getPhoneNumber(),
+            f.getEmail(),
+            f.getOpeningHours(),
+            f.getManagerName(),
+            f.getCapacity(),
+            f.getSpecialitiesOffered()
+        };
     }
     
     // ==================== APPOINTMENT PANEL ====================
@@ -262,6 +413,8 @@ public class HealthcareGUI extends JFrame {
                            "Notes", "Created Date", "Last Modified"};
         appointmentTableModel = new DefaultTableModel(columns, 0);
         appointmentTable = new JTable(appointmentTableModel);
+        appointmentSorter = new KeyedRowSorter<>(appointmentTableModel, 0);
+        appointmentTable.setRowSorter(appointmentSorter);
         JScrollPane scrollPane = new JScrollPane(appointmentTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -280,6 +433,7 @@ public class HealthcareGUI extends JFrame {
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
         
+        panel.add(createAppointmentFilterPanel(), BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
@@ -287,24 +441,100 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshAppointmentTable() {
-        appointmentTableModel.setRowCount(0);
+        long start = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>();
+        Set<String> shown = appointmentFilter == null ? null : new HashSet<>();
         for (Appointment a : controller.getAllAppointments()) {
-            appointmentTableModel.addRow(new Object[] {
-                a.getAppointmentId(),
-                a.getPatientId(),
-                a.getClinicianId(),
-                a.getFacilityId(),
-                a.getAppointmentDate(),
-                a.getAppointmentTime(),
-                a.getDurationMinutes(),
-                a.getAppointmentType(),
-                a.getStatus(),
-                a.getReasonForVisit(),
-                a.getNotes(),
-                a.getCreatedDate(),
-                a.getLastModified()
-            });
+            rows.add(appointmentRow(a));
+            if (shown != null && appointmentFilter.test(a)) {
+                shown.add(a.getAppointmentId());
+            }
         }
+        appointmentSorter.setFilterIds(shown);
+        fillTable(appointmentTableModel, rows);
+        updateFilterChoices(appointmentClinicianFilter, controller.getAppointmentClinicianIds());
+        updateFilterChoices(appointmentStatusFilter, controller.getAppointmentStatuses());
+        showFilterResult(appointmentFilterLabel, appointmentSorter, start);
+    }
+    
+    private Object[] appointmentRow(Appointment a) {
+        return new Object[] {
+            a.getAppointmentId(),
+            a.getPatientId(),
+            a.getClinicianId(),
+            a.getFacilityId(),
+            a.getAppointmentDate(),
+            a.getAppointmentTime(),
+            a.getDurationMinutes(),
+            a.getAppointmentType(),
+            a.getStatus(),
+            a.getReasonForVisit(),
+            a.getNotes(),
+            a.getCreatedDate(),
+            a.getLastModified()
+        };
+    }
+    
+    private JPanel createAppointmentFilterPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        
+        appointmentFromField = new JTextField(8);
+        appointmentToField = new JTextField(8);
+        appointmentFromField.setToolTipText("yyyy-MM-dd");
+        appointmentToField.setToolTipText("yyyy-MM-dd");
+        appointmentClinicianFilter = new JComboBox<>(new String[] {""});
+        appointmentStatusFilter = new JComboBox<>(new String[] {""});
+        appointmentFilterLabel = new JLabel();
+        JButton filterBtn = new JButton("Filter");
+        JButton clearBtn = new JButton("Clear");
+        
+        filterBtn.addActionListener(e -> applyAppointmentFilter());
+        clearBtn.addActionListener(e -> {
+            appointmentFromField.setText("");
+            appointmentToField.setText("");
+            appointmentClinicianFilter.setSelectedIndex(0);
+            appointmentStatusFilter.setSelectedIndex(0);
+            applyAppointmentFilter();
+        });
+        
+        panel.add(new JLabel("From:"));
+        panel.add(appointmentFromField);
+        panel.add(new JLabel("To:"));
+        panel.add(appointmentToField);
+        panel.add(new JLabel("Clinician:"));
+        panel.add(appointmentClinicianFilter);
+        panel.add(new JLabel("Status:"));
+        panel.add(appointmentStatusFilter);
+        panel.add(filterBtn);
+        panel.add(clearBtn);
+        panel.add(appointmentFilterLabel);
+        
+        return panel;
+    }
+    
+    /**
+     * Narrow the appointment table using the DataManager indexes (blank fields are ignored);
+     * only run for the filter bar, as it may show a dialog
+     */
+    private void applyAppointmentFilter() {
+        String from = appointmentFromField.getText().trim();
+        String to = appointmentToField.getText().trim();
+        String clinician = (String) appointmentClinicianFilter.getSelectedItem();
+        String status = (String) appointmentStatusFilter.getSelectedItem();
+        if (!isIsoDateOrBlank(from) || !isIsoDateOrBlank(to)) {
+            JOptionPane.showMessageDialog(this, "Dates must be in yyyy-MM-dd format");
+            return;
+        }
+        
+        long start = System.nanoTime();
+        if (from.isEmpty() && to.isEmpty() && isBlank(clinician) && isBlank(status)) {
+            appointmentFilter = null;
+            appointmentSorter.setFilterIds(null);
+        } else {
+            appointmentFilter = controller.appointmentMatcher(clinician, status, from, to);
+            appointmentSorter.setFilterIds(controller.findAppointmentIds(clinician, status, from, to));
+        }
+        showFilterResult(appointmentFilterLabel, appointmentSorter, start);
     }
     
     // ==================== PRESCRIPTION PANEL ====================
@@ -316,6 +546,8 @@ public class HealthcareGUI extends JFrame {
                            "Dosage", "Frequency", "Duration", "Pharmacy", "Status"};
         prescriptionTableModel = new DefaultTableModel(columns, 0);
         prescriptionTable = new JTable(prescriptionTableModel);
+        prescriptionSorter = new KeyedRowSorter<>(prescriptionTableModel, 0);
+        prescriptionTable.setRowSorter(prescriptionSorter);
         JScrollPane scrollPane = new JScrollPane(prescriptionTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -337,6 +569,7 @@ public class HealthcareGUI extends JFrame {
         buttonPanel.add(refreshBtn);
         buttonPanel.add(saveBtn);
         
+        panel.add(createPrescriptionFilterPanel(), BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
@@ -344,21 +577,56 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshPrescriptionTable() {
-        prescriptionTableModel.setRowCount(0);
+        long start = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>();
+        Set<String> shown = prescriptionFilter == null ? null : new HashSet<>();
         for (Prescription p : controller.getAllPrescriptions()) {
-            prescriptionTableModel.addRow(new Object[] {
-                p.getPrescriptionId(),
-                p.getPatientId(),
-                p.getClinicianId(),
-                p.getPrescriptionDate(),
-                p.getMedicationName(),
-                p.getDosage(),
-                p.getFrequency(),
-                p.getDurationDays(),
-                p.getPharmacyName(),
-                p.getStatus()
-            });
+            rows.add(prescriptionRow(p));
+            if (shown != null && prescriptionFilter.test(p)) {
+                shown.add(p.getPrescriptionId());
+            }
         }
+        prescriptionSorter.setFilterIds(shown);
+        fillTable(prescriptionTableModel, rows);
+        updateFilterChoices(prescriptionStatusFilter, controller.getPrescriptionStatuses());
+        showFilterResult(prescriptionFilterLabel, prescriptionSorter, start);
+    }
+    
+    private Object[] prescriptionRow(Prescription p) {
+        return new Object[] {
+            p.getPrescriptionId(),
+            p.getPatientId(),
+            p.getClinicianId(),
+            p.getPrescriptionDate(),
+            p.getMedicationName(),
+            p.getDosage(),
+            p.getFrequency(),
+            p.getDurationDays(),
+            p.getPharmacyName(),
+            p.getStatus()
+        };
+    }
+    
+    private JPanel createPrescriptionFilterPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        
+        prescriptionStatusFilter = new JComboBox<>(new String[] {""});
+        prescriptionFilterLabel = new JLabel();
+        prescriptionStatusFilter.addActionListener(e -> applyPrescriptionFilter());
+        
+        panel.add(new JLabel("Status:"));
+        panel.add(prescriptionStatusFilter);
+        panel.add(prescriptionFilterLabel);
+        
+        return panel;
+    }
+    
+    private void applyPrescriptionFilter() {
+        String status = (String) prescriptionStatusFilter.getSelectedItem();
+        long start = System.nanoTime();
+        prescriptionFilter = isBlank(status) ? null : controller.prescriptionMatcher(status);
+        prescriptionSorter.setFilterIds(isBlank(status) ? null : controller.findPrescriptionIds(status));
+        showFilterResult(prescriptionFilterLabel, prescriptionSorter, start);
     }
     
     // ==================== REFERRAL PANEL ====================
@@ -370,6 +638,7 @@ public class HealthcareGUI extends JFrame {
                            "Date", "Urgency", "Reason", "Status"};
         referralTableModel = new DefaultTableModel(columns, 0);
         referralTable = new JTable(referralTableModel);
+        referralTable.setRowSorter(new KeyedRowSorter<>(referralTableModel, 0));
         JScrollPane scrollPane = new JScrollPane(referralTable);
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
@@ -392,44 +661,46 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void refreshReferralTable() {
-        referralTableModel.setRowCount(0);
+        List<Object[]> rows = new ArrayList<>();
         for (Referral r : controller.getAllReferrals()) {
-            referralTableModel.addRow(new Object[] {
-                r.getReferralId(),
-                r.getPatientId(),
-                r.getReferringClinicianId(),
-                r.getReferredToClinicianId(),
-                r.getReferralDate(),
-                r.getUrgencyLevel(),
-                r.getReferralReason(),
-                r.getStatus()
-            });
+            rows.add(referralRow(r));
         }
+        fillTable(referralTableModel, rows);
+    }
+    
+    private Object[] referralRow(Referral r) {
+        return new Object[] {
+            r.getReferralId(),
+            r.getPatientId(),
+            r.getReferringClinicianId(),
+            r.getReferredToClinicianId(),
+            r.getReferralDate(),
+            r.getUrgencyLevel(),
+            r.getReferralReason(),
+            r.getStatus()
+        };
     }
     
     // ==================== DIALOG METHODS ====================
     
     private void showAddPatientDialog() {
-        PatientDialog dialog = new PatientDialog(this, controller, null, -1);
+        PatientDialog dialog = new PatientDialog(this, controller, null);
         dialog.setVisible(true);
-        refreshPatientTable();
     }
     
     private void showEditPatientDialog() {
-        int selectedRow = patientTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Patient patient = controller.getPatientById(getSelectedId(patientTable));
+        if (patient == null) {
             JOptionPane.showMessageDialog(this, "Please select a patient to edit");
             return;
         }
-        Patient patient = controller.getAllPatients().get(selectedRow);
-        PatientDialog dialog = new PatientDialog(this, controller, patient, selectedRow);
+        PatientDialog dialog = new PatientDialog(this, controller, patient);
         dialog.setVisible(true);
-        refreshPatientTable();
     }
     
     private void deleteSelectedPatient() {
-        int selectedRow = patientTable.getSelectedRow();
-        if (selectedRow == -1) {
+        String selectedId = getSelectedId(patientTable);
+        if (selectedId == null) {
             JOptionPane.showMessageDialog(this, "Please select a patient to delete");
             return;
         }
@@ -437,32 +708,28 @@ public class HealthcareGUI extends JFrame {
             "Are you sure you want to delete this patient?", 
             "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            controller.deletePatient(selectedRow);
-            refreshPatientTable();
+            controller.deletePatient(selectedId);
         }
     }
     
     private void showAddClinicianDialog() {
-        ClinicianDialog dialog = new ClinicianDialog(this, controller, null, -1);
+        ClinicianDialog dialog = new ClinicianDialog(this, controller, null);
         dialog.setVisible(true);
-        refreshClinicianTable();
     }
     
     private void showEditClinicianDialog() {
-        int selectedRow = clinicianTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Clinician clinician = controller.getClinicianById(getSelectedId(clinicianTable));
+        if (clinician == null) {
             JOptionPane.showMessageDialog(this, "Please select a clinician to edit");
             return;
         }
-        Clinician clinician = controller.getAllClinicians().get(selectedRow);
-        ClinicianDialog dialog = new ClinicianDialog(this, controller, clinician, selectedRow);
+        ClinicianDialog dialog = new ClinicianDialog(this, controller, clinician);
         dialog.setVisible(true);
-        refreshClinicianTable();
     }
     
     private void deleteSelectedClinician() {
-        int selectedRow = clinicianTable.getSelectedRow();
-        if (selectedRow == -1) {
+        String selectedId = getSelectedId(clinicianTable);
+        if (selectedId == null) {
             JOptionPane.showMessageDialog(this, "Please select a clinician to delete");
             return;
         }
@@ -470,32 +737,28 @@ public class HealthcareGUI extends JFrame {
             "Are you sure you want to delete this clinician?", 
             "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            controller.deleteClinician(selectedRow);
-            refreshClinicianTable();
+            controller.deleteClinician(selectedId);
         }
     }
     
     private void showAddAppointmentDialog() {
-        AppointmentDialog dialog = new AppointmentDialog(this, controller, null, -1);
+        AppointmentDialog dialog = new AppointmentDialog(this, controller, null);
         dialog.setVisible(true);
-        refreshAppointmentTable();
     }
     
     private void showEditAppointmentDialog() {
-        int selectedRow = appointmentTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Appointment appointment = controller.getAppointmentById(getSelectedId(appointmentTable));
+        if (appointment == null) {
             JOptionPane.showMessageDialog(this, "Please select an appointment to edit");
             return;
         }
-        Appointment appointment = controller.getAllAppointments().get(selectedRow);
-        AppointmentDialog dialog = new AppointmentDialog(this, controller, appointment, selectedRow);
+        AppointmentDialog dialog = new AppointmentDialog(this, controller, appointment);
         dialog.setVisible(true);
-        refreshAppointmentTable();
     }
     
     private void deleteSelectedAppointment() {
-        int selectedRow = appointmentTable.getSelectedRow();
-        if (selectedRow == -1) {
+        String selectedId = getSelectedId(appointmentTable);
+        if (selectedId == null) {
             JOptionPane.showMessageDialog(this, "Please select an appointment to delete");
             return;
         }
@@ -503,32 +766,28 @@ public class HealthcareGUI extends JFrame {
             "Are you sure you want to delete this appointment?", 
             "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            controller.deleteAppointment(selectedRow);
-            refreshAppointmentTable();
+            controller.deleteAppointment(selectedId);
         }
     }
     
     private void showAddPrescriptionDialog() {
-        PrescriptionDialog dialog = new PrescriptionDialog(this, controller, null, -1);
+        PrescriptionDialog dialog = new PrescriptionDialog(this, controller, null);
         dialog.setVisible(true);
-        refreshPrescriptionTable();
     }
     
     private void showEditPrescriptionDialog() {
-        int selectedRow = prescriptionTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Prescription prescription = controller.getPrescriptionById(getSelectedId(prescriptionTable));
+        if (prescription == null) {
             JOptionPane.showMessageDialog(this, "Please select a prescription to edit");
             return;
         }
-        Prescription prescription = controller.getAllPrescriptions().get(selectedRow);
-        PrescriptionDialog dialog = new PrescriptionDialog(this, controller, prescription, selectedRow);
+        PrescriptionDialog dialog = new PrescriptionDialog(this, controller, prescription);
         dialog.setVisible(true);
-        refreshPrescriptionTable();
     }
     
     private void deleteSelectedPrescription() {
-        int selectedRow = prescriptionTable.getSelectedRow();
-        if (selectedRow == -1) {
+        String selectedId = getSelectedId(prescriptionTable);
+        if (selectedId == null) {
             JOptionPane.showMessageDialog(this, "Please select a prescription to delete");
             return;
         }
@@ -536,24 +795,21 @@ public class HealthcareGUI extends JFrame {
             "Are you sure you want to delete this prescription?", 
             "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            controller.deletePrescription(selectedRow);
-            refreshPrescriptionTable();
+            controller.deletePrescription(selectedId);
         }
     }
     
     private void showCreateReferralDialog() {
         ReferralDialog dialog = new ReferralDialog(this, controller);
         dialog.setVisible(true);
-        refreshReferralTable();
     }
     
     private void showReferralDetails() {
-        int selectedRow = referralTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Referral referral = controller.getReferralById(getSelectedId(referralTable));
+        if (referral == null) {
             JOptionPane.showMessageDialog(this, "Please select a referral to view");
             return;
         }
-        Referral referral = controller.getAllReferrals().get(selectedRow);
         JOptionPane.showMessageDialog(this, 
             "Referral ID: " + referral.getReferralId() + "\n" +
             "Patient: " + referral.getPatientId() + "\n" +
@@ -574,12 +830,11 @@ public class HealthcareGUI extends JFrame {
     }
     
     private void showFacilityDetails() {
-        int selectedRow = facilityTable.getSelectedRow();
-        if (selectedRow == -1) {
+        Facility facility = controller.getFacilityById(getSelectedId(facilityTable));
+        if (facility == null) {
             JOptionPane.showMessageDialog(this, "Please select a facility to view");
             return;
         }
-        Facility facility = controller.getAllFacilities().get(selectedRow);
         JOptionPane.showMessageDialog(this, 
             "Facility ID: " + facility.getFacilityId() + "\n" +
             "Name: " + facility.getFacilityName() + "\n" +
@@ -594,18 +849,179 @@ public class HealthcareGUI extends JFrame {
             "Facility Details", JOptionPane.INFORMATION_MESSAGE);
     }
     
+    // ==================== CHANGE EVENTS ====================
+    
+    /**
+     * Apply one batch of data changes to the tables (runs on the EDT)
+     */
+    private void applyChanges(List<ChangeEvent<?>> events) {
+        long start = System.nanoTime();
+        Set<String> changed = new HashSet<>();
+        for (ChangeEvent<?> event : events) {
+            changed.add(event.getEntity());
+            switch (event.getEntity()) {
+                case "patients":
+                    applyChange(patientTable, event.as(EntitySchema.PATIENTS), this::patientRow, this::refreshPatientTable);
+                    break;
+                case "clinicians":
+                    applyChange(clinicianTable, event.as(EntitySchema.CLINICIANS), this::clinicianRow, this::refreshClinicianTable);
+                    break;
+                case "facilities":
+                    applyChange(facilityTable, event.as(EntitySchema.FACILITIES), this::facilityRow, this::refreshFacilityTable);
+                    break;
+                case "appointments":
+                    trackFilter(appointmentSorter, appointmentFilter, event.as(EntitySchema.APPOINTMENTS));
+                    applyChange(appointmentTable, event.as(EntitySchema.APPOINTMENTS), this::appointmentRow, this::refreshAppointmentTable);
+                    break;
+                case "prescriptions":
+                    trackFilter(prescriptionSorter, prescriptionFilter, event.as(EntitySchema.PRESCRIPTIONS));
+                    applyChange(prescriptionTable, event.as(EntitySchema.PRESCRIPTIONS), this::prescriptionRow, this::refreshPrescriptionTable);
+                    break;
+                case "referrals":
+                    applyChange(referralTable, event.as(EntitySchema.REFERRALS), this::referralRow, this::refreshReferralTable);
+                    break;
+                default:
+                    break;
+            }
+        }
+        // Filter choices depend on the indexed values; the filtered views were kept current row by row
+        if (changed.contains("appointments")) {
+            updateFilterChoices(appointmentClinicianFilter, controller.getAppointmentClinicianIds());
+            updateFilterChoices(appointmentStatusFilter, controller.getAppointmentStatuses());
+            showFilterResult(appointmentFilterLabel, appointmentSorter, start);
+        }
+        if (changed.contains("prescriptions")) {
+            updateFilterChoices(prescriptionStatusFilter, controller.getPrescriptionStatuses());
+            showFilterResult(prescriptionFilterLabel, prescriptionSorter, start);
+        }
+    }
+    
+    /**
+     * Move one changed row in or out of an active filter before the table sees the change
+     */
+    private <T> void trackFilter(KeyedRowSorter<?> sorter, Predicate<T> filter, ChangeEvent<T> event) {
+        if (filter == null || event.getOperation() == ChangeEvent.Operation.RELOAD) {
+            return;
+        }
+        boolean included = event.getOperation() != ChangeEvent.Operation.DELETE && filter.test(event.getAfter());
+        sorter.setFilterMembership(event.getId(), included);
+    }
+    
+    private <T> void applyChange(JTable table, ChangeEvent<T> event, Function<T, Object[]> rowOf, Runnable refresh) {
+        switch (event.getOperation()) {
+            case RELOAD:
+                refresh.run();
+                break;
+            case DELETE:
+                removeRow(table, event.getId());
+                break;
+            default:
+                putRow(table, event.getId(), rowOf.apply(event.getAfter()));
+                break;
+        }
+    }
+    
+    // ==================== TABLE HELPERS ====================
+    
+    /**
+     * Replace every row of a table model with one change event, so the sorter
+     * rebuilds once instead of once per added row
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void fillTable(DefaultTableModel model, List<Object[]> rows) {
+        Vector data = model.getDataVector();
+        data.clear();
+        for (Object[] row : rows) {
+            data.add(new Vector<>(Arrays.asList(row)));
+        }
+        model.fireTableDataChanged();
+    }
+    
+    /**
+     * Overwrite one row in place; the sorter repositions just that row
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void replaceRow(JTable table, String id, Object[] values) {
+        int row = modelIndexOf(table, id);
+        if (row == -1) {
+            return;
+        }
+        DefaultTableModel model = (DefaultTableModel) table.getModel();
+        Vector rowData = model.getDataVector().get(row);
+        for (int i = 0; i < values.length; i++) {
+            rowData.set(i, values[i]);
+        }
+        model.fireTableRowsUpdated(row, row);
+    }
+    
+    /**
+     * Overwrite the row with this ID, or append it when the table does not have it yet
+     */
+    private void putRow(JTable table, String id, Object[] values) {
+        if (modelIndexOf(table, id) == -1) {
+            ((DefaultTableModel) table.getModel()).addRow(values);
+        } else {
+            replaceRow(table, id, values);
+        }
+    }
+    
+    private void removeRow(JTable table, String id) {
+        int row = modelIndexOf(table, id);
+        if (row != -1) {
+            ((DefaultTableModel) table.getModel()).removeRow(row);
+        }
+    }
+    
+    /**
+     * Refill a filter drop-down with a blank "any" entry plus the indexed values, keeping the selection
+     */
+    private void updateFilterChoices(JComboBox<String> combo, Set<String> values) {
+        Object selected = combo.getSelectedItem();
+        // Repopulating fires selection events; keep them from re-running the filter
+        ActionListener[] listeners = combo.getActionListeners();
+        for (ActionListener listener : listeners) {
+            combo.removeActionListener(listener);
+        }
+        combo.removeAllItems();
+        combo.addItem("");
+        for (String value : values) {
+            if (!value.isEmpty()) {
+                combo.addItem(value);
+            }
+        }
+        combo.setSelectedItem(selected);
+        for (ActionListener listener : listeners) {
+            combo.addActionListener(listener);
+        }
+    }
+    
+    private void showFilterResult(JLabel label, KeyedRowSorter<?> sorter, long startNanos) {
+        double millis = (System.nanoTime() - startNanos) / 1_000_000.0;
+        label.setText(String.format("%d of %d shown (%.2f ms)",
+            sorter.getViewRowCount(), sorter.getModelRowCount(), millis));
+    }
+    
+    private static boolean isIsoDateOrBlank(String value) {
+        if (value.isEmpty()) {
+            return true;
+        }
+        try {
+            LocalDate.parse(value);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
     // ==================== HELPER METHODS ====================
     
     private void loadAllData() {
         System.out.println("=== Starting to load data ===");
         if (controller.loadAllData()) {
-            refreshPatientTable();
-            refreshClinicianTable();
-            refreshFacilityTable();
-            refreshAppointmentTable();
-            refreshPrescriptionTable();
-            refreshReferralTable();
-            
             JOptionPane.showMessageDialog(this, 
                 "✓ Data loaded successfully!\n\n" +
                 "Patients: " + controller.getAllPatients().size() + "\n" +
@@ -621,32 +1037,45 @@ public class HealthcareGUI extends JFrame {
         }
     }
     
+    /**
+     * Follow changes other systems make to the data files; the tables update
+     * through change events as rows are applied
+     */
+    private void setWatchingDataFiles(JCheckBoxMenuItem item) {
+        if (!item.isSelected()) {
+            controller.stopWatchingDataFiles();
+            return;
+        }
+        try {
+            controller.startWatchingDataFiles(ChangeEventBus.EDT);
+        } catch (IOException e) {
+            item.setSelected(false);
+            JOptionPane.showMessageDialog(this,
+                "Could not watch the data files: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
     private void loadDataFile(String filename, String dataType) {
         boolean success = false;
         switch (dataType) {
             case "Patients":
                 success = controller.loadPatients(filename);
-                refreshPatientTable();
                 break;
             case "Clinicians":
                 success = controller.loadClinicians(filename);
-                refreshClinicianTable();
                 break;
             case "Facilities":
                 success = controller.loadFacilities(filename);
-                refreshFacilityTable();
                 break;
             case "Appointments":
                 success = controller.loadAppointments(filename);
-                refreshAppointmentTable();
                 break;
             case "Prescriptions":
                 success = controller.loadPrescriptions(filename);
-                refreshPrescriptionTable();
                 break;
             case "Referrals":
                 success = controller.loadReferrals(filename);
-                refreshReferralTable();
                 break;
         }
         
@@ -0,0 +1,474 @@
+package com.mycompany.tejani_part2.views;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+import java.util.*;
+
+/**
+ * RowSorter for the entity tables that sorts on precomputed keys and filters by ID set
+ *
+ * Sort keys for the sorted column are derived once per row (numbers as doubles,
+ * text lower-cased) instead of on every comparison. A filter is the set of IDs
+ * to show, normally taken straight from a DataManager secondary index; each ID
+ * is looked up in an ID -> model row map, so narrowing costs O(matches) rather
+ * than a scan of the model. Small inserts, deletes and updates are merged into
+ * the current order by binary search instead of re-sorting everything, and
+ * the ID -> row map is kept up to date in place.
+ *
+ * Events fired while handling a model change carry no previous row mapping
+ * (RowSorterEvent allows null): JTable keeps its own selection across model
+ * changes, and copying the view for every single-row change would make it O(n).
+ */
+public class KeyedRowSorter<M extends TableModel> extends RowSorter<M> {
+    // Changes touching more than 1/REBUILD_DIVISOR of the rows rebuild from scratch
+    private static final int REBUILD_DIVISOR = 10;
+
+    private final M model;
+    private final int idColumn;
+
+    private List<SortKey> sortKeys = Collections.emptyList();
+    private int sortColumn = -1;
+    private boolean descending;
+
+    private int modelCount;
+    private Object[] keys = new Object[0];
+    private String[] rowIds = new String[0];
+    private int[] viewToModel = new int[0];
+    private int viewCount;
+    private int[] modelToView;                  // rebuilt on demand, null when stale
+
+    private Set<String> filterIds;              // null shows every row
+    private Map<String, Integer> modelRowById;  // rebuilt on demand, null when stale
+
+    public KeyedRowSorter(M model, int idColumn) {
+        this.model = model;
+        this.idColumn = idColumn;
+        rebuild();
+    }
+
+    // ==================== FILTERING ====================
+
+    /**
+     * Show only the rows whose ID is in the set; null shows every row.
+     * The set is copied: keep it current with setFilterMembership() as the
+     * underlying data changes. Setting the filter already in place does nothing.
+     */
+    public void setFilterIds(Set<String> ids) {
+        if (ids == null ? filterIds == null : ids.equals(filterIds)) {
+            return;
+        }
+        int[] old = currentViewToModel();
+        filterIds = ids == null ? null : new HashSet<>(ids);
+        rebuildView();
+        fireRowSorterChanged(old);
+    }
+
+    /**
+     * Add an ID to the active filter or drop it, without touching the view.
+     * Call before the model change for that row (insert, update or delete),
+     * which then puts the row in or out of the view. Does nothing when no
+     * filter is set.
+     */
+    public void setFilterMembership(String id, boolean included) {
+        if (filterIds == null) {
+            return;
+        }
+        if (included) {
+            filterIds.add(id);
+        } else {
+            filterIds.remove(id);
+        }
+    }
+
+    public boolean isFiltered() {
+        return filterIds != null;
+    }
+
+    /**
+     * Model row holding the given ID, or -1
+     */
+    public int modelIndexOf(String id) {
+        Integer row = modelRowById().get(id);
+        return row == null ? -1 : row;
+    }
+
+    // ==================== SORTING ====================
+
+    @Override
+    public M getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        SortOrder order = column == sortColumn && !descending ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        setSortKeys(Collections.singletonList(new SortKey(column, order)));
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Only the first key is used; later keys are ignored in favour of a stable model order
+     */
+    @Override
+    public void setSortKeys(List<? extends SortKey> newKeys) {
+        List<SortKey> primary = Collections.emptyList();
+        if (newKeys != null && !newKeys.isEmpty() && newKeys.get(0).getSortOrder() != SortOrder.UNSORTED) {
+            primary = Collections.singletonList(newKeys.get(0));
+        }
+        if (primary.equals(sortKeys)) {
+            return;
+        }
+        int[] old = currentViewToModel();
+        int previousColumn = sortColumn;
+        sortKeys = primary;
+        sortColumn = primary.isEmpty() ? -1 : primary.get(0).getColumn();
+        descending = !primary.isEmpty() && primary.get(0).getSortOrder() == SortOrder.DESCENDING;
+        if (sortColumn != previousColumn) {
+            computeKeys();
+        }
+        sortView();
+        modelToView = null;
+        fireSortOrderChanged();
+        fireRowSorterChanged(old);
+    }
+
+    // ==================== INDEX CONVERSION ====================
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= viewCount) {
+            throw new IndexOutOfBoundsException("Invalid view index: " + index);
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelCount) {
+            throw new IndexOutOfBoundsException("Invalid model index: " + index);
+        }
+        if (modelToView == null) {
+            modelToView = new int[modelCount];
+            Arrays.fill(modelToView, -1);
+            for (int i = 0; i < viewCount; i++) {
+                modelToView[viewToModel[i]] = i;
+            }
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewCount;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelCount;
+    }
+
+    // ==================== MODEL CHANGES ====================
+
+    @Override
+    public void modelStructureChanged() {
+        sortKeys = Collections.emptyList();
+        sortColumn = -1;
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        rebuild();
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (model.getRowCount() != modelCount + count || count > modelCount / REBUILD_DIVISOR) {
+            allRowsChanged();
+            return;
+        }
+        if (firstRow < modelCount) {
+            for (int i = 0; i < viewCount; i++) {
+                if (viewToModel[i] >= firstRow) {
+                    viewToModel[i] += count;
+                }
+            }
+        }
+        ensureCapacity(modelCount + count);
+        if (sortColumn >= 0) {
+            System.arraycopy(keys, firstRow, keys, endRow + 1, modelCount - firstRow);
+        }
+        System.arraycopy(rowIds, firstRow, rowIds, endRow + 1, modelCount - firstRow);
+        modelCount += count;
+        for (int row = firstRow; row <= endRow; row++) {
+            if (sortColumn >= 0) {
+                keys[row] = sortKey(model.getValueAt(row, sortColumn));
+            }
+            rowIds[row] = idAt(row);
+        }
+        if (modelRowById != null) {
+            // The new rows, plus any rows they pushed down
+            for (int row = firstRow; row < modelCount; row++) {
+                modelRowById.put(rowIds[row], row);
+            }
+        }
+        for (int row = firstRow; row <= endRow; row++) {
+            if (accepts(row)) {
+                insertIntoView(row);
+            }
+        }
+        modelToView = null;
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (model.getRowCount() != modelCount - count || count > modelCount / REBUILD_DIVISOR) {
+            allRowsChanged();
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < viewCount; i++) {
+            int row = viewToModel[i];
+            if (row < firstRow) {
+                viewToModel[kept++] = row;
+            } else if (row > endRow) {
+                viewToModel[kept++] = row - count;
+            }
+        }
+        viewCount = kept;
+        if (modelRowById != null) {
+            for (int row = firstRow; row <= endRow; row++) {
+                modelRowById.remove(rowIds[row], row);
+            }
+            for (int row = endRow + 1; row < modelCount; row++) {
+                modelRowById.put(rowIds[row], row - count);
+            }
+        }
+        if (sortColumn >= 0) {
+            System.arraycopy(keys, endRow + 1, keys, firstRow, modelCount - endRow - 1);
+            Arrays.fill(keys, modelCount - count, modelCount, null);
+        }
+        System.arraycopy(rowIds, endRow + 1, rowIds, firstRow, modelCount - endRow - 1);
+        Arrays.fill(rowIds, modelCount - count, modelCount, null);
+        modelCount -= count;
+        modelToView = null;
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (model.getRowCount() != modelCount || count > modelCount / REBUILD_DIVISOR) {
+            allRowsChanged();
+            return;
+        }
+        for (int row = firstRow; row <= endRow; row++) {
+            String id = idAt(row);
+            if (!id.equals(rowIds[row])) {
+                if (modelRowById != null) {
+                    modelRowById.remove(rowIds[row], row);
+                    modelRowById.put(id, row);
+                }
+                rowIds[row] = id;
+            }
+        }
+        if (sortColumn < 0 && filterIds == null) {
+            return;
+        }
+        for (int row = firstRow; row <= endRow; row++) {
+            removeFromView(row);
+            if (sortColumn >= 0) {
+                keys[row] = sortKey(model.getValueAt(row, sortColumn));
+            }
+            if (accepts(row)) {
+                insertIntoView(row);
+            }
+        }
+        modelToView = null;
+        fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        if (column == sortColumn || column == idColumn) {
+            rowsUpdated(firstRow, endRow);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private void rebuild() {
+        modelCount = model.getRowCount();
+        rowIds = new String[modelCount];
+        for (int row = 0; row < modelCount; row++) {
+            rowIds[row] = idAt(row);
+        }
+        modelRowById = null;
+        computeKeys();
+        rebuildView();
+    }
+
+    private void computeKeys() {
+        if (sortColumn < 0) {
+            keys = new Object[0];
+            return;
+        }
+        keys = new Object[modelCount];
+        for (int row = 0; row < modelCount; row++) {
+            keys[row] = sortKey(model.getValueAt(row, sortColumn));
+        }
+    }
+
+    private void rebuildView() {
+        if (filterIds == null) {
+            viewToModel = new int[modelCount];
+            for (int i = 0; i < modelCount; i++) {
+                viewToModel[i] = i;
+            }
+            viewCount = modelCount;
+        } else {
+            Map<String, Integer> rows = modelRowById();
+            viewToModel = new int[Math.min(filterIds.size(), modelCount)];
+            viewCount = 0;
+            for (String id : filterIds) {
+                Integer row = rows.get(id);
+                if (row != null && viewCount < viewToModel.length) {
+                    viewToModel[viewCount++] = row;
+                }
+            }
+        }
+        sortView();
+        modelToView = null;
+    }
+
+    private void sortView() {
+        if (sortColumn < 0) {
+            Arrays.sort(viewToModel, 0, viewCount);
+            return;
+        }
+        Integer[] boxed = new Integer[viewCount];
+        for (int i = 0; i < viewCount; i++) {
+            boxed[i] = viewToModel[i];
+        }
+        Arrays.sort(boxed, this::compareRows);
+        for (int i = 0; i < viewCount; i++) {
+            viewToModel[i] = boxed[i];
+        }
+    }
+
+    /**
+     * Where the row sits, or would sit, in the view; the view is ordered by
+     * compareRows, so this is a binary search on the row's current sort key
+     */
+    private int viewPosition(int row) {
+        int low = 0;
+        int high = viewCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareRows(viewToModel[mid], row) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertIntoView(int row) {
+        int low = viewPosition(row);
+        if (viewCount == viewToModel.length) {
+            viewToModel = Arrays.copyOf(viewToModel, Math.max(16, viewCount * 2));
+        }
+        System.arraycopy(viewToModel, low, viewToModel, low + 1, viewCount - low);
+        viewToModel[low] = row;
+        viewCount++;
+    }
+
+    /**
+     * Take a row out of the view; call while its sort key is still the one it was placed by
+     */
+    private void removeFromView(int row) {
+        int i = viewPosition(row);
+        if (i < viewCount && viewToModel[i] == row) {
+            System.arraycopy(viewToModel, i + 1, viewToModel, i, viewCount - i - 1);
+            viewCount--;
+        }
+    }
+
+    private int compareRows(int a, int b) {
+        if (sortColumn >= 0) {
+            int result = compareKeys(keys[a], keys[b]);
+            if (result != 0) {
+                return descending ? -result : result;
+            }
+        }
+        return Integer.compare(a, b);
+    }
+
+    private boolean accepts(int row) {
+        return filterIds == null || filterIds.contains(idAt(row));
+    }
+
+    private String idAt(int row) {
+        Object id = model.getValueAt(row, idColumn);
+        return id == null ? "" : id.toString();
+    }
+
+    /**
+     * ID -> model row, built on first use and then kept up to date by the model change handlers
+     */
+    private Map<String, Integer> modelRowById() {
+        if (modelRowById == null) {
+            modelRowById = new HashMap<>(modelCount * 2);
+            for (int row = 0; row < modelCount; row++) {
+                modelRowById.put(rowIds[row], row);
+            }
+        }
+        return modelRowById;
+    }
+
+    private void ensureCapacity(int size) {
+        if (sortColumn >= 0 && keys.length < size) {
+            keys = Arrays.copyOf(keys, Math.max(size, keys.length * 2));
+        }
+        if (rowIds.length < size) {
+            rowIds = Arrays.copyOf(rowIds, Math.max(size, rowIds.length * 2));
+        }
+    }
+
+    private int[] currentViewToModel() {
+        return Arrays.copyOf(viewToModel, viewCount);
+    }
+
+    /**
+     * Numbers compare numerically, everything else case-insensitively as text
+     */
+    private static Object sortKey(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static int compareKeys(Object a, Object b) {
+        if (a instanceof Double) {
+            return b instanceof Double ? Double.compare((Double) a, (Double) b) : -1;
+        }
+        if (b instanceof Double) {
+            return 1;
+        }
+        return ((String) a).compareTo((String) b);
+    }
+}
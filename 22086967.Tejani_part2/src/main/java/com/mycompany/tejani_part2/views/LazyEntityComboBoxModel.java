@@ -0,0 +1,69 @@
+package com.mycompany.tejani_part2.views;
+
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * ComboBoxModel that reads straight from an entity list instead of copying it
+ * The list is only fetched when Swing first asks for it, and items are handed
+ * out by position on demand, so building the model costs nothing per entity.
+ */
+public class LazyEntityComboBoxModel<T> extends AbstractListModel<T> implements ComboBoxModel<T> {
+    private static final long serialVersionUID = 1L;
+
+    private final Supplier<List<T>> source;
+    private List<T> items;
+    private Object selectedItem;
+
+    public LazyEntityComboBoxModel(Supplier<List<T>> source) {
+        this.source = source;
+    }
+
+    private List<T> items() {
+        if (items == null) {
+            items = source.get();
+        }
+        return items;
+    }
+
+    /**
+     * Show a different set of items (e.g. search results) in place of the source list
+     */
+    public void setItems(List<T> newItems) {
+        this.items = newItems;
+        fireContentsChanged(this, -1, -1);
+    }
+
+    /**
+     * Go back to showing the full source list
+     */
+    public void reset() {
+        this.items = null;
+        fireContentsChanged(this, -1, -1);
+    }
+
+    @Override
+    public int getSize() {
+        return items().size();
+    }
+
+    @Override
+    public T getElementAt(int index) {
+        return items().get(index);
+    }
+
+    @Override
+    public void setSelectedItem(Object item) {
+        if ((selectedItem != null && !selectedItem.equals(item)) || (selectedItem == null && item != null)) {
+            selectedItem = item;
+            fireContentsChanged(this, -1, -1);
+        }
+    }
+
+    @Override
+    public Object getSelectedItem() {
+        return selectedItem;
+    }
+}
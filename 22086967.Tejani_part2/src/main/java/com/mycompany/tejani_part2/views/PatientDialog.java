@@ -1,6 +1,8 @@
 package com.mycompany.tejani_part2.views;
 import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.controllers.*;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.UpdateConflictException;
 import javax.swing.*;
 import java.awt.*;
 import java.text.SimpleDateFormat;
@@ -10,9 +12,12 @@ import java.util.Date;
  * Dialog for adding/editing patients
  */
 public class PatientDialog extends JDialog {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     private Patient existingPatient;
-    private int editIndex;
+    // Version the dialog was opened at, checked when saving
+    private long existingVersion;
     
     private JTextField idField;
     private JTextField firstNameField;
@@ -30,11 +35,11 @@ public class PatientDialog extends JDialog {
     private JTextField gpSurgeryField;
     
     public PatientDialog(JFrame parent, HealthcareController controller, 
-                        Patient patient, int index) {
+                        Patient patient) {
         super(parent, patient == null ? "Add Patient" : "Edit Patient", true);
         this.controller = controller;
         this.existingPatient = patient;
-        this.editIndex = index;
+        this.existingVersion = patient == null ? 0 : controller.getVersion(EntitySchema.PATIENTS, patient.getPatientId());
         
         setSize(500, 600);
         setLocationRelativeTo(parent);
@@ -169,7 +174,15 @@ public class PatientDialog extends JDialog {
             controller.addPatient(patient);
             JOptionPane.showMessageDialog(this, "Patient added successfully!");
         } else {
-            controller.updatePatient(editIndex, patient);
+            try {
+                controller.updatePatient(existingPatient.getPatientId(), patient, existingVersion);
+            } catch (UpdateConflictException e) {
+                JOptionPane.showMessageDialog(this,
+                    "This patient was changed by someone else while you were editing.\n" +
+                    "Close this dialog and open it again to see the latest details.",
+                    "Update Conflict", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Patient updated successfully!");
         }
         
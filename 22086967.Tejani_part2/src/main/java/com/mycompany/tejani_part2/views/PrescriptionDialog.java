@@ -1,6 +1,8 @@
 package com.mycompany.tejani_part2.views;
 import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.controllers.*;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import com.mycompany.tejani_part2.utilities.UpdateConflictException;
 import javax.swing.*;
 import java.awt.*;
 import java.text.SimpleDateFormat;
@@ -10,13 +12,16 @@ import java.util.Date;
  * Dialog for adding/editing prescriptions
  */
 public class PrescriptionDialog extends JDialog {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     private Prescription existingPrescription;
-    private int editIndex;
+    // Version the dialog was opened at, checked when saving
+    private long existingVersion;
     
     private JTextField idField;
-    private JComboBox<String> patientBox;
-    private JComboBox<String> clinicianBox;
+    private EntityPicker<Patient> patientPicker;
+    private EntityPicker<Clinician> clinicianPicker;
     private JTextField appointmentIdField;
     private JTextField dateField;
     private JTextField medicationField;
@@ -31,11 +36,11 @@ public class PrescriptionDialog extends JDialog {
     private JTextField collectionDateField;
     
     public PrescriptionDialog(JFrame parent, HealthcareController controller, 
-                             Prescription prescription, int index) {
+                             Prescription prescription) {
         super(parent, prescription == null ? "Add Prescription" : "Edit Prescription", true);
         this.controller = controller;
         this.existingPrescription = prescription;
-        this.editIndex = index;
+        this.existingVersion = prescription == null ? 0 : controller.getVersion(EntitySchema.PRESCRIPTIONS, prescription.getPrescriptionId());
         
         setSize(550, 650);
         setLocationRelativeTo(parent);
@@ -62,16 +67,11 @@ public class PrescriptionDialog extends JDialog {
         idField = new JTextField(20);
         idField.setEditable(false);
         
-        // Populate combo boxes
-        patientBox = new JComboBox<>();
-        for (Patient p : controller.getAllPatients()) {
-            patientBox.addItem(p.toString());
-        }
-        
-        clinicianBox = new JComboBox<>();
-        for (Clinician c : controller.getAllClinicians()) {
-            clinicianBox.addItem(c.toString());
-        }
+        // Entity pickers read lazily from the controller's lists
+        patientPicker = new EntityPicker<>(controller::getAllPatients, Patient::getPatientId,
+            controller::getPatientById, query -> controller.searchPatients(query, 50));
+        clinicianPicker = new EntityPicker<>(controller::getAllClinicians, Clinician::getClinicianId,
+            controller::getClinicianById);
         
         appointmentIdField = new JTextField(20);
         dateField = new JTextField(20);
@@ -99,8 +99,8 @@ public class PrescriptionDialog extends JDialog {
         int row = 0;
         
         addField(mainPanel, gbc, "Prescription ID:", idField, row++);
-        addField(mainPanel, gbc, "Patient:", patientBox, row++);
-        addField(mainPanel, gbc, "Clinician:", clinicianBox, row++);
+        addField(mainPanel, gbc, "Patient:", patientPicker, row++);
+        addField(mainPanel, gbc, "Clinician:", clinicianPicker, row++);
         addField(mainPanel, gbc, "Appointment ID (optional):", appointmentIdField, row++);
         addField(mainPanel, gbc, "Prescription Date:", dateField, row++);
         addField(mainPanel, gbc, "Medication Name:", medicationField, row++);
@@ -158,21 +158,8 @@ public class PrescriptionDialog extends JDialog {
     private void populateFields(Prescription prescription) {
         idField.setText(prescription.getPrescriptionId());
         
-        // Find and select patient
-        for (int i = 0; i < patientBox.getItemCount(); i++) {
-            if (patientBox.getItemAt(i).startsWith(prescription.getPatientId())) {
-                patientBox.setSelectedIndex(i);
-                break;
-            }
-        }
-        
-        // Find and select clinician
-        for (int i = 0; i < clinicianBox.getItemCount(); i++) {
-            if (clinicianBox.getItemAt(i).startsWith(prescription.getClinicianId())) {
-                clinicianBox.setSelectedIndex(i);
-                break;
-            }
-        }
+        patientPicker.selectById(prescription.getPatientId());
+        clinicianPicker.selectById(prescription.getClinicianId());
         
         appointmentIdField.setText(prescription.getAppointmentId());
         dateField.setText(prescription.getPrescriptionDate());
@@ -197,9 +184,14 @@ public class PrescriptionDialog extends JDialog {
             return;
         }
         
-        // Extract IDs from combo box selections
-        String patientId = patientBox.getSelectedItem().toString().split(" - ")[0];
-        String clinicianId = clinicianBox.getSelectedItem().toString().split(" - ")[0];
+        String patientId = patientPicker.getSelectedId();
+        String clinicianId = clinicianPicker.getSelectedId();
+        if (patientId == null || clinicianId == null) {
+            JOptionPane.showMessageDialog(this, 
+                "Patient and Clinician are required!", 
+                "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         // Create prescription object
         Prescription prescription = new Prescription(
@@ -225,7 +217,15 @@ public class PrescriptionDialog extends JDialog {
             controller.addPrescription(prescription);
             JOptionPane.showMessageDialog(this, "Prescription added successfully!");
         } else {
-            controller.updatePrescription(editIndex, prescription);
+            try {
+                controller.updatePrescription(existingPrescription.getPrescriptionId(), prescription, existingVersion);
+            } catch (UpdateConflictException e) {
+                JOptionPane.showMessageDialog(this,
+                    "This prescription was changed by someone else while you were editing.\n" +
+                    "Close this dialog and open it again to see the latest details.",
+                    "Update Conflict", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, "Prescription updated successfully!");
         }
         
@@ -3,18 +3,22 @@ import com.mycompany.tejani_part2.models.*;
 import com.mycompany.tejani_part2.controllers.*;
 import javax.swing.*;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Dialog for creating referrals - uses Singleton ReferralManager
  */
 public class ReferralDialog extends JDialog {
+    private static final long serialVersionUID = 1L;
+    
     private HealthcareController controller;
     
-    private JComboBox<String> patientBox;
-    private JComboBox<String> referringClinicianBox;
-    private JComboBox<String> receivingClinicianBox;
-    private JComboBox<String> referringFacilityBox;
-    private JComboBox<String> receivingFacilityBox;
+    private EntityPicker<Patient> patientPicker;
+    private EntityPicker<Clinician> referringClinicianPicker;
+    private EntityPicker<Clinician> receivingClinicianPicker;
+    private EntityPicker<Facility> referringFacilityPicker;
+    private EntityPicker<Facility> receivingFacilityPicker;
     private JComboBox<String> urgencyBox;
     private JTextField reasonField;
     private JTextArea clinicalSummaryArea;
@@ -47,37 +51,22 @@ public class ReferralDialog extends JDialog {
         gbc.gridwidth = 1;
         
         // Patient Selection
-        patientBox = new JComboBox<>();
-        for (Patient p : controller.getAllPatients()) {
-            patientBox.addItem(p.toString());
-        }
+        patientPicker = new EntityPicker<>(controller::getAllPatients, Patient::getPatientId,
+            controller::getPatientById, query -> controller.searchPatients(query, 50));
         
         // Referring Clinician
-        referringClinicianBox = new JComboBox<>();
-        for (Clinician c : controller.getAllClinicians()) {
-            referringClinicianBox.addItem(c.toString());
-        }
+        referringClinicianPicker = new EntityPicker<>(controller::getAllClinicians,
+            Clinician::getClinicianId, controller::getClinicianById);
         
         // Receiving Clinician (Specialists)
-        receivingClinicianBox = new JComboBox<>();
-        for (Clinician c : controller.getAllClinicians()) {
-            // Filter for consultants/specialists
-            if (c.getTitle().contains("Consultant") || c.getTitle().contains("Dr.")) {
-                receivingClinicianBox.addItem(c.toString());
-            }
-        }
+        receivingClinicianPicker = new EntityPicker<>(this::getSpecialists,
+            Clinician::getClinicianId, controller::getClinicianById);
         
-        // Referring Facility
-        referringFacilityBox = new JComboBox<>();
-        for (Facility f : controller.getAllFacilities()) {
-            referringFacilityBox.addItem(f.toString());
-        }
-        
-        // Receiving Facility
-        receivingFacilityBox = new JComboBox<>();
-        for (Facility f : controller.getAllFacilities()) {
-            receivingFacilityBox.addItem(f.toString());
-        }
+        // Referring and Receiving Facility
+        referringFacilityPicker = new EntityPicker<>(controller::getAllFacilities,
+            Facility::getFacilityId, controller::getFacilityById);
+        receivingFacilityPicker = new EntityPicker<>(controller::getAllFacilities,
+            Facility::getFacilityId, controller::getFacilityById);
         
         // Urgency
         urgencyBox = new JComboBox<>(new String[]{
@@ -104,9 +93,9 @@ public class ReferralDialog extends JDialog {
         // Add fields
         int row = 1;
         
-        addField(mainPanel, gbc, "Patient:", patientBox, row++);
-        addField(mainPanel, gbc, "Referring Clinician:", referringClinicianBox, row++);
-        addField(mainPanel, gbc, "Referring From (Facility):", referringFacilityBox, row++);
+        addField(mainPanel, gbc, "Patient:", patientPicker, row++);
+        addField(mainPanel, gbc, "Referring Clinician:", referringClinicianPicker, row++);
+        addField(mainPanel, gbc, "Referring From (Facility):", referringFacilityPicker, row++);
         
         // Separator
         JSeparator separator = new JSeparator();
@@ -116,8 +105,8 @@ public class ReferralDialog extends JDialog {
         mainPanel.add(separator, gbc);
         gbc.gridwidth = 1;
         
-        addField(mainPanel, gbc, "Referring To (Clinician):", receivingClinicianBox, row++);
-        addField(mainPanel, gbc, "Referring To (Facility):", receivingFacilityBox, row++);
+        addField(mainPanel, gbc, "Referring To (Clinician):", receivingClinicianPicker, row++);
+        addField(mainPanel, gbc, "Referring To (Facility):", receivingFacilityPicker, row++);
         
         // Another separator
         JSeparator separator2 = new JSeparator();
@@ -184,6 +173,19 @@ public class ReferralDialog extends JDialog {
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
+    /**
+     * Consultants/specialists who can receive a referral
+     */
+    private List<Clinician> getSpecialists() {
+        List<Clinician> specialists = new ArrayList<>();
+        for (Clinician c : controller.getAllClinicians()) {
+            if (c.getTitle().contains("Consultant") || c.getTitle().contains("Dr.")) {
+                specialists.add(c);
+            }
+        }
+        return specialists;
+    }
+    
     private void addField(JPanel panel, GridBagConstraints gbc, String label, 
                          JComponent field, int row) {
         gbc.gridx = 0;
@@ -206,12 +208,18 @@ public class ReferralDialog extends JDialog {
             return;
         }
         
-        // Extract IDs from combo box selections
-        String patientId = patientBox.getSelectedItem().toString().split(" - ")[0];
-        String referringClinicianId = referringClinicianBox.getSelectedItem().toString().split(" - ")[0];
-        String receivingClinicianId = receivingClinicianBox.getSelectedItem().toString().split(" - ")[0];
-        String referringFacilityId = referringFacilityBox.getSelectedItem().toString().split(" - ")[0];
-        String receivingFacilityId = receivingFacilityBox.getSelectedItem().toString().split(" - ")[0];
+        String patientId = patientPicker.getSelectedId();
+        String referringClinicianId = referringClinicianPicker.getSelectedId();
+        String receivingClinicianId = receivingClinicianPicker.getSelectedId();
+        String referringFacilityId = referringFacilityPicker.getSelectedId();
+        String receivingFacilityId = receivingFacilityPicker.getSelectedId();
+        if (patientId == null || referringClinicianId == null || receivingClinicianId == null ||
+            referringFacilityId == null || receivingFacilityId == null) {
+            JOptionPane.showMessageDialog(this, 
+                "Patient, clinicians and facilities are required!", 
+                "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         // Create referral using controller (which uses Singleton ReferralManager)
         boolean success = controller.createReferral(
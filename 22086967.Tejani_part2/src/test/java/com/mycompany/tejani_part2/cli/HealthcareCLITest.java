@@ -0,0 +1,79 @@
+package com.mycompany.tejani_part2.cli;
+
+import com.mycompany.tejani_part2.models.ReferralManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HealthcareCLI: exit codes and the JSON result when data files are missing
+ */
+class HealthcareCLITest {
+    @TempDir
+    Path dir;
+
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private PrintStream originalOut;
+
+    @BeforeEach
+    void captureStdout() {
+        ReferralManager.getInstance().clearAll();
+        originalOut = System.out;
+        System.setOut(new PrintStream(stdout, true));
+    }
+
+    @AfterEach
+    void restoreStdout() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void validateFailsOnAnEmptyDataDirectory() {
+        int exit = HealthcareCLI.run(new String[] {"validate", "--data", dir.toString()});
+
+        assertEquals(1, exit);
+        String json = output();
+        assertTrue(json.contains("\"ok\":false"), json);
+        assertTrue(json.contains("patients: file is missing or could not be read"), json);
+        assertTrue(json.contains("staff: file is missing or could not be read"), json);
+    }
+
+    @Test
+    void importAndStatsFailOnAMissingDataDirectory() {
+        String missing = dir.resolve("absent").toString();
+
+        assertEquals(1, HealthcareCLI.run(new String[] {"import", "--data", missing}));
+        assertTrue(output().contains("\"not_loaded\":[\"patients\""), output());
+
+        stdout.reset();
+        assertEquals(1, HealthcareCLI.run(new String[] {"stats", "--data", missing}));
+        assertTrue(output().contains("\"ok\":false"), output());
+    }
+
+    @Test
+    void oneMissingFileIsNamedOnItsOwn() throws IOException {
+        for (String entity : new String[] {"patients", "clinicians", "facilities", "appointments",
+                "prescriptions", "referrals"}) {
+            Files.write(dir.resolve(entity + ".csv"), "id\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(1, HealthcareCLI.run(new String[] {"import", "--data", dir.toString()}));
+        assertTrue(output().contains("\"not_loaded\":[\"staff\"]"), output());
+    }
+
+    // ==================== HELPERS ====================
+
+    private String output() {
+        return new String(stdout.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mycompany.tejani_part2.controllers;
+
+import com.mycompany.tejani_part2.models.ReferralManager;
+import com.mycompany.tejani_part2.models.Staff;
+import com.mycompany.tejani_part2.utilities.EntityExporter;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HealthcareController: the file watcher follows the directory the data was loaded from
+ */
+class HealthcareControllerTest {
+    @TempDir
+    Path dir;
+
+    private HealthcareController controller;
+
+    @BeforeEach
+    void create() {
+        ReferralManager.getInstance().clearAll();
+        controller = new HealthcareController();
+    }
+
+    @AfterEach
+    void stop() {
+        controller.stopWatchingDataFiles();
+    }
+
+    @Test
+    void watcherAppliesChangesInTheLoadedDirectory() throws IOException, InterruptedException {
+        for (EntitySchema<?> schema : EntitySchema.ALL) {
+            EntityExporter.writeFile(schema, Stream.empty(), dir.resolve(schema.getName() + ".csv"));
+        }
+        assertTrue(controller.loadAllData(dir.toFile()));
+        controller.startWatchingDataFiles(Runnable::run);
+
+        Staff member = new Staff();
+        member.setStaffId("ST1");
+        member.setFirstName("Ann");
+        EntityExporter.writeFile(EntitySchema.STAFF, Stream.of(member), dir.resolve("staff.csv"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (controller.getStaffById("ST1") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertNotNull(controller.getStaffById("ST1"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.mycompany.tejani_part2.models;
+
+import com.mycompany.tejani_part2.utilities.ChangeEvent;
+import com.mycompany.tejani_part2.utilities.ChangeEventBus;
+import com.mycompany.tejani_part2.utilities.DataManager;
+import com.mycompany.tejani_part2.utilities.TextSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReferralManager: every DataManager attached to the shared manager gets the
+ * referral search entries and change events
+ */
+class ReferralManagerTest {
+    private final ReferralManager referrals = ReferralManager.getInstance();
+    private final List<DataManager> attached = new ArrayList<>();
+
+    @BeforeEach
+    void clear() {
+        referrals.clearAll();
+    }
+
+    @AfterEach
+    void detach() {
+        for (DataManager data : attached) {
+            data.detachReferrals();
+        }
+    }
+
+    @Test
+    void everyDataManagerSeesReferralChanges() {
+        DataManager first = dataManager();
+        DataManager second = dataManager();
+        List<ChangeEvent<?>> firstEvents = subscribe(first);
+        List<ChangeEvent<?>> secondEvents = subscribe(second);
+
+        referrals.addReferral(referral("R1", "cardiology"));
+        first.getChangeEvents().flush();
+        second.getChangeEvents().flush();
+
+        assertEquals(1, first.search("cardiology", 10).size());
+        assertEquals(1, second.search("cardiology", 10).size());
+        assertEquals(1, firstEvents.size());
+        assertEquals(1, secondEvents.size());
+    }
+
+    @Test
+    void laterDataManagerIsGivenTheReferralsAlreadyHeld() {
+        dataManager();
+        referrals.addReferral(referral("R1", "dermatology"));
+
+        DataManager later = dataManager();
+
+        assertEquals("R1", later.search("dermatology", 10).get(0).getEntityId());
+    }
+
+    @Test
+    void attachingTheSameIndexOrBusTwiceFails() {
+        TextSearchIndex index = new TextSearchIndex();
+        ChangeEventBus bus = new ChangeEventBus();
+        referrals.attach(index, bus);
+        try {
+            assertThrows(IllegalStateException.class, () -> referrals.attach(index, bus));
+            assertThrows(IllegalStateException.class, () -> referrals.attach(new TextSearchIndex(), bus));
+        } finally {
+            referrals.detach(index, bus);
+        }
+    }
+
+    @Test
+    void detachedDataManagerIsNoLongerUpdated() {
+        DataManager data = dataManager();
+        data.detachReferrals();
+
+        referrals.addReferral(referral("R1", "neurology"));
+
+        assertTrue(data.search("neurology", 10).isEmpty());
+    }
+
+    // ==================== HELPERS ====================
+
+    private DataManager dataManager() {
+        DataManager data = new DataManager();
+        attached.add(data);
+        return data;
+    }
+
+    private static List<ChangeEvent<?>> subscribe(DataManager data) {
+        List<ChangeEvent<?>> events = new ArrayList<>();
+        data.getChangeEvents().subscribe(Runnable::run, events::addAll);
+        return events;
+    }
+
+    private static Referral referral(String id, String reason) {
+        Referral referral = new Referral();
+        referral.setReferralId(id);
+        referral.setReferralReason(reason);
+        referral.setStatus("Completed");
+        return referral;
+    }
+}
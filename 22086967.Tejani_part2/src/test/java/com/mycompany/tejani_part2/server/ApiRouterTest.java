@@ -0,0 +1,59 @@
+package com.mycompany.tejani_part2.server;
+
+import com.mycompany.tejani_part2.controllers.HealthcareController;
+import com.mycompany.tejani_part2.models.Patient;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import com.mycompany.tejani_part2.utilities.EntitySchema;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ApiRouter: optimistic updates answer 409 once the row has moved on
+ */
+class ApiRouterTest {
+    private HealthcareController controller;
+    private ApiRouter router;
+
+    @BeforeEach
+    void create() {
+        ReferralManager.getInstance().clearAll();
+        controller = new HealthcareController();
+        Patient patient = new Patient();
+        patient.setPatientId("P1");
+        patient.setFirstName("Ann");
+        patient.setLastName("Smith");
+        controller.addPatient(patient);
+        router = new ApiRouter(controller);
+    }
+
+    @Test
+    void updateWithTheCurrentVersionIsApplied() {
+        long version = controller.getVersion(EntitySchema.PATIENTS, "P1");
+
+        ApiResponse response = put("P1", "{\"address\":\"1 High St\",\"version\":" + version + "}");
+
+        assertEquals(200, response.status);
+        assertEquals("1 High St", controller.getPatientById("P1").getAddress());
+    }
+
+    @Test
+    void updateWithAStaleVersionIsAConflict() {
+        long version = controller.getVersion(EntitySchema.PATIENTS, "P1");
+        assertEquals(200, put("P1", "{\"address\":\"first\",\"version\":" + version + "}").status);
+
+        ApiResponse response = put("P1", "{\"address\":\"second\",\"version\":" + version + "}");
+
+        assertEquals(409, response.status);
+        assertTrue(response.body.contains("\"version\":" + controller.getVersion(EntitySchema.PATIENTS, "P1")),
+            response.body);
+        assertEquals("first", controller.getPatientById("P1").getAddress());
+    }
+
+    // ==================== HELPERS ====================
+
+    private ApiResponse put(String id, String body) {
+        return router.handle("PUT", "/api/patients/" + id, null, body);
+    }
+}
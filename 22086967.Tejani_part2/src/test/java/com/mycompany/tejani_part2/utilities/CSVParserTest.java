@@ -0,0 +1,193 @@
+package com.mycompany.tejani_part2.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSVReader.Parser against RFC 4180 input, including records that straddle buffer fills
+ */
+class CSVParserTest {
+    // Larger than the parser's 64 KB buffer, so one field spans several fills
+    private static final int LONG_FIELD = (1 << 16) + 1000;
+
+    @Test
+    void splitsFieldsAndRecordsOnEveryLineBreakStyle() throws IOException {
+        List<String[]> records = parseAll(new StringReader("a,b\r\nc,d\ne,f\rg,h"));
+
+        assertRecords(records, new String[] {"a", "b"}, new String[] {"c", "d"},
+            new String[] {"e", "f"}, new String[] {"g", "h"});
+    }
+
+    @Test
+    void keepsEmptyFieldsAndSkipsBlankLines() throws IOException {
+        List<String[]> records = parseAll(new StringReader(",a,\n\n\r\n,\n"));
+
+        assertRecords(records, new String[] {"", "a", ""}, new String[] {"", ""});
+    }
+
+    @Test
+    void quotedFieldsHoldCommasLineBreaksAndEscapedQuotes() throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader(
+            "\"a, \"\"b\"\"\",\"line1\r\nline2\",\"\"\"\"\nnext,row\n"));
+
+        assertArrayEquals(new String[] {"a, \"b\"", "line1\r\nline2", "\""}, parser.next());
+        assertNull(parser.getError());
+        assertEquals(1, parser.getLine());
+        assertArrayEquals(new String[] {"next", "row"}, parser.next());
+        assertEquals(3, parser.getLine());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void quoteInsideAnUnquotedFieldIsKept() throws IOException {
+        assertArrayEquals(new String[] {"5\" tall", "x"},
+            new CSVReader.Parser(new StringReader("5\" tall,x\n")).next());
+    }
+
+    @Test
+    void unterminatedQuoteIsReportedAndTakesTheRestOfTheInput() throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader("a,\"open\nstill open"));
+
+        assertArrayEquals(new String[] {"a", "open\nstill open"}, parser.next());
+        assertNotNull(parser.getError());
+        assertFalse(parser.isTerminated());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void textAfterClosingQuoteIsReportedAndParsingCarriesOn() throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader("\"a\"b,c\nd,e\n"));
+
+        assertArrayEquals(new String[] {"ab", "c"}, parser.next());
+        assertNotNull(parser.getError());
+        assertArrayEquals(new String[] {"d", "e"}, parser.next());
+        assertNull(parser.getError());
+    }
+
+    @Test
+    void lastRecordWithoutLineBreakIsNotTerminated() throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader("a\nb"));
+
+        parser.next();
+        assertTrue(parser.isTerminated());
+        assertEquals(2, parser.getRecordEnd());
+        parser.next();
+        assertFalse(parser.isTerminated());
+        assertEquals(3, parser.getRecordEnd());
+    }
+
+    @Test
+    void sameRecordsWhateverTheReadSize() throws IOException {
+        String text = "id,\"note, with comma\",x\r\n"
+            + "1,\"say \"\"hi\"\"\r\nthen go\",\r\n"
+            + "\r\n"
+            + "2,plain,\"\"\r"
+            + "3,\"bad\"tail,z\n"
+            + "4,\"unterminated";
+        List<String[]> expected = parseAll(new StringReader(text));
+
+        for (int chunk = 1; chunk <= 8; chunk++) {
+            List<String[]> actual = parseAll(new ChunkedReader(text, chunk));
+            assertEquals(expected.size(), actual.size(), "records with reads of " + chunk);
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i), "record " + i + " with reads of " + chunk);
+            }
+        }
+    }
+
+    @Test
+    void crlfSplitAcrossFillsIsOneLineBreak() throws IOException {
+        // Each read ends on the CR, so the LF arrives with the next fill
+        CSVReader.Parser parser = new CSVReader.Parser(new ChunkedReader(Arrays.asList("a,b\r", "\nc\r", "\n")));
+
+        assertArrayEquals(new String[] {"a", "b"}, parser.next());
+        assertEquals(5, parser.getRecordEnd());
+        assertArrayEquals(new String[] {"c"}, parser.next());
+        assertEquals(2, parser.getLine());
+        assertEquals(8, parser.getRecordEnd());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void fieldsLongerThanTheBufferAreJoinedAcrossFills() throws IOException {
+        String plain = repeat('p', LONG_FIELD);
+        // An escaped quote and a comma just past the first fill
+        String quoted = repeat('q', LONG_FIELD - 3) + "\"\"," + repeat('r', 10);
+        String text = plain + ",\"" + quoted + "\"\nend\n";
+
+        CSVReader.Parser parser = new CSVReader.Parser(new StringReader(text));
+        String[] first = parser.next();
+
+        assertEquals(2, first.length);
+        assertEquals(plain, first[0]);
+        assertEquals(repeat('q', LONG_FIELD - 3) + "\"," + repeat('r', 10), first[1]);
+        assertNull(parser.getError());
+        assertArrayEquals(new String[] {"end"}, parser.next());
+    }
+
+    // ==================== HELPERS ====================
+
+    private static List<String[]> parseAll(Reader in) throws IOException {
+        CSVReader.Parser parser = new CSVReader.Parser(in);
+        List<String[]> records = new ArrayList<>();
+        String[] values;
+        while ((values = parser.next()) != null) {
+            records.add(values);
+        }
+        return records;
+    }
+
+    private static void assertRecords(List<String[]> actual, String[]... expected) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual.get(i), "record " + i);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    /**
+     * Hands out its text in the given pieces, one piece per read
+     */
+    private static class ChunkedReader extends Reader {
+        private final List<String> pieces;
+        private int next;
+
+        ChunkedReader(String text, int size) {
+            pieces = new ArrayList<>();
+            for (int i = 0; i < text.length(); i += size) {
+                pieces.add(text.substring(i, Math.min(text.length(), i + size)));
+            }
+        }
+
+        ChunkedReader(List<String> pieces) {
+            this.pieces = pieces;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (next == pieces.size()) {
+                return -1;
+            }
+            String piece = pieces.get(next++);
+            piece.getChars(0, piece.length(), buffer, offset);
+            return piece.length();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mycompany.tejani_part2.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CSVReader.Tail: only whole, newly appended records come back from readNew()
+ */
+class CSVTailTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void skipsTheHeaderAndReturnsOnlyNewRecords() throws IOException {
+        Path file = write("feed.csv", "id,name\nA1,first\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true);
+
+        assertRecords(tail.readNew(), "A1|first");
+        assertTrue(tail.readNew().isEmpty());
+
+        append(file, "A2,second\nA3,third\n");
+        assertRecords(tail.readNew(), "A2|second", "A3|third");
+    }
+
+    @Test
+    void partialLastLineWaitsForItsLineBreak() throws IOException {
+        Path file = write("feed.csv", "A1,first\nA2,sec");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), false);
+
+        assertRecords(tail.readNew(), "A1|first");
+        assertEquals(9, tail.getOffset());
+
+        append(file, "ond");
+        assertTrue(tail.readNew().isEmpty());
+        assertEquals(9, tail.getOffset());
+
+        append(file, "\n");
+        assertRecords(tail.readNew(), "A2|second");
+        assertEquals(Files.size(file), tail.getOffset());
+    }
+
+    @Test
+    void quotedFieldStillBeingWrittenIsLeftForTheNextCall() throws IOException {
+        // The line break inside the open quote is not the end of the record
+        Path file = write("feed.csv", "A1,\"first line\nsecond");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), false);
+
+        assertTrue(tail.readNew().isEmpty());
+        assertEquals(0, tail.getOffset());
+
+        append(file, " line\"\n");
+        assertRecords(tail.readNew(), "A1|first line\nsecond line");
+    }
+
+    @Test
+    void offsetCountsBytesNotChars() throws IOException {
+        Path file = write("feed.csv", "A1,café\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), false);
+
+        assertRecords(tail.readNew(), "A1|café");
+        assertEquals(Files.size(file), tail.getOffset());
+
+        append(file, "A2,naïve\n");
+        assertRecords(tail.readNew(), "A2|naïve");
+    }
+
+    @Test
+    void startsFromAGivenOffsetWithoutSkippingAHeader() throws IOException {
+        Path file = write("feed.csv", "id,name\nA1,first\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true, Files.size(file));
+
+        append(file, "A2,second\n");
+        assertRecords(tail.readNew(), "A2|second");
+    }
+
+    @Test
+    void fileThatShrinksIsReadAgainFromTheStart() throws IOException {
+        Path file = write("feed.csv", "id,name\nA1,first\nA2,second\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true);
+        tail.readNew();
+
+        write("feed.csv", "id,name\nB1,new\n");
+        assertRecords(tail.readNew(), "B1|new");
+    }
+
+    @Test
+    void sameSizeRewriteIsReadAgainFromTheStart() throws IOException {
+        Path file = write("feed.csv", "id,name\nA1,first\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true);
+        assertRecords(tail.readNew(), "A1|first");
+
+        write("feed.csv", "id,name\nB1,other\n");
+        assertRecords(tail.readNew(), "B1|other");
+        assertTrue(tail.readNew().isEmpty());
+    }
+
+    @Test
+    void ownRewriteIsSkippedToItsEnd() throws IOException {
+        Path file = write("feed.csv", "id,name\nA1,first\n");
+        CSVReader.Tail tail = new CSVReader.Tail(file.toString(), true);
+        tail.ignoreOwnWrites(path -> path.equals(file));
+        tail.readNew();
+
+        write("feed.csv", "id,name\nB1,saved\n");
+        assertTrue(tail.readNew().isEmpty());
+        assertEquals(Files.size(file), tail.getOffset());
+
+        append(file, "B2,appended\n");
+        assertRecords(tail.readNew(), "B2|appended");
+    }
+
+    @Test
+    void missingFileHasNoRecords() throws IOException {
+        CSVReader.Tail tail = new CSVReader.Tail(dir.resolve("absent.csv").toString(), true);
+
+        assertTrue(tail.readNew().isEmpty());
+    }
+
+    @Test
+    void compressedFileIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new CSVReader.Tail(dir.resolve("feed.csv.gz").toString(), true));
+    }
+
+    // ==================== HELPERS ====================
+
+    private Path write(String name, String text) throws IOException {
+        return Files.write(dir.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records compared as their fields joined with '|'
+     */
+    private static void assertRecords(List<String[]> actual, String... expected) {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], String.join("|", actual.get(i)), "record " + i);
+        }
+    }
+}
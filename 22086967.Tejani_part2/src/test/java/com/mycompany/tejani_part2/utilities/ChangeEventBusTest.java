@@ -0,0 +1,163 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Appointment;
+import com.mycompany.tejani_part2.models.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChangeEventBus: events published within one tick reach listeners as one coalesced batch
+ */
+class ChangeEventBusTest {
+    // Long enough that only the tests' own flush() calls deliver anything
+    private static final long NEVER = 60_000;
+
+    private ChangeEventBus bus;
+    private List<List<ChangeEvent<?>>> batches;
+
+    @BeforeEach
+    void subscribe() {
+        bus = new ChangeEventBus(NEVER);
+        batches = new ArrayList<>();
+        bus.subscribe(Runnable::run, batches::add);
+    }
+
+    @Test
+    void addFollowedByUpdatesIsOneAddOfTheLatestValue() {
+        Patient first = patient("P1");
+        Patient latest = patient("P1");
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", first));
+        bus.publish(ChangeEvent.updated(EntitySchema.PATIENTS, "P1", first, patient("P1")));
+        bus.publish(ChangeEvent.updated(EntitySchema.PATIENTS, "P1", first, latest));
+        bus.flush();
+
+        ChangeEvent<?> event = onlyEvent();
+        assertEquals(ChangeEvent.Operation.ADD, event.getOperation());
+        assertSame(latest, event.getAfter());
+    }
+
+    @Test
+    void addFollowedByDeleteCancelsOut() {
+        Patient patient = patient("P1");
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient));
+        bus.publish(ChangeEvent.deleted(EntitySchema.PATIENTS, "P1", patient));
+        bus.flush();
+
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    void updatesThenDeleteKeepTheOriginalBefore() {
+        Patient original = patient("P1");
+        Patient edited = patient("P1");
+        bus.publish(ChangeEvent.updated(EntitySchema.PATIENTS, "P1", original, edited));
+        bus.publish(ChangeEvent.deleted(EntitySchema.PATIENTS, "P1", edited));
+        bus.flush();
+
+        ChangeEvent<?> event = onlyEvent();
+        assertEquals(ChangeEvent.Operation.DELETE, event.getOperation());
+        assertSame(original, event.getBefore());
+    }
+
+    @Test
+    void deleteThenAddIsAnUpdate() {
+        Patient original = patient("P1");
+        Patient replacement = patient("P1");
+        bus.publish(ChangeEvent.deleted(EntitySchema.PATIENTS, "P1", original));
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", replacement));
+        bus.flush();
+
+        ChangeEvent<?> event = onlyEvent();
+        assertEquals(ChangeEvent.Operation.UPDATE, event.getOperation());
+        assertSame(original, event.getBefore());
+        assertSame(replacement, event.getAfter());
+    }
+
+    @Test
+    void reloadDropsPendingRowEventsOfItsTableOnly() {
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.publish(ChangeEvent.added(EntitySchema.APPOINTMENTS, "A1", new Appointment()));
+        bus.publish(ChangeEvent.reloaded(EntitySchema.PATIENTS));
+        bus.flush();
+
+        assertEquals(1, batches.size());
+        List<ChangeEvent<?>> batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals("appointments", batch.get(0).getEntity());
+        assertEquals(ChangeEvent.Operation.RELOAD, batch.get(1).getOperation());
+        assertEquals("patients", batch.get(1).getEntity());
+    }
+
+    @Test
+    void differentRowsStayInPublishOrder() {
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P2", patient("P2")));
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.publish(ChangeEvent.updated(EntitySchema.PATIENTS, "P2", patient("P2"), patient("P2")));
+        bus.flush();
+
+        List<ChangeEvent<?>> batch = batches.get(0);
+        assertEquals("P2", batch.get(0).getId());
+        assertEquals("P1", batch.get(1).getId());
+    }
+
+    @Test
+    void eachFlushIsItsOwnBatch() {
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.flush();
+        bus.publish(ChangeEvent.deleted(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.flush();
+        bus.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(ChangeEvent.Operation.ADD, batches.get(0).get(0).getOperation());
+        assertEquals(ChangeEvent.Operation.DELETE, batches.get(1).get(0).getOperation());
+    }
+
+    @Test
+    void listenersOnlyGetTheEntitiesTheyAskedFor() {
+        List<List<ChangeEvent<?>>> appointmentBatches = new ArrayList<>();
+        bus.subscribe(Collections.singleton("appointments"), Runnable::run, appointmentBatches::add);
+
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.flush();
+        bus.publish(ChangeEvent.added(EntitySchema.APPOINTMENTS, "A1", new Appointment()));
+        bus.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(1, appointmentBatches.size());
+        assertEquals("A1", appointmentBatches.get(0).get(0).getId());
+    }
+
+    @Test
+    void closedSubscriptionGetsNothingMore() {
+        List<List<ChangeEvent<?>>> received = new ArrayList<>();
+        ChangeEventBus.Subscription subscription = bus.subscribe(Runnable::run, received::add);
+        subscription.close();
+
+        bus.publish(ChangeEvent.added(EntitySchema.PATIENTS, "P1", patient("P1")));
+        bus.flush();
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, batches.size());
+    }
+
+    // ==================== HELPERS ====================
+
+    private ChangeEvent<?> onlyEvent() {
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        return batches.get(0).get(0);
+    }
+
+    private static Patient patient(String id) {
+        Patient patient = new Patient();
+        patient.setPatientId(id);
+        return patient;
+    }
+}
@@ -0,0 +1,111 @@
+package com.mycompany.tejani_part2.utilities;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compression: round trips through each format, and input recognised by its
+ * first bytes rather than its name
+ */
+class CompressionTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void gzipRoundTripSpansSeveralChunks() throws IOException {
+        byte[] data = sample(1 << 20);
+        Path file = compress(Compression.GZIP, "data.gz", data);
+
+        assertArrayEquals(data, readAll(file));
+    }
+
+    @Test
+    void deflateRoundTripSpansSeveralChunks() throws IOException {
+        byte[] data = sample(1 << 20);
+        Path file = compress(Compression.DEFLATE, "data.zz", data);
+
+        assertArrayEquals(data, readAll(file));
+    }
+
+    @Test
+    void compressedInputIsRecognisedWhateverItsName() throws IOException {
+        byte[] data = sample(1000);
+        Path file = compress(Compression.GZIP, "data.csv", data);
+
+        assertArrayEquals(data, readAll(file));
+    }
+
+    @Test
+    void plainTextStartingWithAnXIsNotTakenForDeflate() throws IOException {
+        byte[] data = "xray,1\nx-ray,2\n".getBytes(StandardCharsets.UTF_8);
+        Path file = Files.write(dir.resolve("data.csv"), data);
+
+        assertArrayEquals(data, readAll(file));
+    }
+
+    @Test
+    void zstandardInputFailsWithAMessage() throws IOException {
+        Path file = Files.write(dir.resolve("data.csv"), new byte[] {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0, 0});
+
+        IOException e = assertThrows(IOException.class, () -> Compression.open(file).close());
+        assertTrue(e.getMessage().contains("Zstandard"), e.getMessage());
+    }
+
+    @Test
+    void namesAndExtensions() {
+        assertEquals(Compression.GZIP, Compression.forFile(Paths.get("patients.csv.GZ")));
+        assertEquals(Compression.DEFLATE, Compression.forFile(Paths.get("patients.csv.zz")));
+        assertEquals(Compression.NONE, Compression.forFile(Paths.get("patients.csv")));
+        assertEquals("patients.csv", Compression.stripExtension("patients.csv.gz"));
+        assertEquals("patients.csv", Compression.stripExtension("patients.csv"));
+    }
+
+    @Test
+    void missingFileIsReadFromItsCompressedCopy() throws IOException {
+        compress(Compression.GZIP, "staff.csv.gz", "id,name\nST1,Ann\n".getBytes(StandardCharsets.UTF_8));
+        Path plain = dir.resolve("staff.csv");
+
+        assertEquals(dir.resolve("staff.csv.gz"), Compression.resolve(plain));
+        List<String[]> rows = CSVReader.readCSV(plain.toString(), true);
+        assertEquals(1, rows.size());
+        assertEquals("Ann", rows.get(0)[1]);
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Repetitive but not constant text, so it compresses without being trivial
+     */
+    private static byte[] sample(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ('a' + (i * 7 + i / 13) % 26);
+        }
+        return data;
+    }
+
+    private Path compress(Compression compression, String name, byte[] data) throws IOException {
+        Path file = dir.resolve(name);
+        try (OutputStream out = compression.wrap(Files.newOutputStream(file))) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] readAll(Path file) throws IOException {
+        try (InputStream in = Compression.open(file)) {
+            return in.readAllBytes();
+        }
+    }
+}
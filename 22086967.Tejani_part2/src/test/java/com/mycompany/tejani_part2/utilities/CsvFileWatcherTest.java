@@ -0,0 +1,109 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.ReferralManager;
+import com.mycompany.tejani_part2.models.Staff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CsvFileWatcher: only the rows a file changed are applied, and the
+ * application's own saves are not applied back
+ */
+class CsvFileWatcherTest {
+    @TempDir
+    Path dir;
+
+    private DataManager data;
+    private CsvFileWatcher watcher;
+    private Path file;
+
+    @BeforeEach
+    void create() throws IOException {
+        ReferralManager.getInstance().clearAll();
+        data = new DataManager();
+        file = dir.resolve("staff.csv");
+        writeStaff(staff("ST1", "Ann"), staff("ST2", "Bob"), staff("ST3", "Cat"));
+        assertTrue(data.loadStaff(file.toString()));
+        watcher = new CsvFileWatcher(data, dir, Runnable::run);
+        watcher.watch(EntitySchema.STAFF);
+    }
+
+    @Test
+    void reloadAppliesOnlyTheRowsTheFileChanged() throws IOException {
+        // An edit in the application to a row the file leaves alone is kept
+        data.updateStaff("ST2", staff("ST2", "Bobby"));
+        writeStaff(staff("ST1", "Anne"), staff("ST2", "Bob"), staff("ST4", "Dan"));
+
+        CsvFileWatcher.Delta delta = watcher.reload("staff.csv");
+
+        assertEquals(1, delta.getInserted());
+        assertEquals(1, delta.getUpdated());
+        assertEquals(1, delta.getDeleted());
+        assertEquals("Anne", data.getStaffById("ST1").getFirstName());
+        assertEquals("Bobby", data.getStaffById("ST2").getFirstName());
+        assertNull(data.getStaffById("ST3"));
+        assertEquals("Dan", data.getStaffById("ST4").getFirstName());
+    }
+
+    @Test
+    void unchangedFileIsAnEmptyDelta() throws IOException {
+        writeStaff(staff("ST1", "Ann"), staff("ST2", "Bob"), staff("ST3", "Cat"));
+
+        assertTrue(watcher.reload("staff.csv").isEmpty());
+    }
+
+    @Test
+    void ownSaveIsNotAppliedBack() throws IOException {
+        data.updateStaff("ST1", staff("ST1", "Saved"));
+        assertTrue(data.saveStaff(file.toString()));
+        // Edited again before the watcher gets round to the save
+        data.updateStaff("ST1", staff("ST1", "Newer"));
+
+        assertTrue(watcher.reload("staff.csv").isEmpty());
+        assertEquals("Newer", data.getStaffById("ST1").getFirstName());
+    }
+
+    @Test
+    void changesAfterAnOwnSaveAreComparedWithTheSave() throws IOException {
+        data.addStaff(staff("ST4", "Dan"));
+        assertTrue(data.saveStaff(file.toString()));
+        watcher.reload("staff.csv");
+
+        writeStaff(staff("ST1", "Ann"), staff("ST2", "Bob"), staff("ST3", "Cat"), staff("ST4", "Daniel"));
+        CsvFileWatcher.Delta delta = watcher.reload("staff.csv");
+
+        assertEquals(0, delta.getInserted());
+        assertEquals(1, delta.getUpdated());
+        assertEquals("Daniel", data.getStaffById("ST4").getFirstName());
+    }
+
+    @Test
+    void fileThatIsNotWatchedIsIgnored() throws IOException {
+        assertNull(watcher.reload("patients.csv"));
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Overwrite staff.csv from outside DataManager, as another system would
+     */
+    private void writeStaff(Staff... rows) throws IOException {
+        EntityExporter.writeFile(EntitySchema.STAFF, Stream.of(rows), EntityExporter.Format.CSV, file);
+    }
+
+    private static Staff staff(String id, String firstName) {
+        Staff member = new Staff();
+        member.setStaffId(id);
+        member.setFirstName(firstName);
+        member.setLastName("Last");
+        member.setRole("Nurse");
+        return member;
+    }
+}
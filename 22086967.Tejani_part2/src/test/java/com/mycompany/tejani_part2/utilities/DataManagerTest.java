@@ -0,0 +1,199 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Appointment;
+import com.mycompany.tejani_part2.models.Referral;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import com.mycompany.tejani_part2.models.Staff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DataManager: loading files into the tables, and concurrent writes keeping
+ * the indexes in step with the rows
+ */
+class DataManagerTest {
+    private static final String REFERRAL_HEADER = "referral_id,patient_id,referring_clinician_id,"
+        + "referred_to_clinician_id,referring_facility_id,referred_to_facility_id,referral_date,"
+        + "urgency_level,referral_reason,clinical_summary,requested_investigations,status,"
+        + "appointment_id,notes,created_date,last_updated\n";
+
+    @TempDir
+    Path dir;
+
+    private DataManager data;
+
+    @BeforeEach
+    void create() {
+        ReferralManager.getInstance().clearAll();
+        data = new DataManager();
+    }
+
+    @Test
+    void loadingReferralsAgainReplacesThem() throws IOException {
+        Path file = write("referrals.csv", REFERRAL_HEADER + referral("R1", "Pending") + referral("R2", "New"));
+        assertTrue(data.loadReferrals(file.toString()));
+        assertTrue(data.loadReferrals(file.toString()));
+
+        assertEquals(2, data.getReferralManager().getAllReferrals().size());
+        assertEquals(2, data.getReferralManager().getPendingReferralsCount());
+        assertTrue(data.getReferralManager().getReferralTable().duplicateIds().isEmpty());
+    }
+
+    @Test
+    void repeatedReferralIdKeepsTheLastRow() throws IOException {
+        Path file = write("referrals.csv", REFERRAL_HEADER + referral("R1", "Pending") + referral("R1", "Completed"));
+        assertTrue(data.loadReferrals(file.toString()));
+
+        List<Referral> referrals = data.getReferralManager().getAllReferrals();
+        assertEquals(1, referrals.size());
+        assertEquals("Completed", referrals.get(0).getStatus());
+        assertEquals(0, data.getReferralManager().getPendingReferralsCount());
+    }
+
+    @Test
+    void gettersReturnSnapshotsThatLaterWritesLeaveAlone() throws IOException {
+        Path file = write("referrals.csv", REFERRAL_HEADER + referral("R1", "Pending"));
+        assertTrue(data.loadReferrals(file.toString()));
+        List<Referral> referrals = data.getReferralManager().getAllReferrals();
+        Staff member = new Staff();
+        member.setStaffId("ST1");
+        data.addStaff(member);
+        List<Staff> staff = data.getStaff();
+
+        data.getReferralManager().updateReferralStatus("R1", "Completed");
+        data.deleteStaff("ST1");
+
+        assertEquals("Pending", referrals.get(0).getStatus());
+        assertEquals(1, staff.size());
+        assertTrue(data.getStaff().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> staff.add(member));
+    }
+
+    @Test
+    void savedFileIsAnOwnWriteUntilSomeoneElseChangesIt() throws IOException {
+        Staff member = new Staff();
+        member.setStaffId("ST1");
+        data.addStaff(member);
+        Path file = dir.resolve("staff.csv");
+        assertFalse(data.isOwnWrite(file));
+
+        assertTrue(data.saveStaff(file.toString()));
+        assertTrue(data.isOwnWrite(file));
+
+        Files.write(file, "ST2\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertFalse(data.isOwnWrite(file));
+    }
+
+    @Test
+    void concurrentUpdatesKeepTheStatusIndexInStepWithTheRows() throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            data.addAppointment(appointment("A" + i, "Scheduled"));
+        }
+        String[] statuses = {"Scheduled", "Completed", "Cancelled"};
+        runConcurrently(4, thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < 2000; i++) {
+                String id = "A" + random.nextInt(50);
+                data.updateAppointment(id, appointment(id, statuses[random.nextInt(statuses.length)]));
+            }
+        });
+
+        SecondaryIndex<Appointment> index = data.appointmentIndex("status");
+        for (String status : statuses) {
+            Set<String> expected = data.getAppointments().stream()
+                .filter(a -> a.getStatus().equals(status))
+                .map(Appointment::getAppointmentId)
+                .collect(Collectors.toSet());
+            assertEquals(expected, new HashSet<>(index.get(status)), status);
+        }
+    }
+
+    @Test
+    void columnarRowsAreNeverReadHalfWritten() throws InterruptedException {
+        data.setColumnarStorage(true);
+        for (int i = 0; i < 10; i++) {
+            data.addAppointment(appointment("A" + i, "v0"));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        runConcurrently(3, thread -> {
+            if (thread == 0) {
+                for (int n = 1; n <= 20_000; n++) {
+                    String id = "A" + n % 10;
+                    data.updateAppointment(id, appointment(id, "v" + n));
+                    if (n % 100 == 0) {
+                        data.getAppointments();
+                    }
+                }
+                writing.set(false);
+                return;
+            }
+            Random random = new Random(thread);
+            while (writing.get()) {
+                Appointment read = data.getAppointmentById("A" + random.nextInt(10));
+                if (read == null || !read.getStatus().equals(read.getNotes())) {
+                    torn.compareAndSet(null, read == null ? "missing" : read.getStatus() + "/" + read.getNotes());
+                }
+            }
+        });
+
+        assertNull(torn.get());
+    }
+
+    // ==================== HELPERS ====================
+
+    private Path write(String name, String text) throws IOException {
+        return Files.write(dir.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * An appointment whose notes repeat its status, so a row read half
+     * written shows up as a mismatch
+     */
+    private static Appointment appointment(String id, String status) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(id);
+        appointment.setStatus(status);
+        appointment.setNotes(status);
+        return appointment;
+    }
+
+    private static void runConcurrently(int threads, IntConsumer body) throws InterruptedException {
+        List<Thread> started = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread t = new Thread(() -> body.accept(thread));
+            t.setUncaughtExceptionHandler((ignored, e) -> failure.compareAndSet(null, e));
+            started.add(t);
+            t.start();
+        }
+        for (Thread t : started) {
+            t.join();
+        }
+        assertNull(failure.get());
+    }
+
+    private static String referral(String id, String status) {
+        return String.join(",", id, "P1", "C1", "C2", "S1", "H1", "2024-01-20", "Routine", "reason",
+            "summary", "tests", status, "A1", "notes", "2024-01-20", "2024-01-20") + "\n";
+    }
+}
@@ -0,0 +1,107 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DuplicatePatientDetector: blocking, scoring, grouping and the Soundex code
+ */
+class DuplicatePatientDetectorTest {
+    private final DuplicatePatientDetector detector = new DuplicatePatientDetector(0.8, 2);
+
+    @Test
+    void soundexCodes() {
+        assertEquals("S530", DuplicatePatientDetector.soundex("smith"));
+        assertEquals("S530", DuplicatePatientDetector.soundex("smyth"));
+        assertEquals("R163", DuplicatePatientDetector.soundex("robert"));
+        assertEquals("R163", DuplicatePatientDetector.soundex("rupert"));
+        // h between two letters with the same code does not separate them
+        assertEquals("A261", DuplicatePatientDetector.soundex("ashcraft"));
+        assertEquals("P236", DuplicatePatientDetector.soundex("pfister"));
+        assertEquals("L000", DuplicatePatientDetector.soundex("lee"));
+    }
+
+    @Test
+    void sameNhsNumberAndNameIsADuplicate() {
+        DuplicatePatientDetector.Result result = detector.detect(List.of(
+            patient("P1", "Ann", "Smith", "1985-03-15", "943 476 5919", "B1 1AA"),
+            patient("P2", "Ann", "Smith", "1985-03-15", "9434765919", "B1 1AA"),
+            patient("P3", "Bob", "Jones", "1990-01-01", "4010232137", "M1 1AE")));
+
+        assertEquals(1, result.getGroups().size());
+        assertEquals(List.of("P1", "P2"), result.getGroups().get(0).getPatientIds());
+        // The pair shares all three keys but is scored once
+        assertEquals(1, result.getComparisons());
+    }
+
+    @Test
+    void misspeltNameWithTheSameBirthDateAndPostcodeIsADuplicate() {
+        DuplicatePatientDetector.Result result = detector.detect(List.of(
+            patient("P1", "Catherine", "Smith", "1985-03-15", "", "B1 1AA"),
+            patient("P2", "Katherine", "Smyth", "1985-03-15", "", "B1 1AA")));
+
+        assertEquals(1, result.getGroups().size());
+        assertTrue(result.getGroups().get(0).getMaxScore() >= 0.8);
+    }
+
+    @Test
+    void differentNhsNumbersAreNotDuplicates() {
+        DuplicatePatientDetector.Result result = detector.detect(List.of(
+            patient("P1", "Ann", "Smith", "1985-03-15", "9434765919", "B1 1AA"),
+            patient("P2", "Ann", "Smith", "1985-03-15", "4010232137", "B1 1AA")));
+
+        assertTrue(result.getGroups().isEmpty());
+        assertTrue(result.getComparisons() > 0);
+    }
+
+    @Test
+    void matchesChainIntoOneGroup() {
+        DuplicatePatientDetector.Result result = detector.detect(List.of(
+            patient("P3", "Ann", "Smith", "1985-03-15", "", "B1 1AA"),
+            patient("P1", "Ann", "Smith", "1985-03-15", "9434765919", "B1 1AA"),
+            patient("P2", "Ann", "Smith", "1985-03-15", "9434765919", ""),
+            patient("P4", "Zed", "Other", "1970-07-07", "", "M1 1AE")));
+
+        assertEquals(1, result.getGroups().size());
+        assertEquals(List.of("P1", "P2", "P3"), result.getGroups().get(0).getPatientIds());
+    }
+
+    @Test
+    void oversizedBlockIsSkippedAndCounted() {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i <= DuplicatePatientDetector.MAX_BLOCK_SIZE; i++) {
+            // Only the NHS number is set, so the NHS block is the only block
+            patients.add(patient("P" + i, "Name" + i, "", "", "9434765919", ""));
+        }
+
+        DuplicatePatientDetector.Result result = detector.detect(patients);
+
+        assertEquals(1, result.getOversizedBlocks());
+        assertEquals(0, result.getComparisons());
+        assertTrue(result.getGroups().isEmpty());
+    }
+
+    @Test
+    void thresholdOutsideTheUnitIntervalIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new DuplicatePatientDetector(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DuplicatePatientDetector(1.5, 1));
+    }
+
+    // ==================== HELPERS ====================
+
+    private static Patient patient(String id, String first, String last, String dob, String nhs, String postcode) {
+        Patient patient = new Patient();
+        patient.setPatientId(id);
+        patient.setFirstName(first);
+        patient.setLastName(last);
+        patient.setDateOfBirth(dob);
+        patient.setNhsNumber(nhs);
+        patient.setPostcode(postcode);
+        return patient;
+    }
+}
@@ -0,0 +1,106 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EntityExporter: CSV quoting, NDJSON rows, and files replaced only once
+ * an export is complete
+ */
+class EntityExporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void csvFieldsAreQuotedOnlyWhenNeeded() throws IOException {
+        StringBuilder out = new StringBuilder();
+        for (String value : new String[] {"plain", "a,b", "say \"hi\"", "two\nlines", " padded", ""}) {
+            EntityExporter.appendCsvField(out, value);
+            out.append('|');
+        }
+
+        assertEquals("plain|\"a,b\"|\"say \"\"hi\"\"\"|\"two\nlines\"|\" padded\"||", out.toString());
+    }
+
+    @Test
+    void csvExportReadsBackIntoTheSameRows() throws IOException {
+        Path file = dir.resolve("patients.csv");
+        long count = EntityExporter.writeFile(EntitySchema.PATIENTS,
+            Stream.of(patient("P1", "Smith, Jr"), patient("P2", "O\"Brien")), file);
+
+        assertEquals(2, count);
+        List<String[]> rows = CSVReader.readCSV(file.toString(), true);
+        assertEquals(2, rows.size());
+        assertEquals("Smith, Jr", rows.get(0)[2]);
+        assertEquals("O\"Brien", rows.get(1)[2]);
+    }
+
+    @Test
+    void ndjsonHasOneObjectPerRow() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EntityExporter.write(EntitySchema.PATIENTS, Stream.of(patient("P1", "Smith"), patient("P2", "Jones")),
+            EntityExporter.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"patient_id\":\"P1\""), lines[0]);
+        assertTrue(lines[1].contains("\"last_name\":\"Jones\""), lines[1]);
+    }
+
+    @Test
+    void formatComesFromTheExtension() {
+        assertEquals(EntityExporter.Format.CSV, EntityExporter.Format.forFile(Paths.get("out.csv.gz")));
+        assertEquals(EntityExporter.Format.NDJSON, EntityExporter.Format.forFile(Paths.get("out.jsonl")));
+        assertThrows(IllegalArgumentException.class, () -> EntityExporter.Format.forFile(Paths.get("out.xml")));
+    }
+
+    @Test
+    void compressedExportReadsBack() throws IOException {
+        Path file = dir.resolve("patients.csv.gz");
+        EntityExporter.writeFile(EntitySchema.PATIENTS, Stream.of(patient("P1", "Smith")), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        assertEquals(0x1f, bytes[0] & 0xff);
+        assertEquals(0x8b, bytes[1] & 0xff);
+        assertEquals("Smith", CSVReader.readCSV(file.toString(), true).get(0)[2]);
+        assertFalse(Files.exists(dir.resolve("patients.csv.gz.tmp")));
+    }
+
+    @Test
+    void failedExportLeavesTheOldFileInPlace() throws IOException {
+        Path file = Files.write(dir.resolve("patients.csv"), "old\n".getBytes(StandardCharsets.UTF_8));
+        Stream<Patient> failing = Stream.of(patient("P1", "Smith"), patient("P2", "Jones")).map(p -> {
+            if (p.getPatientId().equals("P2")) {
+                throw new IllegalStateException("source failed");
+            }
+            return p;
+        });
+
+        assertThrows(IllegalStateException.class, () -> EntityExporter.writeFile(EntitySchema.PATIENTS, failing, file));
+
+        assertEquals("old\n", Files.readString(file));
+        assertFalse(Files.exists(dir.resolve("patients.csv.tmp")));
+    }
+
+    // ==================== HELPERS ====================
+
+    private static Patient patient(String id, String lastName) {
+        Patient patient = new Patient();
+        patient.setPatientId(id);
+        patient.setFirstName("First");
+        patient.setLastName(lastName);
+        return patient;
+    }
+}
@@ -0,0 +1,167 @@
+package com.mycompany.tejani_part2.utilities;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NavigableSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EntityTable: the ID index stays correct as rows are swap-removed, and row
+ * versions change with every write
+ */
+class EntityTableTest {
+    private EntityTable<String[]> table;
+
+    @BeforeEach
+    void fill() {
+        table = new EntityTable<>(row -> row[0]);
+        for (String id : new String[] {"A1", "A2", "A3", "A4"}) {
+            table.add(new String[] {id, "value " + id});
+        }
+    }
+
+    @Test
+    void removingFromTheMiddleMovesTheLastRowIntoTheGap() {
+        String[] removed = table.removeById("A2");
+
+        assertEquals("A2", removed[0]);
+        assertEquals(3, table.size());
+        assertEquals("A4", table.get(1)[0]);
+        assertEquals(1, table.indexOf("A4"));
+        assertEquals(-1, table.indexOf("A2"));
+        assertNull(table.getById("A2"));
+        assertIndexMatchesRows();
+    }
+
+    @Test
+    void removingTheLastRowMovesNothing() {
+        table.removeById("A4");
+
+        assertEquals(Arrays.asList("A1", "A2", "A3"), Arrays.asList(table.get(0)[0], table.get(1)[0], table.get(2)[0]));
+        assertIndexMatchesRows();
+    }
+
+    @Test
+    void removingEveryRowInAnyOrderLeavesAnEmptyTable() {
+        for (String id : new String[] {"A1", "A3", "A4", "A2"}) {
+            assertNotNull(table.removeById(id));
+            assertIndexMatchesRows();
+        }
+        assertEquals(0, table.size());
+        assertTrue(table.ids().isEmpty());
+        assertTrue(table.sortedIds().isEmpty());
+    }
+
+    @Test
+    void removingAnUnknownIdReturnsNull() {
+        assertNull(table.removeById("A9"));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    void sortedIdsFollowAddsRemovesAndIdChanges() {
+        table.removeById("A3");
+        table.add(new String[] {"A10", "ten"});
+        table.updateById("A1", new String[] {"A0", "renamed"});
+
+        assertEquals(Arrays.asList("A0", "A2", "A4", "A10"), Arrays.asList(table.sortedIds().toArray()));
+        assertEquals("renamed", table.getById("A0")[1]);
+        assertFalse(table.containsId("A1"));
+        assertIndexMatchesRows();
+    }
+
+    @Test
+    void sortedIdsHandedOutEarlierDoNotChange() {
+        NavigableSet<String> before = table.sortedIds();
+        table.add(new String[] {"A5", "five"});
+        table.removeById("A1");
+
+        assertEquals(Arrays.asList("A1", "A2", "A3", "A4"), new ArrayList<>(before));
+        assertEquals(Arrays.asList("A2", "A3", "A4", "A5"), new ArrayList<>(table.sortedIds()));
+        assertThrows(UnsupportedOperationException.class, () -> before.add("A9"));
+    }
+
+    @Test
+    void unchangedTableSharesOneSortedIdsCopy() {
+        NavigableSet<String> first = table.sortedIds();
+        table.updateById("A2", new String[] {"A2", "same ID"});
+
+        assertSame(first, table.sortedIds());
+    }
+
+    // ==================== VERSIONS ====================
+
+    @Test
+    void loadedRowsShareOneVersionAndMissingRowsHaveNone() {
+        long loaded = table.getVersion("A1");
+
+        assertTrue(loaded > 0);
+        assertEquals(loaded, table.getVersion("A4"));
+        assertEquals(0, table.getVersion("A9"));
+    }
+
+    @Test
+    void everyUpdateGivesTheRowANewerVersion() {
+        long before = table.getVersion("A2");
+        table.updateById("A2", new String[] {"A2", "changed"});
+        long after = table.getVersion("A2");
+
+        assertTrue(after > before);
+        assertEquals(before, table.getVersion("A1"));
+    }
+
+    @Test
+    void compareAndUpdateRejectsAStaleVersion() {
+        long read = table.getVersion("A3");
+        table.compareAndUpdate("A3", read, new String[] {"A3", "first"});
+
+        UpdateConflictException conflict = assertThrows(UpdateConflictException.class,
+            () -> table.compareAndUpdate("A3", read, new String[] {"A3", "second"}));
+        assertEquals("A3", conflict.getId());
+        assertEquals(read, conflict.getExpectedVersion());
+        assertEquals(table.getVersion("A3"), conflict.getCurrentVersion());
+        assertEquals("first", table.getById("A3")[1]);
+    }
+
+    @Test
+    void compareAndUpdateOfAMissingRowReturnsNull() {
+        assertNull(table.compareAndUpdate("A9", 1, new String[] {"A9", "x"}));
+        assertFalse(table.containsId("A9"));
+    }
+
+    @Test
+    void readdedRowNeverReusesAnOldVersion() {
+        long original = table.getVersion("A1");
+        table.removeById("A1");
+        assertEquals(0, table.getVersion("A1"));
+
+        table.add(new String[] {"A1", "again"});
+        assertTrue(table.getVersion("A1") > original);
+    }
+
+    @Test
+    void clearStartsANewLoadVersion() {
+        table.updateById("A1", new String[] {"A1", "changed"});
+        long updated = table.getVersion("A1");
+        table.clear();
+        table.add(new String[] {"A1", "reloaded"});
+
+        assertTrue(table.getVersion("A1") > updated);
+    }
+
+    /**
+     * Every row is found at its own position by its ID
+     */
+    private void assertIndexMatchesRows() {
+        assertEquals(table.size(), table.ids().size());
+        for (int i = 0; i < table.size(); i++) {
+            String id = table.get(i)[0];
+            assertEquals(i, table.indexOf(id), id);
+            assertSame(table.get(i), table.getById(id), id);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IntegrityValidator: references to missing rows, blank required and
+ * optional references, and repeated IDs
+ */
+class IntegrityValidatorTest {
+    @TempDir
+    Path dir;
+
+    private DataManager data;
+
+    @BeforeEach
+    void create() throws IOException {
+        ReferralManager.getInstance().clearAll();
+        data = new DataManager();
+        Facility facility = new Facility();
+        facility.setFacilityId("F1");
+        EntityExporter.writeFile(EntitySchema.FACILITIES, Stream.of(facility), dir.resolve("facilities.csv"));
+        assertTrue(data.loadFacilities(dir.resolve("facilities.csv").toString()));
+
+        Patient patient = new Patient();
+        patient.setPatientId("P1");
+        patient.setGpSurgeryId("F1");
+        data.addPatient(patient);
+        Clinician clinician = new Clinician();
+        clinician.setClinicianId("C1");
+        data.addClinician(clinician);
+        data.addAppointment(appointment("A1", "P1", "F1"));
+    }
+
+    @Test
+    void consistentDataIsClean() {
+        data.addPrescription(prescription("RX1", "P1", ""));
+        data.getReferralManager().addReferral(referral("R1", "C1"));
+
+        IntegrityReport report = new IntegrityValidator(data).validate();
+
+        assertTrue(report.isClean(), report.toMap().toString());
+    }
+
+    @Test
+    void missingTargetsAreReportedPerField() {
+        data.addAppointment(appointment("A2", "P9", "F1"));
+        data.addPrescription(prescription("RX1", "P1", "A9"));
+        data.getReferralManager().addReferral(referral("R1", "C9"));
+
+        IntegrityReport report = new IntegrityValidator(data).validate();
+
+        assertEquals(List.of("A2 patient_id -> P9"), describe(report, "appointments"));
+        assertEquals(List.of("RX1 appointment_id -> A9"), describe(report, "prescriptions"));
+        assertEquals(List.of("R1 referred_to_clinician_id -> C9"), describe(report, "referrals"));
+        assertEquals(3, report.getOrphanCount());
+    }
+
+    @Test
+    void blankReferenceIsAnOrphanOnlyWhenRequired() {
+        data.addAppointment(appointment("A2", "P1", ""));
+        Staff member = new Staff();
+        member.setStaffId("ST1");
+        data.addStaff(member);
+
+        IntegrityReport report = new IntegrityValidator(data).validate();
+
+        assertEquals(List.of("A2 facility_id -> "), describe(report, "appointments"));
+        assertTrue(report.getOrphans().get("staff").isEmpty());
+    }
+
+    @Test
+    void repeatedIdsInAFileAreListed() throws IOException {
+        Patient first = new Patient();
+        first.setPatientId("P1");
+        Patient again = new Patient();
+        again.setPatientId("P1");
+        Path file = dir.resolve("patients.csv");
+        EntityExporter.writeFile(EntitySchema.PATIENTS, Stream.of(first, again), file);
+        assertTrue(data.loadPatients(file.toString()));
+
+        IntegrityReport report = new IntegrityValidator(data).validate();
+
+        assertEquals(1, report.getDuplicateCount());
+        assertTrue(report.getDuplicates().get("patients").contains("P1"));
+    }
+
+    @Test
+    void columnarStorageGivesTheSameReport() {
+        data.addAppointment(appointment("A2", "P9", "F9"));
+        data.setColumnarStorage(true);
+
+        IntegrityReport report = new IntegrityValidator(data).validate();
+
+        assertEquals(List.of("A2 facility_id -> F9", "A2 patient_id -> P9"), describe(report, "appointments"));
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Orphans of one entity as "id field -> missing id", in report order
+     */
+    private static List<String> describe(IntegrityReport report, String entity) {
+        return report.getOrphans().get(entity).stream()
+            .map(o -> o.getId() + " " + o.getField() + " -> " + o.getMissingId())
+            .collect(Collectors.toList());
+    }
+
+    private static Appointment appointment(String id, String patientId, String facilityId) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(id);
+        appointment.setPatientId(patientId);
+        appointment.setClinicianId("C1");
+        appointment.setFacilityId(facilityId);
+        return appointment;
+    }
+
+    private static Prescription prescription(String id, String patientId, String appointmentId) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(id);
+        prescription.setPatientId(patientId);
+        prescription.setClinicianId("C1");
+        prescription.setAppointmentId(appointmentId);
+        return prescription;
+    }
+
+    private static Referral referral(String id, String referredTo) {
+        Referral referral = new Referral();
+        referral.setReferralId(id);
+        referral.setPatientId("P1");
+        referral.setReferringClinicianId("C1");
+        referral.setReferredToClinicianId(referredTo);
+        referral.setReferringFacilityId("F1");
+        referral.setReferredToFacilityId("F1");
+        referral.setStatus("Completed");
+        return referral;
+    }
+}
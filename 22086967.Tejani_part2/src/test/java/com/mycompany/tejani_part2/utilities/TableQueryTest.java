@@ -0,0 +1,143 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Appointment;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TableQuery (through DataManager): keyset pages in each order, filters on
+ * indexed and plain fields, and streams matching the pages
+ */
+class TableQueryTest {
+    private DataManager data;
+
+    @BeforeEach
+    void create() {
+        ReferralManager.getInstance().clearAll();
+        data = new DataManager();
+        // IDs A1..A12, dates cycling over three days, every third one cancelled
+        for (int i = 1; i <= 12; i++) {
+            data.addAppointment(appointment("A" + i, "2024-01-0" + (1 + i % 3),
+                i % 3 == 0 ? "Cancelled" : "Scheduled", "type" + (i % 4)));
+        }
+    }
+
+    @Test
+    void idOrderPagesVisitEveryRowOnceWithShortIdsFirst() {
+        List<String> ids = allPages(new EntityQuery<Appointment>().limit(5));
+
+        assertEquals(List.of("A1", "A2", "A3", "A4", "A5", "A6", "A7", "A8", "A9", "A10", "A11", "A12"), ids);
+    }
+
+    @Test
+    void descendingIdOrder() {
+        List<String> ids = allPages(new EntityQuery<Appointment>().descending().limit(4));
+
+        assertEquals("A12", ids.get(0));
+        assertEquals("A1", ids.get(11));
+    }
+
+    @Test
+    void indexedFilterOrderedByAnIndexedFieldBreaksTiesById() {
+        List<String> ids = allPages(new EntityQuery<Appointment>()
+            .where("status", "Scheduled").orderBy("appointmentDate").limit(3));
+
+        // Scheduled: dates 01-02 for A1,A4,A7,A10 and 01-03 for A2,A5,A8,A11
+        assertEquals(List.of("A1", "A4", "A7", "A10", "A2", "A5", "A8", "A11"), ids);
+    }
+
+    @Test
+    void orderByAFieldWithoutAnIndex() {
+        List<String> ids = allPages(new EntityQuery<Appointment>()
+            .where("status", "Cancelled").orderBy("appointmentType").descending().limit(2));
+
+        // Cancelled: A3 type3, A6 type2, A9 type1, A12 type0
+        assertEquals(List.of("A3", "A6", "A9", "A12"), ids);
+    }
+
+    @Test
+    void rangeAndRowConditionCombine() {
+        List<String> ids = allPages(new EntityQuery<Appointment>()
+            .between("appointmentDate", "2024-01-01", "2024-01-02")
+            .matching(a -> !a.getAppointmentType().equals("type0"))
+            .limit(100));
+
+        assertEquals(List.of("A1", "A3", "A6", "A7", "A9", "A10"), ids);
+    }
+
+    @Test
+    void rowDeletedBetweenPagesIsSkippedWithoutLosingOthers() {
+        EntityQuery<Appointment> query = new EntityQuery<Appointment>().limit(4);
+        Page<Appointment> first = data.queryAppointments(query);
+        data.deleteAppointment("A5");
+
+        Page<Appointment> second = data.queryAppointments(query.after(first.getNextCursor()));
+
+        assertEquals(List.of("A6", "A7", "A8", "A9"), ids(second.getItems()));
+    }
+
+    @Test
+    void streamMatchesThePages() {
+        EntityQuery<Appointment> query = new EntityQuery<Appointment>()
+            .where("status", "Scheduled").orderBy("appointmentType").limit(3);
+
+        List<String> streamed = data.streamAppointments(query).map(Appointment::getAppointmentId)
+            .collect(Collectors.toList());
+
+        assertEquals(allPages(query), streamed);
+    }
+
+    @Test
+    void snapshotScanIgnoresLaterWrites() {
+        List<Appointment> scanned = data.scanSnapshot(EntitySchema.APPOINTMENTS,
+            new EntityQuery<Appointment>().where("status", "Cancelled")).collect(Collectors.toList());
+        data.deleteAppointment("A3");
+
+        assertEquals(4, scanned.size());
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> data.queryAppointments(new EntityQuery<Appointment>().where("colour", "red")));
+        assertThrows(IllegalArgumentException.class,
+            () -> data.queryAppointments(new EntityQuery<Appointment>().orderBy("colour")));
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * IDs of every page of the query, following next cursors to the end
+     */
+    private List<String> allPages(EntityQuery<Appointment> query) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<Appointment> page = data.queryAppointments(query.after(cursor));
+            assertTrue(page.getItems().size() <= query.getLimit());
+            ids.addAll(ids(page.getItems()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<String> ids(List<Appointment> appointments) {
+        return appointments.stream().map(Appointment::getAppointmentId).collect(Collectors.toList());
+    }
+
+    private static Appointment appointment(String id, String date, String status, String type) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(id);
+        appointment.setAppointmentDate(date);
+        appointment.setStatus(status);
+        appointment.setAppointmentType(type);
+        return appointment;
+    }
+}
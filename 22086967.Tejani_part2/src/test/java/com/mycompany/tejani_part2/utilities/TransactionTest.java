@@ -0,0 +1,220 @@
+package com.mycompany.tejani_part2.utilities;
+
+import com.mycompany.tejani_part2.models.Appointment;
+import com.mycompany.tejani_part2.models.Patient;
+import com.mycompany.tejani_part2.models.Prescription;
+import com.mycompany.tejani_part2.models.ReferralManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transaction: version checks against direct writers, undo of a failed
+ * commit, and commits racing each other
+ */
+class TransactionTest {
+    @TempDir
+    Path dir;
+
+    private DataManager data;
+
+    @BeforeEach
+    void create() {
+        ReferralManager.getInstance().clearAll();
+        data = new DataManager();
+        data.setCommitLog(dir.resolve("transactions.log"));
+        data.addPatient(patient("P1", "0"));
+    }
+
+    @Test
+    void directUpdateAfterTheReadIsAConflict() throws IOException {
+        try (Transaction tx = data.beginTransaction()) {
+            Patient read = tx.get(EntitySchema.PATIENTS, "P1");
+            data.updatePatient("P1", patient("P1", "direct"));
+            tx.update(EntitySchema.PATIENTS, "P1", patient("P1", read.getAddress() + "+tx"));
+
+            UpdateConflictException conflict = assertThrows(UpdateConflictException.class, tx::commit);
+            assertEquals("P1", conflict.getId());
+            assertEquals(data.getVersion(EntitySchema.PATIENTS, "P1"), conflict.getCurrentVersion());
+            assertFalse(tx.isCommitted());
+        }
+        assertEquals("direct", data.getPatientById("P1").getAddress());
+    }
+
+    @Test
+    void directAddOfTheSameIdIsAConflict() {
+        try (Transaction tx = data.beginTransaction()) {
+            tx.add(EntitySchema.PATIENTS, patient("P2", "tx"));
+            data.addPatient(patient("P2", "direct"));
+
+            assertThrows(UpdateConflictException.class, tx::commit);
+        }
+        assertEquals(2, data.getPatients().size());
+        assertEquals("direct", data.getPatientById("P2").getAddress());
+    }
+
+    @Test
+    void deleteOfARowChangedSinceTheReadIsAConflict() {
+        try (Transaction tx = data.beginTransaction()) {
+            assertTrue(tx.delete(EntitySchema.PATIENTS, "P1"));
+            data.updatePatient("P1", patient("P1", "direct"));
+
+            assertThrows(UpdateConflictException.class, tx::commit);
+        }
+        assertEquals("direct", data.getPatientById("P1").getAddress());
+    }
+
+    @Test
+    void insertRowRejectsAnExistingId() {
+        UpdateConflictException conflict = assertThrows(UpdateConflictException.class,
+            () -> data.insertRow(EntitySchema.PATIENTS, patient("P1", "again")));
+
+        assertEquals(0, conflict.getExpectedVersion());
+        assertEquals(1, data.getPatients().size());
+    }
+
+    @Test
+    void failedCommitLogWriteUndoesEveryAppliedRow() {
+        // A directory cannot be appended to, so the log write fails after both rows are applied
+        data.setCommitLog(dir);
+        AtomicInteger rolledBack = new AtomicInteger();
+        try (Transaction tx = data.beginTransaction()) {
+            tx.add(EntitySchema.APPOINTMENTS, appointment("A1"));
+            tx.add(EntitySchema.PRESCRIPTIONS, prescription("RX1"));
+            tx.update(EntitySchema.PATIENTS, "P1", patient("P1", "tx"));
+            tx.onRollback(rolledBack::incrementAndGet);
+
+            assertThrows(IOException.class, tx::commit);
+        }
+
+        assertNull(data.getAppointmentById("A1"));
+        assertNull(data.getPrescriptionById("RX1"));
+        assertEquals("0", data.getPatientById("P1").getAddress());
+        assertTrue(data.findAppointmentIds(null, "Scheduled", null, null).isEmpty());
+        assertEquals(1, rolledBack.get());
+    }
+
+    @Test
+    void racingInsertsOfOneIdStoreExactlyOne() throws InterruptedException {
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        runConcurrently(threads, thread -> {
+            try (Transaction tx = data.beginTransaction()) {
+                tx.add(EntitySchema.PATIENTS, patient("P9", "thread " + thread));
+                ready.countDown();
+                ready.await();
+                tx.commit();
+                committed.incrementAndGet();
+            } catch (UpdateConflictException e) {
+                conflicts.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, committed.get());
+        assertEquals(threads - 1, conflicts.get());
+        assertEquals(2, data.getPatients().size());
+        assertTrue(data.patientTable().duplicateIds().isEmpty());
+    }
+
+    @Test
+    void transactionsAndDirectVersionedWritesLoseNoIncrement() throws InterruptedException {
+        int threads = 6;
+        int increments = 200;
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < increments; i++) {
+                boolean done = false;
+                while (!done) {
+                    try {
+                        if (thread % 2 == 0) {
+                            try (Transaction tx = data.beginTransaction()) {
+                                Patient read = tx.get(EntitySchema.PATIENTS, "P1");
+                                tx.update(EntitySchema.PATIENTS, "P1", incremented(read));
+                                tx.commit();
+                            }
+                        } else {
+                            long version = data.getVersion(EntitySchema.PATIENTS, "P1");
+                            Patient read = data.getPatientById("P1");
+                            data.updatePatient("P1", incremented(read), version);
+                        }
+                        done = true;
+                    } catch (UpdateConflictException e) {
+                        // Someone else got there first; read again and retry
+                    }
+                }
+            }
+        });
+
+        assertEquals(String.valueOf(threads * increments), data.getPatientById("P1").getAddress());
+    }
+
+    // ==================== HELPERS ====================
+
+    private interface Body {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Body body) throws InterruptedException {
+        List<Thread> started = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread t = new Thread(() -> {
+                try {
+                    body.run(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            started.add(t);
+            t.start();
+        }
+        for (Thread t : started) {
+            t.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /**
+     * A patient whose address is used as a counter or a marker of who wrote it
+     */
+    private static Patient patient(String id, String address) {
+        Patient patient = new Patient();
+        patient.setPatientId(id);
+        patient.setFirstName("First");
+        patient.setLastName("Last");
+        patient.setAddress(address);
+        return patient;
+    }
+
+    private static Patient incremented(Patient patient) {
+        return patient(patient.getPatientId(), String.valueOf(Integer.parseInt(patient.getAddress()) + 1));
+    }
+
+    private static Appointment appointment(String id) {
+        Appointment appointment = new Appointment();
+        appointment.setAppointmentId(id);
+        appointment.setPatientId("P1");
+        appointment.setStatus("Scheduled");
+        return appointment;
+    }
+
+    private static Prescription prescription(String id) {
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(id);
+        prescription.setPatientId("P1");
+        prescription.setStatus("Issued");
+        return prescription;
+    }
+}
@@ -0,0 +1,153 @@
+package com.mycompany.tejani_part2.views;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.DefaultTableModel;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KeyedRowSorter: sort keys, ID filters, and single-row changes merged into
+ * the view giving the same order as sorting from scratch
+ */
+class KeyedRowSorterTest {
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int COUNT = 2;
+
+    private DefaultTableModel model;
+    private KeyedRowSorter<DefaultTableModel> sorter;
+
+    @BeforeEach
+    void create() {
+        model = new DefaultTableModel(new Object[] {"id", "name", "count"}, 0);
+        sorter = new KeyedRowSorter<>(model, ID);
+    }
+
+    @Test
+    void numbersSortNumericallyAndTextIgnoresCase() {
+        addRows(new Object[][] {{"R1", "beta", 10}, {"R2", "Alpha", 9}, {"R3", "alpha", 100}});
+
+        sort(COUNT, SortOrder.ASCENDING);
+        assertEquals(List.of("R2", "R1", "R3"), viewIds());
+
+        // Equal keys keep model order
+        sort(NAME, SortOrder.ASCENDING);
+        assertEquals(List.of("R2", "R3", "R1"), viewIds());
+
+        // Descending reverses the keys only; equal keys still keep model order
+        sorter.toggleSortOrder(NAME);
+        assertEquals(List.of("R1", "R2", "R3"), viewIds());
+    }
+
+    @Test
+    void filterShowsOnlyTheListedIds() {
+        addRows(new Object[][] {{"R1", "a", 1}, {"R2", "b", 2}, {"R3", "c", 3}});
+
+        sorter.setFilterIds(new HashSet<>(List.of("R3", "R1", "missing")));
+
+        assertEquals(List.of("R1", "R3"), viewIds());
+        assertEquals(-1, sorter.convertRowIndexToView(1));
+        assertEquals(2, sorter.modelIndexOf("R3"));
+        assertEquals(-1, sorter.modelIndexOf("missing"));
+
+        sorter.setFilterIds(null);
+        assertEquals(3, sorter.getViewRowCount());
+    }
+
+    @Test
+    void singleRowChangesMatchAFullResort() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            model.addRow(new Object[] {"R" + i, "name" + random.nextInt(30), random.nextInt(50)});
+        }
+        sorter.allRowsChanged();
+        Set<String> filter = new HashSet<>();
+        for (int i = 0; i < 200; i += 2) {
+            filter.add("R" + i);
+        }
+        sorter.setFilterIds(filter);
+        sort(COUNT, SortOrder.DESCENDING);
+
+        int nextId = 200;
+        for (int step = 0; step < 500; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || model.getRowCount() < 50) {
+                String id = "R" + nextId++;
+                boolean shown = random.nextBoolean();
+                setMembership(filter, id, shown);
+                int row = random.nextInt(model.getRowCount() + 1);
+                model.insertRow(row, new Object[] {id, "name" + random.nextInt(30), random.nextInt(50)});
+                sorter.rowsInserted(row, row);
+            } else if (op == 1) {
+                int row = random.nextInt(model.getRowCount());
+                setMembership(filter, (String) model.getValueAt(row, ID), false);
+                model.removeRow(row);
+                sorter.rowsDeleted(row, row);
+            } else {
+                int row = random.nextInt(model.getRowCount());
+                setMembership(filter, (String) model.getValueAt(row, ID), random.nextBoolean());
+                model.setValueAt(random.nextInt(50), row, COUNT);
+                sorter.rowsUpdated(row, row);
+            }
+            assertEquals(expectedView(filter, COUNT, true), viewIds(), "after step " + step);
+        }
+        for (int row = 0; row < model.getRowCount(); row++) {
+            assertEquals(row, sorter.modelIndexOf((String) model.getValueAt(row, ID)));
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private void addRows(Object[][] rows) {
+        for (Object[] row : rows) {
+            model.addRow(row);
+        }
+        sorter.allRowsChanged();
+    }
+
+    private void sort(int column, SortOrder order) {
+        sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(column, order)));
+    }
+
+    private void setMembership(Set<String> filter, String id, boolean shown) {
+        sorter.setFilterMembership(id, shown);
+        if (shown) {
+            filter.add(id);
+        } else {
+            filter.remove(id);
+        }
+    }
+
+    private List<String> viewIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < sorter.getViewRowCount(); i++) {
+            ids.add((String) model.getValueAt(sorter.convertRowIndexToModel(i), ID));
+        }
+        return ids;
+    }
+
+    /**
+     * The view worked out from scratch: filtered rows by an integer column,
+     * equal values in model order
+     */
+    private List<String> expectedView(Set<String> filter, int column, boolean descending) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            if (filter.contains((String) model.getValueAt(row, ID))) {
+                rows.add(row);
+            }
+        }
+        Comparator<Integer> byValue = Comparator.comparing(row -> (Integer) model.getValueAt(row, column));
+        rows.sort((descending ? byValue.reversed() : byValue).thenComparing(Comparator.naturalOrder()));
+        List<String> ids = new ArrayList<>();
+        for (int row : rows) {
+            ids.add((String) model.getValueAt(row, ID));
+        }
+        return ids;
+    }
+}